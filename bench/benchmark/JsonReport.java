@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JsonReport
+ * ----------
+ * Compares two JMH result files (-rf json) and lists the change in
+ * median time of every benchmark found in both; slower by more than
+ * the threshold is marked REGRESSION.
+ *
+ * The comparison uses the median rather than the mean score, so one GC
+ * pause or JIT compilation in an iteration does not read as a regression.
+ *
+ * USAGE (see README.md):
+ *   mvn -B -Pbench test-compile exec:exec@compare
+ *       -Dbench.args="bench-results-old.json bench-results.json 10"
+ *
+ * NOTE:
+ *  - Reads only the fields it needs with a few regular expressions
+ *    (benchmark, params, primaryMetric percentiles), so no JSON
+ *    library is needed
+ */
+public final class JsonReport {
+
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)}");
+    private static final Pattern MEDIAN = Pattern.compile("\"50\\.0\"\\s*:\\s*([-0-9.eE]+|\"NaN\")");
+    private static final Pattern UNIT = Pattern.compile("\"scoreUnit\"\\s*:\\s*\"([^\"]*)\"");
+
+    private JsonReport() {}
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: JsonReport <baseline.json> <current.json> [threshold %]");
+        }
+
+        Path baseline = Paths.get(args[0]);
+        Path current = Paths.get(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        Map<String, Double> before = medians(baseline);
+        Map<String, Double> after = medians(current);
+
+        System.out.println("Compared " + current + " with " + baseline + " (threshold " + threshold + "%):");
+
+        for (Map.Entry<String, Double> e : after.entrySet()) {
+            Double old = before.get(e.getKey());
+            if (old == null || old == 0 || old.isNaN() || e.getValue().isNaN()) continue;
+
+            double change = (e.getValue() - old) / old * 100.0;
+            System.out.println(String.format(Locale.ROOT, "  %-80s %+8.1f%%%s",
+                    e.getKey(), change, change > threshold ? "  REGRESSION" : ""));
+        }
+    }
+
+    /**
+     * Median score per "benchmark {params}" (units included in the key,
+     * so runs with a different time unit are not compared).
+     */
+    static Map<String, Double> medians(Path file) throws IOException {
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Map<String, Double> medians = new LinkedHashMap<>();
+
+        // One result per "benchmark" key; primaryMetric comes before secondaryMetrics
+        Matcher b = BENCHMARK.matcher(json);
+        int start = b.find() ? b.start() : -1;
+        while (start >= 0) {
+            String name = b.group(1);
+            int end = b.find() ? b.start() : json.length();
+            String result = json.substring(start, end);
+
+            Matcher p = PARAMS.matcher(result);
+            Matcher u = UNIT.matcher(result);
+            Matcher m = MEDIAN.matcher(result);
+            if (m.find()) {
+                String params = p.find() ? p.group(1).replaceAll("\\s+", "") : "";
+                String unit = u.find() ? " " + u.group(1) : "";
+                String score = m.group(1);
+                medians.put(name + " {" + params + "}" + unit,
+                        score.startsWith("\"") ? Double.NaN : Double.parseDouble(score));
+            }
+
+            start = end < json.length() ? end : -1;
+        }
+        return medians;
+    }
+}
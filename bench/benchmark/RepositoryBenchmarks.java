@@ -0,0 +1,534 @@
+package benchmark;
+
+import model.Appointment;
+import model.Clinician;
+import model.Facility;
+import model.Patient;
+import model.Prescription;
+import model.Referral;
+import model.Staff;
+import model.TemporalCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.AppointmentRepository;
+import repository.ClinicianRepository;
+import repository.ColumnarAppointmentStore;
+import repository.FacilityRepository;
+import repository.PatientRepository;
+import repository.PersistenceScheduler;
+import repository.PrescriptionRepository;
+import repository.ReferralRepository;
+import repository.SnapshotStore;
+import repository.StaffRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * RepositoryBenchmarks
+ * --------------------
+ * JMH benchmarks for the data layer, run for every entity at 1,000,
+ * 100,000 and 1,000,000 rows (@Param entity / rows):
+ *
+ *  parseCsv          read() with no snapshot: CSV parse (+ snapshot write)
+ *  parseSnapshot     read() when the binary snapshot is current
+ *  load              load(): read() plus install() (index rebuild)
+ *  lookupId          find by primary key (random existing IDs)
+ *  getAll            getAll() (a defensive copy for most repositories)
+ *  add               add a new row and wait for it to be persisted
+ *  update            update a row and wait for it to be persisted
+ *  delete            delete a row and wait for it to be persisted
+ *
+ * and for appointments only (the Appointment Report):
+ *
+ *  reportToColumnar  AppointmentRepository.toColumnar()
+ *  reportColumnar    appointments per clinician over all dates, from
+ *                    the ColumnarAppointmentStore
+ *  reportObjects     the same counts from the Appointment objects,
+ *                    for comparison
+ *
+ * Each trial generates the entity's CSV in a temporary folder (see
+ * SyntheticDataGenerator, fixed seed, so every machine measures the
+ * same data) and deletes it again afterwards.
+ *
+ * Persistence is measured with the PersistenceScheduler's batching
+ * window set to 0, so a mutation's time is the cost of its write
+ * (whole CSV, or the journal append for patients), not the window.
+ *
+ * RUN (from the project root, see README.md):
+ *   mvn -B -Pbench test-compile exec:exec@bench -Dbench.args="-p rows=1000 -p entity=patient"
+ *
+ * NOTE:
+ *  - Needs roughly 2 GB of heap and 1 GB of disk at 1,000,000 rows
+ *  - parseCsv and delete prepare every call (Level.Invocation); the
+ *    calls take milliseconds, so the setup does not skew the timing
+ *  - Prescriptions have no find-by-ID, so lookupId skips them
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmarks {
+
+    /** Seed for the generated data */
+    private static final long SEED = 42;
+
+    /* =====================================================
+       STATE
+       ===================================================== */
+
+    /**
+     * One entity's repository, loaded from a generated file.
+     */
+    abstract static class Fixture {
+
+        Entity<?> adapter;
+        Path folder;
+        String path;
+
+        void open(String name, int rows) throws IOException {
+
+            // Time a save by its write, not by the batching window
+            PersistenceScheduler.getInstance().setLatencyMillis(0);
+
+            adapter = create(name);
+            folder = Files.createTempDirectory("bench-" + rows + "-");
+            Path csv = folder.resolve(adapter.fileName);
+            new SyntheticDataGenerator(SEED, SyntheticDataGenerator.Sizes.uniform(rows))
+                    .write(adapter.fileName, csv);
+            path = csv.toString();
+
+            adapter.read(path); // make sure a current snapshot exists
+            adapter.prepare(path);
+        }
+
+        void close() throws IOException {
+            PersistenceScheduler.getInstance().flushAll();
+            deleteRecursively(folder);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Data extends Fixture {
+
+        @Param({"patient", "clinician", "facility", "staff", "appointment", "prescription", "referral"})
+        public String entity;
+
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        /** Operation number, for unique IDs and the lookup order */
+        int n;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            open(entity, rows);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    /** The entities with a find-by-ID */
+    @State(Scope.Benchmark)
+    public static class Lookups extends Fixture {
+
+        @Param({"patient", "clinician", "facility", "staff", "appointment", "referral"})
+        public String entity;
+
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        int n;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            open(entity, rows);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    /** Removes the snapshot before each call, so read() parses the CSV */
+    @State(Scope.Benchmark)
+    public static class ColdRead {
+
+        @Setup(Level.Invocation)
+        public void deleteSnapshot(Data data) throws IOException {
+            Files.deleteIfExists(SnapshotStore.snapshotPath(data.path));
+        }
+    }
+
+    /** Adds (untimed) the row each delete call removes */
+    @State(Scope.Benchmark)
+    public static class Deletable {
+
+        String id;
+
+        @Setup(Level.Invocation)
+        public void addRow(Data data) {
+            id = "BD" + data.n++;
+            data.adapter.addCopy(id).join();
+        }
+    }
+
+    /** Loaded appointments and their columnar copy */
+    @State(Scope.Benchmark)
+    public static class Report {
+
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        final AppointmentRepository repo = new AppointmentRepository();
+        ColumnarAppointmentStore store;
+        String from;
+        String to;
+        Path folder;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            folder = Files.createTempDirectory("bench-" + rows + "-");
+            Path csv = folder.resolve("appointments.csv");
+            new SyntheticDataGenerator(SEED, SyntheticDataGenerator.Sizes.uniform(rows))
+                    .write("appointments.csv", csv);
+            repo.load(csv.toString());
+
+            store = repo.toColumnar();
+            from = store.firstDate();
+            to = store.lastDate();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(folder);
+        }
+    }
+
+    /* =====================================================
+       BENCHMARKS
+       ===================================================== */
+
+    @Benchmark
+    public Object parseCsv(Data data, ColdRead cold) throws IOException {
+        return data.adapter.read(data.path);
+    }
+
+    @Benchmark
+    public Object parseSnapshot(Data data) throws IOException {
+        return data.adapter.read(data.path);
+    }
+
+    @Benchmark
+    public Object load(Data data) throws IOException {
+        data.adapter.load(data.path);
+        return data.adapter;
+    }
+
+    @Benchmark
+    public Object lookupId(Lookups lookups) {
+        return lookups.adapter.lookup(lookups.n++);
+    }
+
+    @Benchmark
+    public Object getAll(Data data) {
+        return data.adapter.getAll();
+    }
+
+    @Benchmark
+    public void add(Data data) {
+        data.adapter.addCopy("BA" + data.n++).join();
+    }
+
+    @Benchmark
+    public void update(Data data) {
+        data.adapter.update(data.n++).join();
+    }
+
+    @Benchmark
+    public void delete(Data data, Deletable row) {
+        data.adapter.delete(row.id).join();
+    }
+
+    @Benchmark
+    public Object reportToColumnar(Report report) {
+        return report.repo.toColumnar();
+    }
+
+    @Benchmark
+    public Object reportColumnar(Report report) {
+        return report.store.countByClinician(report.from, report.to);
+    }
+
+    @Benchmark
+    public Object reportObjects(Report report) {
+        int lo = TemporalCodec.toEpochDay(report.from);
+        int hi = TemporalCodec.toEpochDay(report.to);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (Appointment a : report.repo.view()) {
+            int day = a.getAppointmentDay();
+            if (day >= lo && day <= hi) counts.merge(a.getClinicianId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /* =====================================================
+       ENTITIES
+       ===================================================== */
+
+    /**
+     * Adapter giving every repository the same benchmark interface.
+     * Each instance owns a fresh repository.
+     */
+    abstract static class Entity<T> {
+
+        /** CSV file name in data/ */
+        final String fileName;
+
+        /** Rows as loaded, their IDs, and a fixed pseudo-random visiting order */
+        private List<T> loaded;
+        private String[] ids;
+        private int[] order;
+
+        Entity(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /** Loads the file and remembers its rows for lookups and updates. */
+        void prepare(String path) throws IOException {
+            load(path);
+            loaded = new ArrayList<>(getAll());
+            ids = new String[loaded.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = idOf(loaded.get(i));
+            order = shuffledIndexes(ids.length);
+        }
+
+        /** Looks up the n-th ID in the visiting order. */
+        T lookup(int n) {
+            return findById(ids[order[n % order.length]]);
+        }
+
+        /** Adds a copy of the first row under a new ID. */
+        CompletableFuture<Void> addCopy(String id) {
+            return add(withId(loaded.get(0), id));
+        }
+
+        /** Saves the n-th row in the visiting order unchanged. */
+        CompletableFuture<Void> update(int n) {
+            return update(loaded.get(order[n % order.length]));
+        }
+
+        abstract Object read(String path) throws IOException;
+
+        abstract void load(String path) throws IOException;
+
+        abstract List<T> getAll();
+
+        abstract T findById(String id);
+
+        abstract String idOf(T row);
+
+        /** Copy of a row with another primary key */
+        abstract T withId(T row, String id);
+
+        abstract CompletableFuture<Void> add(T row);
+
+        abstract CompletableFuture<Void> update(T row);
+
+        abstract CompletableFuture<Void> delete(String id);
+    }
+
+    private static void deleteRecursively(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static int[] shuffledIndexes(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+
+        long seed = 42;
+        for (int i = size - 1; i > 0; i--) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int j = (int) ((seed >>> 33) % (i + 1));
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    /** The adapter for one entity (the names used by @Param entity) */
+    static Entity<?> create(String name) {
+
+        switch (name) {
+
+            case "patient":
+                return new Entity<Patient>("patients.csv") {
+                    final PatientRepository repo = new PatientRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Patient> getAll() { return repo.getAll(); }
+                    Patient findById(String id) { return repo.findByNhs(id); }
+                    String idOf(Patient p) { return p.getNhsNumber(); }
+                    Patient withId(Patient p, String id) {
+                        return new Patient(id, p.getFirstName(), p.getLastName(), p.getDateOfBirth(),
+                                p.getPhoneNumber(), p.getEmergencyContactNumber(), p.getGender(),
+                                p.getAddress(), p.getPostcode(), p.getEmail(), p.getRegisteredGpSurgery());
+                    }
+                    CompletableFuture<Void> add(Patient p) { return repo.addPatient(p); }
+                    CompletableFuture<Void> update(Patient p) { return repo.updatePatient(p); }
+                    CompletableFuture<Void> delete(String id) { return repo.deletePatient(id); }
+                };
+
+            case "clinician":
+                return new Entity<Clinician>("clinicians.csv") {
+                    final ClinicianRepository repo = new ClinicianRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Clinician> getAll() { return repo.getAll(); }
+                    Clinician findById(String id) { return repo.findById(id); }
+                    String idOf(Clinician c) { return c.getClinicianId(); }
+                    Clinician withId(Clinician c, String id) {
+                        return new Clinician(id, c.getName(), c.getRole(), c.getSpecialty(), c.getWorkplace());
+                    }
+                    CompletableFuture<Void> add(Clinician c) { return repo.add(c); }
+                    CompletableFuture<Void> update(Clinician c) { return repo.update(c); }
+                    CompletableFuture<Void> delete(String id) { return repo.delete(id); }
+                };
+
+            case "facility":
+                return new Entity<Facility>("facilities.csv") {
+                    final FacilityRepository repo = new FacilityRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Facility> getAll() { return repo.getAll(); }
+                    Facility findById(String id) { return repo.findById(id); }
+                    String idOf(Facility f) { return f.getFacilityId(); }
+                    Facility withId(Facility f, String id) {
+                        return new Facility(id, f.getFacilityName(), f.getFacilityType(), f.getAddress(),
+                                f.getPostcode(), f.getPhoneNumber(), f.getEmail(), f.getOpeningHours(),
+                                f.getManagerName(), f.getCapacity(), f.getSpecialitiesOffered());
+                    }
+                    CompletableFuture<Void> add(Facility f) { return repo.addFacility(f); }
+                    CompletableFuture<Void> update(Facility f) { return repo.updateFacility(f); }
+                    CompletableFuture<Void> delete(String id) { return repo.deleteFacility(id); }
+                };
+
+            case "staff":
+                return new Entity<Staff>("staff.csv") {
+                    final StaffRepository repo = new StaffRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Staff> getAll() { return repo.getAll(); }
+                    Staff findById(String id) { return repo.findById(id); }
+                    String idOf(Staff s) { return s.getStaffId(); }
+                    Staff withId(Staff s, String id) {
+                        return new Staff(id, s.getName(), s.getRole(), s.getDepartment(), s.getFacilityId(),
+                                s.getPhoneNumber(), s.getEmail(), s.getEmploymentStatus(), s.getStartDate(),
+                                s.getLineManager(), s.getAccessLevel());
+                    }
+                    CompletableFuture<Void> add(Staff s) { return repo.addStaff(s); }
+                    CompletableFuture<Void> update(Staff s) { return repo.updateStaff(s); }
+                    CompletableFuture<Void> delete(String id) { return repo.deleteStaff(id); }
+                };
+
+            case "appointment":
+                return new Entity<Appointment>("appointments.csv") {
+                    final AppointmentRepository repo = new AppointmentRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Appointment> getAll() { return repo.getAll(); }
+                    Appointment findById(String id) { return repo.getById(id); }
+                    String idOf(Appointment a) { return a.getAppointmentId(); }
+                    Appointment withId(Appointment a, String id) {
+                        // Own clinician, so added rows never count as double bookings
+                        return new Appointment(id, a.getPatientId(), "C" + id, a.getFacilityId(),
+                                a.getAppointmentDate(), a.getAppointmentTime(), a.getStatus(), a.getNotes());
+                    }
+                    CompletableFuture<Void> add(Appointment a) { return repo.addAppointment(a); }
+                    CompletableFuture<Void> update(Appointment a) { return repo.updateAppointment(a); }
+                    CompletableFuture<Void> delete(String id) { return repo.deleteAppointment(id); }
+                };
+
+            case "prescription":
+                return new Entity<Prescription>("prescriptions.csv") {
+                    final PrescriptionRepository repo = new PrescriptionRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Prescription> getAll() { return repo.getAll(); }
+                    Prescription findById(String id) {
+                        throw new UnsupportedOperationException("No find-by-ID in PrescriptionRepository");
+                    }
+                    String idOf(Prescription p) { return p.getPrescriptionId(); }
+                    Prescription withId(Prescription p, String id) {
+                        return new Prescription(id, p.getPatientNhsNumber(), p.getClinicianId(),
+                                p.getMedication(), p.getDosage(), p.getPharmacy(), p.getCollectionStatus());
+                    }
+                    CompletableFuture<Void> add(Prescription p) { return repo.addPrescription(p); }
+                    CompletableFuture<Void> update(Prescription p) { return repo.updatePrescription(p); }
+                    CompletableFuture<Void> delete(String id) { return repo.deletePrescription(id); }
+                };
+
+            case "referral":
+                return new Entity<Referral>("referrals.csv") {
+                    final ReferralRepository repo = new ReferralRepository();
+
+                    Object read(String path) throws IOException { return repo.read(path); }
+                    void load(String path) throws IOException { repo.load(path); }
+                    List<Referral> getAll() { return repo.getAll(); }
+                    Referral findById(String id) { return repo.getReferralById(id); }
+                    String idOf(Referral r) { return r.getReferralId(); }
+                    Referral withId(Referral r, String id) {
+                        return new Referral(id, r.getPatientId(), r.getReferringClinicianId(),
+                                r.getReferredToClinicianId(), r.getReferringFacilityId(),
+                                r.getReferredToFacilityId(), r.getReferralDate(), r.getUrgencyLevel(),
+                                r.getReferralReason(), r.getClinicalSummary(), r.getRequestedInvestigations(),
+                                r.getStatus(), r.getAppointmentId(), r.getNotes(), r.getCreatedDate(),
+                                r.getLastUpdated());
+                    }
+                    CompletableFuture<Void> add(Referral r) { return repo.addReferral(r); }
+                    CompletableFuture<Void> update(Referral r) { return repo.updateReferral(r); }
+                    CompletableFuture<Void> delete(String id) { return repo.deleteReferral(id); }
+                };
+
+            default:
+                throw new IllegalArgumentException("Unknown entity: " + name);
+        }
+    }
+}
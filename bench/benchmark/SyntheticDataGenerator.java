@@ -0,0 +1,669 @@
+package benchmark;
+
+import model.TemporalCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * SyntheticDataGenerator
+ * ----------------------
+ * Writes a complete, made-up data folder (the seven CSV files the
+ * application loads) at any scale, for load testing and benchmarks.
+ *
+ * DETERMINISTIC:
+ *  Every row is computed from (seed, entity, row number) alone, with its
+ *  own SplittableRandom. The same seed and sizes always give the same
+ *  bytes, and any row can be recomputed later, e.g. a referral reads its
+ *  patient's age and sex back without keeping patients in memory.
+ *
+ * STREAMING:
+ *  Rows are written one at a time through a buffered stream, so memory
+ *  use does not grow with the row count (tens of millions of rows are
+ *  fine on a small heap).
+ *
+ * REFERENTIAL INTEGRITY:
+ *  IDs use the application's formats (P001, C001, S001 / H001, ST001,
+ *  A001, RX001, R001), zero-padded to the size of the dataset. Every
+ *  foreign key points at a row that exists:
+ *   - GPs and nurses work at GP surgeries, consultants at hospitals
+ *   - appointments are held at the clinician's own facility
+ *   - referrals go from a GP at their surgery to a consultant at their
+ *     hospital, and may name an existing appointment
+ *
+ * DISTRIBUTIONS (roughly those of a UK practice population):
+ *  - ages follow an age pyramid, about half male / half female
+ *  - a small share of patients account for most appointments,
+ *    prescriptions and referrals (frequent attenders)
+ *  - appointments fall on weekdays (a few Saturdays) in opening hours,
+ *    mostly 15 minutes long
+ *  - referral urgency mostly Routine; statuses spread over the workflow
+ *
+ * USAGE (see README.md):
+ *   mvn -B -Pbench test-compile exec:exec@generate
+ *       -Dbench.args="--out generated --patients 1000000 --seed 42"
+ *   Other counts are derived from --patients unless given
+ *   (--clinicians, --facilities, --staff, --appointments,
+ *   --prescriptions, --referrals).
+ */
+public final class SyntheticDataGenerator {
+
+    /* =====================================================
+       SIZES
+       ===================================================== */
+
+    /**
+     * Row counts of one dataset.
+     */
+    static final class Sizes {
+
+        long patients;
+        long clinicians;
+        long facilities;
+        long staff;
+        long appointments;
+        long prescriptions;
+        long referrals;
+
+        /**
+         * Counts in proportion to a patient list: one clinician per 100
+         * patients, one facility per 2,000, four appointments, three
+         * prescriptions and half a referral per patient.
+         */
+        static Sizes forPatients(long patients) {
+            Sizes s = new Sizes();
+            s.patients = Math.max(1, patients);
+            s.clinicians = Math.max(20, patients / 100);
+            s.facilities = Math.max(6, patients / 2_000);
+            s.staff = Math.max(16, patients / 200);
+            s.appointments = patients * 4;
+            s.prescriptions = patients * 3;
+            s.referrals = Math.max(1, patients / 2);
+            return s;
+        }
+
+        /** The same count for every file (used by the benchmarks) */
+        static Sizes uniform(long rows) {
+            Sizes s = new Sizes();
+            s.patients = s.clinicians = s.facilities = s.staff = rows;
+            s.appointments = s.prescriptions = s.referrals = rows;
+            return s;
+        }
+
+        long hospitals() {
+            return Math.max(1, facilities / 6);
+        }
+
+        long surgeries() {
+            return Math.max(1, facilities - hospitals());
+        }
+
+        @Override
+        public String toString() {
+            return "patients=" + patients + ", clinicians=" + clinicians + ", facilities=" + facilities
+                    + ", staff=" + staff + ", appointments=" + appointments
+                    + ", prescriptions=" + prescriptions + ", referrals=" + referrals;
+        }
+    }
+
+    /* =====================================================
+       VALUE LISTS
+       ===================================================== */
+
+    private static final String[] MALE_NAMES = {
+            "John", "David", "James", "Michael", "Robert", "Daniel", "Thomas", "Mark", "Paul",
+            "Andrew", "Oliver", "Harry", "George", "Jack", "Mohammed", "Liam", "Samuel", "Adam"};
+    private static final String[] FEMALE_NAMES = {
+            "Emma", "Sarah", "Helen", "Olivia", "Sophie", "Amelia", "Emily", "Jessica", "Laura",
+            "Rachel", "Charlotte", "Grace", "Hannah", "Fatima", "Priya", "Lucy", "Michelle", "Anna"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Taylor", "Davies", "Evans", "Wilson",
+            "Thomas", "Roberts", "Walker", "Wright", "Thompson", "White", "Hughes", "Edwards",
+            "Green", "Hall", "Wood", "Harris", "Clarke", "Patel", "Khan", "Ali", "Lewis", "Adams"};
+
+    /** Town and postcode area */
+    private static final String[][] TOWNS = {
+            {"Birmingham", "B1"}, {"Solihull", "B91"}, {"Sutton Coldfield", "B72"},
+            {"Watford", "WD17"}, {"Coventry", "CV1"}, {"Wolverhampton", "WV1"},
+            {"Walsall", "WS1"}, {"Dudley", "DY1"}, {"Redditch", "B97"}, {"Lichfield", "WS13"}};
+    private static final String[] STREETS = {
+            "High Street", "Station Road", "Church Lane", "Kingsway Road", "Park Avenue",
+            "Victoria Road", "Mill Lane", "Queens Road", "The Green", "London Road"};
+
+    /** Share of the population per decade of age (0-9 ... 90-99) */
+    private static final int[] AGE_WEIGHTS = {11, 11, 13, 13, 13, 13, 11, 9, 5, 1};
+
+    private static final String[] SPECIALITIES = {
+            "Cardiology", "Neurology", "Orthopaedics", "Dermatology", "Gastroenterology",
+            "Respiratory Medicine", "Endocrinology", "Rheumatology", "Ophthalmology", "Urology"};
+
+    /** Per speciality: reason, clinical finding, investigations */
+    private static final String[][] CASES = {
+            {"Heart murmur investigation", "systolic murmur detected during routine examination", "Echocardiogram|ECG"},
+            {"Persistent headaches", "a 3-month history of severe morning headaches", "MRI Brain|Neurological assessment"},
+            {"Chronic knee pain", "knee pain affecting mobility and mild degenerative changes on X-ray", "MRI Knee|Orthopaedic assessment"},
+            {"Suspicious skin lesion", "a changing mole with irregular borders", "Dermatoscopy|Possible biopsy"},
+            {"Chronic abdominal pain", "epigastric pain and weight loss with normal blood tests", "Upper GI Endoscopy|CT Abdomen"},
+            {"Persistent cough", "a cough for over 8 weeks and breathlessness on exertion", "Chest X-ray|Spirometry"},
+            {"Poorly controlled diabetes", "rising HbA1c despite maximum oral therapy", "HbA1c|Endocrine review"},
+            {"Joint swelling", "morning stiffness and swelling of both hands", "Rheumatoid factor|Anti-CCP"},
+            {"Blurred vision", "gradual loss of vision in one eye", "Visual field test|Slit lamp examination"},
+            {"Urinary symptoms", "nocturia and a raised PSA", "PSA|Urology assessment"}};
+
+    private static final String[][] MEDICATIONS = {
+            {"Simvastatin", "20mg"}, {"Atorvastatin", "40mg"}, {"Paracetamol", "500mg"},
+            {"Ramipril", "5mg"}, {"Amlodipine", "5mg"}, {"Metformin", "500mg"},
+            {"Levothyroxine", "50mcg"}, {"Omeprazole", "20mg"}, {"Salbutamol", "100mcg"},
+            {"Sertraline", "50mg"}, {"Folic Acid", "5mg"}, {"GTN Spray", "400mcg"},
+            {"Insulin Glargine", "100units/ml"}, {"Amoxicillin", "500mg"}};
+    private static final String[] PHARMACIES = {
+            "Boots Pharmacy", "Boots Pharmacy", "Boots Pharmacy", "Lloyds Pharmacy",
+            "Superdrug Pharmacy", "Well Pharmacy", "Hospital Pharmacy"};
+
+    private static final String[] APPOINTMENT_NOTES = {
+            "Routine Consultation", "Follow-up", "Vaccination", "Blood Test Review",
+            "Medication Review", "Urgent Consultation", "Chronic Disease Review", "Health Check"};
+
+    /** Role, department, access level, weight */
+    private static final String[][] STAFF_ROLES = {
+            {"Receptionist", "Front Desk", "Basic", "6"},
+            {"Medical Secretary", "Administration", "Standard", "4"},
+            {"Healthcare Assistant", "Clinical Support", "Standard", "4"},
+            {"Medical Records Clerk", "Administration", "Basic", "2"},
+            {"Appointments Coordinator", "Administration", "Standard", "2"},
+            {"Porter", "Support Services", "Basic", "2"},
+            {"Practice Manager", "Administration", "Manager", "1"},
+            {"Hospital Administrator", "Administration", "Manager", "1"}};
+
+    private static final String[] GP_HOURS = {
+            "Mon-Fri: 8:00-18:00  Sat: 8:00-12:00", "Mon-Fri: 8:30-17:30  Sat: 9:00-13:00",
+            "Mon-Fri: 8:00-18:30  Sat: 8:30-12:30", "Mon-Fri: 8:00-18:00"};
+    private static final String[] HOSPITAL_HOURS = {
+            "24/7 Emergency  Outpatients: Mon-Fri 8:00-17:00",
+            "24/7 Emergency  Outpatients: Mon-Fri 7:30-18:00",
+            "24/7 Emergency  Outpatients: Mon-Fri 8:30-17:30"};
+    private static final String[] GP_SERVICES = {
+            "Vaccinations", "Minor Surgery", "Family Planning", "Travel Clinic", "Diabetes Care"};
+
+    /** Clinicians cycle through 20 roles: 8 GPs, 7 consultants, 5 nurses */
+    private static final int ROLE_CYCLE = 20;
+    private static final int FIRST_CONSULTANT = 8;
+    private static final int FIRST_NURSE = 15;
+
+    /** Dates are spread over this window (epoch days, inclusive) */
+    private static final int FIRST_DAY = TemporalCodec.toEpochDay("2024-01-01");
+    private static final int LAST_DAY = TemporalCodec.toEpochDay("2026-06-30");
+
+    /** Ages are measured on this date, so output does not depend on "today" */
+    private static final int REFERENCE_DAY = TemporalCodec.toEpochDay("2025-10-01");
+
+    private static final int PATIENT = 1;
+    private static final int CLINICIAN = 2;
+    private static final int FACILITY = 3;
+    private static final int STAFF = 4;
+    private static final int APPOINTMENT = 5;
+    private static final int PRESCRIPTION = 6;
+    private static final int REFERRAL = 7;
+
+    private final long seed;
+    private final Sizes sizes;
+
+    SyntheticDataGenerator(long seed, Sizes sizes) {
+        this.seed = seed;
+        this.sizes = sizes;
+    }
+
+    /* =====================================================
+       COMMAND LINE
+       ===================================================== */
+
+    public static void main(String[] args) throws IOException {
+
+        Path out = Paths.get("generated");
+        long seed = 42;
+        Sizes sizes = Sizes.forPatients(10_000);
+
+        // --patients first, so explicit counts override the derived ones
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--patients")) sizes = Sizes.forPatients(count(args[i + 1]));
+        }
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Option needs a value: " + args[i]);
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--out": out = Paths.get(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--patients": break;
+                case "--clinicians": sizes.clinicians = count(value); break;
+                case "--facilities": sizes.facilities = count(value); break;
+                case "--staff": sizes.staff = count(value); break;
+                case "--appointments": sizes.appointments = count(value); break;
+                case "--prescriptions": sizes.prescriptions = count(value); break;
+                case "--referrals": sizes.referrals = count(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Files.createDirectories(out);
+        System.out.println("Generating into " + out.toAbsolutePath() + " (seed " + seed + "): " + sizes);
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(seed, sizes);
+        for (String file : FILES) {
+            long start = System.nanoTime();
+            generator.write(file, out.resolve(file));
+            System.out.printf("  %-18s %,d bytes in %.1f s%n", file, Files.size(out.resolve(file)),
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static long count(String value) {
+        long n = Long.parseLong(value.replace("_", ""));
+        if (n < 1) throw new IllegalArgumentException("Counts must be at least 1: " + value);
+        return n;
+    }
+
+    /** Files in the order they are written */
+    static final String[] FILES = {
+            "facilities.csv", "clinicians.csv", "staff.csv", "patients.csv",
+            "appointments.csv", "prescriptions.csv", "referrals.csv"};
+
+    /**
+     * Writes one data file.
+     *
+     * @param fileName one of FILES
+     */
+    void write(String fileName, Path target) throws IOException {
+
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(target), StandardCharsets.UTF_8), 1 << 16)) {
+
+            StringBuilder row = new StringBuilder(512);
+
+            switch (fileName) {
+                case "patients.csv":
+                    out.write("nhsNumber,firstName,lastName,dateOfBirth,phoneNumber,emergencyContactNumber,"
+                            + "gender,address,postcode,email,registeredGpSurgery\n");
+                    for (long i = 0; i < sizes.patients; i++) emit(out, patient(row, i));
+                    break;
+                case "clinicians.csv":
+                    out.write("clinicianId,name,role,specialty,workplace\n");
+                    for (long i = 0; i < sizes.clinicians; i++) emit(out, clinician(row, i));
+                    break;
+                case "facilities.csv":
+                    out.write("facility_id,facility_name,facility_type,address,postcode,phone_number,email,"
+                            + "opening_hours,manager_name,capacity,specialities_offered\n");
+                    for (long i = 0; i < sizes.facilities; i++) emit(out, facility(row, i));
+                    break;
+                case "staff.csv":
+                    out.write("staffId,firstName,lastName,role,department,facilityId,phoneNumber,email,"
+                            + "employmentStatus,startDate,lineManager,accessLevel\n");
+                    for (long i = 0; i < sizes.staff; i++) emit(out, staff(row, i));
+                    break;
+                case "appointments.csv":
+                    out.write("appointmentId,patientId,clinicianId,facilityId,appointmentDate,"
+                            + "appointmentTime,status,notes\n");
+                    for (long i = 0; i < sizes.appointments; i++) emit(out, appointment(row, i));
+                    break;
+                case "prescriptions.csv":
+                    out.write("prescriptionId,patientNhsNumber,clinicianId,medication,dosage,pharmacy,"
+                            + "collectionStatus\n");
+                    for (long i = 0; i < sizes.prescriptions; i++) emit(out, prescription(row, i));
+                    break;
+                case "referrals.csv":
+                    out.write("referral_id,patient_id,referring_clinician_id,referred_to_clinician_id,"
+                            + "referring_facility_id,referred_to_facility_id,referral_date,urgency_level,"
+                            + "referral_reason,clinical_summary,requested_investigations,status,"
+                            + "appointment_id,notes,created_date,last_updated\n");
+                    for (long i = 0; i < sizes.referrals; i++) emit(out, referral(row, i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a data file: " + fileName);
+            }
+        }
+    }
+
+    private static void emit(BufferedWriter out, StringBuilder row) throws IOException {
+        row.append('\n');
+        out.append(row);
+        row.setLength(0);
+    }
+
+    /* =====================================================
+       ROWS
+       ===================================================== */
+
+    private StringBuilder patient(StringBuilder row, long i) {
+
+        SplittableRandom r = random(PATIENT, i);
+        boolean male = r.nextBoolean();
+        int birthDay = birthDay(r);
+        String first = pick(r, male ? MALE_NAMES : FEMALE_NAMES);
+        String last = pick(r, LAST_NAMES);
+        String[] town = pick(r, TOWNS);
+
+        return row.append(patientId(i)).append(',')
+                .append(first).append(',')
+                .append(last).append(',')
+                .append(TemporalCodec.formatDate(birthDay)).append(',')
+                .append(digits(r, 10)).append(',')
+                .append("07").append(digits(r, 9)).append(',')
+                .append(male ? 'M' : 'F').append(',')
+                .append(1 + r.nextInt(250)).append(' ').append(pick(r, STREETS)).append(' ').append(town[0]).append(',')
+                .append(postcode(r, town[1])).append(',')
+                .append(first.toLowerCase()).append('.').append(last.toLowerCase()).append(i + 1).append("@email.com,")
+                .append(facilityName(r.nextLong(sizes.surgeries())));
+    }
+
+    private StringBuilder clinician(StringBuilder row, long i) {
+
+        SplittableRandom r = random(CLINICIAN, i);
+        int slot = (int) (i % ROLE_CYCLE);
+        boolean female = r.nextBoolean();
+        String name = pick(r, female ? FEMALE_NAMES : MALE_NAMES) + " " + pick(r, LAST_NAMES);
+
+        String role;
+        String specialty;
+        if (slot < FIRST_CONSULTANT) {
+            role = "GP";
+            specialty = "General Practice";
+            name = "Dr. " + name;
+        } else if (slot < FIRST_NURSE) {
+            role = "Consultant";
+            specialty = specialityOf(i);
+            name = "Dr. " + name;
+        } else {
+            role = r.nextInt(3) == 0 ? "Senior Nurse" : "Practice Nurse";
+            specialty = role.equals("Senior Nurse") ? "General Nursing" : "Practice Nursing";
+        }
+
+        return row.append(clinicianId(i)).append(',')
+                .append(name).append(',')
+                .append(role).append(',')
+                .append(specialty).append(',')
+                .append(7_654_321 + i);
+    }
+
+    private StringBuilder facility(StringBuilder row, long i) {
+
+        SplittableRandom r = random(FACILITY, i);
+        boolean hospital = i >= sizes.surgeries();
+        String[] town = TOWNS[(int) (i % TOWNS.length)];
+        String domain = town[0].toLowerCase().replace(" ", "") + (hospital ? "hospital" : "gp") + (i + 1);
+
+        row.append(facilityId(i)).append(',')
+                .append(facilityName(i)).append(',')
+                .append(hospital ? "Hospital" : "GP Surgery").append(',')
+                .append(1 + r.nextInt(400)).append(' ').append(pick(r, STREETS)).append("  ").append(town[0]).append(',')
+                .append(postcode(r, town[1])).append(',')
+                .append("0121-").append(digits(r, 3)).append('-').append(digits(r, 4)).append(',')
+                .append("contact@").append(domain).append(".nhs.uk,")
+                .append(pick(r, hospital ? HOSPITAL_HOURS : GP_HOURS)).append(',')
+                .append("Dr. ").append(pick(r, r.nextBoolean() ? MALE_NAMES : FEMALE_NAMES)).append(' ')
+                .append(pick(r, LAST_NAMES)).append(',')
+                .append(hospital ? 2_000 + 500 * r.nextInt(13) : 800 + 100 * r.nextInt(13)).append(',');
+
+        if (hospital) {
+            // Emergency care plus a run of specialities
+            row.append("Emergency Medicine");
+            int first = r.nextInt(SPECIALITIES.length);
+            int count = 3 + r.nextInt(4);
+            for (int k = 0; k < count; k++) {
+                row.append('|').append(SPECIALITIES[(first + k) % SPECIALITIES.length]);
+            }
+        } else {
+            row.append("General Practice");
+            int first = r.nextInt(GP_SERVICES.length);
+            for (int k = 0; k < 2; k++) {
+                row.append('|').append(GP_SERVICES[(first + k) % GP_SERVICES.length]);
+            }
+        }
+        return row;
+    }
+
+    private StringBuilder staff(StringBuilder row, long i) {
+
+        SplittableRandom r = random(STAFF, i);
+        String[] role = weighted(r, STAFF_ROLES);
+        String first = pick(r, r.nextBoolean() ? MALE_NAMES : FEMALE_NAMES);
+        String last = pick(r, LAST_NAMES);
+        long facility = r.nextLong(sizes.facilities);
+
+        return row.append(id("ST", i, sizes.staff)).append(',')
+                .append(first).append(',')
+                .append(last).append(',')
+                .append(role[0]).append(',')
+                .append(role[1]).append(',')
+                .append(facilityId(facility)).append(',')
+                .append("07").append(digits(r, 9)).append(',')
+                .append(Character.toLowerCase(first.charAt(0))).append('.').append(last.toLowerCase())
+                .append(i + 1).append("@nhs.uk,")
+                .append(r.nextInt(4) == 0 ? "Part-Time" : "Full-Time").append(',')
+                .append(TemporalCodec.formatDate(TemporalCodec.toEpochDay("2005-01-01") + r.nextInt(7_300))).append(',')
+                .append(role[2].equals("Manager") ? "Clinical Director" : "Practice Manager").append(',')
+                .append(role[2]);
+    }
+
+    private StringBuilder appointment(StringBuilder row, long i) {
+
+        SplittableRandom r = random(APPOINTMENT, i);
+        long clinician = r.nextLong(sizes.clinicians);
+        int day = workingDay(r);
+        int minute = 8 * 60 + 15 * r.nextInt(40); // 08:00 .. 17:45
+
+        int roll = r.nextInt(100);
+        int duration = roll < 45 ? 15 : roll < 60 ? 20 : roll < 85 ? 30 : roll < 95 ? 45 : 60;
+
+        return row.append(id("A", i, sizes.appointments)).append(',')
+                .append(patientId(frequentAttender(r, sizes.patients))).append(',')
+                .append(clinicianId(clinician)).append(',')
+                .append(facilityId(homeFacility(clinician))).append(',')
+                .append(TemporalCodec.formatDate(day)).append(',')
+                .append(TemporalCodec.formatTime(minute)).append(',')
+                .append(duration).append(',')
+                .append(pick(r, APPOINTMENT_NOTES));
+    }
+
+    private StringBuilder prescription(StringBuilder row, long i) {
+
+        SplittableRandom r = random(PRESCRIPTION, i);
+        String[] medication = pick(r, MEDICATIONS);
+
+        return row.append(id("RX", i, sizes.prescriptions)).append(',')
+                .append(patientId(frequentAttender(r, sizes.patients))).append(',')
+                .append(clinicianId(gp(r))).append(',')
+                .append(medication[0]).append(',')
+                .append(medication[1]).append(',')
+                .append(pick(r, PHARMACIES)).append(',')
+                .append(r.nextInt(100) < 55 ? "Collected" : "Pending");
+    }
+
+    private StringBuilder referral(StringBuilder row, long i) {
+
+        SplittableRandom r = random(REFERRAL, i);
+        long patient = frequentAttender(r, sizes.patients);
+        long from = gp(r);
+        long to = consultant(r);
+        int specialityIndex = (int) Math.floorMod(to / ROLE_CYCLE, (long) SPECIALITIES.length);
+        String[] clinicalCase = CASES[specialityIndex];
+
+        int day = FIRST_DAY + r.nextInt(LAST_DAY - FIRST_DAY + 1);
+        int urgencyRoll = r.nextInt(100);
+        String urgency = urgencyRoll < 70 ? "Routine" : urgencyRoll < 90 ? "Urgent" : "Non-urgent";
+        int statusRoll = r.nextInt(100);
+        String status = statusRoll < 20 ? "New" : statusRoll < 50 ? "Pending"
+                : statusRoll < 70 ? "In Progress" : "Completed";
+
+        // The patient's age and sex, recomputed from their own row
+        SplittableRandom p = random(PATIENT, patient);
+        boolean male = p.nextBoolean();
+        int age = Math.max(0, TemporalCodec.yearsBetween(birthDay(p), day));
+
+        row.append(id("R", i, sizes.referrals)).append(',')
+                .append(patientId(patient)).append(',')
+                .append(clinicianId(from)).append(',')
+                .append(clinicianId(to)).append(',')
+                .append(facilityId(homeFacility(from))).append(',')
+                .append(facilityId(homeFacility(to))).append(',')
+                .append(TemporalCodec.formatDate(day)).append(',')
+                .append(urgency).append(',')
+                .append(clinicalCase[0]).append(',')
+                .append('"').append(age).append("-year-old ").append(male ? "male" : "female")
+                .append(" with ").append(clinicalCase[1]).append(".\",")
+                .append(clinicalCase[2]).append(',')
+                .append(status).append(',');
+
+        if (!status.equals("New") && sizes.appointments > 0) {
+            row.append(id("A", r.nextLong(sizes.appointments), sizes.appointments));
+        }
+        row.append(',');
+
+        row.append(status.equals("Completed") ? "Patient seen" : urgency.equals("Urgent") ? "Fast-track" : "")
+                .append(',')
+                .append(TemporalCodec.formatDate(day)).append(',');
+
+        if (!status.equals("New")) {
+            row.append(TemporalCodec.formatDate(day + r.nextInt(30)));
+        }
+        return row;
+    }
+
+    /* =====================================================
+       IDS AND RELATIONSHIPS
+       ===================================================== */
+
+    private String patientId(long i) {
+        return id("P", i, sizes.patients);
+    }
+
+    private String clinicianId(long i) {
+        return id("C", i, sizes.clinicians);
+    }
+
+    /** GP surgeries are S001.., hospitals H001.. */
+    private String facilityId(long i) {
+        long surgeries = sizes.surgeries();
+        return i < surgeries
+                ? id("S", i, surgeries)
+                : id("H", i - surgeries, sizes.facilities - surgeries);
+    }
+
+    private String facilityName(long i) {
+        String town = TOWNS[(int) (i % TOWNS.length)][0];
+        return i < sizes.surgeries()
+                ? town + " Medical Centre " + (i + 1)
+                : town + " Hospital " + (i - sizes.surgeries() + 1);
+    }
+
+    /** GPs and nurses work at a surgery, consultants at a hospital */
+    private long homeFacility(long clinician) {
+        long slot = clinician % ROLE_CYCLE;
+        if (slot >= FIRST_CONSULTANT && slot < FIRST_NURSE && sizes.facilities > sizes.surgeries()) {
+            return sizes.surgeries() + clinician % (sizes.facilities - sizes.surgeries());
+        }
+        return clinician % sizes.surgeries();
+    }
+
+    private static String specialityOf(long consultant) {
+        return SPECIALITIES[(int) ((consultant / ROLE_CYCLE) % SPECIALITIES.length)];
+    }
+
+    private long gp(SplittableRandom r) {
+        return clinicianInRole(r, 0, FIRST_CONSULTANT);
+    }
+
+    private long consultant(SplittableRandom r) {
+        return clinicianInRole(r, FIRST_CONSULTANT, FIRST_NURSE);
+    }
+
+    /** A clinician whose role slot is in [from, to); any clinician if there is none */
+    private long clinicianInRole(SplittableRandom r, int from, int to) {
+        long cycles = (sizes.clinicians + ROLE_CYCLE - 1) / ROLE_CYCLE;
+        long c = r.nextLong(cycles) * ROLE_CYCLE + from + r.nextInt(to - from);
+        return c < sizes.clinicians ? c : r.nextLong(sizes.clinicians);
+    }
+
+    /**
+     * Skewed choice: a fifth of the patients get most of the activity.
+     */
+    private static long frequentAttender(SplittableRandom r, long count) {
+        double u = r.nextDouble();
+        return Math.min(count - 1, (long) (count * u * u * u));
+    }
+
+    /** Zero-padded to the width of the largest ID (at least 3 digits, as in data/). */
+    private static String id(String prefix, long index, long count) {
+        String number = Long.toString(index + 1);
+        int width = Math.max(3, Long.toString(count).length());
+        StringBuilder id = new StringBuilder(prefix.length() + width).append(prefix);
+        for (int k = number.length(); k < width; k++) id.append('0');
+        return id.append(number).toString();
+    }
+
+    /* =====================================================
+       RANDOM VALUES
+       ===================================================== */
+
+    /** The random stream of one row */
+    private SplittableRandom random(int entity, long index) {
+        return new SplittableRandom(mix(mix(seed * 31 + entity) + index));
+    }
+
+    /** SplitMix64 finaliser */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int birthDay(SplittableRandom r) {
+        int total = 0;
+        for (int w : AGE_WEIGHTS) total += w;
+        int roll = r.nextInt(total);
+        int decade = 0;
+        while (roll >= AGE_WEIGHTS[decade]) roll -= AGE_WEIGHTS[decade++];
+        int ageDays = (decade * 10) * 365 + r.nextInt(10 * 365);
+        return REFERENCE_DAY - ageDays;
+    }
+
+    /** A weekday in the date window, or a Saturday one time in twenty */
+    private static int workingDay(SplittableRandom r) {
+        while (true) {
+            int day = FIRST_DAY + r.nextInt(LAST_DAY - FIRST_DAY + 1);
+            int weekday = Math.floorMod(day + 3, 7); // Monday = 0
+            if (weekday < 5 || (weekday == 5 && r.nextInt(20) == 0)) return day;
+        }
+    }
+
+    private static String postcode(SplittableRandom r, String area) {
+        return area + " " + (1 + r.nextInt(9)) + (char) ('A' + r.nextInt(26)) + (char) ('A' + r.nextInt(26));
+    }
+
+    private static String digits(SplittableRandom r, int count) {
+        char[] d = new char[count];
+        for (int k = 0; k < count; k++) d[k] = (char) ('0' + r.nextInt(10));
+        return new String(d);
+    }
+
+    private static <T> T pick(SplittableRandom r, T[] values) {
+        return values[r.nextInt(values.length)];
+    }
+
+    /** Row chosen by the weight in its last column */
+    private static String[] weighted(SplittableRandom r, String[][] rows) {
+        int total = 0;
+        for (String[] row : rows) total += Integer.parseInt(row[row.length - 1]);
+        int roll = r.nextInt(total);
+        for (String[] row : rows) {
+            roll -= Integer.parseInt(row[row.length - 1]);
+            if (roll < 0) return row;
+        }
+        return rows[rows.length - 1];
+    }
+}
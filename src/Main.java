@@ -1,10 +1,18 @@
+import repository.DataContext;
+import view.EdtWatchdog;
 import view.LoginFrame;
 
 public class Main {
     public static void main(String[] args) {
 
+        // One set of repositories for the whole application
+        DataContext context = new DataContext();
+
+        // Report any action that freezes the window (see System tab)
+        EdtWatchdog.install();
+
         javax.swing.SwingUtilities.invokeLater(() -> {
-            LoginFrame login = new LoginFrame();
+            LoginFrame login = new LoginFrame(context);
             login.setVisible(true);
         });
 
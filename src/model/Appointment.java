@@ -27,13 +27,18 @@ public class Appointment {
     // Foreign key referencing Facility
     private String facilityId;
 
-    // Date of appointment (YYYY-MM-DD)
-    private String appointmentDate;
+    // Date of appointment as an epoch day (parsed once from YYYY-MM-DD)
+    private int appointmentDay;
 
-    // Time of appointment (HH:MM)
-    private String appointmentTime;
+    // Time of appointment as minute of day (parsed once from HH:MM)
+    private int appointmentMinute;
 
-    // Status of appointment (New, Pending, In Progress, Completed)
+    // Original text, kept only if it is not in the standard format
+    private String irregularDate;
+    private String irregularTime;
+
+    // "status" column of appointments.csv: the appointment length in
+    // minutes (see SlotAllocator.durationOf)
     private String status;
 
     // Additional notes or comments
@@ -51,8 +56,10 @@ public class Appointment {
         this.patientId = patientId;
         this.clinicianId = clinicianId;
         this.facilityId = facilityId;
-        this.appointmentDate = appointmentDate;
-        this.appointmentTime = appointmentTime;
+        this.appointmentDay = TemporalCodec.toEpochDay(appointmentDate);
+        this.appointmentMinute = TemporalCodec.toMinuteOfDay(appointmentTime);
+        this.irregularDate = TemporalCodec.dateTextIfIrregular(appointmentDate, appointmentDay);
+        this.irregularTime = TemporalCodec.timeTextIfIrregular(appointmentTime, appointmentMinute);
         this.status = status;
         this.notes = notes;
     }
@@ -63,8 +70,16 @@ public class Appointment {
     public String getPatientId() { return patientId; }
     public String getClinicianId() { return clinicianId; }
     public String getFacilityId() { return facilityId; }
-    public String getAppointmentDate() { return appointmentDate; }
-    public String getAppointmentTime() { return appointmentTime; }
+    public String getAppointmentDate() { return TemporalCodec.dateText(appointmentDay, irregularDate); }
+    public String getAppointmentTime() { return TemporalCodec.timeText(appointmentMinute, irregularTime); }
     public String getStatus() { return status; }
     public String getNotes() { return notes; }
+
+    // Typed accessors (TemporalCodec.NONE if the text did not parse)
+
+    /** Appointment date as days since 1970-01-01. */
+    public int getAppointmentDay() { return appointmentDay; }
+
+    /** Appointment time as minutes since midnight. */
+    public int getAppointmentMinute() { return appointmentMinute; }
 }
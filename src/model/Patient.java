@@ -17,7 +17,8 @@ public class Patient {
     private String nhsNumber;
     private String firstName;
     private String lastName;
-    private String dateOfBirth;
+    private int dateOfBirthDay;          // epoch day, parsed once from YYYY-MM-DD
+    private String irregularDateOfBirth; // original text if not in that format
     private String phoneNumber;
     private String emergencyContactNumber;
     private String gender;
@@ -47,7 +48,8 @@ public class Patient {
         this.nhsNumber = nhsNumber;
         this.firstName = firstName;
         this.lastName = lastName;
-        this.dateOfBirth = dateOfBirth;
+        this.dateOfBirthDay = TemporalCodec.toEpochDay(dateOfBirth);
+        this.irregularDateOfBirth = TemporalCodec.dateTextIfIrregular(dateOfBirth, dateOfBirthDay);
         this.phoneNumber = phoneNumber;
         this.emergencyContactNumber = emergencyContactNumber;
         this.gender = gender;
@@ -64,7 +66,7 @@ public class Patient {
     public String getNhsNumber() { return nhsNumber; }
     public String getFirstName() { return firstName; }
     public String getLastName() { return lastName; }
-    public String getDateOfBirth() { return dateOfBirth; }
+    public String getDateOfBirth() { return TemporalCodec.dateText(dateOfBirthDay, irregularDateOfBirth); }
     public String getPhoneNumber() { return phoneNumber; }
     public String getEmergencyContactNumber() { return emergencyContactNumber; }
     public String getGender() { return gender; }
@@ -73,6 +75,19 @@ public class Patient {
     public String getEmail() { return email; }
     public String getRegisteredGpSurgery() { return registeredGpSurgery; }
 
+    /** Date of birth as days since 1970-01-01 (TemporalCodec.NONE if unknown). */
+    public int getDateOfBirthDay() { return dateOfBirthDay; }
+
+    /**
+     * Age in whole years on the given day, or -1 if the date of birth
+     * is unknown.
+     *
+     * @param epochDay e.g. (int) LocalDate.now().toEpochDay()
+     */
+    public int getAgeOn(int epochDay) {
+        return TemporalCodec.yearsBetween(dateOfBirthDay, epochDay);
+    }
+
     /* =========================
        SETTERS (FOR EDIT)
        ========================= */
@@ -35,8 +35,8 @@ private String referringFacilityId;
 // ID of the facility receiving the referral
 private String referredToFacilityId;
 
-// Date the referral was made
-private String referralDate;
+// Date the referral was made (epoch day, parsed once from YYYY-MM-DD)
+private int referralDay;
 
 // Urgency level of the referral (e.g. Routine, Urgent, Emergency)
 private String urgencyLevel;
@@ -59,11 +59,16 @@ private String appointmentId;
 // Additional notes added by clinicians or administrators
 private String notes;
 
-// Date the referral record was created
-private String createdDate;
+// Date the referral record was created (epoch day)
+private int createdDay;
 
-// Date the referral record was last updated
-private String lastUpdated;
+// Date the referral record was last updated (epoch day; NONE if never)
+private int lastUpdatedDay;
+
+// Original date text, kept only if it is not in the standard format
+private String irregularReferralDate;
+private String irregularCreatedDate;
+private String irregularLastUpdated;
 
 
     /**
@@ -98,7 +103,8 @@ private String lastUpdated;
         this.referredToClinicianId = referredToClinicianId;
         this.referringFacilityId = referringFacilityId;
         this.referredToFacilityId = referredToFacilityId;
-        this.referralDate = referralDate;
+        this.referralDay = TemporalCodec.toEpochDay(referralDate);
+        this.irregularReferralDate = TemporalCodec.dateTextIfIrregular(referralDate, referralDay);
         this.urgencyLevel = urgencyLevel;
         this.referralReason = referralReason;
         this.clinicalSummary = clinicalSummary;
@@ -106,8 +112,10 @@ private String lastUpdated;
         this.status = status;
         this.appointmentId = appointmentId;
         this.notes = notes;
-        this.createdDate = createdDate;
-        this.lastUpdated = lastUpdated;
+        this.createdDay = TemporalCodec.toEpochDay(createdDate);
+        this.irregularCreatedDate = TemporalCodec.dateTextIfIrregular(createdDate, createdDay);
+        this.lastUpdatedDay = TemporalCodec.toEpochDay(lastUpdated);
+        this.irregularLastUpdated = TemporalCodec.dateTextIfIrregular(lastUpdated, lastUpdatedDay);
 }
 
 
@@ -144,7 +152,7 @@ public String getReferredToFacilityId() {
 }
 
 public String getReferralDate() {
-    return referralDate;
+    return TemporalCodec.dateText(referralDay, irregularReferralDate);
 }
 
 public String getUrgencyLevel() {
@@ -176,10 +184,26 @@ public String getNotes() {
 }
 
 public String getCreatedDate() {
-    return createdDate;
+    return TemporalCodec.dateText(createdDay, irregularCreatedDate);
 }
 
 public String getLastUpdated() {
-    return lastUpdated;
+    return TemporalCodec.dateText(lastUpdatedDay, irregularLastUpdated);
+}
+
+/* =========================
+   TYPED DATES (epoch days; TemporalCodec.NONE if missing/unparseable)
+   ========================= */
+
+public int getReferralDay() {
+    return referralDay;
+}
+
+public int getCreatedDay() {
+    return createdDay;
+}
+
+public int getLastUpdatedDay() {
+    return lastUpdatedDay;
 }
 }
\ No newline at end of file
@@ -25,7 +25,8 @@ public class Staff {
     private String phoneNumber;
     private String email;
     private String employmentStatus;
-    private String startDate;
+    private int startDay = TemporalCodec.NONE; // epoch day, parsed once from YYYY-MM-DD
+    private String irregularStartDate;         // original text if not in that format
 
     /**
      * Full constructor (USED by repository & forms)
@@ -51,7 +52,8 @@ public class Staff {
         this.phoneNumber = phoneNumber;
         this.email = email;
         this.employmentStatus = employmentStatus;
-        this.startDate = startDate;
+        this.startDay = TemporalCodec.toEpochDay(startDate);
+        this.irregularStartDate = TemporalCodec.dateTextIfIrregular(startDate, startDay);
         this.lineManager = lineManager;
         this.accessLevel = accessLevel;
     }
@@ -104,7 +106,12 @@ public class Staff {
     }
 
     public String getStartDate() {
-        return startDate;
+        return TemporalCodec.dateText(startDay, irregularStartDate);
+    }
+
+    /** Start date as days since 1970-01-01 (TemporalCodec.NONE if unknown). */
+    public int getStartDay() {
+        return startDay;
     }
 
     public String getLineManager() {
@@ -0,0 +1,234 @@
+package model;
+
+/**
+ * TemporalCodec
+ * -------------
+ * Converts the text dates and times used in the CSV files to compact
+ * numbers and back.
+ *
+ *  date "yyyy-MM-dd" <-> epoch day   (days since 1970-01-01, int)
+ *  time "HH:mm"      <-> minute of day (0..1439)
+ *
+ * A one-digit hour ("9:00") is parsed too, but formats as "09:00",
+ * so it is one of the values kept as text (see below).
+ *
+ * Numbers sort in the same order as the dates/times they encode, so
+ * range checks and sorts become plain integer comparisons.
+ *
+ * The parser and formatter are hand-written (fixed positions, civil
+ * calendar arithmetic) so loading a large file does not create a
+ * LocalDate or formatter per value.
+ *
+ * LOSSLESS STORAGE:
+ *  Text that is not in exactly this format (or not a real date/time)
+ *  encodes to NONE. Models keep the original text only for those
+ *  values (see ...TextIfIrregular / ...Text below), so every value is
+ *  written back exactly as it was read.
+ *
+ * NOTE:
+ *  - Pure functions, no I/O (safe on any thread)
+ *  - Years 0000-9999 only (four-digit ISO years)
+ */
+public final class TemporalCodec {
+
+    /** Encoded value for a missing or unparseable date/time */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /** Minutes in one day */
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Days from 0000-03-01 to 1970-01-01 (civil calendar algorithm) */
+    private static final int DAYS_0000_03_01_TO_EPOCH = 719468;
+
+    /** Days in a 400-year Gregorian cycle */
+    private static final int DAYS_PER_ERA = 146097;
+
+    // Prevent instantiation
+    private TemporalCodec() {}
+
+    /* =====================================================
+       DATES
+       ===================================================== */
+
+    /**
+     * @param text date as yyyy-MM-dd
+     * @return days since 1970-01-01, or NONE
+     */
+    public static int toEpochDay(String text) {
+
+        if (text == null || text.length() != 10
+                || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return NONE;
+        }
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return NONE; // not digits, or e.g. 2025-02-30
+        }
+
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * @return the date as yyyy-MM-dd, or "" for NONE
+     */
+    public static String formatDate(int epochDay) {
+
+        if (epochDay == NONE) return "";
+
+        int ymd = toYearMonthDay(epochDay);
+        int year = ymd / 10000;
+        int month = ymd / 100 % 100;
+        int day = ymd % 100;
+
+        return new String(new char[]{
+                (char) ('0' + year / 1000), (char) ('0' + year / 100 % 10),
+                (char) ('0' + year / 10 % 10), (char) ('0' + year % 10), '-',
+                (char) ('0' + month / 10), (char) ('0' + month % 10), '-',
+                (char) ('0' + day / 10), (char) ('0' + day % 10)
+        });
+    }
+
+    /**
+     * Whole years from one date to another (e.g. age), or -1 if either
+     * date is NONE or the second is before the first.
+     */
+    public static int yearsBetween(int fromEpochDay, int toEpochDay) {
+
+        if (fromEpochDay == NONE || toEpochDay == NONE || toEpochDay < fromEpochDay) return -1;
+
+        int from = toYearMonthDay(fromEpochDay);
+        int to = toYearMonthDay(toEpochDay);
+
+        // yyyyMMdd: the month/day part decides if the last year is complete
+        int years = to / 10000 - from / 10000;
+        if (to % 10000 < from % 10000) years--;
+        return years;
+    }
+
+    /** Days since 1970-01-01 of a valid calendar date. */
+    private static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_03_01_TO_EPOCH;
+    }
+
+    /** Calendar date of an epoch day, packed as yyyyMMdd. */
+    private static int toYearMonthDay(int epochDay) {
+        int z = epochDay + DAYS_0000_03_01_TO_EPOCH;
+        int era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+        int dayOfEra = z - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /* =====================================================
+       TIMES
+       ===================================================== */
+
+    /**
+     * @param text time as HH:mm (24-hour); H:mm is accepted too
+     * @return minutes since midnight, or NONE
+     */
+    public static int toMinuteOfDay(String text) {
+
+        if (text == null) return NONE;
+
+        int colon = text.length() - 3;
+        if (colon < 1 || colon > 2 || text.charAt(colon) != ':') {
+            return NONE;
+        }
+
+        int hour = digits(text, 0, colon);
+        int minute = digits(text, colon + 1, colon + 3);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) return NONE;
+
+        return hour * 60 + minute;
+    }
+
+    /**
+     * @return the time as HH:mm, or "" for NONE
+     */
+    public static String formatTime(int minuteOfDay) {
+
+        if (minuteOfDay == NONE) return "";
+
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        return new String(new char[]{
+                (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+                (char) ('0' + minute / 10), (char) ('0' + minute % 10)
+        });
+    }
+
+    /* =====================================================
+       LOSSLESS TEXT (used by the model classes)
+       ===================================================== */
+
+    /**
+     * @return null if formatDate(epochDay) reproduces the text,
+     *         otherwise the text itself (to be kept alongside the number)
+     */
+    public static String dateTextIfIrregular(String text, int epochDay) {
+        return formatDate(epochDay).equals(text == null ? "" : text) ? null : text;
+    }
+
+    /** The original text of a date stored as (epochDay, irregular text). */
+    public static String dateText(int epochDay, String irregularText) {
+        return irregularText != null ? irregularText : formatDate(epochDay);
+    }
+
+    /**
+     * @return null if formatTime(minuteOfDay) reproduces the text,
+     *         otherwise the text itself
+     */
+    public static String timeTextIfIrregular(String text, int minuteOfDay) {
+        return formatTime(minuteOfDay).equals(text == null ? "" : text) ? null : text;
+    }
+
+    /** The original text of a time stored as (minuteOfDay, irregular text). */
+    public static String timeText(int minuteOfDay, String irregularText) {
+        return irregularText != null ? irregularText : formatTime(minuteOfDay);
+    }
+
+    /* =====================================================
+       HELPERS
+       ===================================================== */
+
+    /** Value of text[from, to) if it is all ASCII digits, else -1. */
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package repository;
+
+import model.Appointment;
+
+/**
+ * AppointmentConflict
+ * -------------------
+ * Two appointments that overlap in time and share a clinician or a
+ * facility (see AppointmentRepository.findConflicts / findAllConflicts).
+ *
+ * NOTE:
+ *  - Immutable
+ *  - "first" starts no later than "second" in findAllConflicts();
+ *    in findConflicts() it is the appointment being checked
+ */
+public final class AppointmentConflict {
+
+    /** What the two appointments share */
+    public enum Kind {
+        /** Same clinician at the same time (a double booking) */
+        CLINICIAN,
+        /** Same facility at the same time (fine unless rooms are short) */
+        FACILITY
+    }
+
+    private final Kind kind;
+    private final Appointment first;
+    private final Appointment second;
+
+    AppointmentConflict(Kind kind, Appointment first, Appointment second) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Appointment getFirst() {
+        return first;
+    }
+
+    public Appointment getSecond() {
+        return second;
+    }
+
+    /** The shared clinician or facility ID */
+    public String getResourceId() {
+        return kind == Kind.CLINICIAN ? first.getClinicianId() : first.getFacilityId();
+    }
+
+    @Override
+    public String toString() {
+        return (kind == Kind.CLINICIAN ? "Clinician " : "Facility ") + getResourceId() + ": "
+                + describe(first) + " overlaps " + describe(second);
+    }
+
+    private static String describe(Appointment a) {
+        return a.getAppointmentId() + " (" + a.getAppointmentDate() + " " + a.getAppointmentTime()
+                + ", " + SlotAllocator.durationOf(a) + " min)";
+    }
+}
@@ -1,10 +1,23 @@
 package repository;
 
 import model.Appointment;
+import model.TemporalCodec;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 /**
  * AppointmentRepository
@@ -15,8 +28,10 @@ import java.util.List;
  * This class represents the MODEL / DATA ACCESS layer
  * in the MVC architecture.
  *
- * ✔ Handles CSV load/save
+ * ✔ Handles CSV load/save (writes are batched by PersistenceScheduler)
  * ✔ Maintains in-memory list of appointments
+ * ✔ Maintains secondary indexes (ID, patient, clinician, facility, date/time)
+ * ✔ Rejects clinician double bookings (interval tree per clinician / facility)
  * ✔ Provides CRUD methods used by MainFrame
  * ✔ NO UI logic (Swing-free)
  */
@@ -26,12 +41,61 @@ public class AppointmentRepository {
        IN-MEMORY DATA STORE
        ========================================================= */
 
-    // List holding all appointments currently loaded
+    // List holding all appointments currently loaded (file order)
     private final List<Appointment> appointments = new ArrayList<>();
 
+    /* =========================================================
+       INDEXES (kept in step with the list on every change)
+       ========================================================= */
+
+    // Appointment ID -> appointment and its position in the list
+    private final IdIndex<Appointment> byId = new IdIndex<>(Appointment::getAppointmentId);
+
+    // Foreign key (keyed by IdIndex.key, like the schedules) -> appointments,
+    // in insertion order
+    private final Map<String, Set<Appointment>> byPatient = new HashMap<>();
+    private final Map<String, Set<Appointment>> byClinician = new HashMap<>();
+    private final Map<String, Set<Appointment>> byFacility = new HashMap<>();
+
+    // Date/time key (see dateTimeKey) -> appointments at that slot, sorted by date then time
+    private final NavigableMap<Long, Set<Appointment>> byDateTime = new TreeMap<>();
+
+    // Clinician / facility (keyed by IdIndex.key, so "c001" and "C001" share
+    // one schedule) -> appointments as time intervals, for overlap checks
+    // (appointments without a valid date and time are left out)
+    private final Map<String, IntervalTree<Appointment>> clinicianSchedule = new HashMap<>();
+    private final Map<String, IntervalTree<Appointment>> facilitySchedule = new HashMap<>();
+
     // Path to appointments CSV file
     private String sourceFilePath;
 
+    // Shared background writer that coalesces CSV saves
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    // Number of CSV (and snapshot) columns
+    private static final int COLUMNS = 8;
+
+    // Pools for repeated column values (shared with CsvUtil.toAppointment)
+    static final ColumnDictionary CLINICIAN_IDS = new ColumnDictionary("appointment.clinicianId");
+    static final ColumnDictionary FACILITY_IDS = new ColumnDictionary("appointment.facilityId");
+    static final ColumnDictionary TIMES = new ColumnDictionary("appointment.time");
+    static final ColumnDictionary STATUSES = new ColumnDictionary("appointment.status");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("appointment.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("appointment.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("appointment.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("appointment.lookup");
+    private static final LatencyHistogram QUERY_TIME = Metrics.timer("appointment.query");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("appointment.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("appointment.changes");
+
+    // Table models etc. watching this repository
+    private final ChangeSupport changes = new ChangeSupport();
+
+    // Version of the CSV as last read or written by this repository
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /* =========================================================
        LOAD
        ========================================================= */
@@ -41,14 +105,127 @@ public class AppointmentRepository {
      * This should be called ONCE at application startup.
      */
     public void load(String filePath) throws IOException {
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("appointment", "load", appointments.size(), filePath);
+    }
+
+    /**
+     * Reads appointments.csv without changing the repository, so it can
+     * run on a background thread. Pass the rows to install(), or the
+     * result to merge(), afterwards.
+     */
+    public CsvRead<Appointment> read(String filePath) throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
+
+        // Write out queued changes first so a reload never discards them
+        scheduler.flushNow(this);
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
+
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Appointment> cached = SnapshotStore.read(filePath, COLUMNS,
+                col -> fromColumns(i -> col.apply(i).trim()));
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("appointment", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
+
+        // Memory-mapped, parallel parse (appointments is the largest file)
+        List<Appointment> rows = MappedAppointmentLoader.load(filePath);
+
+        SnapshotStore.write(filePath, version, rows, COLUMNS, AppointmentRepository::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("appointment", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory appointments with rows from read() and
+     * rebuilds every index. Listeners see one RELOADED event.
+     */
+    public synchronized void install(String filePath, List<Appointment> rows) {
 
         this.sourceFilePath = filePath;
         appointments.clear();
+        clearIndexes();
 
-        // Use CsvUtil to load appointments
-        appointments.addAll(
-                CsvUtil.readAppointments(filePath)
-        );
+        appointments.addAll(rows);
+        byId.rebuild(appointments);
+        for (Appointment a : appointments) {
+            index(a);
+        }
+
+        diskVersion = FileVersion.of(filePath);
+        changes.reloaded();
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted appointments are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * the CSV while the application is running.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public synchronized RowDelta merge(CsvRead<Appointment> read) {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Appointment> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        RowDelta delta = RowDelta.merge(appointments, rows, Appointment::getAppointmentId,
+                AppointmentRepository::toColumns,
+                new RowDelta.Indexer<Appointment>() {
+                    @Override
+                    public void removed(Appointment row) {
+                        unindex(row);
+                    }
+
+                    @Override
+                    public void added(Appointment row) {
+                        index(row);
+                    }
+
+                    @Override
+                    public void replaced(Appointment oldRow, Appointment newRow) {
+                        unindex(oldRow);
+                        index(newRow);
+                    }
+                }, changes);
+        if (!delta.isEmpty()) byId.rebuild(appointments);
+        MERGE_TIME.recordSince(start);
+        event.finish("appointment", "merge", appointments.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
     }
 
     /* =========================================================
@@ -56,24 +233,219 @@ public class AppointmentRepository {
        ========================================================= */
 
     /**
-     * Returns ALL appointments currently loaded.
-     * Used by MainFrame to populate JTable.
+     * Returns a copy of ALL appointments currently loaded, taken
+     * under the lock (safe off the EDT).
      */
-    public List<Appointment> getAll() {
-        return appointments;
+    public synchronized List<Appointment> getAll() {
+        return new ArrayList<>(appointments);
+    }
+
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Appointment> view() {
+        return Collections.unmodifiableList(appointments);
     }
 
     /**
      * Finds a single appointment by Appointment ID.
      */
-    public Appointment getById(String appointmentId) {
+    public synchronized Appointment getById(String appointmentId) {
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        Appointment found = byId.get(appointmentId);
+        LOOKUP_TIME.recordSince(start);
+        event.finish("appointment", "getById", found == null ? 0 : 1);
+        return found;
+    }
 
-        for (Appointment a : appointments) {
-            if (a.getAppointmentId().equals(appointmentId)) {
-                return a;
+    /**
+     * Returns all appointments for one patient.
+     */
+    public synchronized List<Appointment> getByPatient(String patientId) {
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        List<Appointment> found = copyOf(byPatient.get(IdIndex.key(patientId)));
+        QUERY_TIME.recordSince(start);
+        event.finish("appointment", "getByPatient", found.size());
+        return found;
+    }
+
+    /**
+     * Returns all appointments with one clinician.
+     */
+    public synchronized List<Appointment> getByClinician(String clinicianId) {
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        List<Appointment> found = copyOf(byClinician.get(IdIndex.key(clinicianId)));
+        QUERY_TIME.recordSince(start);
+        event.finish("appointment", "getByClinician", found.size());
+        return found;
+    }
+
+    /**
+     * Returns all appointments at one facility.
+     */
+    public synchronized List<Appointment> getByFacility(String facilityId) {
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        List<Appointment> found = copyOf(byFacility.get(IdIndex.key(facilityId)));
+        QUERY_TIME.recordSince(start);
+        event.finish("appointment", "getByFacility", found.size());
+        return found;
+    }
+
+    /**
+     * Returns the appointments on one day, ordered by time.
+     *
+     * @param date appointment date (yyyy-MM-dd)
+     */
+    public List<Appointment> getOnDate(String date) {
+        return getBetween(date, date);
+    }
+
+    /**
+     * Returns the appointments between two dates (both inclusive),
+     * ordered by date and time.
+     *
+     * @param fromDate first day (yyyy-MM-dd)
+     * @param toDate   last day (yyyy-MM-dd)
+     */
+    public synchronized List<Appointment> getBetween(String fromDate, String toDate) {
+
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+
+        List<Appointment> result = new ArrayList<>();
+
+        int from = TemporalCodec.toEpochDay(fromDate);
+        int to = TemporalCodec.toEpochDay(toDate);
+        if (from == TemporalCodec.NONE || to == TemporalCodec.NONE) {
+            QUERY_TIME.recordSince(start);
+            event.finish("appointment", "getBetween", result.size());
+            return result;
+        }
+
+        // Every key for a day lies in [day << 11, (day + 1) << 11)
+        for (Set<Appointment> slot : byDateTime.subMap(
+                (long) from << 11, true, (long) (to + 1) << 11, false).values()) {
+            result.addAll(slot);
+        }
+        QUERY_TIME.recordSince(start);
+        event.finish("appointment", "getBetween", result.size());
+        return result;
+    }
+
+    /**
+     * Copies the current appointments into a column-oriented store for
+     * fast range and aggregate queries (reports). The copy does not
+     * follow later changes.
+     */
+    public synchronized ColumnarAppointmentStore toColumnar() {
+        return ColumnarAppointmentStore.of(appointments);
+    }
+
+    /* =========================================================
+       CONFLICTS
+       ========================================================= */
+
+    /**
+     * Appointments that overlap a (new or edited) appointment and share
+     * its clinician or facility. The appointment itself (same ID) is
+     * ignored. O(log n) plus the number of overlaps.
+     */
+    public synchronized List<AppointmentConflict> findConflicts(Appointment candidate) {
+
+        List<AppointmentConflict> result = new ArrayList<>();
+        overlaps(scheduleOf(clinicianSchedule, candidate.getClinicianId()), candidate,
+                other -> result.add(new AppointmentConflict(
+                        AppointmentConflict.Kind.CLINICIAN, candidate, other)));
+        overlaps(scheduleOf(facilitySchedule, candidate.getFacilityId()), candidate,
+                other -> result.add(new AppointmentConflict(
+                        AppointmentConflict.Kind.FACILITY, candidate, other)));
+        return result;
+    }
+
+    /**
+     * Every overlapping pair in the whole appointment history: clinician
+     * double bookings first, then facility overlaps.
+     *
+     * Each schedule is swept once in start order, keeping the
+     * appointments still running in a queue ordered by end time, so the
+     * report costs O(n log n) plus the number of conflicts.
+     */
+    public synchronized List<AppointmentConflict> findAllConflicts() {
+
+        List<AppointmentConflict> result = new ArrayList<>();
+        for (IntervalTree<Appointment> tree : clinicianSchedule.values()) {
+            sweep(tree, AppointmentConflict.Kind.CLINICIAN, result);
+        }
+        for (IntervalTree<Appointment> tree : facilitySchedule.values()) {
+            sweep(tree, AppointmentConflict.Kind.FACILITY, result);
+        }
+        return result;
+    }
+
+    private static void sweep(IntervalTree<Appointment> tree, AppointmentConflict.Kind kind,
+                              List<AppointmentConflict> result) {
+
+        // (end, appointment) of appointments that started earlier, soonest end first
+        PriorityQueue<Map.Entry<Long, Appointment>> running =
+                new PriorityQueue<>(Map.Entry.comparingByKey());
+
+        tree.forEachInOrder((start, end, a) -> {
+            while (!running.isEmpty() && running.peek().getKey() <= start) {
+                running.poll();
+            }
+            for (Map.Entry<Long, Appointment> earlier : running) {
+                result.add(new AppointmentConflict(kind, earlier.getValue(), a));
+            }
+            running.add(Map.entry(end, a));
+        });
+    }
+
+    /**
+     * Rejects a booking that would double book its clinician. When
+     * editing, overlaps the appointment already had are allowed, so old
+     * data with clashes can still be edited.
+     */
+    private void checkNotDoubleBooked(Appointment candidate, Appointment existing) {
+
+        Set<String> alreadyOverlapping = new HashSet<>();
+        if (existing != null) {
+            overlaps(scheduleOf(clinicianSchedule, existing.getClinicianId()), existing,
+                    other -> alreadyOverlapping.add(other.getAppointmentId()));
+        }
+
+        List<Appointment> clashes = new ArrayList<>();
+        overlaps(scheduleOf(clinicianSchedule, candidate.getClinicianId()), candidate, other -> {
+            if (!alreadyOverlapping.contains(other.getAppointmentId())) clashes.add(other);
+        });
+
+        if (!clashes.isEmpty()) {
+            StringBuilder message = new StringBuilder("Clinician " + candidate.getClinicianId()
+                    + " is already booked at that time:");
+            for (Appointment other : clashes) {
+                message.append("\n  ").append(other.getAppointmentId()).append(" ")
+                        .append(other.getAppointmentDate()).append(" ")
+                        .append(other.getAppointmentTime()).append(" (")
+                        .append(SlotAllocator.durationOf(other)).append(" min)");
             }
+            throw new IllegalArgumentException(message.toString());
         }
-        return null;
+    }
+
+    /** Calls the action for each other appointment in the tree overlapping a. */
+    private static void overlaps(IntervalTree<Appointment> tree, Appointment a,
+                                 Consumer<Appointment> action) {
+
+        long start = startOf(a);
+        if (tree == null || start == Long.MIN_VALUE) return;
+
+        tree.forEachOverlap(start, endOf(a, start), other -> {
+            if (!other.getAppointmentId().equals(a.getAppointmentId())) action.accept(other);
+        });
     }
 
     /* =========================================================
@@ -81,12 +453,26 @@ public class AppointmentRepository {
        ========================================================= */
 
     /**
-     * Adds a new appointment and persists it to CSV.
+     * Adds a new appointment and schedules a CSV write.
+     *
+     * @return completes once the change has been written to disk
      */
-    public void addAppointment(Appointment appointment) throws IOException {
+    public synchronized CompletableFuture<Void> addAppointment(Appointment appointment) {
+
+        // IDs must stay unique so the ID index has one entry per row
+        if (byId.contains(appointment.getAppointmentId())) {
+            throw new IllegalArgumentException(
+                    "Appointment ID already exists: " + appointment.getAppointmentId()
+            );
+        }
+
+        checkNotDoubleBooked(appointment, null);
 
         appointments.add(appointment);
-        save(); // persist to CSV
+        byId.add(appointment);
+        index(appointment);
+        changes.inserted(appointments.size() - 1);
+        return save(); // persist to CSV
     }
 
     /* =========================================================
@@ -95,24 +481,31 @@ public class AppointmentRepository {
 
     /**
      * Updates an existing appointment based on Appointment ID.
+     *
+     * @return completes once the change has been written to disk
      */
-    public void updateAppointment(Appointment updated) throws IOException {
-
-        for (int i = 0; i < appointments.size(); i++) {
+    public synchronized CompletableFuture<Void> updateAppointment(Appointment updated) {
 
-            if (appointments.get(i).getAppointmentId()
-                    .equals(updated.getAppointmentId())) {
+        int position = byId.positionOf(updated.getAppointmentId());
 
-                appointments.set(i, updated);
-                save(); // persist changes
-                return;
-            }
+        // Safety check (should never happen if UI is correct)
+        if (position < 0) {
+            throw new IllegalArgumentException(
+                    "Appointment not found: " + updated.getAppointmentId()
+            );
         }
 
-        // Safety check (should never happen if UI is correct)
-        throw new IllegalArgumentException(
-                "Appointment not found: " + updated.getAppointmentId()
-        );
+        Appointment existing = appointments.get(position);
+        checkNotDoubleBooked(updated, existing);
+
+        // Keep the row's position in the list (and therefore the CSV)
+        appointments.set(position, updated);
+        byId.set(position, updated);
+        unindex(existing);
+        index(updated);
+        changes.updated(position);
+
+        return save(); // persist changes
     }
 
     /* =========================================================
@@ -121,20 +514,134 @@ public class AppointmentRepository {
 
     /**
      * Deletes an appointment by Appointment ID.
+     *
+     * @return completes once the change has been written to disk
      */
-    public void deleteAppointment(String appointmentId) throws IOException {
+    public synchronized CompletableFuture<Void> deleteAppointment(String appointmentId) {
 
-        boolean removed = appointments.removeIf(
-                a -> a.getAppointmentId().equals(appointmentId)
-        );
+        int position = byId.positionOf(appointmentId);
 
-        if (!removed) {
+        if (position < 0) {
             throw new IllegalArgumentException(
                     "Appointment not found: " + appointmentId
             );
         }
 
-        save(); // persist deletion
+        Appointment existing = appointments.remove(position);
+        byId.removeAt(position);
+        unindex(existing);
+        changes.deleted(position);
+
+        return save(); // persist deletion
+    }
+
+    /* =========================================================
+       CHANGE LISTENERS
+       ========================================================= */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
+    }
+
+    /* =========================================================
+       INDEX MAINTENANCE
+       ========================================================= */
+
+    private void index(Appointment a) {
+        addTo(byPatient, IdIndex.key(a.getPatientId()), a);
+        addTo(byClinician, IdIndex.key(a.getClinicianId()), a);
+        addTo(byFacility, IdIndex.key(a.getFacilityId()), a);
+        addTo(byDateTime, dateTimeKey(a), a);
+        addInterval(clinicianSchedule, a.getClinicianId(), a);
+        addInterval(facilitySchedule, a.getFacilityId(), a);
+    }
+
+    private void unindex(Appointment a) {
+        removeFrom(byPatient, IdIndex.key(a.getPatientId()), a);
+        removeFrom(byClinician, IdIndex.key(a.getClinicianId()), a);
+        removeFrom(byFacility, IdIndex.key(a.getFacilityId()), a);
+        removeFrom(byDateTime, dateTimeKey(a), a);
+        removeInterval(clinicianSchedule, a.getClinicianId(), a);
+        removeInterval(facilitySchedule, a.getFacilityId(), a);
+    }
+
+    private void clearIndexes() {
+        byPatient.clear();
+        byClinician.clear();
+        byFacility.clear();
+        byDateTime.clear();
+        clinicianSchedule.clear();
+        facilitySchedule.clear();
+    }
+
+    private static <K> void addTo(Map<K, Set<Appointment>> index, K key, Appointment a) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(a);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Appointment>> index, K key, Appointment a) {
+        Set<Appointment> bucket = index.get(key);
+        if (bucket != null && bucket.remove(a) && bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static IntervalTree<Appointment> scheduleOf(Map<String, IntervalTree<Appointment>> schedule,
+                                                        String id) {
+        return schedule.get(IdIndex.key(id));
+    }
+
+    private static void addInterval(Map<String, IntervalTree<Appointment>> schedule, String id,
+                                    Appointment a) {
+        long start = startOf(a);
+        if (start == Long.MIN_VALUE) return;
+        schedule.computeIfAbsent(IdIndex.key(id), k -> new IntervalTree<>())
+                .insert(start, endOf(a, start), a.getAppointmentId(), a);
+    }
+
+    private static void removeInterval(Map<String, IntervalTree<Appointment>> schedule, String id,
+                                       Appointment a) {
+        String key = IdIndex.key(id);
+        IntervalTree<Appointment> tree = schedule.get(key);
+        long start = startOf(a);
+        if (tree != null && start != Long.MIN_VALUE
+                && tree.remove(start, a.getAppointmentId()) && tree.isEmpty()) {
+            schedule.remove(key);
+        }
+    }
+
+    /**
+     * Start of an appointment in minutes since 1970-01-01 00:00, or
+     * Long.MIN_VALUE if its date or time did not parse.
+     */
+    private static long startOf(Appointment a) {
+        int day = a.getAppointmentDay();
+        int minute = a.getAppointmentMinute();
+        if (day == TemporalCodec.NONE || minute == TemporalCodec.NONE) return Long.MIN_VALUE;
+        return (long) day * TemporalCodec.MINUTES_PER_DAY + minute;
+    }
+
+    /** End (exclusive) of an appointment starting at start (see SlotAllocator.durationOf). */
+    private static long endOf(Appointment a, long start) {
+        return start + SlotAllocator.durationOf(a);
+    }
+
+    private static List<Appointment> copyOf(Set<Appointment> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    /**
+     * Sort key: epoch day in the high bits, minute of day + 1 in the
+     * low 11 bits (0 for a time that did not parse, so it sorts first
+     * in its day). Appointments with an unparseable date all share the
+     * lowest day and never fall inside a date range.
+     */
+    private static long dateTimeKey(Appointment a) {
+        int minute = a.getAppointmentMinute();
+        return (long) a.getAppointmentDay() << 11 | (minute == TemporalCodec.NONE ? 0 : minute + 1);
     }
 
     /* =========================================================
@@ -142,9 +649,10 @@ public class AppointmentRepository {
        ========================================================= */
 
     /**
-     * Writes the in-memory appointment list back to CSV.
+     * Marks the repository dirty; the CSV is rewritten by the
+     * PersistenceScheduler once the current batch window closes.
      */
-    private void save() throws IOException {
+    private CompletableFuture<Void> save() {
 
         // Safety check
         if (sourceFilePath == null) {
@@ -153,6 +661,68 @@ public class AppointmentRepository {
             );
         }
 
-        CsvUtil.writeAppointments(sourceFilePath, appointments);
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
+
+    /**
+     * Writes a copy of the in-memory appointment list back to CSV.
+     * Runs on the scheduler thread.
+     */
+    private void writeCsv() throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
+
+        List<Appointment> snapshot;
+        String path;
+
+        synchronized (this) {
+            snapshot = new ArrayList<>(appointments);
+            path = sourceFilePath;
+        }
+
+        CsvUtil.writeAppointments(path, snapshot);
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, AppointmentRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("appointment", snapshot.size(), path);
+    }
+
+    /* =========================================================
+       SNAPSHOT COLUMNS
+       ========================================================= */
+
+    /**
+     * Builds an appointment from snapshot columns.
+     */
+    private static Appointment fromColumns(IntFunction<String> col) {
+        return new Appointment(
+                col.apply(0), // appointmentId
+                col.apply(1), // patientId
+                CLINICIAN_IDS.canonical(col.apply(2)), // clinicianId
+                FACILITY_IDS.canonical(col.apply(3)),  // facilityId
+                col.apply(4),                          // appointmentDate
+                TIMES.canonical(col.apply(5)),         // appointmentTime
+                STATUSES.canonical(col.apply(6)),      // status
+                col.apply(7)                           // notes
+        );
+    }
+
+    /**
+     * Column values in the same order CsvUtil.writeAppointments uses.
+     */
+    private static String[] toColumns(Appointment a) {
+        return new String[]{
+                a.getAppointmentId(),
+                a.getPatientId(),
+                a.getClinicianId(),
+                a.getFacilityId(),
+                a.getAppointmentDate(),
+                a.getAppointmentTime(),
+                a.getStatus(),
+                a.getNotes()
+        };
     }
 }
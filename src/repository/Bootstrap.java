@@ -0,0 +1,168 @@
+package repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bootstrap
+ * ---------
+ * Loads every repository in a DataContext at application start.
+ *
+ * The seven CSV loads are independent, so they run at the same time on
+ * a small thread pool (one thread per repository). Start-up therefore
+ * takes roughly as long as the slowest file rather than the sum of all
+ * of them.
+ *
+ * Progress is reported to a Listener as each repository finishes.
+ * A failed load does not stop the others; it is reported and recorded
+ * in the returned Report.
+ *
+ * NOTE:
+ *  - NO GUI code (the splash screen is just a Listener)
+ *  - Listener methods are called on the loader threads
+ */
+public final class Bootstrap {
+
+    /**
+     * Receives load progress. Implementations must be thread-safe.
+     */
+    public interface Listener {
+
+        /**
+         * Called once per repository when its load has finished.
+         *
+         * @param name          repository name (e.g. "Patients")
+         * @param elapsedMillis time spent loading it
+         * @param error         the failure, or null if it loaded
+         * @param completed     repositories finished so far
+         * @param total         number of repositories being loaded
+         */
+        void loaded(String name, long elapsedMillis, Exception error, int completed, int total);
+    }
+
+    /**
+     * Outcome of a bootstrap run.
+     */
+    public static final class Report {
+
+        private final Map<String, Long> timings;
+        private final Map<String, Exception> failures;
+        private final long totalMillis;
+
+        private Report(Map<String, Long> timings, Map<String, Exception> failures, long totalMillis) {
+            this.timings = Collections.unmodifiableMap(timings);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.totalMillis = totalMillis;
+        }
+
+        /** Load time per repository, in start order. */
+        public Map<String, Long> getTimings() {
+            return timings;
+        }
+
+        /** Repositories that failed to load. */
+        public Map<String, Exception> getFailures() {
+            return failures;
+        }
+
+        /** Wall-clock time for the whole bootstrap. */
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            long sum = 0;
+            for (long t : timings.values()) sum += t;
+            return "Loaded " + timings.size() + " repositories in " + totalMillis
+                    + " ms (sequential would be ~" + sum + " ms) " + timings;
+        }
+    }
+
+    /** Single load step */
+    private interface Step {
+        void load() throws Exception;
+    }
+
+    private Bootstrap() {
+        // Utility class
+    }
+
+    /**
+     * Loads all repositories of the context concurrently and waits
+     * for every one of them to finish.
+     *
+     * @param context  repositories to fill
+     * @param listener progress callback (may be null)
+     * @return timings and failures
+     */
+    public static Report load(DataContext context, Listener listener) throws InterruptedException {
+
+        Map<String, Step> steps = new LinkedHashMap<>();
+        steps.put("Patients", () -> context.getPatientRepository().load(DataContext.PATIENTS_CSV));
+        steps.put("Clinicians", () -> context.getClinicianRepository().load(DataContext.CLINICIANS_CSV));
+        steps.put("Prescriptions", () -> context.getPrescriptionRepository().load(DataContext.PRESCRIPTIONS_CSV));
+        steps.put("Referrals", () -> context.getReferralRepository().load(DataContext.REFERRALS_CSV));
+        steps.put("Staff", () -> context.getStaffRepository().load(DataContext.STAFF_CSV));
+        steps.put("Facilities", () -> context.getFacilityRepository().load(DataContext.FACILITIES_CSV));
+        steps.put("Appointments", () -> context.getAppointmentRepository().load(DataContext.APPOINTMENTS_CSV));
+
+        int total = steps.size();
+        Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+        Map<String, Exception> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        AtomicInteger completed = new AtomicInteger();
+
+        // Keep timings in start order regardless of finish order
+        for (String name : steps.keySet()) timings.put(name, 0L);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(total, r -> {
+            Thread t = new Thread(r, "bootstrap-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+
+        try {
+            for (Map.Entry<String, Step> step : steps.entrySet()) {
+                pool.execute(() -> {
+                    String name = step.getKey();
+                    long t0 = System.nanoTime();
+                    Exception error = null;
+
+                    try {
+                        step.getValue().load();
+                    } catch (Exception e) {
+                        error = e;
+                        failures.put(name, e);
+                    }
+
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+                    timings.put(name, elapsed);
+
+                    if (listener != null) {
+                        listener.loaded(name, elapsed, error, completed.incrementAndGet(), total);
+                    }
+                });
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Metrics.getInstance().gauge("startup.loadMs", () -> totalMillis);
+
+        // All loader threads have finished, so the maps are stable
+        return new Report(new LinkedHashMap<>(timings), new LinkedHashMap<>(failures), totalMillis);
+    }
+}
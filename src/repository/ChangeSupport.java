@@ -0,0 +1,58 @@
+package repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ChangeSupport
+ * -------------
+ * Listener list shared by the repositories (same idea as Swing's
+ * PropertyChangeSupport). Each repository owns one and calls the
+ * fire methods after every change to its list.
+ *
+ * It also counts those changes, so a repository can tell whether it
+ * was edited since a given moment (see CsvRead).
+ */
+final class ChangeSupport {
+
+    private final List<RepositoryListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Changes fired so far (only written under the repository's lock) */
+    private volatile long count;
+
+    void addListener(RepositoryListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(RepositoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    void inserted(int row) {
+        fire(RepositoryListener.Change.INSERTED, row, row);
+    }
+
+    void updated(int row) {
+        fire(RepositoryListener.Change.UPDATED, row, row);
+    }
+
+    void deleted(int row) {
+        fire(RepositoryListener.Change.DELETED, row, row);
+    }
+
+    void reloaded() {
+        fire(RepositoryListener.Change.RELOADED, -1, -1);
+    }
+
+    /** Number of changes fired so far. */
+    long count() {
+        return count;
+    }
+
+    private void fire(RepositoryListener.Change change, int first, int last) {
+        count++;
+        for (RepositoryListener l : listeners) {
+            l.repositoryChanged(change, first, last);
+        }
+    }
+}
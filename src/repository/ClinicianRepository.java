@@ -3,8 +3,13 @@ package repository;
 import model.Clinician;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  * ClinicianRepository
@@ -12,33 +17,97 @@ import java.util.List;
  * Handles loading, storing, editing, and deleting clinicians.
  *
  * MODEL layer (MVC).
+ *
+ * Saves are batched through PersistenceScheduler rather than
+ * rewriting the CSV on the caller's thread after every change.
  */
 public class ClinicianRepository {
 
     /** In-memory list */
     private final List<Clinician> clinicians = new ArrayList<>();
 
+    /** Case-insensitive clinician ID index (kept in sync with the list) */
+    private final IdIndex<Clinician> clinicianById = new IdIndex<>(Clinician::getClinicianId);
+
     /** CSV source path */
     private String sourceFilePath;
 
+    /** Columns in the current CSV (and snapshot) format */
+    private static final int COLUMNS = 5;
+
+    /** Pools for repeated column values */
+    private static final ColumnDictionary ROLES = new ColumnDictionary("clinician.role");
+    private static final ColumnDictionary SPECIALTIES = new ColumnDictionary("clinician.specialty");
+    private static final ColumnDictionary WORKPLACES = new ColumnDictionary("clinician.workplace");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("clinician.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("clinician.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("clinician.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("clinician.lookup");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("clinician.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("clinician.changes");
+
+    /** Shared background writer that coalesces CSV saves */
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /* =====================================================
        LOAD
        ===================================================== */
 
 public void load(String filePath) throws IOException {
+    long start = System.nanoTime();
+    DataEvents.Load event = new DataEvents.Load();
+    install(filePath, read(filePath).getRows());
+    LOAD_TIME.recordSince(start);
+    event.finish("clinician", "load", clinicians.size(), filePath);
+}
 
-    this.sourceFilePath = filePath;
-    clinicians.clear();
+/**
+ * Reads clinicians.csv without changing the repository, so it can
+ * run on a background thread. Pass the rows to install(), or the
+ * result to merge(), afterwards.
+ */
+public CsvRead<Clinician> read(String filePath) throws IOException {
 
-    try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    long start = System.nanoTime();
+    DataEvents.Load event = new DataEvents.Load();
 
-        // Skip header
-        br.readLine();
+    // Edits made after this make the rows out of date (see CsvRead)
+    long changeCount;
+    synchronized (this) {
+        changeCount = changes.count();
+    }
+
+    // Write out queued changes first so a reload never discards them
+    scheduler.flushNow(this);
+
+    // Version of the CSV the rows come from, taken before parsing
+    FileVersion version = FileVersion.of(filePath);
+
+    // Prefer the binary snapshot while it still matches the CSV
+    List<Clinician> cached = SnapshotStore.read(filePath, COLUMNS,
+            col -> fromColumns(i -> col.apply(i).trim()));
+    if (cached != null) {
+        READ_TIME.recordSince(start);
+        event.finish("clinician", "read", cached.size(), filePath);
+        return new CsvRead<>(filePath, cached, version, changeCount);
+    }
 
-        String line;
-        while ((line = br.readLine()) != null) {
+    List<Clinician> rows = new ArrayList<>();
 
-            String[] cols = line.split(",", -1);
+    try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
+
+        // Skip header
+        t.next();
+
+        while (t.next()) {
 
             /*
              * Supported formats:
@@ -46,57 +115,145 @@ public void load(String filePath) throws IOException {
              * NEW: clinicianId,name,role,specialty,workplace (5 cols)
              */
 
-            if (cols.length == 6) {
+            if (t.fieldCount() == 6) {
                 // OLD format
-                String fullName = cols[1].trim() + " " + cols[2].trim();
+                String fullName = t.trimmed(1) + " " + t.trimmed(2);
 
-                clinicians.add(new Clinician(
-                        cols[0].trim(),
+                rows.add(new Clinician(
+                        t.trimmed(0),
                         fullName,
-                        cols[3].trim(),
-                        cols[4].trim(),
-                        cols[5].trim()
+                        ROLES.canonical(t.trimmed(3)),
+                        SPECIALTIES.canonical(t.trimmed(4)),
+                        WORKPLACES.canonical(t.trimmed(5))
                 ));
 
-            } else if (cols.length == 5) {
+            } else if (t.fieldCount() == COLUMNS) {
                 // NEW format (current save format)
-                clinicians.add(new Clinician(
-                        cols[0].trim(),
-                        cols[1].trim(),
-                        cols[2].trim(),
-                        cols[3].trim(),
-                        cols[4].trim()
-                ));
+                rows.add(fromColumns(t::trimmed));
             }
             // Ignore malformed rows safely
         }
     }
+
+    SnapshotStore.write(filePath, version, rows, COLUMNS, ClinicianRepository::toColumns);
+    READ_TIME.recordSince(start);
+    event.finish("clinician", "read", rows.size(), filePath);
+    return new CsvRead<>(filePath, rows, version, changeCount);
+}
+
+/**
+ * Replaces the in-memory clinicians with rows from read().
+ * Listeners see one RELOADED event.
+ */
+public synchronized void install(String filePath, List<Clinician> rows) {
+
+    this.sourceFilePath = filePath;
+    clinicians.clear();
+    clinicians.addAll(rows);
+
+    clinicianById.rebuild(clinicians);
+    diskVersion = FileVersion.of(filePath);
+    changes.reloaded();
 }
 
+/**
+ * Applies rows from read() as a delta: only inserted, changed and
+ * deleted clinicians are touched, each with its own change event, so
+ * open tables update in place. Used when another program rewrites
+ * the CSV while the application is running.
+ *
+ * Returns null and changes nothing if the file was written again
+ * or this repository was edited since read(); read it again.
+ */
+public synchronized RowDelta merge(CsvRead<Clinician> read) {
+
+    // Read before the latest edit or file change: merging would undo it
+    if (!read.isCurrent(changes.count())) return null;
+
+    String filePath = read.getPath();
+    List<Clinician> rows = read.getRows();
+
+    long start = System.nanoTime();
+    DataEvents.Load event = new DataEvents.Load();
+
+    this.sourceFilePath = filePath;
+    diskVersion = read.getVersion();
+
+    RowDelta delta = RowDelta.merge(clinicians, rows, Clinician::getClinicianId,
+            ClinicianRepository::toColumns, RowDelta.none(), changes);
+    if (!delta.isEmpty()) clinicianById.rebuild(clinicians);
+    MERGE_TIME.recordSince(start);
+    event.finish("clinician", "merge", clinicians.size(), filePath);
+    return delta;
+}
+
+    /**
+     * Builds a clinician from columns in the current (5 column) format.
+     */
+    private static Clinician fromColumns(IntFunction<String> col) {
+        return new Clinician(
+                col.apply(0),
+                col.apply(1),
+                ROLES.canonical(col.apply(2)),
+                SPECIALTIES.canonical(col.apply(3)),
+                WORKPLACES.canonical(col.apply(4))
+        );
+    }
+
+    /**
+     * Column values for one clinician, in CSV order.
+     */
+    private static String[] toColumns(Clinician c) {
+        return new String[]{
+                c.getClinicianId(),
+                c.getName(),
+                c.getRole(),
+                c.getSpecialty(),
+                c.getWorkplace()
+        };
+    }
+
 
 
     /* =====================================================
        READ
        ===================================================== */
 
-    public List<Clinician> getAll() {
+    /** Copy of the list, taken under the lock (safe off the EDT). */
+    public synchronized List<Clinician> getAll() {
         return new ArrayList<>(clinicians);
     }
 
-    public Clinician findById(String clinicianId) {
-        for (Clinician c : clinicians) {
-            if (c.getClinicianId().equalsIgnoreCase(clinicianId)) {
-                return c;
-            }
-        }
-        return null;
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Clinician> view() {
+        return Collections.unmodifiableList(clinicians);
+    }
+
+    public synchronized Clinician findById(String clinicianId) {
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        Clinician found = clinicianById.get(clinicianId);
+        LOOKUP_TIME.recordSince(start);
+        event.finish("clinician", "findById", found == null ? 0 : 1);
+        return found;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
     }
 
     /* =====================================================
        CREATE
        ===================================================== */
 
-    public void add(Clinician clinician) throws IOException {
+    public synchronized CompletableFuture<Void> add(Clinician clinician) {
 
         if (clinician == null || clinician.getClinicianId().isBlank()) {
             throw new IllegalArgumentException("Clinician ID is required.");
@@ -107,79 +264,114 @@ public void load(String filePath) throws IOException {
         }
 
         clinicians.add(clinician);
-        saveToCsv();
+        clinicianById.add(clinician);
+        changes.inserted(clinicians.size() - 1);
+        return saveToCsv();
     }
 
     /* =====================================================
        UPDATE
        ===================================================== */
 
-    public void update(Clinician updated) throws IOException {
+    public synchronized CompletableFuture<Void> update(Clinician updated) {
 
-        for (int i = 0; i < clinicians.size(); i++) {
-            if (clinicians.get(i).getClinicianId()
-                    .equalsIgnoreCase(updated.getClinicianId())) {
+        int index = clinicianById.positionOf(updated.getClinicianId());
 
-                clinicians.set(i, updated);
-                saveToCsv();
-                return;
-            }
+        if (index < 0) {
+            throw new IllegalArgumentException("Clinician not found.");
         }
 
-        throw new IllegalArgumentException("Clinician not found.");
+        clinicians.set(index, updated);
+        clinicianById.set(index, updated);
+        changes.updated(index);
+        return saveToCsv();
     }
 
     /* =====================================================
        DELETE
        ===================================================== */
 
-    public void delete(String clinicianId) throws IOException {
+    public synchronized CompletableFuture<Void> delete(String clinicianId) {
 
-        boolean removed = clinicians.removeIf(c ->
-                c.getClinicianId().equalsIgnoreCase(clinicianId));
+        int index = clinicianById.positionOf(clinicianId);
 
-        if (!removed) {
+        if (index < 0) {
             throw new IllegalArgumentException("Clinician not found.");
         }
 
-        saveToCsv();
+        clinicians.remove(index);
+        clinicianById.removeAt(index);
+        changes.deleted(index);
+        return saveToCsv();
+    }
+
+    /* =====================================================
+       CHANGE LISTENERS
+       ===================================================== */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
     }
 
     /* =====================================================
        CSV SAVE
        ===================================================== */
 
-    private void saveToCsv() throws IOException {
+    /**
+     * Marks the repository dirty; the PersistenceScheduler writes
+     * the CSV once the current batch window closes.
+     */
+    private CompletableFuture<Void> saveToCsv() {
 
         if (sourceFilePath == null) {
             throw new IllegalStateException("CSV path not set. Call load() first.");
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sourceFilePath))) {
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
+
+    /**
+     * Writes a copy of the clinician list (runs on the scheduler thread).
+     */
+    private void writeCsv() throws IOException {
 
-            writer.write("clinicianId,name,role,specialty,workplace");
-            writer.newLine();
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
 
-            for (Clinician c : clinicians) {
-                writer.write(String.join(",",
-                        safe(c.getClinicianId()),
-                        safe(c.getName()),
-                        safe(c.getRole()),
-                        safe(c.getSpecialty()),
-                        safe(c.getWorkplace())
-                ));
+        List<Clinician> snapshot;
+        String path;
+
+        synchronized (this) {
+            snapshot = new ArrayList<>(clinicians);
+            path = sourceFilePath;
+        }
+
+        CsvUtil.writeAtomically(Paths.get(path), tmp -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+
+                writer.write("clinicianId,name,role,specialty,workplace");
                 writer.newLine();
+
+                for (Clinician c : snapshot) {
+                    CsvUtil.writeRow(writer, toColumns(c));
+                }
             }
-        }
-    }
+        });
 
-    private String safe(String value) {
-        return value == null ? "" : value.replace(",", " ");
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, ClinicianRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("clinician", snapshot.size(), path);
     }
 
     public boolean existsById(String clinicianId) {
-    return clinicians.stream()
-            .anyMatch(c -> c.getClinicianId().equalsIgnoreCase(clinicianId));
-}
+        return clinicianById.contains(clinicianId);
+    }
 
 }
@@ -0,0 +1,56 @@
+package repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ColumnDictionary
+ * ----------------
+ * Intern pool for one low-cardinality CSV column (status, role,
+ * gender, pharmacy ...).
+ *
+ * Loaders pass every value of such a column through canonical(), so
+ * each distinct value is stored once no matter how many rows repeat
+ * it. Besides saving heap, equal values are then the same object, so
+ * String.equals() in filters returns on its identity check.
+ *
+ * A column that turns out not to be low-cardinality stops growing
+ * after MAX_VALUES distinct values; later new values are returned
+ * as they are.
+ *
+ * Each dictionary's size is reported as the Metrics gauge
+ * "dictionary.<column>" (listed on the System tab).
+ *
+ * NOTE:
+ *  - Thread-safe (loaders run in parallel)
+ *  - Values are never removed; the pool is bounded by MAX_VALUES
+ */
+final class ColumnDictionary {
+
+    /** Largest number of distinct values kept per column */
+    static final int MAX_VALUES = 4096;
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * @param column name of the size gauge, e.g. "appointment.status"
+     */
+    ColumnDictionary(String column) {
+        Metrics.getInstance().gauge("dictionary." + column, values::size);
+    }
+
+    /**
+     * Returns the pooled copy of a value (adding it if there is room).
+     */
+    String canonical(String value) {
+
+        if (value == null) return null;
+
+        String pooled = values.get(value);
+        if (pooled != null) return pooled;
+
+        if (values.size() >= MAX_VALUES) return value;
+
+        pooled = values.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+}
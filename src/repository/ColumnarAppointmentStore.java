@@ -0,0 +1,545 @@
+package repository;
+
+import model.Appointment;
+import model.TemporalCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ColumnarAppointmentStore
+ * ------------------------
+ * Column-oriented, in-memory copy of the appointments, for reporting.
+ *
+ * Instead of one Appointment object (eight Strings) per row, each
+ * column is a primitive array:
+ *
+ *  appointment ID      String[]   (the only per-row object)
+ *  date                int[]      epoch day (TemporalCodec)
+ *  time                short[]    minute of day
+ *  patient, clinician,
+ *  facility, status    int[]      codes into per-column dictionaries
+ *  notes               char[]     one shared arena + start/length per row
+ *
+ * Range and aggregate scans (countBetween, countPerDay, countByStatus ...)
+ * are simple loops over int arrays, which the JIT can unroll and
+ * vectorise, with no pointer chasing. A range bound that is not a
+ * valid date gives an empty result. MainFrame's Appointment Report
+ * is built from these scans (via AppointmentRepository.toColumnar()).
+ *
+ * CRUD methods mirror AppointmentRepository (addAppointment,
+ * updateAppointment, deleteAppointment, getById, getAll); rows are
+ * turned back into Appointment objects only when asked for.
+ *
+ * LOSSLESS:
+ *  Dates/times that do not round-trip through TemporalCodec (wrong
+ *  format, impossible dates) keep their original text in a small side
+ *  table and never match a date range.
+ *
+ * NOTE:
+ *  - In-memory only; AppointmentRepository remains the source of truth
+ *    and the only writer of appointments.csv
+ *  - Deleting moves the last row into the gap, so row order is not
+ *    file order after a delete
+ *  - Thread-safe (all public methods synchronized)
+ */
+public class ColumnarAppointmentStore {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** minute-of-day column value for a time that did not parse */
+    private static final short NO_TIME = -1;
+
+    /* =====================================================
+       COLUMNS
+       ===================================================== */
+
+    private int size;
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private short[] times = new short[INITIAL_CAPACITY];
+    private int[] patients = new int[INITIAL_CAPACITY];
+    private int[] clinicians = new int[INITIAL_CAPACITY];
+    private int[] facilities = new int[INITIAL_CAPACITY];
+    private int[] statuses = new int[INITIAL_CAPACITY];
+    private int[] noteStart = new int[INITIAL_CAPACITY];
+    private int[] noteLength = new int[INITIAL_CAPACITY];
+
+    private final Codes patientCodes = new Codes();
+    private final Codes clinicianCodes = new Codes();
+    private final Codes facilityCodes = new Codes();
+    private final Codes statusCodes = new Codes();
+
+    /** Note text for all rows, back to back */
+    private char[] arena = new char[INITIAL_CAPACITY * 16];
+    private int arenaLength;
+
+    /** Arena chars no longer used by any row */
+    private int arenaGarbage;
+
+    /** Appointment ID -> row */
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    /** Original text of dates/times that do not round-trip, by appointment ID */
+    private final Map<String, String> irregularDates = new HashMap<>();
+    private final Map<String, String> irregularTimes = new HashMap<>();
+
+    /* =====================================================
+       BUILDING
+       ===================================================== */
+
+    /**
+     * Builds a store from appointment objects (a later duplicate ID
+     * replaces an earlier one).
+     */
+    public static ColumnarAppointmentStore of(List<Appointment> appointments) {
+
+        ColumnarAppointmentStore store = new ColumnarAppointmentStore();
+        for (Appointment a : appointments) {
+            store.put(a.getAppointmentId(), a.getPatientId(), a.getClinicianId(),
+                    a.getFacilityId(), a.getAppointmentDate(), a.getAppointmentTime(),
+                    a.getStatus(), a.getNotes());
+        }
+        return store;
+    }
+
+    /**
+     * Streams appointments.csv straight into columns, without creating
+     * Appointment objects.
+     */
+    public static ColumnarAppointmentStore load(String filePath) throws IOException {
+
+        ColumnarAppointmentStore store = new ColumnarAppointmentStore();
+
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
+
+            t.next(); // skip header
+
+            while (t.next()) {
+                if (t.fieldCount() < 8) continue;
+                store.put(t.trimmed(0), t.trimmed(1), t.trimmed(2), t.trimmed(3),
+                        t.trimmed(4), t.trimmed(5), t.trimmed(6), t.trimmed(7));
+            }
+        }
+
+        return store;
+    }
+
+    /* =====================================================
+       READ
+       ===================================================== */
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Appointment getById(String appointmentId) {
+        Integer row = rowById.get(appointmentId);
+        return row == null ? null : materialise(row);
+    }
+
+    /**
+     * Returns every appointment as a new object (row order).
+     */
+    public synchronized List<Appointment> getAll() {
+        List<Appointment> result = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            result.add(materialise(row));
+        }
+        return result;
+    }
+
+    /* =====================================================
+       CREATE / UPDATE / DELETE
+       ===================================================== */
+
+    public synchronized void addAppointment(Appointment appointment) {
+
+        if (rowById.containsKey(appointment.getAppointmentId())) {
+            throw new IllegalArgumentException(
+                    "Appointment ID already exists: " + appointment.getAppointmentId()
+            );
+        }
+        put(appointment.getAppointmentId(), appointment.getPatientId(),
+                appointment.getClinicianId(), appointment.getFacilityId(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getStatus(), appointment.getNotes());
+    }
+
+    public synchronized void updateAppointment(Appointment updated) {
+
+        if (!rowById.containsKey(updated.getAppointmentId())) {
+            throw new IllegalArgumentException(
+                    "Appointment not found: " + updated.getAppointmentId()
+            );
+        }
+        put(updated.getAppointmentId(), updated.getPatientId(),
+                updated.getClinicianId(), updated.getFacilityId(),
+                updated.getAppointmentDate(), updated.getAppointmentTime(),
+                updated.getStatus(), updated.getNotes());
+    }
+
+    public synchronized void deleteAppointment(String appointmentId) {
+
+        Integer found = rowById.remove(appointmentId);
+        if (found == null) {
+            throw new IllegalArgumentException("Appointment not found: " + appointmentId);
+        }
+
+        int row = found;
+        releaseNote(row);
+        irregularDates.remove(appointmentId);
+        irregularTimes.remove(appointmentId);
+
+        // Fill the gap with the last row
+        int last = size - 1;
+        if (row != last) {
+            ids[row] = ids[last];
+            dates[row] = dates[last];
+            times[row] = times[last];
+            patients[row] = patients[last];
+            clinicians[row] = clinicians[last];
+            facilities[row] = facilities[last];
+            statuses[row] = statuses[last];
+            noteStart[row] = noteStart[last];
+            noteLength[row] = noteLength[last];
+            rowById.put(ids[row], row);
+        }
+        ids[last] = null;
+        size--;
+    }
+
+    /**
+     * Inserts a row, or overwrites the row with the same ID.
+     */
+    private void put(String id, String patientId, String clinicianId, String facilityId,
+                     String date, String time, String status, String notes) {
+
+        Integer existing = rowById.get(id);
+        int row;
+
+        if (existing != null) {
+            row = existing;
+            releaseNote(row);
+        } else {
+            row = size;
+            ensureCapacity(size + 1);
+            ids[row] = id;
+            noteLength[row] = 0; // slot may hold a deleted row's note
+            rowById.put(id, row);
+            size++;
+        }
+
+        dates[row] = encodeDate(id, date);
+        times[row] = encodeTime(id, time);
+        patients[row] = patientCodes.encode(patientId);
+        clinicians[row] = clinicianCodes.encode(clinicianId);
+        facilities[row] = facilityCodes.encode(facilityId);
+        statuses[row] = statusCodes.encode(status);
+        storeNote(row, notes);
+    }
+
+    /* =====================================================
+       SCANS (dates are yyyy-MM-dd, both ends inclusive)
+       ===================================================== */
+
+    /**
+     * Earliest appointment date (yyyy-MM-dd), or null if no row has a
+     * valid date.
+     */
+    public synchronized String firstDate() {
+        int first = Integer.MAX_VALUE;
+        for (int row = 0; row < size; row++) {
+            if (dates[row] != TemporalCodec.NONE) first = Math.min(first, dates[row]);
+        }
+        return first == Integer.MAX_VALUE ? null : TemporalCodec.formatDate(first);
+    }
+
+    /**
+     * Latest appointment date (yyyy-MM-dd), or null if no row has a
+     * valid date.
+     */
+    public synchronized String lastDate() {
+        int last = TemporalCodec.NONE;
+        for (int row = 0; row < size; row++) {
+            last = Math.max(last, dates[row]);
+        }
+        return last == TemporalCodec.NONE ? null : TemporalCodec.formatDate(last);
+    }
+
+    /**
+     * Number of appointments between two dates.
+     */
+    public synchronized int countBetween(String fromDate, String toDate) {
+
+        int lo = TemporalCodec.toEpochDay(fromDate);
+        int hi = TemporalCodec.toEpochDay(toDate);
+        if (lo == TemporalCodec.NONE || hi == TemporalCodec.NONE) return 0;
+
+        int[] d = dates;
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            count += (d[row] >= lo & d[row] <= hi) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Appointments per day; index 0 is fromDate.
+     */
+    public synchronized int[] countPerDay(String fromDate, String toDate) {
+
+        int lo = TemporalCodec.toEpochDay(fromDate);
+        int hi = TemporalCodec.toEpochDay(toDate);
+        if (lo == TemporalCodec.NONE || hi == TemporalCodec.NONE || hi < lo) {
+            return new int[0];
+        }
+
+        int[] perDay = new int[hi - lo + 1];
+        int[] d = dates;
+
+        for (int row = 0; row < size; row++) {
+            int day = d[row];
+            if (day >= lo & day <= hi) perDay[day - lo]++;
+        }
+        return perDay;
+    }
+
+    /**
+     * Appointments per hour of the day (24 entries).
+     */
+    public synchronized int[] countPerHour(String fromDate, String toDate) {
+
+        int lo = TemporalCodec.toEpochDay(fromDate);
+        int hi = TemporalCodec.toEpochDay(toDate);
+        int[] perHour = new int[24];
+        if (lo == TemporalCodec.NONE || hi == TemporalCodec.NONE) return perHour;
+
+        int[] d = dates;
+        short[] t = times;
+
+        for (int row = 0; row < size; row++) {
+            if (d[row] >= lo & d[row] <= hi & t[row] >= 0) perHour[t[row] / 60]++;
+        }
+        return perHour;
+    }
+
+    /**
+     * Appointments per status value.
+     */
+    public synchronized Map<String, Integer> countByStatus(String fromDate, String toDate) {
+        return countByCode(statuses, statusCodes, fromDate, toDate);
+    }
+
+    /**
+     * Appointments per clinician ID.
+     */
+    public synchronized Map<String, Integer> countByClinician(String fromDate, String toDate) {
+        return countByCode(clinicians, clinicianCodes, fromDate, toDate);
+    }
+
+    /**
+     * Appointments per facility ID.
+     */
+    public synchronized Map<String, Integer> countByFacility(String fromDate, String toDate) {
+        return countByCode(facilities, facilityCodes, fromDate, toDate);
+    }
+
+    /**
+     * Number of appointments one clinician has between two dates.
+     */
+    public synchronized int countForClinician(String clinicianId, String fromDate, String toDate) {
+
+        int code = clinicianCodes.find(clinicianId);
+        if (code < 0) return 0;
+
+        int lo = TemporalCodec.toEpochDay(fromDate);
+        int hi = TemporalCodec.toEpochDay(toDate);
+        if (lo == TemporalCodec.NONE || hi == TemporalCodec.NONE) return 0;
+
+        int[] d = dates;
+        int[] c = clinicians;
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            count += (c[row] == code & d[row] >= lo & d[row] <= hi) ? 1 : 0;
+        }
+        return count;
+    }
+
+    private Map<String, Integer> countByCode(int[] column, Codes codes, String fromDate, String toDate) {
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+
+        int lo = TemporalCodec.toEpochDay(fromDate);
+        int hi = TemporalCodec.toEpochDay(toDate);
+        if (lo == TemporalCodec.NONE || hi == TemporalCodec.NONE) return result;
+
+        int[] counts = new int[codes.size()];
+        int[] d = dates;
+
+        for (int row = 0; row < size; row++) {
+            if (d[row] >= lo & d[row] <= hi) counts[column[row]]++;
+        }
+
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) result.put(codes.decode(code), counts[code]);
+        }
+        return result;
+    }
+
+    /* =====================================================
+       ENCODING
+       ===================================================== */
+
+    private int encodeDate(String id, String text) {
+
+        String value = text == null ? "" : text;
+        int day = TemporalCodec.toEpochDay(value);
+
+        if (TemporalCodec.formatDate(day).equals(value)) {
+            irregularDates.remove(id);
+        } else {
+            irregularDates.put(id, value);
+        }
+        return day;
+    }
+
+    private short encodeTime(String id, String text) {
+
+        String value = text == null ? "" : text;
+        int minute = TemporalCodec.toMinuteOfDay(value);
+
+        if (TemporalCodec.formatTime(minute).equals(value)) {
+            irregularTimes.remove(id);
+        } else {
+            irregularTimes.put(id, value);
+        }
+        return minute == TemporalCodec.NONE ? NO_TIME : (short) minute;
+    }
+
+    private Appointment materialise(int row) {
+
+        String id = ids[row];
+        String date = irregularDates.get(id);
+        String time = irregularTimes.get(id);
+
+        return new Appointment(
+                id,
+                patientCodes.decode(patients[row]),
+                clinicianCodes.decode(clinicians[row]),
+                facilityCodes.decode(facilities[row]),
+                date != null ? date : TemporalCodec.formatDate(dates[row]),
+                time != null ? time : TemporalCodec.formatTime(times[row] == NO_TIME ? TemporalCodec.NONE : times[row]),
+                statusCodes.decode(statuses[row]),
+                new String(arena, noteStart[row], noteLength[row])
+        );
+    }
+
+    /* =====================================================
+       NOTES ARENA
+       ===================================================== */
+
+    private void storeNote(int row, String notes) {
+
+        String text = notes == null ? "" : notes;
+
+        if (arenaLength + text.length() > arena.length) {
+            compactArena();
+            if (arenaLength + text.length() > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + text.length()));
+            }
+        }
+
+        text.getChars(0, text.length(), arena, arenaLength);
+        noteStart[row] = arenaLength;
+        noteLength[row] = text.length();
+        arenaLength += text.length();
+    }
+
+    private void releaseNote(int row) {
+        arenaGarbage += noteLength[row];
+        noteLength[row] = 0;
+    }
+
+    /**
+     * Drops unused arena space once at least half of it is garbage.
+     */
+    private void compactArena() {
+
+        if (arenaGarbage * 2 < arenaLength) return;
+
+        char[] packed = new char[arena.length];
+        int length = 0;
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(arena, noteStart[row], packed, length, noteLength[row]);
+            noteStart[row] = length;
+            length += noteLength[row];
+        }
+
+        arena = packed;
+        arenaLength = length;
+        arenaGarbage = 0;
+    }
+
+    private void ensureCapacity(int needed) {
+
+        if (needed <= ids.length) return;
+
+        int capacity = Math.max(needed, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        times = Arrays.copyOf(times, capacity);
+        patients = Arrays.copyOf(patients, capacity);
+        clinicians = Arrays.copyOf(clinicians, capacity);
+        facilities = Arrays.copyOf(facilities, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        noteStart = Arrays.copyOf(noteStart, capacity);
+        noteLength = Arrays.copyOf(noteLength, capacity);
+    }
+
+    /* =====================================================
+       DICTIONARY CODES
+       ===================================================== */
+
+    /**
+     * Maps the distinct values of one column to 0, 1, 2 ...
+     */
+    private static final class Codes {
+
+        private final Map<String, Integer> codeByValue = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            String v = value == null ? "" : value;
+            Integer code = codeByValue.get(v);
+            if (code == null) {
+                code = values.size();
+                codeByValue.put(v, code);
+                values.add(v);
+            }
+            return code;
+        }
+
+        /** Code of a value, or -1 if it never occurred. */
+        int find(String value) {
+            Integer code = codeByValue.get(value == null ? "" : value);
+            return code == null ? -1 : code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package repository;
+
+import java.util.List;
+
+/**
+ * CsvRead
+ * -------
+ * Rows read from a data file by a repository's read(), together with
+ * what they were read from: the file's version (taken before parsing)
+ * and the repository's change count (taken before its pending writes
+ * were flushed).
+ *
+ * A reload reads on a background thread and merges later, normally on
+ * the Event Dispatch Thread. By then either side may have moved on:
+ *  - the file was written again, so the rows are already out of date
+ *  - the repository was edited, so the rows lack that edit and a merge
+ *    would revert it
+ * merge() checks both with isCurrent() and leaves the repository alone
+ * if either happened; the caller reads the file again.
+ */
+public final class CsvRead<T> {
+
+    private final String path;
+    private final List<T> rows;
+    private final FileVersion version;
+    private final long changeCount;
+
+    CsvRead(String path, List<T> rows, FileVersion version, long changeCount) {
+        this.path = path;
+        this.rows = rows;
+        this.version = version;
+        this.changeCount = changeCount;
+    }
+
+    /** File the rows were read from */
+    public String getPath() {
+        return path;
+    }
+
+    /** Rows in file order */
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /** Version of the file the rows came from */
+    FileVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * True if the file is still the version that was read and the
+     * repository has not changed since (call with its lock held).
+     *
+     * @param currentChangeCount the repository's change count now
+     */
+    boolean isCurrent(long currentChangeCount) {
+        return changeCount == currentChangeCount && !version.isStale(path);
+    }
+}
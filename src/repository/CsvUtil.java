@@ -1,11 +1,19 @@
 package repository;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import model.Appointment;
@@ -14,7 +22,8 @@ import model.Appointment;
 /**
  * CsvUtil
  * -------
- * Utility class containing helper methods for safely reading CSV files.
+ * Utility class containing helper methods for safely reading and
+ * writing CSV files.
  *
  * This class exists to:
  * - centralise CSV parsing logic
@@ -28,14 +37,39 @@ public class CsvUtil {
     /**
      * Splits a CSV line into columns.
      *
-     * The -1 parameter ensures empty fields are preserved
-     * instead of being silently dropped.
+     * Empty fields are preserved, and quoted fields may contain commas
+     * (e.g. "100 High Street, Birmingham" stays as ONE column).
      *
      * @param line a single line from a CSV file
      * @return array of column values
      */
     public static String[] splitCsvLine(String line) {
-        return line.split(",", -1);
+
+        char[] chars = line.toCharArray();
+        Tokenizer t = new Tokenizer(chars, 0, chars.length);
+
+        try {
+            if (!t.next()) return new String[]{""};
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // cannot happen for in-memory input
+        }
+
+        String[] cols = new String[t.fieldCount()];
+        for (int i = 0; i < cols.length; i++) {
+            cols[i] = t.field(i);
+        }
+        return cols;
+    }
+
+    /**
+     * Opens a CSV file for streaming, record-at-a-time parsing.
+     *
+     * @param filePath path to the CSV file (read as UTF-8)
+     * @return tokenizer positioned before the first record (the header)
+     */
+    public static Tokenizer open(String filePath) throws IOException {
+        return new Tokenizer(new InputStreamReader(
+                new FileInputStream(filePath), StandardCharsets.UTF_8));
     }
 
     /**
@@ -72,6 +106,72 @@ public class CsvUtil {
         }
     }
 
+    /**
+     * Formats one value as a CSV field (RFC 4180).
+     *
+     * A value containing a comma, quote, CR or LF is wrapped in quotes
+     * and its quotes are doubled, so the Tokenizer reads back exactly
+     * the same text. Anything else is returned unchanged; null becomes "".
+     *
+     * @param value column value (may be null)
+     * @return the field as it should appear in the file
+     */
+    public static String quote(String value) {
+        if (value == null) return "";
+        if (!needsQuotes(value)) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes one CSV record: the fields (quoted where needed, see
+     * quote()) separated by commas, then a line break.
+     *
+     * Every repository writes its rows through this method, so values
+     * are never altered to fit the format (commas, quotes and line
+     * breaks in notes or summaries survive a save and reload).
+     *
+     * @param out    destination (normally a BufferedWriter)
+     * @param fields column values in CSV order (null is written as "")
+     */
+    public static void writeRow(Writer out, String... fields) throws IOException {
+
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(quote(fields[i])); // the value itself unless it needs quotes
+        }
+        out.write(System.lineSeparator());
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes CSV content to a given path.
+     */
+    public interface CsvBody {
+        void write(Path path) throws IOException;
+    }
+
+    /**
+     * Writes a file via a temporary sibling and an atomic rename, so
+     * readers (and a crash half-way through) never see a partial CSV.
+     *
+     * @param target final CSV path
+     * @param body   writes the complete file content to the path it is given
+     */
+    public static void writeAtomically(Path target, CsvBody body) throws IOException {
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        body.write(tmp);
+        Files.move(tmp, target,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     /**
  * Reads appointments from appointments.csv and returns a list.
  *
@@ -82,37 +182,39 @@ public static List<Appointment> readAppointments(String filePath) throws IOExcep
 
     List<Appointment> appointments = new ArrayList<>();
 
-    try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    try (Tokenizer t = open(filePath)) {
 
         // Skip CSV header
-        br.readLine();
-
-        String line;
-        while ((line = br.readLine()) != null) {
+        t.next();
 
-            // Keep empty trailing fields
-            String[] cols = line.split(",", -1);
+        while (t.next()) {
 
-            if (cols.length < 8) continue;
+            if (t.fieldCount() < 8) continue;
 
-            Appointment appointment = new Appointment(
-                    cols[0].trim(), // appointmentId
-                    cols[1].trim(), // patientId
-                    cols[2].trim(), // clinicianId
-                    cols[3].trim(), // facilityId
-                    cols[4].trim(), // appointmentDate
-                    cols[5].trim(), // appointmentTime
-                    cols[6].trim(), // status
-                    cols[7].trim()  // notes
-            );
-
-            appointments.add(appointment);
+            appointments.add(toAppointment(t));
         }
     }
 
     return appointments;
 }
 
+/**
+ * Builds an Appointment from the tokenizer's current record.
+ * Shared by the streaming and memory-mapped appointment loaders.
+ */
+static Appointment toAppointment(Tokenizer t) {
+    return new Appointment(
+            t.trimmed(0), // appointmentId
+            t.trimmed(1), // patientId
+            AppointmentRepository.CLINICIAN_IDS.canonical(t.trimmed(2)), // clinicianId
+            AppointmentRepository.FACILITY_IDS.canonical(t.trimmed(3)),  // facilityId
+            t.trimmed(4),                                                // appointmentDate
+            AppointmentRepository.TIMES.canonical(t.trimmed(5)),         // appointmentTime
+            AppointmentRepository.STATUSES.canonical(t.trimmed(6)),      // status
+            t.trimmed(7)                                                 // notes
+    );
+}
+
 /**
  * Writes appointments back to appointments.csv.
  */
@@ -121,33 +223,276 @@ public static void writeAppointments(
         List<Appointment> appointments
 ) throws IOException {
 
-    try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-
-        // Write CSV header
-        bw.write(
-                "appointmentId,patientId,clinicianId,facilityId," +
-                "appointmentDate,appointmentTime,status,notes"
-        );
-        bw.newLine();
-
-        // Write appointment records
-        for (Appointment a : appointments) {
-
-            bw.write(String.join(",",
-                    a.getAppointmentId(),
-                    a.getPatientId(),
-                    a.getClinicianId(),
-                    a.getFacilityId(),
-                    a.getAppointmentDate(),
-                    a.getAppointmentTime(),
-                    a.getStatus(),
-                    a.getNotes()
-            ));
+    writeAtomically(Paths.get(filePath), tmp -> {
+        try (BufferedWriter bw = Files.newBufferedWriter(tmp)) {
 
+            // Write CSV header
+            bw.write(
+                    "appointmentId,patientId,clinicianId,facilityId," +
+                    "appointmentDate,appointmentTime,status,notes"
+            );
             bw.newLine();
+
+            // Write appointment records
+            for (Appointment a : appointments) {
+
+                writeRow(bw,
+                        a.getAppointmentId(),
+                        a.getPatientId(),
+                        a.getClinicianId(),
+                        a.getFacilityId(),
+                        a.getAppointmentDate(),
+                        a.getAppointmentTime(),
+                        a.getStatus(),
+                        a.getNotes()
+                );
+            }
         }
-    }
+    });
 }
 
 
+    /* =====================================================
+       STREAMING TOKENIZER
+       ===================================================== */
+
+    /**
+     * Tokenizer
+     * ---------
+     * Reusable RFC 4180 CSV tokenizer that works directly on a char buffer.
+     *
+     * Unlike String.split it:
+     *  - understands quoted fields, embedded commas, "" escapes and
+     *    newlines inside quotes
+     *  - does not allocate an array or String per field; a record is
+     *    decoded into an internal buffer and only the fields the caller
+     *    asks for (field/trimmed) become Strings
+     *  - reuses its buffers for every record in the file
+     *
+     * Typical use:
+     * <pre>
+     *   try (CsvUtil.Tokenizer t = CsvUtil.open(path)) {
+     *       t.next();                       // header
+     *       while (t.next()) {
+     *           String id = t.trimmed(0);
+     *       }
+     *   }
+     * </pre>
+     *
+     * A stray quote in the middle of a field simply toggles quoting, which
+     * matches the lenient parsing the facility loader used previously.
+     */
+    public static final class Tokenizer implements Closeable {
+
+        private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+        /** Source of characters (null when parsing a fixed char array) */
+        private final Reader in;
+
+        /** Raw input window */
+        private char[] buf;
+        private int pos;
+        private int limit;
+
+        /** Decoded content of the current record (quotes removed) */
+        private char[] record = new char[256];
+        private int recordLength;
+
+        /** Field boundaries within {@link #record} */
+        private int[] starts = new int[32];
+        private int[] ends = new int[32];
+        private int fieldCount;
+
+        /**
+         * Streams records from a Reader (the Reader is closed by close()).
+         */
+        public Tokenizer(Reader in) {
+            this.in = in;
+            this.buf = new char[READ_BUFFER_SIZE];
+        }
+
+        /**
+         * Parses records from an existing char array without copying it.
+         */
+        public Tokenizer(char[] data, int offset, int length) {
+            this.in = null;
+            this.buf = data;
+            this.pos = offset;
+            this.limit = offset + length;
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false once the input is exhausted
+         */
+        public boolean next() throws IOException {
+
+            fieldCount = 0;
+            recordLength = 0;
+
+            if (pos >= limit && !fill()) {
+                return false;
+            }
+
+            int fieldStart = 0;
+            boolean inQuotes = false;
+
+            while (true) {
+
+                if (pos >= limit && !fill()) {
+                    endField(fieldStart);
+                    return true;
+                }
+
+                char c = buf[pos++];
+
+                if (inQuotes) {
+                    if (c == '"') {
+                        // "" inside quotes is an escaped quote
+                        if ((pos < limit || fill()) && buf[pos] == '"') {
+                            append('"');
+                            pos++;
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else {
+                        append(c);
+                    }
+                } else if (c == ',') {
+                    endField(fieldStart);
+                    fieldStart = recordLength;
+                } else if (c == '"') {
+                    inQuotes = true;
+                } else if (c == '\n') {
+                    endField(fieldStart);
+                    return true;
+                } else if (c == '\r') {
+                    if ((pos < limit || fill()) && buf[pos] == '\n') pos++;
+                    endField(fieldStart);
+                    return true;
+                } else {
+                    append(c);
+                }
+            }
+        }
+
+        /** Number of fields in the current record. */
+        public int fieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * True if the current record is an empty / whitespace-only line.
+         */
+        public boolean isBlank() {
+            if (fieldCount > 1) return false;
+            for (int i = 0; i < recordLength; i++) {
+                if (record[i] > ' ') return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns a field exactly as stored (quotes removed).
+         * Missing fields are returned as "" rather than throwing.
+         */
+        public String field(int index) {
+            if (index < 0 || index >= fieldCount) return "";
+            return new String(record, starts[index], ends[index] - starts[index]);
+        }
+
+        /**
+         * Returns a field with surrounding whitespace removed.
+         * Trimming happens before the String is created.
+         */
+        public String trimmed(int index) {
+            if (index < 0 || index >= fieldCount) return "";
+
+            int s = starts[index];
+            int e = ends[index];
+            while (s < e && record[s] <= ' ') s++;
+            while (e > s && record[e - 1] <= ' ') e--;
+
+            return s == e ? "" : new String(record, s, e - s);
+        }
+
+        /**
+         * Parses a field as an int without creating a String.
+         *
+         * @return the value, or defaultValue if blank / not a number
+         */
+        public int intField(int index, int defaultValue) {
+            if (index < 0 || index >= fieldCount) return defaultValue;
+
+            int s = starts[index];
+            int e = ends[index];
+            while (s < e && record[s] <= ' ') s++;
+            while (e > s && record[e - 1] <= ' ') e--;
+            if (s == e) return defaultValue;
+
+            boolean negative = record[s] == '-';
+            if (negative || record[s] == '+') s++;
+            if (s == e || e - s > 10) return defaultValue;
+
+            long value = 0;
+            for (int i = s; i < e; i++) {
+                char c = record[i];
+                if (c < '0' || c > '9') return defaultValue;
+                value = value * 10 + (c - '0');
+            }
+            if (negative) value = -value;
+
+            return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE
+                    ? defaultValue
+                    : (int) value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) in.close();
+        }
+
+        /* ---------- internal helpers ---------- */
+
+        private void append(char c) {
+            if (recordLength == record.length) {
+                record = Arrays.copyOf(record, record.length * 2);
+            }
+            record[recordLength++] = c;
+        }
+
+        private void endField(int start) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = recordLength;
+            fieldCount++;
+        }
+
+        /**
+         * Refills the read buffer from the Reader.
+         *
+         * @return false at end of input
+         */
+        private boolean fill() throws IOException {
+            if (in == null) return false;
+
+            int n;
+            do {
+                n = in.read(buf, 0, buf.length);
+            } while (n == 0);
+
+            if (n < 0) {
+                pos = limit = 0;
+                return false;
+            }
+
+            pos = 0;
+            limit = n;
+            return true;
+        }
+    }
 }
@@ -0,0 +1,327 @@
+package repository;
+
+import model.Appointment;
+import model.Clinician;
+import model.Facility;
+import model.Patient;
+import model.Prescription;
+import model.Referral;
+import model.Staff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * DataContext
+ * -----------
+ * Holds one instance of every repository used by the application.
+ *
+ * One DataContext is created by Main and shared by every window
+ * (login and main frame). It is filled once by Bootstrap (all CSV
+ * files loaded in parallel), so the View never has to load data itself.
+ *
+ * After that, a file is only read again if it changed on disk
+ * (size or last-modified time differs from what the repository last
+ * read or wrote); see readChanged() and DataFileWatcher.
+ *
+ * MVC ROLE:
+ *  - MODEL / DATA layer
+ *  - NO GUI code
+ */
+public class DataContext {
+
+    /* =====================================================
+       DATA FILES
+       ===================================================== */
+
+    public static final String PATIENTS_CSV = "data/patients.csv";
+    public static final String CLINICIANS_CSV = "data/clinicians.csv";
+    public static final String PRESCRIPTIONS_CSV = "data/prescriptions.csv";
+    public static final String REFERRALS_CSV = "data/referrals.csv";
+    public static final String STAFF_CSV = "data/staff.csv";
+    public static final String FACILITIES_CSV = "data/facilities.csv";
+    public static final String APPOINTMENTS_CSV = "data/appointments.csv";
+
+    /* =====================================================
+       REPOSITORIES
+       ===================================================== */
+
+    private final PatientRepository patientRepository = new PatientRepository();
+    private final ClinicianRepository clinicianRepository = new ClinicianRepository();
+    private final PrescriptionRepository prescriptionRepository = new PrescriptionRepository();
+    private final ReferralRepository referralRepository = new ReferralRepository();
+    private final StaffRepository staffRepository = new StaffRepository();
+    private final FacilityRepository facilityRepository = new FacilityRepository();
+    private final AppointmentRepository appointmentRepository = new AppointmentRepository();
+
+    /**
+     * Registers the row count of every repository as a Metrics gauge
+     * ("patient.rows", ...).
+     */
+    public DataContext() {
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("patient.rows", () -> patientRepository.view().size());
+        metrics.gauge("clinician.rows", () -> clinicianRepository.view().size());
+        metrics.gauge("prescription.rows", () -> prescriptionRepository.view().size());
+        metrics.gauge("referral.rows", () -> referralRepository.view().size());
+        metrics.gauge("referral.open", referralRepository::getOpenReferralCount);
+        metrics.gauge("staff.rows", () -> staffRepository.view().size());
+        metrics.gauge("facility.rows", () -> facilityRepository.view().size());
+        metrics.gauge("appointment.rows", () -> appointmentRepository.view().size());
+    }
+
+    public PatientRepository getPatientRepository() {
+        return patientRepository;
+    }
+
+    public ClinicianRepository getClinicianRepository() {
+        return clinicianRepository;
+    }
+
+    public PrescriptionRepository getPrescriptionRepository() {
+        return prescriptionRepository;
+    }
+
+    public ReferralRepository getReferralRepository() {
+        return referralRepository;
+    }
+
+    public StaffRepository getStaffRepository() {
+        return staffRepository;
+    }
+
+    public FacilityRepository getFacilityRepository() {
+        return facilityRepository;
+    }
+
+    public AppointmentRepository getAppointmentRepository() {
+        return appointmentRepository;
+    }
+
+    /** Created on first use (after the repositories are loaded) */
+    private ReferralRouter referralRouter;
+
+    /**
+     * Routing engine over this context's facilities, clinicians,
+     * referrals and appointments.
+     */
+    public synchronized ReferralRouter getReferralRouter() {
+        if (referralRouter == null) {
+            referralRouter = new ReferralRouter(facilityRepository, clinicianRepository,
+                    referralRepository, appointmentRepository);
+        }
+        return referralRouter;
+    }
+
+    /** Created on first use (after the repositories are loaded) */
+    private SlotAllocator slotAllocator;
+
+    /**
+     * Appointment scheduling engine over this context's appointments
+     * and facility opening hours.
+     */
+    public synchronized SlotAllocator getSlotAllocator() {
+        if (slotAllocator == null) {
+            slotAllocator = new SlotAllocator(appointmentRepository, facilityRepository);
+        }
+        return slotAllocator;
+    }
+
+    /* =====================================================
+       INITIAL LOAD (once per application)
+       ===================================================== */
+
+    /** Bootstrap run started by the first loadAll() call */
+    private CompletableFuture<Bootstrap.Report> loading;
+
+    /**
+     * Loads every repository in the background the first time it is
+     * called; later calls return the same (usually finished) result
+     * without touching the disk.
+     *
+     * @param listener progress callback for the first load (may be null)
+     */
+    public synchronized CompletableFuture<Bootstrap.Report> loadAll(Bootstrap.Listener listener) {
+
+        if (loading == null) {
+            loading = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return Bootstrap.load(this, listener);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, task -> {
+                Thread t = new Thread(task, "data-context-load");
+                t.setDaemon(true);
+                t.start();
+            });
+        }
+        return loading;
+    }
+
+    /** True once the initial load has finished (successfully or not). */
+    public synchronized boolean isLoaded() {
+        return loading != null && loading.isDone();
+    }
+
+    /* =====================================================
+       RELOAD CHANGED FILES
+       ===================================================== */
+
+    /** Every data file, in load order */
+    public static final List<String> DATA_FILES = List.of(
+            PATIENTS_CSV, CLINICIANS_CSV, PRESCRIPTIONS_CSV, REFERRALS_CSV,
+            STAFF_CSV, FACILITIES_CSV, APPOINTMENTS_CSV);
+
+    /**
+     * A data file that has been read again and is waiting to be applied
+     * to its repository (on the Event Dispatch Thread, when used by the GUI).
+     */
+    public static final class Reload {
+
+        /** Rows inserted, changed or deleted by merges from disk */
+        private static final Metrics.Counter MERGED_ROWS = Metrics.counter("reload.mergedRows");
+
+        /** Step that swaps the new rows into the repository */
+        private interface Install {
+            void run() throws IOException;
+        }
+
+        /** Step that applies only the differences */
+        private interface Merge {
+            RowDelta run() throws IOException;
+        }
+
+        private final String path;
+        private final String name;
+        private final Install install;
+        private final Merge merge;
+
+        private Reload(String path, String name, Install install, Merge merge) {
+            this.path = path;
+            this.name = name;
+            this.install = install;
+            this.merge = merge;
+        }
+
+        /** Data file that was read, one of DATA_FILES */
+        public String getPath() {
+            return path;
+        }
+
+        /** Repository name, e.g. "Patients" */
+        public String getName() {
+            return name;
+        }
+
+        /** Replaces the repository contents with the rows read from disk. */
+        public void install() throws IOException {
+            install.run();
+        }
+
+        /**
+         * Applies only the inserted, changed and deleted rows, with one
+         * change event per row.
+         *
+         * @return the changes, or null if the file was written again or
+         *         the repository was edited after the read; nothing is
+         *         applied then, and the file should be read again
+         *         (see CsvRead)
+         */
+        public RowDelta merge() throws IOException {
+            RowDelta delta = merge.run();
+            if (delta != null) {
+                MERGED_ROWS.add(delta.getInserted() + delta.getUpdated() + delta.getDeleted());
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * Reads again every data file that was changed by another program
+     * since it was loaded or saved. Unchanged files are not touched.
+     *
+     * Safe to call on a background thread: nothing changes until each
+     * returned Reload is installed or merged.
+     *
+     * @return one Reload per changed file (empty if none changed)
+     */
+    public List<Reload> readChanged() throws IOException {
+
+        List<Reload> reloads = new ArrayList<>();
+
+        for (String path : DATA_FILES) {
+            Reload reload = readIfChanged(path);
+            if (reload != null) reloads.add(reload);
+        }
+
+        return reloads;
+    }
+
+    /**
+     * Reads one data file again if another program changed it.
+     *
+     * @param path one of the DATA_FILES paths
+     * @return the rows to apply, or null if the file is unchanged
+     */
+    public Reload readIfChanged(String path) throws IOException {
+
+        switch (path) {
+            case PATIENTS_CSV: {
+                if (!patientRepository.isChangedOnDisk()) return null;
+                CsvRead<Patient> read = patientRepository.read(path);
+                return new Reload(path, "Patients",
+                        () -> patientRepository.install(path, read.getRows()),
+                        () -> patientRepository.merge(read));
+            }
+            case CLINICIANS_CSV: {
+                if (!clinicianRepository.isChangedOnDisk()) return null;
+                CsvRead<Clinician> read = clinicianRepository.read(path);
+                return new Reload(path, "Clinicians",
+                        () -> clinicianRepository.install(path, read.getRows()),
+                        () -> clinicianRepository.merge(read));
+            }
+            case PRESCRIPTIONS_CSV: {
+                if (!prescriptionRepository.isChangedOnDisk()) return null;
+                CsvRead<Prescription> read = prescriptionRepository.read(path);
+                return new Reload(path, "Prescriptions",
+                        () -> prescriptionRepository.install(path, read.getRows()),
+                        () -> prescriptionRepository.merge(read));
+            }
+            case REFERRALS_CSV: {
+                if (!referralRepository.isChangedOnDisk()) return null;
+                CsvRead<Referral> read = referralRepository.read(path);
+                return new Reload(path, "Referrals",
+                        () -> referralRepository.install(path, read.getRows()),
+                        () -> referralRepository.merge(read));
+            }
+            case STAFF_CSV: {
+                if (!staffRepository.isChangedOnDisk()) return null;
+                CsvRead<Staff> read = staffRepository.read(path);
+                return new Reload(path, "Staff",
+                        () -> staffRepository.install(path, read.getRows()),
+                        () -> staffRepository.merge(read));
+            }
+            case FACILITIES_CSV: {
+                if (!facilityRepository.isChangedOnDisk()) return null;
+                CsvRead<Facility> read = facilityRepository.read(path);
+                return new Reload(path, "Facilities",
+                        () -> facilityRepository.install(path, read.getRows()),
+                        () -> facilityRepository.merge(read));
+            }
+            case APPOINTMENTS_CSV: {
+                if (!appointmentRepository.isChangedOnDisk()) return null;
+                CsvRead<Appointment> read = appointmentRepository.read(path);
+                return new Reload(path, "Appointments",
+                        () -> appointmentRepository.install(path, read.getRows()),
+                        () -> appointmentRepository.merge(read));
+            }
+            default:
+                throw new IllegalArgumentException("Not a data file: " + path);
+        }
+    }
+}
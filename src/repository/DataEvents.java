@@ -0,0 +1,246 @@
+package repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * DataEvents
+ * ----------
+ * Java Flight Recorder events for data-layer operations, so a recording
+ * of a slow session shows which load, save, lookup, search or output
+ * file was running (and for how long) next to the CPU and GC data.
+ *
+ * Each event starts timing when it is created and is written by
+ * finish(). Fields are only filled in when the event will actually be
+ * recorded, so with no recording running an event costs little more
+ * than the object (which the JIT usually removes).
+ *
+ * RECORDING:
+ *   java -XX:StartFlightRecording=filename=app.jfr,settings=profile ...
+ *   jfr print --categories "Healthcare" app.jfr
+ *
+ * NOTE:
+ *  - Lookups are only recorded when slower than 1 ms, so a recording is
+ *    not flooded by table rendering; lower the threshold in the .jfc
+ *    settings file to see every lookup
+ *  - Events never carry patient data (IDs, names or query text); output
+ *    files are named after IDs, so only their folder is recorded
+ */
+final class DataEvents {
+
+    private static final String CATEGORY = "Healthcare";
+    private static final String SUBCATEGORY = "Data Layer";
+
+    private DataEvents() {}
+
+    /**
+     * Size of a file in bytes, or -1 if it cannot be read.
+     */
+    private static long sizeOf(String file) {
+        try {
+            return file == null ? -1 : Files.size(Paths.get(file));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Folder of a file ("" for a bare file name), so output files whose
+     * names contain a patient or prescription ID are not recorded.
+     */
+    private static String directoryOf(String file) {
+        Path parent = file == null ? null : Paths.get(file).getParent();
+        return parent == null ? "" : parent.toString();
+    }
+
+    /* =====================================================
+       LOAD / READ / MERGE
+       ===================================================== */
+
+    @Name("healthcare.DataLoad")
+    @Label("Data Load")
+    @Description("A CSV file read into, or merged with, a repository")
+    @Category({CATEGORY, SUBCATEGORY})
+    static final class Load extends Event {
+
+        @Label("Entity")
+        String entity;
+
+        @Label("Operation")
+        @Description("load (read + install), read, or merge")
+        String operation;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("File")
+        String file;
+
+        Load() {
+            begin();
+        }
+
+        void finish(String entity, String operation, int rows, String file) {
+            if (shouldCommit()) {
+                this.entity = entity;
+                this.operation = operation;
+                this.rows = rows;
+                this.file = file;
+                commit();
+            }
+        }
+    }
+
+    /* =====================================================
+       SAVE
+       ===================================================== */
+
+    @Name("healthcare.DataSave")
+    @Label("Data Save")
+    @Description("A repository written back to its CSV file")
+    @Category({CATEGORY, SUBCATEGORY})
+    static final class Save extends Event {
+
+        @Label("Entity")
+        String entity;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("File")
+        @Description("The repository's CSV file (a fixed name per entity)")
+        String file;
+
+        Save() {
+            begin();
+        }
+
+        void finish(String entity, int rows, String file) {
+            if (shouldCommit()) {
+                this.entity = entity;
+                this.rows = rows;
+                this.bytes = sizeOf(file);
+                this.file = file;
+                commit();
+            }
+        }
+    }
+
+    /* =====================================================
+       LOOKUP / SEARCH
+       ===================================================== */
+
+    @Name("healthcare.DataLookup")
+    @Label("Data Lookup")
+    @Description("A lookup by ID or an indexed query on a repository")
+    @Category({CATEGORY, SUBCATEGORY})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Lookup extends Event {
+
+        @Label("Entity")
+        String entity;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Results")
+        int results;
+
+        Lookup() {
+            begin();
+        }
+
+        void finish(String entity, String operation, int results) {
+            if (shouldCommit()) {
+                this.entity = entity;
+                this.operation = operation;
+                this.results = results;
+                commit();
+            }
+        }
+    }
+
+    @Name("healthcare.DataSearch")
+    @Label("Data Search")
+    @Description("A free-text search over a repository")
+    @Category({CATEGORY, SUBCATEGORY})
+    static final class Search extends Event {
+
+        @Label("Entity")
+        String entity;
+
+        @Label("Query Length")
+        @Description("Characters in the query (the text itself is not recorded)")
+        int queryLength;
+
+        @Label("Results")
+        int results;
+
+        Search() {
+            begin();
+        }
+
+        void finish(String entity, String query, int results) {
+            if (shouldCommit()) {
+                this.entity = entity;
+                this.queryLength = query == null ? 0 : query.length();
+                this.results = results;
+                commit();
+            }
+        }
+    }
+
+    /* =====================================================
+       OUTPUT FILES
+       ===================================================== */
+
+    @Name("healthcare.OutputFile")
+    @Label("Output File")
+    @Description("A referral letter, prescription or notification written to disk")
+    @Category({CATEGORY, SUBCATEGORY})
+    static final class OutputFile extends Event {
+
+        @Label("Kind")
+        String kind;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("Directory")
+        @Description("Folder the file was written to (file names can hold IDs)")
+        String directory;
+
+        OutputFile() {
+            begin();
+        }
+
+        /**
+         * @param bytes bytes written, or -1 to use the file's size
+         */
+        void finish(String kind, String file, long bytes) {
+            if (shouldCommit()) {
+                this.kind = kind;
+                this.bytes = bytes >= 0 ? bytes : sizeOf(file);
+                this.directory = directoryOf(file);
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataFileWatcher
+ * ---------------
+ * Watches the data folder and merges CSV files that other programs
+ * drop into it while the application is running.
+ *
+ * For each changed data file:
+ *  1. wait until the folder has been quiet for a moment
+ *     (other tools may write a file in several steps)
+ *  2. re-read it on the reader thread, only if its size or
+ *     last-modified time differs from what the repository last read
+ *     or wrote (so our own saves are ignored)
+ *  3. hand the rows to the apply executor, which merges them into the
+ *     repository by primary key (see RowDelta); only inserted, changed
+ *     and deleted rows fire change events
+ *  4. if the file was written again, or the repository edited, between
+ *     the read and the merge, the merge is dropped and the file read
+ *     again (up to MAX_ATTEMPTS times; see CsvRead)
+ *
+ * The GUI passes SwingUtilities::invokeLater as the apply executor so
+ * table models are changed on the Event Dispatch Thread, and a Listener
+ * that reports each merge in its status bar.
+ *
+ * The quiet period can be set with the system property "watcher.settleMs".
+ *
+ * NOTE:
+ *  - NO GUI code
+ *  - A file that cannot be parsed (e.g. half written) is retried on
+ *    its next change event
+ */
+public class DataFileWatcher implements Closeable {
+
+    /**
+     * Told about each merge, on the apply executor.
+     */
+    public interface Listener {
+        void merged(String name, RowDelta delta);
+    }
+
+    private final DataContext context;
+    private final Executor applyOn;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /** Reads changed files, so a re-read can be queued from the apply executor */
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "data-file-reader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Reads of one change before giving up until the file's next change */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** File name (e.g. "patients.csv") -> DataContext path */
+    private final Map<String, String> pathByFileName = new HashMap<>();
+
+    private final long settleMillis = Long.getLong("watcher.settleMs", 300L);
+
+    private DataFileWatcher(DataContext context, Executor applyOn, Listener listener) throws IOException {
+
+        this.context = context;
+        this.applyOn = applyOn;
+        this.listener = listener;
+
+        for (String path : DataContext.DATA_FILES) {
+            pathByFileName.put(Paths.get(path).getFileName().toString(), path);
+        }
+
+        Path folder = Paths.get(DataContext.PATIENTS_CSV).toAbsolutePath().getParent();
+
+        watchService = FileSystems.getDefault().newWatchService();
+        folder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,  // atomic replace (write + rename)
+                StandardWatchEventKinds.ENTRY_MODIFY); // written in place
+
+        thread = new Thread(this::run, "data-file-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the data folder of a loaded DataContext.
+     *
+     * @param applyOn  runs each merge (e.g. on the Event Dispatch Thread)
+     * @param listener told about each merge
+     * @throws IOException if the folder cannot be watched
+     */
+    public static DataFileWatcher start(DataContext context, Executor applyOn, Listener listener)
+            throws IOException {
+        DataFileWatcher watcher = new DataFileWatcher(context, applyOn, listener);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /** Stops watching; merges already handed to the executor still run. */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        reader.shutdownNow();
+    }
+
+    /* =====================================================
+       WATCH LOOP
+       ===================================================== */
+
+    private void run() {
+        try {
+            while (true) {
+
+                Set<String> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                // Keep collecting until the folder has been quiet
+                WatchKey more;
+                while ((more = watchService.poll(settleMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(more, changed);
+                }
+
+                for (String path : changed) {
+                    reader.execute(() -> reload(path, 1));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close() called: stop
+        } catch (RejectedExecutionException e) {
+            // reader shut down by close(): stop
+        }
+    }
+
+    /**
+     * Adds the data files named by a key's events to the set.
+     */
+    private void collect(WatchKey key, Set<String> changed) {
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost: check every file
+                changed.addAll(DataContext.DATA_FILES);
+                continue;
+            }
+
+            String path = pathByFileName.get(event.context().toString());
+            if (path != null) changed.add(path);
+        }
+
+        key.reset();
+    }
+
+    /**
+     * Re-reads one file (if it really changed) and queues the merge.
+     * Runs on the reader thread.
+     *
+     * @param attempt 1 for the first read of a change
+     */
+    private void reload(String path, int attempt) {
+
+        DataContext.Reload reload;
+        try {
+            reload = context.readIfChanged(path);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read changed file " + path + ": " + e.getMessage());
+            return;
+        }
+
+        if (reload == null) return;
+
+        applyOn.execute(() -> {
+            try {
+                RowDelta delta = reload.merge();
+                if (delta != null) {
+                    listener.merged(reload.getName(), delta);
+                } else if (attempt < MAX_ATTEMPTS) {
+                    // Out of date before it was applied: read it again
+                    reader.execute(() -> reload(path, attempt + 1));
+                } else {
+                    System.err.println("Gave up merging " + reload.getName()
+                            + ": it kept changing while being read");
+                }
+            } catch (IOException e) {
+                System.err.println("Could not merge " + reload.getName() + ": " + e.getMessage());
+            } catch (RejectedExecutionException e) {
+                // close() called meanwhile
+            }
+        });
+    }
+}
@@ -3,8 +3,13 @@ package repository;
 import model.Facility;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  * FacilityRepository
@@ -13,7 +18,7 @@ import java.util.List;
  *
  * MVC ROLE:
  *  - MODEL / DATA layer
- *  - CSV persistence only
+ *  - CSV persistence only (writes batched by PersistenceScheduler)
  *  - NO GUI logic
  *  - NO Swing imports
  *
@@ -25,12 +30,35 @@ public class FacilityRepository {
     /** In-memory list of facilities (single source of truth) */
     private final List<Facility> facilities = new ArrayList<>();
 
-    /** CSV delimiter */
-    private static final String DELIMITER = ",";
+    /** Case-insensitive facility ID index (kept in sync with the list) */
+    private final IdIndex<Facility> facilityById = new IdIndex<>(Facility::getFacilityId);
+
+    /** Number of CSV (and snapshot) columns */
+    private static final int COLUMNS = 11;
+
+    /** Pool for repeated column values */
+    private static final ColumnDictionary TYPES = new ColumnDictionary("facility.type");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("facility.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("facility.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("facility.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("facility.lookup");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("facility.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("facility.changes");
 
     /** CSV file path (required for saving back to the same file) */
     private String sourceFilePath;
 
+    /** Shared background writer that coalesces CSV saves */
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /**
      * Returns all facilities currently loaded in memory.
      * Used by the View layer to populate tables.
@@ -40,11 +68,19 @@ public class FacilityRepository {
     }
 
     /**
-     * Return all facilities.
-     * (Keeps compatibility with your MainFrame usage.)
+     * Return a copy of all facilities, taken under the lock
+     * (safe off the EDT).
      */
-    public List<Facility> getAll() {
-        return facilities;
+    public synchronized List<Facility> getAll() {
+        return new ArrayList<>(facilities);
+    }
+
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Facility> view() {
+        return Collections.unmodifiableList(facilities);
     }
 
     /**
@@ -52,43 +88,159 @@ public class FacilityRepository {
      * MUST be called before add/update/delete so sourceFilePath is set.
      */
     public void load(String filePath) throws IOException {
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("facility", "load", facilities.size(), filePath);
+    }
 
-        // Save file path so saveToCsv() can persist to the same location
-        this.sourceFilePath = filePath;
+    /**
+     * Reads facilities.csv without changing the repository, so it can
+     * run on a background thread. Pass the rows to install(), or the
+     * result to merge(), afterwards.
+     */
+    public CsvRead<Facility> read(String filePath) throws IOException {
 
-        facilities.clear(); // clear the SAME list every time
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
+
+        // Write out queued changes first so a reload never discards them
+        scheduler.flushNow(this);
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
+
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Facility> cached = SnapshotStore.read(filePath, COLUMNS,
+                col -> fromColumns(i -> col.apply(i).trim()));
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("facility", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
+
+        List<Facility> rows = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
 
             // Skip CSV header
-            br.readLine();
-
-            String line;
-            while ((line = br.readLine()) != null) {
-
-                // NOTE: This simple split assumes your CSV has no unescaped commas inside fields.
-                // (Your sample data uses quotes sometimes. If you still get parsing issues, tell me and I'll
-                //  give you a tiny CSV-safe parser without external libraries.)
-                String[] cols = parseCsvLine(line);
-                if (cols.length < 11) continue;
-
-                Facility facility = new Facility(
-                        cols[0].trim(),                   // facility_id
-                        cols[1].trim(),                   // facility_name
-                        cols[2].trim(),                   // facility_type
-                        cols[3].trim(),                   // address
-                        cols[4].trim(),                   // postcode
-                        cols[5].trim(),                   // phone_number
-                        cols[6].trim(),                   // email
-                        cols[7].trim(),                   // opening_hours
-                        cols[8].trim(),                   // manager_name
-                        parseIntSafe(cols[9].trim()),     // capacity
-                        cols[10].trim()                   // specialities_offered
-                );
-
-                facilities.add(facility);
+            t.next();
+
+            while (t.next()) {
+
+                // Quoted fields such as "100 High Street, Birmingham"
+                // are handled by the shared CSV tokenizer
+                if (t.fieldCount() < COLUMNS) continue;
+
+                rows.add(fromColumns(t::trimmed));
             }
         }
+
+        SnapshotStore.write(filePath, version, rows, COLUMNS, FacilityRepository::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("facility", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory facilities with rows from read().
+     * Listeners see one RELOADED event.
+     */
+    public synchronized void install(String filePath, List<Facility> rows) {
+
+        // Save file path so saveToCsv() can persist to the same location
+        this.sourceFilePath = filePath;
+
+        facilities.clear(); // clear the SAME list every time
+        facilities.addAll(rows);
+
+        facilityById.rebuild(facilities);
+        diskVersion = FileVersion.of(filePath);
+        changes.reloaded();
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted facilities are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * the CSV while the application is running.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public synchronized RowDelta merge(CsvRead<Facility> read) {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Facility> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        RowDelta delta = RowDelta.merge(facilities, rows, Facility::getFacilityId,
+                FacilityRepository::toColumns, RowDelta.none(), changes);
+        if (!delta.isEmpty()) facilityById.rebuild(facilities);
+        MERGE_TIME.recordSince(start);
+        event.finish("facility", "merge", facilities.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
+    }
+
+    /**
+     * Builds a facility from CSV (or snapshot) columns.
+     */
+    private static Facility fromColumns(IntFunction<String> col) {
+        return new Facility(
+                col.apply(0),                      // facility_id
+                col.apply(1),                      // facility_name
+                TYPES.canonical(col.apply(2)),     // facility_type
+                col.apply(3),                      // address
+                col.apply(4),                      // postcode
+                col.apply(5),                      // phone_number
+                col.apply(6),                      // email
+                col.apply(7),                      // opening_hours
+                col.apply(8),                      // manager_name
+                CsvUtil.toInt(col.apply(9), 0),    // capacity
+                col.apply(10)                      // specialities_offered
+        );
+    }
+
+    /**
+     * Column values for one facility, in CSV order.
+     */
+    private static String[] toColumns(Facility f) {
+        return new String[]{
+                f.getFacilityId(),
+                f.getFacilityName(),
+                f.getFacilityType(),
+                f.getAddress(),
+                f.getPostcode(),
+                f.getPhoneNumber(),
+                f.getEmail(),
+                f.getOpeningHours(),
+                f.getManagerName(),
+                String.valueOf(f.getCapacity()),
+                f.getSpecialitiesOffered()
+        };
     }
 
     /**
@@ -102,17 +254,14 @@ public class FacilityRepository {
      */
     public Facility getById(String facilityId) {
 
-        // Safety check
-        if (facilityId == null) return null;
-
-        // Search in-memory list
-        for (Facility f : facilities) {
-            if (f.getFacilityId().equalsIgnoreCase(facilityId)) {
-                return f;
-            }
-        }
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
 
-        return null; // not found
+        // Hash lookup (null / unknown ID -> null)
+        Facility found = facilityById.get(facilityId);
+        LOOKUP_TIME.recordSince(start);
+        event.finish("facility", "getById", found == null ? 0 : 1);
+        return found;
     }
 
     /**
@@ -126,7 +275,7 @@ public class FacilityRepository {
     /**
      * Add new facility.
      */
-    public void addFacility(Facility facility) throws IOException {
+    public synchronized CompletableFuture<Void> addFacility(Facility facility) {
 
         if (facility == null) {
             throw new IllegalArgumentException("Facility cannot be null.");
@@ -139,135 +288,109 @@ public class FacilityRepository {
         }
 
         facilities.add(facility);
-        saveToCsv();
+        facilityById.add(facility);
+        changes.inserted(facilities.size() - 1);
+        return saveToCsv();
     }
 
     /**
      * Update existing facility.
      */
-    public void updateFacility(Facility updated) throws IOException {
+    public synchronized CompletableFuture<Void> updateFacility(Facility updated) {
 
         if (updated == null) {
             throw new IllegalArgumentException("Updated facility cannot be null.");
         }
 
-        boolean found = false;
-
-        for (int i = 0; i < facilities.size(); i++) {
-            if (facilities.get(i).getFacilityId()
-                    .equalsIgnoreCase(updated.getFacilityId())) {
-
-                facilities.set(i, updated);
-                found = true;
-                break;
-            }
-        }
+        int index = facilityById.positionOf(updated.getFacilityId());
 
-        if (!found) {
+        if (index < 0) {
             throw new IllegalArgumentException("Facility not found.");
         }
 
-        saveToCsv();
+        facilities.set(index, updated);
+        facilityById.set(index, updated);
+        changes.updated(index);
+        return saveToCsv();
     }
 
     /**
      * Delete facility by ID.
      */
-    public void deleteFacility(String facilityId) throws IOException {
+    public synchronized CompletableFuture<Void> deleteFacility(String facilityId) {
 
-        boolean removed = facilities.removeIf(
-                f -> f.getFacilityId().equalsIgnoreCase(facilityId)
-        );
+        int index = facilityById.positionOf(facilityId);
 
-        if (!removed) {
+        if (index < 0) {
             throw new IllegalArgumentException("Facility not found.");
         }
 
-        saveToCsv();
+        facilities.remove(index);
+        facilityById.removeAt(index);
+        changes.deleted(index);
+        return saveToCsv();
+    }
+
+    /**
+     * Registers a listener for changes to the facility list.
+     */
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
     }
 
     /**
      * Persist facilities back to CSV.
+     * Marks the repository dirty; the PersistenceScheduler performs the write.
      */
-    private void saveToCsv() throws IOException {
+    private CompletableFuture<Void> saveToCsv() {
 
         if (sourceFilePath == null) {
             // This is the error you kept seeing before
             throw new IllegalStateException("Call load() before saving.");
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sourceFilePath))) {
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
 
-            // ✅ Correct 11-column header (matches your facilities.csv)
-            writer.write("facility_id,facility_name,facility_type,address,postcode,phone_number,email,opening_hours,manager_name,capacity,specialities_offered");
-            writer.newLine();
+    /**
+     * Writes a copy of the facility list (runs on the scheduler thread).
+     */
+    private void writeCsv() throws IOException {
 
-            for (Facility f : facilities) {
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
 
-                writer.write(String.join(DELIMITER,
-                        safe(f.getFacilityId()),
-                        safe(f.getFacilityName()),
-                        safe(f.getFacilityType()),
-                        safe(f.getAddress()),
-                        safe(f.getPostcode()),
-                        safe(f.getPhoneNumber()),
-                        safe(f.getEmail()),
-                        safe(f.getOpeningHours()),
-                        safe(f.getManagerName()),
-                        safe(String.valueOf(f.getCapacity())),
-                        safe(f.getSpecialitiesOffered())
-                ));
+        List<Facility> snapshot;
+        String path;
 
-                writer.newLine();
-            }
+        synchronized (this) {
+            snapshot = new ArrayList<>(facilities);
+            path = sourceFilePath;
         }
-    }
 
-    /**
-     * Prevent CSV breakage from commas.
-     */
-    private String safe(String value) {
-        return value == null ? "" : value.replace(",", " ");
-    }
+        CsvUtil.writeAtomically(Paths.get(path), tmp -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
 
-    /**
-     * Safe integer parsing for capacity column.
-     * If blank/invalid, defaults to 0 instead of crashing the load.
-     */
-    private int parseIntSafe(String value) {
-        try {
-            if (value == null || value.isBlank()) return 0;
-            return Integer.parseInt(value);
-        } catch (NumberFormatException ex) {
-            return 0;
-        }
-    }
+                // ✅ Correct 11-column header (matches your facilities.csv)
+                writer.write("facility_id,facility_name,facility_type,address,postcode,phone_number,email,opening_hours,manager_name,capacity,specialities_offered");
+                writer.newLine();
 
-    /**
- * Splits a CSV line while respecting quoted commas.
- * Example: "100 High Street, Birmingham" stays as ONE column.
- */
-private String[] parseCsvLine(String line) {
-
-    List<String> tokens = new ArrayList<>();
-    StringBuilder current = new StringBuilder();
-    boolean inQuotes = false;
-
-    for (int i = 0; i < line.length(); i++) {
-        char c = line.charAt(i);
-
-        if (c == '"') {
-            inQuotes = !inQuotes; // toggle quoted section
-        } else if (c == ',' && !inQuotes) {
-            tokens.add(current.toString().trim().replace("\"", ""));
-            current.setLength(0);
-        } else {
-            current.append(c);
-        }
-    }
+                for (Facility f : snapshot) {
 
-    tokens.add(current.toString().trim().replace("\"", ""));
-    return tokens.toArray(new String[0]);
-}
+                    CsvUtil.writeRow(writer, toColumns(f));
+                }
+            }
+        });
 
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, FacilityRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("facility", snapshot.size(), path);
+    }
 }
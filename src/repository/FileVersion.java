@@ -0,0 +1,82 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * FileVersion
+ * -----------
+ * Size and last-modified time of a data file at one moment.
+ *
+ * A repository records the version of its CSV whenever it reads or
+ * writes the file. If the version on disk later differs, something
+ * else changed the file and the repository is worth reloading;
+ * otherwise the in-memory data is already current.
+ *
+ * NOTE:
+ *  - A missing or unreadable file has its own version (MISSING)
+ *  - Same idea as the CSV check in SnapshotStore
+ */
+final class FileVersion {
+
+    static final FileVersion MISSING = new FileVersion(-1, -1);
+
+    private final long size;
+    private final long modifiedMillis;
+
+    private FileVersion(long size, long modifiedMillis) {
+        this.size = size;
+        this.modifiedMillis = modifiedMillis;
+    }
+
+    /**
+     * Current version of a file (MISSING if it cannot be read).
+     */
+    static FileVersion of(String filePath) {
+
+        if (filePath == null) return MISSING;
+
+        Path path = Paths.get(filePath);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileVersion(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return MISSING;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    long modifiedMillis() {
+        return modifiedMillis;
+    }
+
+    /**
+     * True if the file on disk no longer matches this version.
+     */
+    boolean isStale(String filePath) {
+        return !equals(of(filePath));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FileVersion)) return false;
+        FileVersion other = (FileVersion) o;
+        return size == other.size && modifiedMillis == other.modifiedMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(size) * 31 + Long.hashCode(modifiedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return this == MISSING ? "missing" : size + " bytes @ " + modifiedMillis;
+    }
+}
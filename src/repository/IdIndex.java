@@ -0,0 +1,125 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * IdIndex
+ * -------
+ * Case-insensitive hash index from record ID to record and to its
+ * position in the repository's list.
+ *
+ * Repositories keep their records in a list (CSV order) and use this
+ * index alongside it so that findById / existsById / duplicate checks
+ * and the row number needed by update and delete take constant time
+ * instead of scanning the list with equalsIgnoreCase or indexOf.
+ *
+ * IDs are normalised (trimmed, upper-cased with Locale.ROOT), so
+ * "c001", " C001" and "C001" all find the same record.
+ *
+ * The index mirrors the list one slot per row: add/set/removeAt are
+ * called with the same positions as the list operations. A delete
+ * renumbers the slots after it (no hashing), which is the same
+ * O(n) shift ArrayList.remove already does.
+ *
+ * NOTE:
+ *  - The owning repository must update the index on every change
+ *  - If the CSV holds the same ID twice, the ID finds the later row
+ *  - Not thread-safe on its own; guarded by the repository
+ */
+final class IdIndex<T> {
+
+    /** One row: the record and where it is in the list */
+    private static final class Slot<T> {
+        T item;
+        int position;
+
+        Slot(T item, int position) {
+            this.item = item;
+            this.position = position;
+        }
+    }
+
+    /** Same order as the repository's list */
+    private final List<Slot<T>> slots = new ArrayList<>();
+
+    private final Map<String, Slot<T>> byKey = new HashMap<>();
+
+    /** Extracts the ID from a record */
+    private final Function<T, String> idOf;
+
+    IdIndex(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * Normalised form of an ID used as the hash key.
+     */
+    static String key(String id) {
+        return id == null ? "" : id.trim().toUpperCase(Locale.ROOT);
+    }
+
+    T get(String id) {
+        Slot<T> slot = id == null ? null : byKey.get(key(id));
+        return slot == null ? null : slot.item;
+    }
+
+    boolean contains(String id) {
+        return id != null && byKey.containsKey(key(id));
+    }
+
+    /**
+     * Position of the record with this ID in the list, or -1.
+     */
+    int positionOf(String id) {
+        Slot<T> slot = id == null ? null : byKey.get(key(id));
+        return slot == null ? -1 : slot.position;
+    }
+
+    /** Mirrors list.add(item). */
+    void add(T item) {
+        Slot<T> slot = new Slot<>(item, slots.size());
+        slots.add(slot);
+        byKey.put(key(idOf.apply(item)), slot);
+    }
+
+    /** Mirrors list.set(position, item). */
+    void set(int position, T item) {
+        Slot<T> slot = slots.get(position);
+        unlink(slot);
+        slot.item = item;
+        byKey.put(key(idOf.apply(item)), slot);
+    }
+
+    /** Mirrors list.remove(position). */
+    void removeAt(int position) {
+        unlink(slots.remove(position));
+        for (int i = position; i < slots.size(); i++) {
+            slots.get(i).position = i;
+        }
+    }
+
+    /** Re-indexes all records (after a load or merge). */
+    void rebuild(List<T> items) {
+        slots.clear();
+        byKey.clear();
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Drops the key of a slot's current record, unless a later
+     * duplicate row owns it.
+     */
+    private void unlink(Slot<T> slot) {
+        String key = key(idOf.apply(slot.item));
+        if (byKey.get(key) == slot) {
+            byKey.remove(key);
+        }
+    }
+}
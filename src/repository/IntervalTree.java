@@ -0,0 +1,221 @@
+package repository;
+
+import java.util.function.Consumer;
+
+/**
+ * IntervalTree
+ * ------------
+ * Half-open intervals [start, end) with a value each, in an AVL tree
+ * ordered by start (then by key, so equal starts are allowed).
+ *
+ * Every node also stores the largest end in its subtree, so an overlap
+ * query skips any subtree that ends before the query starts or starts
+ * after it ends: O(log n + k) for k overlaps. Inserts and removals
+ * rebalance, so the tree stays O(log n) deep whatever order
+ * appointments are booked in.
+ *
+ * NOTE:
+ *  - Keys must be unique (e.g. appointment IDs)
+ *  - Not thread-safe on its own; guarded by the owning repository
+ */
+final class IntervalTree<V> {
+
+    private static final class Node<V> {
+        final long start;
+        final long end;
+        final String key;
+        final V value;
+
+        long maxEnd;
+        int height = 1;
+        Node<V> left;
+        Node<V> right;
+
+        Node(long start, long end, String key, V value) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node<V> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* =====================================================
+       UPDATES
+       ===================================================== */
+
+    /**
+     * Adds an interval. The key must not already be in the tree
+     * with the same start.
+     */
+    void insert(long start, long end, String key, V value) {
+        root = insert(root, new Node<>(start, end, key, value));
+        size++;
+    }
+
+    /**
+     * Removes the interval added with this start and key.
+     *
+     * @return true if it was found
+     */
+    boolean remove(long start, String key) {
+        int before = size;
+        root = remove(root, start, key);
+        return size < before;
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> added) {
+        if (node == null) return added;
+
+        if (compare(added.start, added.key, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private Node<V> remove(Node<V> node, long start, String key) {
+        if (node == null) return null;
+
+        int c = compare(start, key, node);
+        if (c < 0) {
+            node.left = remove(node.left, start, key);
+        } else if (c > 0) {
+            node.right = remove(node.right, start, key);
+        } else {
+            size--;
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            // Replace by the smallest node of the right subtree
+            Node<V> successor = node.right;
+            while (successor.left != null) successor = successor.left;
+
+            Node<V> replacement = new Node<>(successor.start, successor.end, successor.key, successor.value);
+            replacement.right = removeMin(node.right);
+            replacement.left = node.left;
+            return rebalance(replacement);
+        }
+        return rebalance(node);
+    }
+
+    private Node<V> removeMin(Node<V> node) {
+        if (node.left == null) return node.right;
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    /* =====================================================
+       QUERIES
+       ===================================================== */
+
+    /**
+     * Calls the action for every interval overlapping [start, end).
+     */
+    void forEachOverlap(long start, long end, Consumer<V> action) {
+        forEachOverlap(root, start, end, action);
+    }
+
+    private void forEachOverlap(Node<V> node, long start, long end, Consumer<V> action) {
+        while (node != null && node.maxEnd > start) {
+
+            forEachOverlap(node.left, start, end, action);
+
+            // Everything to the right starts at or after node.start
+            if (node.start >= end) return;
+            if (node.end > start) action.accept(node.value);
+
+            node = node.right;
+        }
+    }
+
+    /**
+     * Calls the action for every interval in start order.
+     */
+    void forEachInOrder(IntervalAction<V> action) {
+        forEachInOrder(root, action);
+    }
+
+    private void forEachInOrder(Node<V> node, IntervalAction<V> action) {
+        while (node != null) {
+            forEachInOrder(node.left, action);
+            action.accept(node.start, node.end, node.value);
+            node = node.right;
+        }
+    }
+
+    /** Receives one stored interval */
+    interface IntervalAction<V> {
+        void accept(long start, long end, V value);
+    }
+
+    /* =====================================================
+       BALANCING
+       ===================================================== */
+
+    private static <V> int compare(long start, String key, Node<V> node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : key.compareTo(node.key);
+    }
+
+    private static <V> int height(Node<V> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <V> void update(Node<V> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        node.maxEnd = maxEnd;
+    }
+
+    private static <V> Node<V> rebalance(Node<V> node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static <V> Node<V> rotateRight(Node<V> node) {
+        Node<V> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static <V> Node<V> rotateLeft(Node<V> node) {
+        Node<V> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
@@ -0,0 +1,186 @@
+package repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram
+ * ----------------
+ * Records durations (in nanoseconds) for one operation, in the style of
+ * an HDR histogram: bucket widths grow with the value, so every bucket
+ * is within about 3% of the values it holds, from 1 ns up to an hour.
+ *
+ * Each power of two is split into SUB_BUCKETS linear buckets. A value's
+ * bucket is found with a few bit operations, and recording only
+ * increments counters in arrays sized up front, so record() never
+ * allocates and is safe to call from any thread.
+ *
+ * Percentiles are read from a Snapshot (a copy of the counters), so a
+ * report never holds up the threads that are recording.
+ *
+ * NOTE:
+ *  - Reported percentiles are the upper bound of the bucket they fall in
+ *  - Values above MAX_VALUE are counted as MAX_VALUE
+ */
+public final class LatencyHistogram {
+
+    /** log2 of the number of buckets per power of two */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Largest value kept exactly (about an hour in nanoseconds) */
+    static final long MAX_VALUE = (1L << 42) - 1;
+
+    private static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /* =====================================================
+       RECORDING
+       ===================================================== */
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos elapsed time in nanoseconds (negative counts as 0)
+     */
+    public void record(long nanos) {
+
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+
+        counts.incrementAndGet(bucketOf(value));
+        total.addAndGet(value);
+
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    /**
+     * Records the time since startNanos (a System.nanoTime() reading).
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /** Clears all recorded values. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /* =====================================================
+       BUCKETS
+       ===================================================== */
+
+    /**
+     * Values below SUB_BUCKETS have a bucket each; above that each
+     * power of two [2^k, 2^(k+1)) is split into SUB_BUCKETS equal parts.
+     */
+    static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /** Largest value that falls in a bucket. */
+    static long highestValueIn(int bucket) {
+
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /* =====================================================
+       SNAPSHOTS
+       ===================================================== */
+
+    /**
+     * Copies the current counters. Values recorded while the copy is
+     * taken may or may not be included.
+     */
+    public Snapshot snapshot() {
+
+        long[] copy = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            n += copy[i];
+        }
+        return new Snapshot(name, copy, n, total.get(), max.get());
+    }
+
+    /**
+     * Point-in-time copy of a histogram.
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(String name, long[] counts, long count, long total, long max) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Number of recorded values */
+        public long getCount() {
+            return count;
+        }
+
+        /** Mean in nanoseconds (0 if nothing was recorded) */
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /** Largest recorded value in nanoseconds */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Value (in nanoseconds) that the given share of recordings
+         * did not exceed, e.g. percentile(99) for p99.
+         */
+        public long percentile(double percent) {
+
+            if (count == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValueIn(i), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package repository;
+
+import model.Appointment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * MappedAppointmentLoader
+ * -----------------------
+ * Loads appointments.csv using a memory-mapped file and parallel parsing.
+ *
+ * How it works:
+ *  1. The file is mapped read-only with FileChannel.map (no copy into
+ *     the Java heap, the OS pages it in on demand)
+ *  2. One quick pass over the bytes cuts the data after the header into
+ *     chunks of about CHUNK_BYTES, each ending at a line break that is
+ *     not inside a quoted field
+ *  3. Each chunk is decoded and tokenised on the common fork/join pool
+ *  4. The chunk results are concatenated once, in file order
+ *
+ * Small files are parsed as a single chunk, so there is no thread
+ * overhead for the sample data.
+ *
+ * NOTE:
+ *  - Notes may contain quoted line breaks (CsvUtil.writeRow), so chunk
+ *    boundaries follow quotes the same way the Tokenizer does and a
+ *    record never straddles two chunks.
+ *  - In UTF-8 the '\n' and '"' bytes never occur inside a multi-byte
+ *    character, so each chunk decodes independently.
+ *  - On Windows the file is read into a heap buffer instead of mapped:
+ *    a mapping stays open until the buffer is garbage collected, and
+ *    while it is open the next save cannot replace appointments.csv.
+ *  - Files larger than one buffer (2 GB) fall back to the streaming
+ *    CsvUtil.readAppointments.
+ */
+public final class MappedAppointmentLoader {
+
+    /** Chunks of about this size are parsed on one thread */
+    private static final int CHUNK_BYTES = 1 << 20; // 1 MB
+
+    /** Mapped files cannot be replaced while mapped on Windows */
+    private static final boolean MAP_FILES =
+            !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private MappedAppointmentLoader() {
+        // Utility class
+    }
+
+    /**
+     * Reads all appointments from the given CSV file.
+     *
+     * @param filePath path to appointments.csv
+     * @return appointments in file order
+     */
+    public static List<Appointment> load(String filePath) throws IOException {
+        return load(filePath, CHUNK_BYTES);
+    }
+
+    /**
+     * Reads all appointments, cutting the file into chunks of about
+     * chunkBytes (tests use small chunks to move the boundaries around).
+     */
+    static List<Appointment> load(String filePath, int chunkBytes) throws IOException {
+
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+        }
+
+        ByteBuffer data;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                return CsvUtil.readAppointments(filePath);
+            }
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+
+            data = MAP_FILES
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                    : readFully(channel, (int) size);
+        }
+
+        // Skip CSV header
+        int start = nextLineStart(data, 0, data.limit());
+
+        List<ChunkTask> tasks = new ArrayList<>();
+        int[] bounds = chunkBounds(data, start, data.limit(), chunkBytes);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            tasks.add(new ChunkTask(data, bounds[i], bounds[i + 1]));
+        }
+
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (ChunkFailure e) {
+            throw e.getCause();
+        }
+
+        int total = 0;
+        for (ChunkTask task : tasks) {
+            total += task.getRawResult().size();
+        }
+
+        List<Appointment> appointments = new ArrayList<>(total);
+        for (ChunkTask task : tasks) {
+            appointments.addAll(task.getRawResult());
+        }
+        return appointments;
+    }
+
+    /**
+     * Copies the whole file into a heap buffer.
+     */
+    private static ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(size);
+        while (data.hasRemaining() && channel.read(data) >= 0) {
+            // keep reading
+        }
+        data.flip();
+        return data;
+    }
+
+    /**
+     * Returns the index just after the first '\n' at or after from,
+     * or end if there is none.
+     */
+    private static int nextLineStart(ByteBuffer data, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (data.get(i) == '\n') return i + 1;
+        }
+        return end;
+    }
+
+    /**
+     * Chunk boundaries for [start, end): start, then the first record
+     * start after every chunkBytes, then end.
+     *
+     * A '\n' only ends a record outside quotes. Every '"' toggles
+     * quoting, as in the Tokenizer ("" inside a field toggles twice).
+     */
+    private static int[] chunkBounds(ByteBuffer data, int start, int end, int chunkBytes) {
+
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(start);
+
+        long next = (long) start + chunkBytes;
+        boolean inQuotes = false;
+
+        for (int i = start; i < end && next < end; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes && i >= next) {
+                bounds.add(i + 1);
+                next = (long) i + 1 + chunkBytes;
+            }
+        }
+
+        if (bounds.get(bounds.size() - 1) < end) bounds.add(end);
+
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /* =====================================================
+       PARALLEL PARSING
+       ===================================================== */
+
+    /**
+     * Parses the byte range [start, end). Both boundaries are record starts.
+     */
+    private static final class ChunkTask extends RecursiveTask<List<Appointment>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ByteBuffer data;
+        private final int start;
+        private final int end;
+
+        ChunkTask(ByteBuffer data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Appointment> compute() {
+            try {
+                return parse();
+            } catch (IOException e) {
+                throw new ChunkFailure(e);
+            }
+        }
+
+        /**
+         * Decodes this chunk and tokenises it in place.
+         */
+        private List<Appointment> parse() throws IOException {
+
+            ByteBuffer slice = data.duplicate();
+            slice.limit(end).position(start);
+
+            CharBuffer chars;
+            try {
+                chars = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(slice);
+            } catch (CharacterCodingException e) {
+                throw new IOException("Could not decode appointments file", e);
+            }
+
+            CsvUtil.Tokenizer t = new CsvUtil.Tokenizer(
+                    chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+
+            // Rough guess (~60 bytes per row) to avoid repeated growth
+            List<Appointment> appointments = new ArrayList<>((end - start) / 60 + 1);
+
+            while (t.next()) {
+                if (t.fieldCount() < 8) continue;
+                appointments.add(CsvUtil.toAppointment(t));
+            }
+
+            return appointments;
+        }
+    }
+
+    /**
+     * Carries an IOException out of a fork/join task.
+     */
+    private static final class ChunkFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ChunkFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
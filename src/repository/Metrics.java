@@ -0,0 +1,253 @@
+package repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics (Singleton)
+ * -------------------
+ * Registry of named counters, gauges and latency timers for the data
+ * layer, so load, save, lookup and output-file times can be seen while
+ * the application is running.
+ *
+ *  - counter: a running total (e.g. rows written)
+ *  - gauge:   a value read when a snapshot is taken (e.g. rows loaded)
+ *  - timer:   a LatencyHistogram of how long an operation took
+ *
+ * Names are "area.operation", e.g. "patient.load" or "referral.lookup".
+ * Classes look their metrics up once (usually into static fields), so
+ * recording is a counter increment with no map lookup or allocation:
+ *
+ *   private static final LatencyHistogram LOAD_TIME = Metrics.timer("patient.load");
+ *   ...
+ *   long start = System.nanoTime();
+ *   ...
+ *   LOAD_TIME.recordSince(start);
+ *
+ * snapshot() lists every metric (sorted by name) and exportCsv() writes
+ * it to output/metrics/ for offline comparison.
+ *
+ * NOTE:
+ *  - NO GUI code (MainFrame shows the snapshot)
+ *  - Thread-safe; metrics are never removed
+ */
+public final class Metrics {
+
+    /** Singleton instance (lazy initialisation) */
+    private static Metrics instance;
+
+    /** Output directory for exported snapshots */
+    private static final String OUTPUT_DIR = "output/metrics";
+
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     * Prevents external instantiation (Singleton enforcement).
+     */
+    private Metrics() {}
+
+    /**
+     * Returns the single Metrics instance.
+     */
+    public static synchronized Metrics getInstance() {
+        if (instance == null) {
+            instance = new Metrics();
+        }
+        return instance;
+    }
+
+    /** Shorthand for getInstance().getTimer(name) */
+    static LatencyHistogram timer(String name) {
+        return getInstance().getTimer(name);
+    }
+
+    /** Shorthand for getInstance().getCounter(name) */
+    static Counter counter(String name) {
+        return getInstance().getCounter(name);
+    }
+
+    /* =====================================================
+       REGISTRATION
+       ===================================================== */
+
+    /**
+     * Returns the timer with this name, creating it on first use.
+     */
+    public LatencyHistogram getTimer(String name) {
+        return timers.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns the counter with this name, creating it on first use.
+     */
+    public Counter getCounter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Registers (or replaces) a gauge. The supplier is called on the
+     * thread taking a snapshot, so it must be cheap and thread-safe.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Running total, cheap to update from many threads.
+     */
+    public static final class Counter {
+
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {}
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /* =====================================================
+       SNAPSHOTS
+       ===================================================== */
+
+    /**
+     * One metric as read by snapshot(). Timer fields are in
+     * milliseconds and are 0 for counters and gauges.
+     */
+    public static final class Reading {
+
+        private final String name;
+        private final String type;
+        private final long value;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        private Reading(String name, String type, long value) {
+            this(name, type, value, 0, 0, 0, 0, 0);
+        }
+
+        private Reading(String name, String type, long value, double meanMillis,
+                        double p50Millis, double p90Millis, double p99Millis, double maxMillis) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getName() { return name; }
+
+        /** "counter", "gauge" or "timer" */
+        public String getType() { return type; }
+
+        /** Counter total, gauge value, or number of timed calls */
+        public long getValue() { return value; }
+
+        public double getMeanMillis() { return meanMillis; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP90Millis() { return p90Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+    }
+
+    /**
+     * Reads every metric, sorted by name.
+     */
+    public List<Reading> snapshot() {
+
+        Map<String, Reading> sorted = new TreeMap<>();
+
+        counters.forEach((name, c) -> sorted.put(name, new Reading(name, "counter", c.get())));
+
+        gauges.forEach((name, g) -> {
+            long value;
+            try {
+                value = g.getAsLong();
+            } catch (RuntimeException e) {
+                value = -1; // a broken gauge must not break the report
+            }
+            sorted.put(name, new Reading(name, "gauge", value));
+        });
+
+        timers.forEach((name, t) -> {
+            LatencyHistogram.Snapshot s = t.snapshot();
+            sorted.put(name, new Reading(name, "timer", s.getCount(),
+                    s.getMean() / 1e6,
+                    s.percentile(50) / 1e6,
+                    s.percentile(90) / 1e6,
+                    s.percentile(99) / 1e6,
+                    s.getMax() / 1e6));
+        });
+
+        return new ArrayList<>(sorted.values());
+    }
+
+    /**
+     * Clears every timer (counters and gauges keep their values).
+     */
+    public void resetTimers() {
+        timers.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Writes a snapshot as CSV.
+     *
+     * File location example:
+     * output/metrics/metrics_20250101_120000.csv
+     *
+     * @return the file written
+     */
+    public Path exportCsv() throws IOException {
+
+        Path dir = Paths.get(OUTPUT_DIR);
+        Files.createDirectories(dir);
+        Path file = dir.resolve("metrics_" + LocalDateTime.now().format(FILE_STAMP) + ".csv");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+            writer.write("name,type,value,mean_ms,p50_ms,p90_ms,p99_ms,max_ms");
+            writer.newLine();
+
+            for (Reading r : snapshot()) {
+                writer.write(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        CsvUtil.quote(r.getName()), r.getType(), r.getValue(), r.getMeanMillis(),
+                        r.getP50Millis(), r.getP90Millis(), r.getP99Millis(), r.getMaxMillis()));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+}
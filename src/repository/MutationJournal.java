@@ -0,0 +1,462 @@
+package repository;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * MutationJournal
+ * ---------------
+ * Append-only write-ahead log for a CSV-backed repository.
+ *
+ * Instead of rewriting the whole CSV file after every change, a repository
+ * appends a small record describing the change (operation code + fields).
+ * The CSV is only rewritten ("compacted") in the background once enough
+ * records have built up.
+ *
+ * FILES (next to the CSV):
+ *  - patients.csv.journal      records written since the last compaction
+ *  - patients.csv.journal.old  records being folded into the CSV right now
+ *
+ * RECORD FORMAT:
+ *  int  payloadLength
+ *  int  crc32(payload)
+ *  payload = op (1 byte), fieldCount (1 byte), then per field:
+ *            varint byteLength + UTF-8 bytes
+ *
+ * DURABILITY:
+ *  - Records reach the OS immediately on append
+ *  - fsync happens in groups (every SYNC_INTERVAL_MS, or sooner once
+ *    GROUP_SIZE records are pending), so a burst of edits costs one sync
+ *  - A torn record at the end of the file (crash mid-write) fails its
+ *    checksum and is discarded on replay
+ *
+ * Replay is expected to be idempotent (upsert / delete-if-present), because
+ * after a crash the same record may be applied on top of a CSV that
+ * already contains it.
+ */
+public class MutationJournal implements Closeable {
+
+    /* =====================================================
+       CALLBACK TYPES
+       ===================================================== */
+
+    /**
+     * Receives each journal record during replay.
+     */
+    public interface Replayer {
+        void apply(char op, String[] fields);
+    }
+
+    /**
+     * Writes a full copy of the repository back to its CSV file.
+     * Called on the background compaction thread.
+     */
+    public interface Compactor {
+        void writeCsv() throws IOException;
+    }
+
+    /* =====================================================
+       TUNING
+       ===================================================== */
+
+    /** Maximum delay between an append and its fsync */
+    private static final long SYNC_INTERVAL_MS = 25;
+
+    /** Pending records that trigger an immediate group sync */
+    private static final int GROUP_SIZE = 64;
+
+    /** Records after which the CSV is rewritten in the background */
+    private static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    /** Shared thread that performs the grouped fsync calls */
+    private static final ScheduledExecutorService SYNCER =
+            Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "journal-sync"));
+
+    /** Shared thread that rewrites CSV files during compaction */
+    private static final ExecutorService COMPACTOR =
+            Executors.newSingleThreadExecutor(r -> daemon(r, "journal-compact"));
+
+    /* =====================================================
+       STATE
+       ===================================================== */
+
+    private final Path journalPath;
+    private final Path rolledPath;
+    private final int compactThreshold;
+
+    private FileChannel channel;
+
+    /** Records appended since the last fsync */
+    private int unsynced;
+
+    /** True while a sync task is queued on SYNCER */
+    private boolean syncScheduled;
+
+    /** Records appended since the last compaction */
+    private int recordCount;
+
+    /** Compaction currently running in the background (may be null) */
+    private Future<?> compaction;
+
+    /**
+     * Creates a journal for the given CSV file.
+     * Nothing is opened until {@link #replay(Replayer)} is called.
+     *
+     * @param csvFilePath path of the CSV file this journal belongs to
+     */
+    public MutationJournal(String csvFilePath) {
+        this(csvFilePath, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public MutationJournal(String csvFilePath, int compactThreshold) {
+        this.journalPath = Paths.get(csvFilePath + ".journal");
+        this.rolledPath = Paths.get(csvFilePath + ".journal.old");
+        this.compactThreshold = compactThreshold;
+    }
+
+    /* =====================================================
+       REPLAY
+       ===================================================== */
+
+    /**
+     * Replays any records left over from previous runs and then
+     * opens the journal for appending.
+     *
+     * Order: the rolled file (an unfinished compaction) first,
+     * then the live journal.
+     *
+     * @return number of records replayed
+     */
+    public synchronized int replay(Replayer replayer) throws IOException {
+
+        int applied = 0;
+
+        if (Files.exists(rolledPath)) {
+            applied += scanAndReplay(rolledPath, replayer).records;
+        }
+
+        Scan live = new Scan();
+        if (Files.exists(journalPath)) {
+            live = scanAndReplay(journalPath, replayer);
+            applied += live.records;
+        }
+        recordCount = live.records;
+
+        channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        // Drop a torn tail so new records are not written after garbage
+        channel.truncate(live.validLength);
+        channel.position(live.validLength);
+
+        return applied;
+    }
+
+    /** Result of reading one journal file */
+    private static final class Scan {
+        long validLength;
+        int records;
+    }
+
+    /**
+     * Reads records until EOF or the first corrupt record.
+     */
+    private Scan scanAndReplay(Path file, Replayer replayer) throws IOException {
+
+        Scan scan = new Scan();
+        CRC32 crc = new CRC32();
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 2 || length > (1 << 24)) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException eof) {
+                    break; // clean end or torn tail
+                }
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) break;
+
+                decode(payload, replayer);
+                scan.validLength += 8 + length;
+                scan.records++;
+            }
+        }
+
+        return scan;
+    }
+
+    private static void decode(byte[] payload, Replayer replayer) {
+
+        char op = (char) payload[0];
+        int fieldCount = payload[1] & 0xFF;
+        String[] fields = new String[fieldCount];
+
+        int pos = 2;
+        for (int i = 0; i < fieldCount; i++) {
+            int len = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = payload[pos++];
+                len |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            fields[i] = new String(payload, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+        }
+
+        replayer.apply(op, fields);
+    }
+
+    /* =====================================================
+       APPEND
+       ===================================================== */
+
+    /**
+     * Appends one mutation record.
+     *
+     * The record is handed to the OS straight away; the fsync that makes
+     * it crash-safe is grouped with other records on the sync thread.
+     *
+     * @param op     single-character operation code chosen by the repository
+     * @param fields operation arguments (null is stored as "")
+     */
+    public synchronized void append(char op, String... fields) throws IOException {
+
+        if (channel == null) {
+            throw new IllegalStateException("Journal not open. Call load() first.");
+        }
+
+        ByteBuffer record = encode(op, fields);
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+
+        recordCount++;
+        unsynced++;
+
+        if (unsynced >= GROUP_SIZE) {
+            SYNCER.execute(this::syncQuietly);
+        } else if (!syncScheduled) {
+            syncScheduled = true;
+            SYNCER.schedule(this::syncQuietly, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static ByteBuffer encode(char op, String[] fields) {
+
+        byte[][] encoded = new byte[fields.length][];
+        int payloadLength = 2;
+
+        for (int i = 0; i < fields.length; i++) {
+            String value = fields[i] == null ? "" : fields[i];
+            encoded[i] = value.getBytes(StandardCharsets.UTF_8);
+            payloadLength += varintSize(encoded[i].length) + encoded[i].length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(8 + payloadLength);
+        buf.position(8);
+        buf.put((byte) op);
+        buf.put((byte) fields.length);
+
+        for (byte[] field : encoded) {
+            int len = field.length;
+            while ((len & ~0x7F) != 0) {
+                buf.put((byte) ((len & 0x7F) | 0x80));
+                len >>>= 7;
+            }
+            buf.put((byte) len);
+            buf.put(field);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 8, payloadLength);
+
+        buf.putInt(0, payloadLength);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /* =====================================================
+       SYNC
+       ===================================================== */
+
+    /**
+     * Forces all appended records to disk.
+     * Callers that need durability before continuing can call this directly.
+     */
+    public void sync() throws IOException {
+
+        FileChannel ch;
+        synchronized (this) {
+            syncScheduled = false;
+            if (unsynced == 0 || channel == null) return;
+            unsynced = 0;
+            ch = channel;
+        }
+
+        try {
+            // fsync outside the lock so appends are not blocked by the disk
+            ch.force(false);
+        } catch (ClosedChannelException ignored) {
+            // Closed by compaction/close, which syncs before closing
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Journal sync failed for " + journalPath + ": " + e.getMessage());
+        }
+    }
+
+    /* =====================================================
+       COMPACTION
+       ===================================================== */
+
+    /**
+     * True once enough records have accumulated to justify
+     * rewriting the CSV file.
+     */
+    public synchronized boolean needsCompaction() {
+        return recordCount >= compactThreshold
+                && (compaction == null || compaction.isDone());
+    }
+
+    /**
+     * Starts folding the journal back into the CSV file in the background.
+     *
+     * The live journal is rolled to ".old" and a fresh journal is opened, so
+     * appends continue while the CSV is being rewritten. The rolled file is
+     * only deleted once the CSV write has succeeded.
+     *
+     * @param compactor writes a copy of the in-memory data taken NOW
+     */
+    public synchronized void compactAsync(Compactor compactor) throws IOException {
+
+        if (channel == null) return;
+        awaitCompaction();
+
+        channel.force(false);
+        channel.close();
+        unsynced = 0;
+
+        if (Files.exists(rolledPath)) {
+            // A previous compaction failed: keep its records and add ours
+            try (FileChannel src = FileChannel.open(journalPath, StandardOpenOption.READ);
+                 FileChannel dst = FileChannel.open(rolledPath, StandardOpenOption.APPEND)) {
+                long pos = 0;
+                long size = src.size();
+                while (pos < size) {
+                    pos += src.transferTo(pos, size - pos, dst);
+                }
+                dst.force(false);
+            }
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, rolledPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        recordCount = 0;
+
+        compaction = COMPACTOR.submit(() -> {
+            compactor.writeCsv();
+            Files.deleteIfExists(rolledPath);
+            return null;
+        });
+    }
+
+    /**
+     * Blocks until any running compaction has finished.
+     * A failed compaction is reported but its records stay on disk.
+     */
+    private void awaitCompaction() {
+
+        if (compaction == null) return;
+
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Journal compaction failed for " + journalPath + ": "
+                    + e.getCause().getMessage());
+        }
+        compaction = null;
+    }
+
+    /* =====================================================
+       CLOSE
+       ===================================================== */
+
+    /**
+     * Waits for background compaction, syncs and closes the journal.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        awaitCompaction();
+
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+        unsynced = 0;
+    }
+
+    /* =====================================================
+       HELPERS
+       ===================================================== */
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,120 @@
+package repository;
+
+import model.TemporalCodec;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OpeningHours
+ * ------------
+ * Parses the free-text Facility.openingHours column into one bitmap of
+ * open 5-minute slots per weekday (see SlotAllocator).
+ *
+ * Understood text (as in facilities.csv):
+ *  "Mon-Fri: 8:00-18:00  Sat: 8:00-12:00"     day ranges with times
+ *  "24/7 Emergency  Outpatients: Mon-Fri 8:00-17:00"
+ *                                              the listed hours are used,
+ *                                              since appointments are
+ *                                              outpatient bookings
+ *  "24/7 Emergency"                            open every slot
+ *
+ * Text with none of these falls back to DEFAULT_HOURS.
+ *
+ * NOTE:
+ *  - Immutable once parsed
+ *  - NO GUI code
+ */
+final class OpeningHours {
+
+    /** Hours assumed when a facility's text cannot be understood */
+    static final String DEFAULT_HOURS = "Mon-Fri: 9:00-17:00";
+
+    private static final String[] DAYS = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+
+    /** "Mon-Fri: 8:00-18:00", "Sat 9:00-13:00", "Outpatients: Mon-Fri 7:30-18:00" */
+    private static final Pattern RANGE = Pattern.compile(
+            "(mon|tue|wed|thu|fri|sat|sun)[a-z]*(?:\\s*-\\s*(mon|tue|wed|thu|fri|sat|sun)[a-z]*)?"
+                    + "\\s*:?\\s*(\\d{1,2}:\\d{2})\\s*-\\s*(\\d{1,2}:\\d{2})");
+
+    /** Open slots per weekday, Monday = 0 */
+    private final long[][] openByWeekday;
+
+    private OpeningHours(long[][] openByWeekday) {
+        this.openByWeekday = openByWeekday;
+    }
+
+    /**
+     * @param text Facility.openingHours (may be null)
+     */
+    static OpeningHours parse(String text) {
+
+        OpeningHours hours = parseOrNull(text);
+        return hours != null ? hours : parseOrNull(DEFAULT_HOURS);
+    }
+
+    private static OpeningHours parseOrNull(String text) {
+
+        if (text == null) return null;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[][] open = new long[7][SlotAllocator.WORDS_PER_DAY];
+        boolean any = false;
+
+        Matcher m = RANGE.matcher(lower);
+        while (m.find()) {
+            int firstDay = weekday(m.group(1));
+            int lastDay = m.group(2) == null ? firstDay : weekday(m.group(2));
+            int from = TemporalCodec.toMinuteOfDay(m.group(3));
+            int to = "24:00".equals(m.group(4))
+                    ? TemporalCodec.MINUTES_PER_DAY
+                    : TemporalCodec.toMinuteOfDay(m.group(4));
+            if (from == TemporalCodec.NONE || to == TemporalCodec.NONE || to <= from) continue;
+
+            // Slots that start at or after opening and end by closing
+            int firstSlot = (from + SlotAllocator.SLOT_MINUTES - 1) / SlotAllocator.SLOT_MINUTES;
+            int endSlot = to / SlotAllocator.SLOT_MINUTES;
+
+            for (int d = firstDay; ; d = (d + 1) % 7) {
+                SlotAllocator.setRange(open[d], firstSlot, endSlot);
+                if (d == lastDay) break;
+            }
+            any = true;
+        }
+
+        if (!any && lower.contains("24/7")) {
+            for (long[] day : open) {
+                SlotAllocator.setRange(day, 0, SlotAllocator.SLOTS_PER_DAY);
+            }
+            any = true;
+        }
+
+        return any ? new OpeningHours(open) : null;
+    }
+
+    /**
+     * Open slots on a date (shared array: do not modify).
+     */
+    long[] openSlots(int epochDay) {
+        return openByWeekday[weekdayOf(epochDay)];
+    }
+
+    /** True if the facility is open at some time on that weekday. */
+    boolean isOpenOn(int epochDay) {
+        for (long word : openSlots(epochDay)) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    /** Monday = 0 ... Sunday = 6 (1970-01-01 was a Thursday). */
+    static int weekdayOf(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static int weekday(String name) {
+        return Arrays.asList(DAYS).indexOf(name);
+    }
+}
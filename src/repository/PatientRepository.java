@@ -2,15 +2,22 @@ package repository;
 
 import model.Patient;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 
 /**
  * PatientRepository
@@ -21,6 +28,17 @@ import java.util.Map;
  * This class represents the Repository (data access) layer of the MVC
  * architecture. It isolates all CSV file handling logic from controllers
  * and the GUI, ensuring a clean separation of concerns.
+ *
+ * PERSISTENCE:
+ * Changes are NOT written by rewriting patients.csv each time. Each
+ * add/update/delete is appended to a small journal (see MutationJournal),
+ * which is replayed on load() and folded back into the CSV in the
+ * background once it grows large. Edit cost no longer depends on how
+ * many patients are stored.
+ *
+ * Journal appends run in order on a background thread; add/update/delete
+ * change the in-memory data straight away and return a future that
+ * completes once the record has been written.
  */
 public class PatientRepository {
 
@@ -32,9 +50,69 @@ public class PatientRepository {
 
     /**
      * Fast lookup structure keyed by NHS number.
-     * Prevents duplicates and enables O(1) search.
+     * Prevents duplicates and enables O(1) search, and gives the row
+     * number for update and delete without scanning the list.
+     *
+     * Keys are normalised with IdIndex.key(), so lookups ignore case
+     * and surrounding spaces.
+     */
+    private final IdIndex<Patient> patientByNhs = new IdIndex<>(Patient::getNhsNumber);
+
+    /** Number of CSV (and snapshot) columns */
+    private static final int COLUMNS = 11;
+
+    /** Pools for repeated column values */
+    private static final ColumnDictionary GENDERS = new ColumnDictionary("patient.gender");
+    private static final ColumnDictionary GP_SURGERIES = new ColumnDictionary("patient.registeredGpSurgery");
+
+    /** Journal operation codes */
+    private static final char OP_ADD = 'A';
+    private static final char OP_UPDATE = 'U';
+    private static final char OP_DELETE = 'D';
+    private static final char OP_PHONE = 'P';
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("patient.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("patient.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("patient.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("patient.lookup");
+    private static final LatencyHistogram JOURNAL_TIME = Metrics.timer("patient.journal");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("patient.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("patient.changes");
+
+    /**
+     * Write-ahead log for patient changes (opened by load()).
+     */
+    private MutationJournal journal;
+
+    /**
+     * Changes handed to JOURNAL_WRITER but not yet appended (guarded by
+     * this). The journal is only closed or replaced while this is 0.
      */
-    private final Map<String, Patient> patientByNhs = new HashMap<>();
+    private int queuedAppends;
+
+    /**
+     * Background thread that appends journal records in call order,
+     * so the caller (normally the EDT) never waits for the disk.
+     */
+    private static final ExecutorService JOURNAL_WRITER =
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "patient-journal");
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        // Let queued appends reach the journal before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            JOURNAL_WRITER.shutdown();
+            try {
+                JOURNAL_WRITER.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }, "patient-journal-shutdown"));
+    }
 
     /**
      * Stores the original CSV file path so that changes
@@ -42,6 +120,12 @@ public class PatientRepository {
      */
     private String sourceFilePath;
 
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /**
      * Loads patient records from a CSV file into memory.
      *
@@ -52,45 +136,199 @@ public class PatientRepository {
      * @throws IOException if file cannot be read
      */
     public void load(String filePath) throws IOException {
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("patient", "load", patients.size(), filePath);
+    }
+
+    /**
+     * Reads patients.csv (one record per NHS number) without changing the
+     * repository, so it can run on a background thread. The journal is
+     * replayed by install() or merge(), which must be called with the result.
+     */
+    public CsvRead<Patient> read(String filePath) throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
+
+        // Let queued journal appends finish so a reload never discards them
+        awaitPendingWrites();
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
+
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Patient> cached = SnapshotStore.read(filePath, COLUMNS,
+                col -> fromColumns(i -> col.apply(i).trim()));
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("patient", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
+
+        List<Patient> rows = new ArrayList<>(readCsv(filePath).values());
+        SnapshotStore.write(filePath, version, rows, COLUMNS, this::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("patient", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory patients with rows from read(), then
+     * re-opens the journal and applies the changes recorded since the
+     * CSV was last written. Listeners see one RELOADED event.
+     */
+    public void install(String filePath, List<Patient> rows) throws IOException {
+        while (true) {
+            awaitPendingWrites();
+            synchronized (this) {
+                // An edit may have queued another append since the wait
+                if (queuedAppends == 0) {
+                    installLocked(filePath, rows);
+                    return;
+                }
+            }
+        }
+    }
 
-        this.sourceFilePath = filePath; // ✅ FIX: required for saveToCsv()
+    private void installLocked(String filePath, List<Patient> rows) throws IOException {
+
+        // Finish any background compaction before switching files
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+
+        this.sourceFilePath = filePath; // ✅ FIX: required for writing the CSV back
+        diskVersion = FileVersion.of(filePath);
+
+        // Insertion-ordered so journal replay can upsert records
+        // without disturbing the CSV row order
+        Map<String, Patient> byNhs = new LinkedHashMap<>();
+        for (Patient p : rows) {
+            byNhs.put(IdIndex.key(p.getNhsNumber()), p);
+        }
+
+        // Apply changes made since the CSV was last written
+        journal = new MutationJournal(filePath);
+        int replayed = journal.replay((op, fields) -> applyJournalRecord(byNhs, op, fields));
 
         patients.clear();
-        patientByNhs.clear();
+        patients.addAll(byNhs.values());
+        patientByNhs.rebuild(patients);
+        changes.reloaded();
+
+        // Fold replayed records into the CSV so the next start is quicker
+        if (replayed > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted patients are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * patients.csv while the application is running.
+     *
+     * Changes still in the journal were made here after the CSV was
+     * last written, so they are applied on top of the new file and
+     * then folded into it.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public RowDelta merge(CsvRead<Patient> read) throws IOException {
+        while (true) {
+            awaitPendingWrites();
+            synchronized (this) {
+                // An edit may have queued another append since the wait
+                if (queuedAppends == 0) {
+                    return mergeLocked(read);
+                }
+            }
+        }
+    }
+
+    private RowDelta mergeLocked(CsvRead<Patient> read) throws IOException {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Patient> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        Map<String, Patient> wanted = new LinkedHashMap<>();
+        for (Patient p : rows) {
+            wanted.put(IdIndex.key(p.getNhsNumber()), p);
+        }
+
+        journal = new MutationJournal(filePath);
+        int replayed = journal.replay((op, fields) -> applyJournalRecord(wanted, op, fields));
+
+        RowDelta delta = RowDelta.merge(patients, new ArrayList<>(wanted.values()),
+                Patient::getNhsNumber, this::toColumns, RowDelta.none(), changes);
+        if (!delta.isEmpty()) patientByNhs.rebuild(patients);
+
+        if (replayed > 0) {
+            compact();
+        }
+        MERGE_TIME.recordSince(start);
+        event.finish("patient", "merge", patients.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if patients.csv was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    /**
+     * Parses patients.csv into a map keyed by NHS number (CSV order;
+     * a later row with the same NHS number replaces the earlier one).
+     */
+    private static Map<String, Patient> readCsv(String filePath) throws IOException {
 
-            String header = br.readLine(); // skip header
-            if (header == null) return;
+        Map<String, Patient> byNhs = new LinkedHashMap<>();
 
-            String line;
-            while ((line = br.readLine()) != null) {
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
 
-                if (line.trim().isEmpty()) continue;
+            t.next(); // skip header
 
-                String[] cols = line.split(",", -1);
+            while (t.next()) {
+
+                if (t.isBlank()) continue;
 
                 // Must match CSV structure exactly
-                if (cols.length < 7) continue;
-
-        Patient p = new Patient(
-                cols[0].trim(),  // NHS
-                cols[1].trim(),  // First
-                cols[2].trim(),  // Last
-                cols[3].trim(),  // DOB
-                cols[4].trim(),  // Phone
-                cols[5].trim(),  // Emergency Contact
-                cols[6].trim(),  // Gender
-                cols[7].trim(),  // Address
-                cols[8].trim(),  // Postcode
-                cols[9].trim(),  // Email
-                cols[10].trim()  // GP Surgery
-);
-
-                patients.add(p);
-                patientByNhs.put(p.getNhsNumber(), p); // ✅ FIX: keep map in sync
+                if (t.fieldCount() < COLUMNS) continue;
+
+                Patient p = fromColumns(t::trimmed);
+                byNhs.put(IdIndex.key(p.getNhsNumber()), p); // ✅ FIX: keep map in sync
             }
         }
+
+        return byNhs;
     }
 
     /**
@@ -101,6 +339,14 @@ public class PatientRepository {
         return new ArrayList<>(patients);
     }
 
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Patient> view() {
+        return Collections.unmodifiableList(patients);
+    }
+
     /**
      * Finds a patient by NHS number.
      *
@@ -108,77 +354,78 @@ public class PatientRepository {
      * @return Patient if found, otherwise null
      */
     public Patient findByNhs(String nhsNumber) {
-        return patientByNhs.get(nhsNumber);
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        Patient found = patientByNhs.get(nhsNumber);
+        LOOKUP_TIME.recordSince(start);
+        event.finish("patient", "findByNhs", found == null ? 0 : 1);
+        return found;
     }
 
     /**
-     * Adds a new patient to the repository and persists the change to CSV.
+     * Adds a new patient to the repository and journals the change.
      *
      * @param patient Patient object to add
-     * @throws IOException if writing to file fails
+     * @return completes once the change has been written
      */
-    public void addPatient(Patient patient) throws IOException {
+    public synchronized CompletableFuture<Void> addPatient(Patient patient) {
 
         if (patient == null || patient.getNhsNumber() == null || patient.getNhsNumber().isBlank()) {
             throw new IllegalArgumentException("Invalid patient: NHS number is required.");
         }
 
-        if (patientByNhs.containsKey(patient.getNhsNumber())) {
+        if (patientByNhs.contains(patient.getNhsNumber())) {
             throw new IllegalArgumentException(
                     "Patient already exists with NHS: " + patient.getNhsNumber()
             );
         }
 
         patients.add(patient);
-        patientByNhs.put(patient.getNhsNumber(), patient);
+        patientByNhs.add(patient);
+        changes.inserted(patients.size() - 1);
 
-        saveToCsv();
+        return record(OP_ADD, toColumns(patient));
     }
 
     /**
      * Updates an existing patient based on NHS number.
      *
      * @param updatedPatient the patient with updated details
+     * @return completes once the change has been written
      */
-    public void updatePatient(Patient updatedPatient) throws IOException {
-
-        boolean found = false;
-
-        for (int i = 0; i < patients.size(); i++) {
-            Patient existing = patients.get(i);
+    public synchronized CompletableFuture<Void> updatePatient(Patient updatedPatient) {
 
-            if (existing.getNhsNumber()
-                    .equalsIgnoreCase(updatedPatient.getNhsNumber())) {
+        int index = patientByNhs.positionOf(updatedPatient.getNhsNumber());
 
-                patients.set(i, updatedPatient);
-                patientByNhs.put(updatedPatient.getNhsNumber(), updatedPatient);
-                found = true;
-                break;
-            }
-        }
-
-        if (!found) {
+        if (index < 0) {
             throw new IllegalArgumentException("Patient not found.");
         }
 
-        saveToCsv();
+        patients.set(index, updatedPatient);
+        patientByNhs.set(index, updatedPatient);
+        changes.updated(index);
+
+        return record(OP_UPDATE, toColumns(updatedPatient));
     }
 
     /**
      * Deletes a patient using their NHS number and persists the change.
      *
      * @param nhsNumber NHS number of the patient to delete
-     * @throws IOException if writing to file fails
+     * @return completes once the change has been written
+     *         (immediately if there was nothing to delete)
      */
-    public void deletePatient(String nhsNumber) throws IOException {
+    public synchronized CompletableFuture<Void> deletePatient(String nhsNumber) {
 
-        if (nhsNumber == null || nhsNumber.isBlank()) return;
+        if (nhsNumber == null || nhsNumber.isBlank()) return CompletableFuture.completedFuture(null);
 
-        Patient removed = patientByNhs.remove(nhsNumber);
-        if (removed == null) return;
+        int index = patientByNhs.positionOf(nhsNumber);
+        if (index < 0) return CompletableFuture.completedFuture(null);
 
-        patients.remove(removed);
-        saveToCsv();
+        patients.remove(index);
+        patientByNhs.removeAt(index);
+        changes.deleted(index);
+        return record(OP_DELETE, nhsNumber);
     }
 
     /**
@@ -187,69 +434,217 @@ public class PatientRepository {
      *
      * @param nhsNumber NHS number of the patient
      * @param newPhoneNumber updated phone number
-     * @throws IOException if writing to file fails
+     * @return completes once the change has been written
      */
-    public void updatePatientPhone(String nhsNumber, String newPhoneNumber) throws IOException {
+    public synchronized CompletableFuture<Void> updatePatientPhone(String nhsNumber, String newPhoneNumber) {
 
-        Patient existing = patientByNhs.get(nhsNumber);
-        if (existing == null) {
+        int index = patientByNhs.positionOf(nhsNumber);
+        if (index < 0) {
             throw new IllegalArgumentException("Patient not found with NHS: " + nhsNumber);
         }
 
-        existing.setPhoneNumber(newPhoneNumber);
-        saveToCsv();
+        patients.get(index).setPhoneNumber(newPhoneNumber);
+        changes.updated(index);
+        return record(OP_PHONE, nhsNumber, newPhoneNumber);
     }
 
+    /* =========================
+       CHANGE LISTENERS
+       ========================= */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
+    }
+
+    /* =========================
+       JOURNAL PERSISTENCE
+       ========================= */
+
     /**
-     * Writes all in-memory patient records back to the original CSV file.
-     *
-     * @throws IOException if file cannot be written
+     * Queues a change for the journal thread, which appends it and starts
+     * a background compaction once enough changes have accumulated.
+     * Called with the lock held.
      */
-    private void saveToCsv() throws IOException {
+    private CompletableFuture<Void> record(char op, String... fields) {
 
-        if (sourceFilePath == null || sourceFilePath.isEmpty()) {
+        if (journal == null) {
             throw new IllegalStateException("Source CSV file path not set. Call load() first.");
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sourceFilePath))) {
+        MutationJournal target = journal;
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        CHANGES.increment();
+        queuedAppends++;
+
+        JOURNAL_WRITER.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                try {
+                    target.append(op, fields);
+                } finally {
+                    synchronized (this) {
+                        queuedAppends--;
+                    }
+                }
+                JOURNAL_TIME.recordSince(start);
+
+                synchronized (this) {
+                    // Skip if load() has replaced the journal meanwhile
+                    if (journal == target && target.needsCompaction()) compact();
+                }
+                written.complete(null);
+
+            } catch (Exception e) {
+                written.completeExceptionally(e);
+            }
+        });
 
-            // ✅ FIXED header to match load()
-            writer.write("nhsNumber,firstName,lastName,dateOfBirth,phoneNumber,"+"emergencyContactNumber,gender,address,postcode,email,registeredGpSurgery"
-);
+        return written;
+    }
 
-            writer.newLine();
+    /**
+     * Blocks until every journal append queued so far has run.
+     */
+    private static void awaitPendingWrites() throws IOException {
+        try {
+            JOURNAL_WRITER.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for journal writes", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
 
-            for (Patient p : patients) {
-               writer.write(String.join(",",
-                    safe(p.getNhsNumber()),
-                    safe(p.getFirstName()),
-                    safe(p.getLastName()),
-                    safe(p.getDateOfBirth()),
-                    safe(p.getPhoneNumber()),
-                    safe(p.getEmergencyContactNumber()),
-                    safe(p.getGender()),
-                    safe(p.getAddress()),
-                    safe(p.getPostcode()),
-                    safe(p.getEmail()),
-                    safe(p.getRegisteredGpSurgery())
-));
+    /**
+     * Applies one journal record to an NHS map during load() / merge().
+     * Every operation is an upsert / delete-if-present so replaying
+     * a record that is already in the CSV is harmless.
+     */
+    private static void applyJournalRecord(Map<String, Patient> patientByNhs, char op, String[] fields) {
+
+        switch (op) {
+            case OP_ADD:
+            case OP_UPDATE:
+                if (fields.length < COLUMNS) return;
+                Patient p = fromColumns(i -> fields[i].trim());
+                patientByNhs.put(IdIndex.key(p.getNhsNumber()), p);
+                break;
 
+            case OP_DELETE:
+                patientByNhs.remove(IdIndex.key(fields[0]));
+                break;
+
+            case OP_PHONE:
+                Patient existing = patientByNhs.get(IdIndex.key(fields[0]));
+                if (existing != null) existing.setPhoneNumber(fields[1]);
+                break;
+
+            default:
+                // Unknown op from a newer version: ignore
+        }
+    }
+
+    /**
+     * Rewrites patients.csv from a copy of the current list on the
+     * journal's background thread.
+     */
+    private void compact() throws IOException {
+
+        List<Patient> snapshot = new ArrayList<>(patients);
+        Path target = Paths.get(sourceFilePath);
+
+        journal.compactAsync(() -> writeCsv(target, snapshot));
+    }
+
+    /**
+     * Forces all journalled changes to disk.
+     * Only needed when a caller must be sure a change survives a power cut.
+     */
+    public void flush() throws IOException {
+        awaitPendingWrites();
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Writes the given patient records to the CSV file.
+     *
+     * @throws IOException if file cannot be written
+     */
+    private void writeCsv(Path target, List<Patient> rows) throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
+
+        CsvUtil.writeAtomically(target, tmp -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+
+                // ✅ FIXED header to match load()
+                writer.write("nhsNumber,firstName,lastName,dateOfBirth,phoneNumber,"
+                        + "emergencyContactNumber,gender,address,postcode,email,registeredGpSurgery");
                 writer.newLine();
+
+                for (Patient p : rows) {
+                    CsvUtil.writeRow(writer, toColumns(p));
+                }
             }
-        }
+        });
+
+        FileVersion written = FileVersion.of(target.toString());
+        diskVersion = written;
+        SnapshotStore.write(target.toString(), written, rows, COLUMNS, this::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("patient", rows.size(), target.toString());
+    }
+
+    /**
+     * Column values for one patient, in CSV order.
+     */
+    private String[] toColumns(Patient p) {
+        return new String[]{
+                p.getNhsNumber(),
+                p.getFirstName(),
+                p.getLastName(),
+                p.getDateOfBirth(),
+                p.getPhoneNumber(),
+                p.getEmergencyContactNumber(),
+                p.getGender(),
+                p.getAddress(),
+                p.getPostcode(),
+                p.getEmail(),
+                p.getRegisteredGpSurgery()
+        };
     }
 
     /**
-     * Sanitises values before writing to CSV to prevent
-     * commas from corrupting column structure.
+     * Builds a patient from CSV (or journal) columns.
+     *
+     * @param col returns the trimmed value of a column by index
      */
-    private String safe(String value) {
-        return value == null ? "" : value.replace(",", " ");
+    private static Patient fromColumns(IntFunction<String> col) {
+        return new Patient(
+                col.apply(0),   // NHS
+                col.apply(1),   // First
+                col.apply(2),   // Last
+                col.apply(3),   // DOB
+                col.apply(4),   // Phone
+                col.apply(5),   // Emergency Contact
+                GENDERS.canonical(col.apply(6)),      // Gender
+                col.apply(7),                         // Address
+                col.apply(8),                         // Postcode
+                col.apply(9),                         // Email
+                GP_SURGERIES.canonical(col.apply(10)) // GP Surgery
+        );
     }
 
     public boolean existsById(String patientId) {
-    return patients.stream()
-            .anyMatch(p -> p.getNhsNumber().equalsIgnoreCase(patientId));
-}
+        return patientByNhs.contains(patientId);
+    }
 
 }
@@ -0,0 +1,232 @@
+package repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * PersistenceScheduler (Singleton)
+ * --------------------------------
+ * Coalesces CSV writes for all repositories onto one background thread.
+ *
+ * A repository no longer rewrites its CSV after every change. Instead it
+ * marks itself dirty; the scheduler waits for a short latency window and
+ * then performs ONE write covering every change made in that window.
+ *
+ *  - latency window: how long a change may wait before it is written
+ *  - max batch:      number of changes that forces an early write
+ *
+ * Both can be set with the system properties "persistence.latencyMs" and
+ * "persistence.maxBatch", or at runtime through the setters.
+ *
+ * Each markDirty() call returns a future that completes once the write
+ * covering that change has finished, so callers that need durability
+ * can wait for it. Pending writes are flushed on JVM shutdown.
+ *
+ * NOTE:
+ *  - NO GUI code
+ *  - Writes run on a single thread, so writes to one file never overlap
+ */
+public class PersistenceScheduler {
+
+    /**
+     * Performs the actual write for one repository.
+     * Called on the scheduler thread.
+     */
+    public interface Store {
+        void flush() throws IOException;
+    }
+
+    /** Singleton instance (lazy initialisation) */
+    private static PersistenceScheduler instance;
+
+    /** Longest time a shutdown waits for outstanding writes */
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "persistence-writer");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /** Outstanding (not yet written) changes per repository */
+    private final Map<Object, Pending> pending = new HashMap<>();
+
+    private volatile long latencyMillis = Long.getLong("persistence.latencyMs", 200L);
+    private volatile int maxBatch = Integer.getInteger("persistence.maxBatch", 50);
+
+    /**
+     * Changes waiting for one repository's next write.
+     */
+    private static final class Pending {
+        final Store store;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        int changes;
+        ScheduledFuture<?> timer;
+
+        Pending(Store store) {
+            this.store = store;
+        }
+    }
+
+    /**
+     * Private constructor.
+     * Prevents external instantiation (Singleton enforcement).
+     */
+    private PersistenceScheduler() {
+        Runtime.getRuntime().addShutdownHook(
+                new Thread(this::flushAll, "persistence-shutdown"));
+    }
+
+    /**
+     * Returns the single PersistenceScheduler instance.
+     */
+    public static synchronized PersistenceScheduler getInstance() {
+        if (instance == null) {
+            instance = new PersistenceScheduler();
+        }
+        return instance;
+    }
+
+    /* =====================================================
+       CONFIGURATION
+       ===================================================== */
+
+    /** Sets how long a change may wait before being written. */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+    }
+
+    /** Sets how many changes force a write before the window ends. */
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    /* =====================================================
+       SCHEDULING
+       ===================================================== */
+
+    /**
+     * Records that a repository has an unsaved change.
+     *
+     * @param owner the repository (used as the coalescing key)
+     * @param store writes the repository's current contents
+     * @return completes when a write covering this change has finished
+     */
+    public synchronized CompletableFuture<Void> markDirty(Object owner, Store store) {
+
+        Pending p = pending.computeIfAbsent(owner, k -> new Pending(store));
+        p.changes++;
+
+        if (p.changes >= maxBatch) {
+            // Batch is full: write now rather than waiting for the window
+            if (p.timer != null) p.timer.cancel(false);
+            p.timer = executor.schedule(flushTask(owner), 0, TimeUnit.MILLISECONDS);
+        } else if (p.timer == null) {
+            p.timer = executor.schedule(flushTask(owner), latencyMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return p.done;
+    }
+
+    /**
+     * Writes any pending changes for one repository and waits for it.
+     * Also waits for a write that is already in progress.
+     *
+     * Used before reloading a CSV so queued edits are not lost.
+     */
+    public void flushNow(Object owner) throws IOException {
+
+        Future<?> f = executor.submit(flushTask(owner));
+
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Writes every pending change (used on shutdown).
+     */
+    public void flushAll() {
+
+        List<Object> owners;
+        synchronized (this) {
+            owners = new ArrayList<>(pending.keySet());
+        }
+
+        List<Future<?>> writes = new ArrayList<>();
+        for (Object owner : owners) {
+            writes.add(executor.submit(flushTask(owner)));
+        }
+
+        for (Future<?> f : writes) {
+            try {
+                f.get(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                // Already reported by runFlush / nothing more we can do here
+            }
+        }
+    }
+
+    private Callable<Void> flushTask(Object owner) {
+        return () -> {
+            runFlush(owner);
+            return null;
+        };
+    }
+
+    /**
+     * Runs on the scheduler thread: takes the pending entry and writes it.
+     * Changes marked while the write is running start a new entry and
+     * are picked up by the next write.
+     */
+    private void runFlush(Object owner) throws IOException {
+
+        Pending p;
+        synchronized (this) {
+            p = pending.remove(owner);
+            if (p == null) return;
+            if (p.timer != null) p.timer.cancel(false);
+        }
+
+        try {
+            p.store.flush();
+            p.done.complete(null);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to save " + owner.getClass().getSimpleName()
+                    + ": " + e.getMessage());
+            p.done.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
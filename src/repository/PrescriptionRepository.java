@@ -3,8 +3,13 @@ package repository;
 import model.Prescription;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  * PrescriptionRepository
@@ -12,7 +17,7 @@ import java.util.List;
  * MODEL layer class responsible for:
  *  - Loading prescriptions from prescriptions.csv
  *  - Storing prescriptions in memory
- *  - Writing updates back to CSV
+ *  - Writing updates back to CSV (batched by PersistenceScheduler)
  *
  * IMPORTANT:
  *  - This class MUST match Prescription.java exactly
@@ -22,6 +27,35 @@ public class PrescriptionRepository {
 
     private final List<Prescription> prescriptions = new ArrayList<>();
 
+    /** CSV path; defaults to the standard data file until load() is called */
+    private String sourceFilePath = "data/prescriptions.csv";
+
+    /** Shared background writer that coalesces CSV saves */
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    /** Number of CSV (and snapshot) columns */
+    private static final int COLUMNS = 7;
+
+    /** Pools for repeated column values */
+    private static final ColumnDictionary CLINICIAN_IDS = new ColumnDictionary("prescription.clinicianId");
+    private static final ColumnDictionary MEDICATIONS = new ColumnDictionary("prescription.medication");
+    private static final ColumnDictionary DOSAGES = new ColumnDictionary("prescription.dosage");
+    private static final ColumnDictionary PHARMACIES = new ColumnDictionary("prescription.pharmacy");
+    private static final ColumnDictionary STATUSES = new ColumnDictionary("prescription.collectionStatus");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("prescription.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("prescription.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("prescription.merge");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("prescription.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("prescription.changes");
+
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /* =====================================================
        LOAD FROM CSV
        Expected CSV header:
@@ -29,27 +63,140 @@ public class PrescriptionRepository {
        ===================================================== */
 
     public void load(String filePath) throws IOException {
-        prescriptions.clear();
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("prescription", "load", prescriptions.size(), filePath);
+    }
+
+    /**
+     * Reads prescriptions.csv without changing the repository, so it can
+     * run on a background thread. Pass the rows to install(), or the
+     * result to merge(), afterwards.
+     */
+    public CsvRead<Prescription> read(String filePath) throws IOException {
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine(); // skip header
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
 
-            while ((line = reader.readLine()) != null) {
-                String[] cols = line.split(",");
+        // Write out queued changes first so a reload never discards them
+        scheduler.flushNow(this);
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
+
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Prescription> cached = SnapshotStore.read(filePath, COLUMNS,
+                col -> fromColumns(i -> col.apply(i).trim()));
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("prescription", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
 
-                Prescription p = new Prescription(
-                        cols[0].trim(), // prescriptionId
-                        cols[1].trim(), // patientNhsNumber
-                        cols[2].trim(), // clinicianId
-                        cols[3].trim(), // medication
-                        cols[4].trim(), // dosage
-                        cols[5].trim(), // pharmacy
-                        cols[6].trim()  // collectionStatus
-                );
+        List<Prescription> rows = new ArrayList<>();
 
-                prescriptions.add(p);
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
+            t.next(); // skip header
+
+            while (t.next()) {
+                if (t.fieldCount() < COLUMNS) continue;
+
+                rows.add(fromColumns(t::trimmed));
             }
         }
+
+        SnapshotStore.write(filePath, version, rows, COLUMNS, PrescriptionRepository::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("prescription", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory prescriptions with rows from read().
+     * Listeners see one RELOADED event.
+     */
+    public synchronized void install(String filePath, List<Prescription> rows) {
+        this.sourceFilePath = filePath;
+        prescriptions.clear();
+        prescriptions.addAll(rows);
+        diskVersion = FileVersion.of(filePath);
+        changes.reloaded();
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted prescriptions are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * the CSV while the application is running.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public synchronized RowDelta merge(CsvRead<Prescription> read) {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Prescription> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        RowDelta delta = RowDelta.merge(prescriptions, rows, Prescription::getPrescriptionId,
+                PrescriptionRepository::toColumns, RowDelta.none(), changes);
+        MERGE_TIME.recordSince(start);
+        event.finish("prescription", "merge", prescriptions.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
+    }
+
+    /**
+     * Builds a prescription from CSV (or snapshot) columns.
+     */
+    private static Prescription fromColumns(IntFunction<String> col) {
+        return new Prescription(
+                col.apply(0), // prescriptionId
+                col.apply(1), // patientNhsNumber
+                CLINICIAN_IDS.canonical(col.apply(2)), // clinicianId
+                MEDICATIONS.canonical(col.apply(3)),   // medication
+                DOSAGES.canonical(col.apply(4)),       // dosage
+                PHARMACIES.canonical(col.apply(5)),    // pharmacy
+                STATUSES.canonical(col.apply(6))       // collectionStatus
+        );
+    }
+
+    /**
+     * Column values for one prescription, in CSV order.
+     */
+    private static String[] toColumns(Prescription p) {
+        return new String[]{
+                p.getPrescriptionId(),
+                p.getPatientNhsNumber(),
+                p.getClinicianId(),
+                p.getMedication(),
+                p.getDosage(),
+                p.getPharmacy(),
+                p.getCollectionStatus()
+        };
     }
 
     /* =====================================================
@@ -60,48 +207,104 @@ public class PrescriptionRepository {
         return prescriptions;
     }
 
-    public void addPrescription(Prescription prescription) throws IOException {
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Prescription> view() {
+        return Collections.unmodifiableList(prescriptions);
+    }
+
+    public synchronized CompletableFuture<Void> addPrescription(Prescription prescription) {
         prescriptions.add(prescription);
-        save("data/prescriptions.csv");
+        changes.inserted(prescriptions.size() - 1);
+        return save();
     }
 
-    public void updatePrescription(Prescription updated) throws IOException {
+    public synchronized CompletableFuture<Void> updatePrescription(Prescription updated) {
         for (int i = 0; i < prescriptions.size(); i++) {
             if (prescriptions.get(i).getPrescriptionId()
                     .equals(updated.getPrescriptionId())) {
                 prescriptions.set(i, updated);
+                changes.updated(i);
                 break;
             }
         }
-        save("data/prescriptions.csv");
+        return save();
+    }
+
+    public synchronized CompletableFuture<Void> deletePrescription(String prescriptionId) {
+        // Back to front so earlier row numbers stay valid
+        for (int i = prescriptions.size() - 1; i >= 0; i--) {
+            if (prescriptions.get(i).getPrescriptionId().equals(prescriptionId)) {
+                prescriptions.remove(i);
+                changes.deleted(i);
+            }
+        }
+        return save();
+    }
+
+    /* =====================================================
+       CHANGE LISTENERS
+       ===================================================== */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
     }
 
-    public void deletePrescription(String prescriptionId) throws IOException {
-        prescriptions.removeIf(p ->
-                p.getPrescriptionId().equals(prescriptionId));
-        save("data/prescriptions.csv");
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
     }
 
     /* =====================================================
        SAVE TO CSV
        ===================================================== */
 
-    private void save(String filePath) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-
-            writer.println("prescriptionId,patientNhsNumber,clinicianId,medication,dosage,pharmacy,collectionStatus");
-
-            for (Prescription p : prescriptions) {
-                writer.println(
-                        p.getPrescriptionId() + "," +
-                        p.getPatientNhsNumber() + "," +
-                        p.getClinicianId() + "," +
-                        p.getMedication() + "," +
-                        p.getDosage() + "," +
-                        p.getPharmacy() + "," +
-                        p.getCollectionStatus()
-                );
-            }
+    /**
+     * Marks the repository dirty; the PersistenceScheduler writes
+     * the CSV once the current batch window closes.
+     */
+    private CompletableFuture<Void> save() {
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
+
+    /**
+     * Writes a copy of the prescription list (runs on the scheduler thread).
+     */
+    private void writeCsv() throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
+
+        List<Prescription> snapshot;
+        String path;
+
+        synchronized (this) {
+            snapshot = new ArrayList<>(prescriptions);
+            path = sourceFilePath;
         }
+
+        CsvUtil.writeAtomically(Paths.get(path), tmp -> {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tmp))) {
+
+                writer.println("prescriptionId,patientNhsNumber,clinicianId,medication,dosage,pharmacy,collectionStatus");
+
+                for (Prescription p : snapshot) {
+                    CsvUtil.writeRow(writer, toColumns(p));
+                }
+
+                // PrintWriter swallows I/O errors, so check explicitly
+                if (writer.checkError()) {
+                    throw new IOException("Failed to write " + tmp);
+                }
+            }
+        });
+
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, PrescriptionRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("prescription", snapshot.size(), path);
     }
 }
@@ -22,6 +22,9 @@ public class PrescriptionWriter {
     /** Output directory for prescription text files */
     private static final String OUTPUT_DIR = "output/prescriptions";
 
+    /** Time to write one prescription file (reported by Metrics) */
+    private static final LatencyHistogram FILE_TIME = Metrics.timer("output.prescription");
+
     /**
      * Writes a formatted prescription text file for the provided prescription.
      *
@@ -33,6 +36,9 @@ public class PrescriptionWriter {
             throw new IllegalArgumentException("Prescription cannot be null");
         }
 
+        long start = System.nanoTime();
+        DataEvents.OutputFile event = new DataEvents.OutputFile();
+
         // Ensure output directory exists
         File dir = new File(OUTPUT_DIR);
         if (!dir.exists()) {
@@ -73,5 +79,8 @@ public class PrescriptionWriter {
             writer.newLine();
             writer.write("Generated: " + LocalDateTime.now());
         }
+
+        FILE_TIME.recordSince(start);
+        event.finish("prescription", filename, -1);
     }
 }
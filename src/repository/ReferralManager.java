@@ -34,6 +34,9 @@ public class ReferralManager {
     /** Output directory for referral text files */
     private static final String OUTPUT_DIR = "output/referrals";
 
+    /** Time to write one referral file (reported by Metrics) */
+    private static final LatencyHistogram FILE_TIME = Metrics.timer("output.referral");
+
     /**
      * Private constructor.
      * Prevents external instantiation (Singleton enforcement).
@@ -69,7 +72,9 @@ public class ReferralManager {
             throw new IllegalArgumentException("Referral cannot be null");
         }
 
+        long start = System.nanoTime();
         generateReferralTextFile(referral);
+        FILE_TIME.recordSince(start);
     }
 
     /**
@@ -83,6 +88,8 @@ public class ReferralManager {
      */
     private void generateReferralTextFile(Referral referral) throws IOException {
 
+        DataEvents.OutputFile event = new DataEvents.OutputFile();
+
         // Ensure output directory exists
         File dir = new File(OUTPUT_DIR);
         if (!dir.exists()) {
@@ -128,6 +135,8 @@ public class ReferralManager {
             writer.newLine();
             writer.write(referral.getClinicalSummary());
         }
+
+        event.finish("referral", filename, -1);
     }
 
     /**
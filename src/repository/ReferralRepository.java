@@ -2,13 +2,15 @@ package repository;
 
 import model.Referral;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  * ReferralRepository
@@ -18,7 +20,8 @@ import java.util.List;
  * Responsibilities:
  *  - Load referrals from referrals.csv
  *  - Provide access to referral data
- *  - Persist changes back to CSV
+ *  - Keep open referrals in triage order (next case first)
+ *  - Persist changes back to CSV (batched by PersistenceScheduler)
  *
  * PART OF MODEL LAYER (MVC)
  */
@@ -27,9 +30,45 @@ public class ReferralRepository {
     /** In-memory referral list */
     private final List<Referral> referrals = new ArrayList<>();
 
+    /** Case-insensitive referral ID index (kept in sync with the list) */
+    private final IdIndex<Referral> referralById = new IdIndex<>(Referral::getReferralId);
+
+    /** Full-text index over the clinical free-text fields */
+    private final ReferralSearchIndex textIndex = new ReferralSearchIndex();
+
+    /** Open referrals in triage order (urgency, then waiting time) */
+    private final TriageQueue triage = new TriageQueue();
+
     /** CSV source path (set when load() is called) */
     private String sourceFilePath;
 
+    /** Number of CSV (and snapshot) columns */
+    private static final int COLUMNS = 16;
+
+    /** Pools for repeated column values */
+    private static final ColumnDictionary CLINICIAN_IDS = new ColumnDictionary("referral.clinicianId");
+    private static final ColumnDictionary FACILITY_IDS = new ColumnDictionary("referral.facilityId");
+    private static final ColumnDictionary URGENCY_LEVELS = new ColumnDictionary("referral.urgencyLevel");
+    private static final ColumnDictionary STATUSES = new ColumnDictionary("referral.status");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("referral.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("referral.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("referral.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("referral.lookup");
+    private static final LatencyHistogram SEARCH_TIME = Metrics.timer("referral.search");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("referral.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("referral.changes");
+
+    /** Shared background writer that coalesces CSV saves */
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /* =====================================================
        LOAD
        ===================================================== */
@@ -38,45 +77,141 @@ public class ReferralRepository {
      * Loads referrals from CSV into memory.
      */
     public void load(String filePath) throws IOException {
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("referral", "load", referrals.size(), filePath);
+    }
 
-        this.sourceFilePath = filePath; // ✅ IMPORTANT
-        referrals.clear();
+    /**
+     * Reads referrals.csv without changing the repository, so it can
+     * run on a background thread. Pass the rows to install(), or the
+     * result to merge(), afterwards.
+     */
+    public CsvRead<Referral> read(String filePath) throws IOException {
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-
-            String header = br.readLine(); // skip header
-            if (header == null) return;
-
-            String line;
-            while ((line = br.readLine()) != null) {
-
-                String[] cols = line.split(",", -1);
-
-                // Must have at least 16 columns
-                if (cols.length < 16) continue;
-
-                Referral r = new Referral(
-                        cols[0],   // referral_id
-                        cols[1],   // patient_id
-                        cols[2],   // referring_clinician_id
-                        cols[3],   // referred_to_clinician_id
-                        cols[4],   // referring_facility_id
-                        cols[5],   // referred_to_facility_id
-                        cols[6],   // referral_date
-                        cols[7],   // urgency_level
-                        cols[8],   // referral_reason
-                        cols[9],   // clinical_summary
-                        cols[10],  // requested_investigations
-                        cols[11],  // status
-                        cols[12],  // appointment_id
-                        cols[13],  // notes
-                        cols[14],  // created_date
-                        cols[15]   // last_updated
-                );
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
+
+        // Write out queued changes first so a reload never discards them
+        scheduler.flushNow(this);
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
 
-                referrals.add(r); // ✅ correct variable
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Referral> cached =
+                SnapshotStore.read(filePath, COLUMNS, ReferralRepository::fromColumns);
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("referral", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
+
+        List<Referral> rows = new ArrayList<>();
+
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
+
+            if (!t.next()) { // skip header
+                READ_TIME.recordSince(start);
+                event.finish("referral", "read", rows.size(), filePath);
+                return new CsvRead<>(filePath, rows, version, changeCount);
+            }
+
+            while (t.next()) {
+
+                // Must have at least 15 columns (last_updated may be missing)
+                if (t.fieldCount() < 15) continue;
+
+                rows.add(fromColumns(t::field)); // ✅ correct variable
             }
         }
+
+        SnapshotStore.write(filePath, version, rows, COLUMNS, ReferralRepository::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("referral", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory referrals with rows from read() and
+     * rebuilds the ID, text and triage indexes. Listeners see one RELOADED event.
+     */
+    public synchronized void install(String filePath, List<Referral> rows) {
+
+        this.sourceFilePath = filePath; // ✅ IMPORTANT
+        referrals.clear();
+        referrals.addAll(rows);
+
+        referralById.rebuild(referrals);
+        textIndex.rebuild(referrals);
+        triage.rebuild(referrals);
+        diskVersion = FileVersion.of(filePath);
+        changes.reloaded();
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted referrals are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * the CSV while the application is running.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public synchronized RowDelta merge(CsvRead<Referral> read) {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Referral> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        RowDelta delta = RowDelta.merge(referrals, rows, Referral::getReferralId,
+                ReferralRepository::toColumns,
+                new RowDelta.Indexer<Referral>() {
+                    @Override
+                    public void removed(Referral row) {
+                        textIndex.remove(row.getReferralId());
+                        triage.remove(row.getReferralId());
+                    }
+
+                    @Override
+                    public void added(Referral row) {
+                        textIndex.add(row);
+                        triage.add(row);
+                    }
+
+                    @Override
+                    public void replaced(Referral oldRow, Referral newRow) {
+                        added(newRow);
+                    }
+                }, changes);
+        if (!delta.isEmpty()) referralById.rebuild(referrals);
+        MERGE_TIME.recordSince(start);
+        event.finish("referral", "merge", referrals.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
     }
 
     /* =====================================================
@@ -86,22 +221,78 @@ public class ReferralRepository {
     /**
      * Returns all referrals (defensive copy).
      */
-    public List<Referral> getAll() {
+    public synchronized List<Referral> getAll() {
         return new ArrayList<>(referrals);
     }
 
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Referral> view() {
+        return Collections.unmodifiableList(referrals);
+    }
+
     /**
  * Finds a referral by referral ID.
  */
 public Referral getReferralById(String referralId) {
+    long start = System.nanoTime();
+    DataEvents.Lookup event = new DataEvents.Lookup();
+    Referral found = referralById.get(referralId);
+    LOOKUP_TIME.recordSince(start);
+    event.finish("referral", "getReferralById", found == null ? 0 : 1);
+    return found;
+}
 
-    for (Referral r : referrals) {
-        if (r.getReferralId().equalsIgnoreCase(referralId)) {
-            return r;
-        }
+    /**
+     * Searches the reason, clinical summary, requested investigations
+     * and notes of every referral.
+     *
+     * Query syntax: words (all must appear), word prefixes ending in *
+     * (e.g. cardio*) and quoted phrases (e.g. "mri brain").
+     *
+     * @param query search text; case is ignored
+     * @return matching referrals, best match first
+     */
+    public synchronized List<Referral> search(String query) {
+        long start = System.nanoTime();
+        DataEvents.Search event = new DataEvents.Search();
+        List<Referral> found = textIndex.search(query);
+        SEARCH_TIME.recordSince(start);
+        event.finish("referral", query, found.size());
+        return found;
+    }
+
+
+    /* =====================================================
+       TRIAGE
+       ===================================================== */
+
+    /**
+     * The open referral to work next: most urgent first, then the one
+     * waiting longest. Null if every referral is Completed.
+     */
+    public synchronized Referral getNextReferral() {
+        return triage.peek();
+    }
+
+    /**
+     * The first open referrals in triage order (next case first).
+     * Reads them off the triage heap, so the full list is never sorted.
+     *
+     * @param limit maximum number of referrals to return
+     */
+    public synchronized List<Referral> getTriageOrder(int limit) {
+        return triage.top(limit);
+    }
+
+    /**
+     * Number of referrals that are not Completed.
+     */
+    public synchronized int getOpenReferralCount() {
+        return triage.size();
     }
-    return null;
-}
 
 
     /* =====================================================
@@ -111,17 +302,19 @@ public Referral getReferralById(String referralId) {
 /**
  * Adds a new referral.
  */
-public void addReferral(Referral referral) throws IOException {
+public synchronized CompletableFuture<Void> addReferral(Referral referral) {
 
     // Prevent duplicate IDs
-    for (Referral r : referrals) {
-        if (r.getReferralId().equalsIgnoreCase(referral.getReferralId())) {
-            throw new IllegalArgumentException("Referral ID already exists.");
-        }
+    if (referralById.contains(referral.getReferralId())) {
+        throw new IllegalArgumentException("Referral ID already exists.");
     }
 
     referrals.add(referral);
-    saveToCsv();
+    referralById.add(referral);
+    textIndex.add(referral);
+    triage.add(referral);
+    changes.inserted(referrals.size() - 1);
+    return saveToCsv();
 }
 
 
@@ -131,20 +324,23 @@ public void addReferral(Referral referral) throws IOException {
 
     /**
      * Updates an existing referral (matched by referralId).
+     * The row is found through the ID index, so the whole update is
+     * O(1) plus the O(log n) triage re-positioning.
      */
-    public void updateReferral(Referral updated) throws IOException {
+    public synchronized CompletableFuture<Void> updateReferral(Referral updated) {
 
-        for (int i = 0; i < referrals.size(); i++) {
-            if (referrals.get(i).getReferralId()
-                    .equalsIgnoreCase(updated.getReferralId())) {
+        int index = referralById.positionOf(updated.getReferralId());
 
-                referrals.set(i, updated);
-                saveToCsv();
-                return;
-            }
+        if (index < 0) {
+            throw new IllegalArgumentException("Referral not found.");
         }
 
-        throw new IllegalArgumentException("Referral not found.");
+        referrals.set(index, updated);
+        referralById.set(index, updated);
+        textIndex.add(updated);
+        triage.add(updated); // re-positioned if urgency/status changed
+        changes.updated(index);
+        return saveToCsv();
     }
 
     /* =====================================================
@@ -154,16 +350,32 @@ public void addReferral(Referral referral) throws IOException {
     /**
      * Deletes a referral by referral ID.
      */
-    public void deleteReferral(String referralId) throws IOException {
+    public synchronized CompletableFuture<Void> deleteReferral(String referralId) {
 
-        boolean removed = referrals.removeIf(r ->
-                r.getReferralId().equalsIgnoreCase(referralId));
+        int index = referralById.positionOf(referralId);
 
-        if (!removed) {
+        if (index < 0) {
             throw new IllegalArgumentException("Referral not found.");
         }
 
-        saveToCsv();
+        referrals.remove(index);
+        referralById.removeAt(index);
+        textIndex.remove(referralId);
+        triage.remove(referralId);
+        changes.deleted(index);
+        return saveToCsv();
+    }
+
+    /* =====================================================
+       CHANGE LISTENERS
+       ===================================================== */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
     }
 
     /* =====================================================
@@ -172,52 +384,105 @@ public void addReferral(Referral referral) throws IOException {
 
     /**
      * Persists all referrals back to the CSV file.
+     * Marks the repository dirty; the PersistenceScheduler performs the write.
      */
-    private void saveToCsv() throws IOException {
+    private CompletableFuture<Void> saveToCsv() {
 
         if (sourceFilePath == null) {
             throw new IllegalStateException("CSV file path not set. Call load() first.");
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sourceFilePath))) {
-
-            // Header MUST match original CSV
-            writer.write(
-                    "referral_id,patient_id,referring_clinician_id,referred_to_clinician_id," +
-                    "referring_facility_id,referred_to_facility_id,referral_date,urgency_level," +
-                    "referral_reason,clinical_summary,requested_investigations,status," +
-                    "appointment_id,notes,created_date,last_updated"
-            );
-            writer.newLine();
-
-            for (Referral r : referrals) {
-                writer.write(String.join(",",
-                        safe(r.getReferralId()),
-                        safe(r.getPatientId()),
-                        safe(r.getReferringClinicianId()),
-                        safe(r.getReferredToClinicianId()),
-                        safe(r.getReferringFacilityId()),
-                        safe(r.getReferredToFacilityId()),
-                        safe(r.getReferralDate()),
-                        safe(r.getUrgencyLevel()),
-                        safe(r.getReferralReason()),
-                        safe(r.getClinicalSummary()),
-                        safe(r.getRequestedInvestigations()),
-                        safe(r.getStatus()),
-                        safe(r.getAppointmentId()),
-                        safe(r.getNotes()),
-                        safe(r.getCreatedDate()),
-                        safe(r.getLastUpdated())
-                ));
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
+
+    /**
+     * Writes a copy of the referral list (runs on the scheduler thread).
+     */
+    private void writeCsv() throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
+
+        List<Referral> snapshot;
+        String path;
+
+        synchronized (this) {
+            snapshot = new ArrayList<>(referrals);
+            path = sourceFilePath;
+        }
+
+        CsvUtil.writeAtomically(Paths.get(path), tmp -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+
+                // Header MUST match original CSV
+                writer.write(
+                        "referral_id,patient_id,referring_clinician_id,referred_to_clinician_id," +
+                        "referring_facility_id,referred_to_facility_id,referral_date,urgency_level," +
+                        "referral_reason,clinical_summary,requested_investigations,status," +
+                        "appointment_id,notes,created_date,last_updated"
+                );
                 writer.newLine();
+
+                for (Referral r : snapshot) {
+                    CsvUtil.writeRow(writer, toColumns(r));
+                }
             }
-        }
+        });
+
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, ReferralRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("referral", snapshot.size(), path);
+    }
+
+    /**
+     * Builds a referral from CSV (or snapshot) columns.
+     * Values are kept exactly as stored (not trimmed).
+     */
+    private static Referral fromColumns(IntFunction<String> col) {
+        return new Referral(
+                col.apply(0),   // referral_id
+                col.apply(1),   // patient_id
+                CLINICIAN_IDS.canonical(col.apply(2)),  // referring_clinician_id
+                CLINICIAN_IDS.canonical(col.apply(3)),  // referred_to_clinician_id
+                FACILITY_IDS.canonical(col.apply(4)),   // referring_facility_id
+                FACILITY_IDS.canonical(col.apply(5)),   // referred_to_facility_id
+                col.apply(6),                           // referral_date
+                URGENCY_LEVELS.canonical(col.apply(7)), // urgency_level
+                col.apply(8),                           // referral_reason
+                col.apply(9),                           // clinical_summary
+                col.apply(10),                          // requested_investigations
+                STATUSES.canonical(col.apply(11)),      // status
+                col.apply(12),  // appointment_id
+                col.apply(13),  // notes
+                col.apply(14),  // created_date
+                col.apply(15)   // last_updated ("" if missing)
+        );
     }
 
     /**
-     * Prevents commas from breaking CSV structure.
+     * Column values for one referral, in CSV order.
      */
-    private String safe(String value) {
-        return value == null ? "" : value.replace(",", " ");
+    private static String[] toColumns(Referral r) {
+        return new String[]{
+                r.getReferralId(),
+                r.getPatientId(),
+                r.getReferringClinicianId(),
+                r.getReferredToClinicianId(),
+                r.getReferringFacilityId(),
+                r.getReferredToFacilityId(),
+                r.getReferralDate(),
+                r.getUrgencyLevel(),
+                r.getReferralReason(),
+                r.getClinicalSummary(),
+                r.getRequestedInvestigations(),
+                r.getStatus(),
+                r.getAppointmentId(),
+                r.getNotes(),
+                r.getCreatedDate(),
+                r.getLastUpdated()
+        };
     }
 }
@@ -0,0 +1,407 @@
+package repository;
+
+import model.Appointment;
+import model.Clinician;
+import model.Facility;
+import model.Referral;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReferralRouter
+ * --------------
+ * Suggests where a referral should go: ranked facility / clinician
+ * pairs for a speciality and urgency.
+ *
+ * INDEX (rebuilt lazily after any facility, clinician, referral or
+ * appointment change):
+ *  - speciality -> facilities offering it (Facility.specialitiesOffered,
+ *    pipe-separated) plus facilities where a clinician of that
+ *    speciality has already received referrals or held appointments
+ *  - speciality -> clinicians (Clinician.specialty)
+ *  - open (not Completed) referrals per facility and per clinician
+ *  - clinician/facility pairs seen together in the data ("affinity")
+ *
+ * SCORE (higher is better):
+ *    urgencyWeight * facility headroom     (capacity left, 0..1)
+ *  + clinician headroom                    (1 / (1 + open referrals))
+ *  + 1 if the clinician already works with the facility
+ *
+ * Urgent referrals weight free capacity most (Emergency 5, Urgent 3,
+ * Routine 1, Non-urgent 0.5; see Urgency), so they go where they can
+ * be seen soonest; routine ones favour continuity with known
+ * clinician/facility pairs.
+ *
+ * The best k pairs are kept in a bounded priority queue, so a query
+ * is a handful of map lookups and comparisons (well under a millisecond).
+ *
+ * NOTE:
+ *  - Thread-safe: queries read an immutable index snapshot
+ *  - NO GUI code
+ */
+public class ReferralRouter {
+
+    /** Status that no longer counts towards a facility's load */
+    private static final String CLOSED_STATUS = "Completed";
+
+    private final FacilityRepository facilityRepository;
+    private final ClinicianRepository clinicianRepository;
+    private final ReferralRepository referralRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    /** Current index; null once a repository has changed */
+    private volatile Index index;
+
+    /** Bumped on every repository change, to spot one during build() */
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReferralRouter(FacilityRepository facilityRepository,
+                          ClinicianRepository clinicianRepository,
+                          ReferralRepository referralRepository,
+                          AppointmentRepository appointmentRepository) {
+
+        this.facilityRepository = facilityRepository;
+        this.clinicianRepository = clinicianRepository;
+        this.referralRepository = referralRepository;
+        this.appointmentRepository = appointmentRepository;
+
+        RepositoryListener invalidate = (change, first, last) -> {
+            generation.incrementAndGet();
+            index = null;
+        };
+        facilityRepository.addListener(invalidate);
+        clinicianRepository.addListener(invalidate);
+        referralRepository.addListener(invalidate);
+        appointmentRepository.addListener(invalidate);
+    }
+
+    /* =====================================================
+       RESULT
+       ===================================================== */
+
+    /**
+     * One suggested destination.
+     */
+    public static final class Candidate {
+
+        private final Facility facility;
+        private final Clinician clinician;
+        private final double score;
+        private final int openReferrals;
+
+        Candidate(Facility facility, Clinician clinician, double score, int openReferrals) {
+            this.facility = facility;
+            this.clinician = clinician;
+            this.score = score;
+            this.openReferrals = openReferrals;
+        }
+
+        public Facility getFacility() {
+            return facility;
+        }
+
+        /** Clinician of the speciality, or null if none is known */
+        public Clinician getClinician() {
+            return clinician;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        /** Open referrals at the facility when the suggestion was made */
+        public int getOpenReferrals() {
+            return openReferrals;
+        }
+
+        @Override
+        public String toString() {
+            return facility.getFacilityId() + " " + facility.getFacilityName()
+                    + " / " + (clinician == null ? "(no clinician)"
+                            : clinician.getClinicianId() + " " + clinician.getName())
+                    + String.format(" - %d open, score %.2f", openReferrals, score);
+        }
+    }
+
+    /* =====================================================
+       QUERIES
+       ===================================================== */
+
+    /**
+     * Ranks facility / clinician pairs for a new referral.
+     *
+     * @param speciality e.g. "Cardiology" (case-insensitive)
+     * @param urgency    Emergency, Urgent, Routine or Non-urgent
+     * @param limit      maximum number of candidates
+     * @return best first; empty if nothing offers the speciality
+     */
+    public List<Candidate> route(String speciality, String urgency, int limit) {
+        return currentIndex().rank(key(speciality), urgencyWeight(urgency), limit);
+    }
+
+    /**
+     * Specialities that can be routed, sorted by name.
+     */
+    public List<String> getSpecialities() {
+        return currentIndex().specialities;
+    }
+
+    /**
+     * Speciality an existing referral was sent for (the referred-to
+     * clinician's speciality), or null if unknown.
+     */
+    public String specialityOf(Referral referral) {
+        Clinician target = clinicianRepository.findById(referral.getReferredToClinicianId());
+        return target == null ? null : target.getSpecialty();
+    }
+
+    /**
+     * Routes a backlog of referrals.
+     *
+     * Candidates for every referral are ranked in parallel against the
+     * same snapshot; the referrals are then assigned one at a time,
+     * most urgent first, each assignment counting towards the load
+     * seen by the next, so a backlog is spread over the facilities
+     * instead of all going to the one with most room.
+     *
+     * @return referral ID -> chosen destination (referrals whose
+     *         speciality cannot be routed are left out)
+     */
+    public Map<String, Candidate> routeAll(List<Referral> backlog) {
+
+        Index idx = currentIndex();
+
+        // Look specialities up first (findById takes the repository's lock)
+        Map<Referral, String> specialities = new LinkedHashMap<>();
+        for (Referral r : backlog) {
+            String speciality = specialityOf(r);
+            if (speciality != null) specialities.put(r, key(speciality));
+        }
+
+        // 1. Rank in parallel (the index snapshot is read-only)
+        Map<String, List<Candidate>> ranked = new ConcurrentHashMap<>();
+        specialities.entrySet().parallelStream().forEach(e -> {
+            Referral r = e.getKey();
+            List<Candidate> options = idx.rank(e.getValue(), urgencyWeight(r.getUrgencyLevel()),
+                    Integer.MAX_VALUE);
+            if (!options.isEmpty()) ranked.put(r.getReferralId(), options);
+        });
+
+        // 2. Assign, most urgent first, re-scoring with the load added so far
+        List<Referral> order = new ArrayList<>(backlog);
+        order.sort(Comparator.comparingDouble((Referral r) -> -urgencyWeight(r.getUrgencyLevel()))
+                .thenComparing(Referral::getReferralId));
+
+        Map<String, Integer> added = new HashMap<>();
+        Map<String, Candidate> result = new LinkedHashMap<>();
+
+        for (Referral r : order) {
+            List<Candidate> options = ranked.get(r.getReferralId());
+            if (options == null) continue;
+
+            double weight = urgencyWeight(r.getUrgencyLevel());
+            Candidate chosen = null;
+
+            for (Candidate c : options) {
+                int extra = added.getOrDefault(IdIndex.key(c.getFacility().getFacilityId()), 0);
+                int capacity = c.getFacility().getCapacity();
+                double lostHeadroom = headroom(capacity, c.getOpenReferrals())
+                        - headroom(capacity, c.getOpenReferrals() + extra);
+
+                Candidate adjusted = new Candidate(c.getFacility(), c.getClinician(),
+                        c.getScore() - weight * lostHeadroom, c.getOpenReferrals() + extra);
+                if (chosen == null || adjusted.getScore() > chosen.getScore()) chosen = adjusted;
+            }
+
+            result.put(r.getReferralId(), chosen);
+            added.merge(IdIndex.key(chosen.getFacility().getFacilityId()), 1, Integer::sum);
+        }
+        return result;
+    }
+
+    /* =====================================================
+       INDEX
+       ===================================================== */
+
+    private Index currentIndex() {
+        Index idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    long seen = generation.get();
+                    idx = build();
+                    // Changed while building: use it for this call only
+                    if (generation.get() == seen) index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Builds the index from copies of the repositories' lists (each
+     * taken under that repository's lock), so it can run off the EDT.
+     */
+    private Index build() {
+
+        Index idx = new Index();
+
+        for (Facility f : facilityRepository.getAll()) {
+            idx.facilityById.put(IdIndex.key(f.getFacilityId()), f);
+            String offered = f.getSpecialitiesOffered();
+            if (offered == null) continue;
+            for (String s : offered.split("\\|")) {
+                if (!s.isBlank()) idx.addFacility(s, f);
+            }
+        }
+
+        Map<String, Clinician> clinicianById = new HashMap<>();
+        for (Clinician c : clinicianRepository.getAll()) {
+            clinicianById.put(IdIndex.key(c.getClinicianId()), c);
+            if (c.getSpecialty() != null && !c.getSpecialty().isBlank()) {
+                idx.cliniciansBySpeciality.computeIfAbsent(key(c.getSpecialty()), k -> new ArrayList<>()).add(c);
+                idx.displayName.putIfAbsent(key(c.getSpecialty()), c.getSpecialty().trim());
+            }
+        }
+
+        for (Referral r : referralRepository.getAll()) {
+            idx.link(r.getReferredToClinicianId(), r.getReferredToFacilityId(), clinicianById);
+            if (!CLOSED_STATUS.equalsIgnoreCase(r.getStatus())) {
+                idx.openByFacility.merge(IdIndex.key(r.getReferredToFacilityId()), 1, Integer::sum);
+                idx.openByClinician.merge(IdIndex.key(r.getReferredToClinicianId()), 1, Integer::sum);
+            }
+        }
+
+        for (Appointment a : appointmentRepository.getAll()) {
+            idx.link(a.getClinicianId(), a.getFacilityId(), clinicianById);
+        }
+
+        idx.specialities = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(idx.displayName.values())));
+        return idx;
+    }
+
+    /**
+     * Immutable (after build) routing data.
+     */
+    private static final class Index {
+
+        final Map<String, Facility> facilityById = new HashMap<>();
+        final Map<String, Set<Facility>> facilitiesBySpeciality = new HashMap<>();
+        final Map<String, List<Clinician>> cliniciansBySpeciality = new HashMap<>();
+        final Map<String, Integer> openByFacility = new HashMap<>();
+        final Map<String, Integer> openByClinician = new HashMap<>();
+
+        /** "CLINICIAN|FACILITY" keys seen together in referrals/appointments */
+        final Set<String> affinity = new HashSet<>();
+
+        /** speciality key -> name as first written in the data */
+        final Map<String, String> displayName = new HashMap<>();
+
+        List<String> specialities = Collections.emptyList();
+
+        void addFacility(String speciality, Facility f) {
+            facilitiesBySpeciality.computeIfAbsent(key(speciality), k -> new LinkedHashSet<>()).add(f);
+            displayName.putIfAbsent(key(speciality), speciality.trim());
+        }
+
+        /** Records that a clinician works with a facility (and so offers their speciality there). */
+        void link(String clinicianId, String facilityId, Map<String, Clinician> clinicianById) {
+            Clinician c = clinicianById.get(IdIndex.key(clinicianId));
+            Facility f = facilityById.get(IdIndex.key(facilityId));
+            if (c == null || f == null) return;
+
+            affinity.add(IdIndex.key(clinicianId) + "|" + IdIndex.key(facilityId));
+            if (c.getSpecialty() != null && !c.getSpecialty().isBlank()) {
+                addFacility(c.getSpecialty(), f);
+            }
+        }
+
+        /**
+         * Best {@code limit} pairs for a speciality.
+         */
+        List<Candidate> rank(String speciality, double urgencyWeight, int limit) {
+
+            Set<Facility> facilities = facilitiesBySpeciality.get(speciality);
+            if (facilities == null || limit <= 0) return new ArrayList<>();
+
+            List<Clinician> clinicians = cliniciansBySpeciality.getOrDefault(speciality, Collections.emptyList());
+
+            // Min-heap of the best candidates so far (worst on top)
+            PriorityQueue<Candidate> best = new PriorityQueue<>(
+                    Comparator.comparingDouble(Candidate::getScore));
+
+            for (Facility f : facilities) {
+
+                String fKey = IdIndex.key(f.getFacilityId());
+                int open = openByFacility.getOrDefault(fKey, 0);
+                double facilityScore = urgencyWeight * headroom(f.getCapacity(), open);
+
+                // Prefer clinicians already working with this facility
+                List<Clinician> here = new ArrayList<>();
+                for (Clinician c : clinicians) {
+                    if (affinity.contains(IdIndex.key(c.getClinicianId()) + "|" + fKey)) here.add(c);
+                }
+                boolean linked = !here.isEmpty();
+                if (!linked) here = clinicians;
+
+                if (here.isEmpty()) {
+                    offer(best, new Candidate(f, null, facilityScore, open), limit);
+                }
+                for (Clinician c : here) {
+                    int clinicianOpen = openByClinician.getOrDefault(IdIndex.key(c.getClinicianId()), 0);
+                    double score = facilityScore + 1.0 / (1 + clinicianOpen) + (linked ? 1 : 0);
+                    offer(best, new Candidate(f, c, score, open), limit);
+                }
+            }
+
+            List<Candidate> result = new ArrayList<>(best);
+            result.sort(Comparator.comparingDouble(Candidate::getScore).reversed()
+                    .thenComparing(c -> c.getFacility().getFacilityId()));
+            return result;
+        }
+
+        private static void offer(PriorityQueue<Candidate> best, Candidate c, int limit) {
+            if (best.size() < limit) {
+                best.add(c);
+            } else if (c.getScore() > best.peek().getScore()) {
+                best.poll();
+                best.add(c);
+            }
+        }
+    }
+
+    /* =====================================================
+       HELPERS
+       ===================================================== */
+
+    /** Share of a facility's capacity still free (0..1). */
+    private static double headroom(int capacity, int open) {
+        return capacity <= 0 ? 0 : Math.max(0, capacity - open) / (double) capacity;
+    }
+
+    private static String key(String speciality) {
+        return speciality == null ? "" : speciality.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * How strongly free capacity counts for an urgency level.
+     */
+    static double urgencyWeight(String urgency) {
+        return Urgency.of(urgency).routingWeight;
+    }
+}
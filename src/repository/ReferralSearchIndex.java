@@ -0,0 +1,321 @@
+package repository;
+
+import model.Referral;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * ReferralSearchIndex
+ * -------------------
+ * In-memory inverted index over the free-text fields of referrals:
+ * reason, clinical summary, requested investigations and notes.
+ *
+ * TOKENISATION:
+ *  Text is lower-cased and split into runs of letters/digits, so
+ *  "MRI Brain," becomes [mri, brain].
+ *
+ * POSTINGS:
+ *  term -> (referral -> positions of the term in that referral)
+ *  Terms are kept sorted (TreeMap) so prefix queries are a range scan.
+ *  Positions restart with a gap at each field, so a phrase never
+ *  matches across two fields.
+ *
+ * QUERY SYNTAX (all parts must match):
+ *  murmur           word
+ *  cardio*          word prefix
+ *  "mri brain"      exact phrase
+ *  MRI Brain        both words, anywhere
+ *
+ * Results are ranked by number of matching occurrences, then referral ID.
+ *
+ * NOTE:
+ *  - Owned by ReferralRepository, which updates it on every change
+ *  - Not thread-safe on its own; guarded by the repository
+ */
+final class ReferralSearchIndex {
+
+    /** Gap between fields so phrases cannot span them */
+    private static final int FIELD_GAP = 2;
+
+    /** term -> referral key -> sorted positions */
+    private final NavigableMap<String, Map<String, int[]>> postings = new TreeMap<>();
+
+    /** referral key -> indexed referral */
+    private final Map<String, Referral> documents = new HashMap<>();
+
+    /** referral key -> its distinct terms (needed for removal) */
+    private final Map<String, Set<String>> termsByDocument = new HashMap<>();
+
+    /* =====================================================
+       MAINTENANCE
+       ===================================================== */
+
+    /**
+     * Indexes a referral, replacing any earlier version with the same ID.
+     */
+    void add(Referral referral) {
+
+        String key = IdIndex.key(referral.getReferralId());
+        remove(key);
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        int position = 0;
+
+        for (String field : new String[]{
+                referral.getReferralReason(),
+                referral.getClinicalSummary(),
+                referral.getRequestedInvestigations(),
+                referral.getNotes()}) {
+
+            for (String term : tokenize(field)) {
+                positions.computeIfAbsent(term, t -> new ArrayList<>()).add(position++);
+            }
+            position += FIELD_GAP;
+        }
+
+        for (Map.Entry<String, List<Integer>> e : positions.entrySet()) {
+            int[] list = new int[e.getValue().size()];
+            for (int i = 0; i < list.length; i++) list[i] = e.getValue().get(i);
+
+            postings.computeIfAbsent(e.getKey(), t -> new HashMap<>()).put(key, list);
+        }
+
+        documents.put(key, referral);
+        termsByDocument.put(key, positions.keySet());
+    }
+
+    /**
+     * Removes a referral from the index (no-op if not indexed).
+     */
+    void remove(String referralId) {
+
+        String key = IdIndex.key(referralId);
+        Set<String> terms = termsByDocument.remove(key);
+        documents.remove(key);
+
+        if (terms == null) return;
+
+        for (String term : terms) {
+            Map<String, int[]> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(key);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    /**
+     * Re-indexes all referrals (after a load).
+     */
+    void rebuild(Collection<Referral> referrals) {
+        postings.clear();
+        documents.clear();
+        termsByDocument.clear();
+        for (Referral r : referrals) {
+            add(r);
+        }
+    }
+
+    /* =====================================================
+       SEARCH
+       ===================================================== */
+
+    /**
+     * Runs a query (see class comment for syntax).
+     *
+     * @return matching referrals, best match first; empty for a blank query
+     */
+    List<Referral> search(String query) {
+
+        List<String> clauses = parse(query);
+        if (clauses.isEmpty()) return new ArrayList<>();
+
+        // Score per referral key; null until the first clause is applied
+        Map<String, Integer> scores = null;
+
+        for (String clause : clauses) {
+
+            Map<String, Integer> hits;
+            if (clause.startsWith("\"")) {
+                hits = phrase(tokenize(clause));
+            } else if (clause.endsWith("*")) {
+                hits = prefix(clause.substring(0, clause.length() - 1));
+            } else {
+                hits = term(clause);
+            }
+
+            if (scores == null) {
+                scores = hits;
+            } else {
+                // AND: keep referrals matched by every clause
+                Map<String, Integer> both = new HashMap<>();
+                for (Map.Entry<String, Integer> e : scores.entrySet()) {
+                    Integer more = hits.get(e.getKey());
+                    if (more != null) both.put(e.getKey(), e.getValue() + more);
+                }
+                scores = both;
+            }
+
+            if (scores.isEmpty()) break;
+        }
+
+        Map<String, Integer> finalScores = scores;
+        List<String> keys = new ArrayList<>(finalScores.keySet());
+        keys.sort((a, b) -> {
+            int byScore = Integer.compare(finalScores.get(b), finalScores.get(a));
+            return byScore != 0 ? byScore : a.compareTo(b);
+        });
+
+        List<Referral> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(documents.get(key));
+        }
+        return result;
+    }
+
+    /** Referrals containing a word (already tokenised), scored by occurrences. */
+    private Map<String, Integer> term(String word) {
+
+        Map<String, Integer> hits = new HashMap<>();
+        Map<String, int[]> docs = postings.get(word);
+        if (docs != null) {
+            for (Map.Entry<String, int[]> e : docs.entrySet()) {
+                hits.put(e.getKey(), e.getValue().length);
+            }
+        }
+        return hits;
+    }
+
+    /** Referrals containing any word that starts with the prefix. */
+    private Map<String, Integer> prefix(String prefix) {
+
+        Map<String, Integer> hits = new HashMap<>();
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty()) return hits;
+
+        String p = tokens.get(0);
+        for (Map<String, int[]> docs : postings.subMap(p, true, p + Character.MAX_VALUE, false).values()) {
+            for (Map.Entry<String, int[]> e : docs.entrySet()) {
+                hits.merge(e.getKey(), e.getValue().length, Integer::sum);
+            }
+        }
+        return hits;
+    }
+
+    /** Referrals containing the words next to each other, in order. */
+    private Map<String, Integer> phrase(List<String> words) {
+
+        Map<String, Integer> hits = new HashMap<>();
+        if (words.isEmpty()) return hits;
+
+        List<Map<String, int[]>> lists = new ArrayList<>();
+        for (String w : words) {
+            Map<String, int[]> docs = postings.get(w);
+            if (docs == null) return hits;
+            lists.add(docs);
+        }
+
+        // Only referrals containing the rarest word can match
+        Map<String, int[]> rarest = lists.get(0);
+        for (Map<String, int[]> docs : lists) {
+            if (docs.size() < rarest.size()) rarest = docs;
+        }
+
+        for (String key : rarest.keySet()) {
+            int[] starts = lists.get(0).get(key);
+            if (starts == null) continue;
+
+            int count = 0;
+            for (int start : starts) {
+                boolean match = true;
+                for (int i = 1; i < lists.size() && match; i++) {
+                    int[] next = lists.get(i).get(key);
+                    match = next != null && Arrays.binarySearch(next, start + i) >= 0;
+                }
+                if (match) count++;
+            }
+
+            if (count > 0) hits.put(key, count);
+        }
+        return hits;
+    }
+
+    /* =====================================================
+       TEXT HANDLING
+       ===================================================== */
+
+    /**
+     * Splits text into lower-case letter/digit tokens.
+     */
+    static List<String> tokenize(String text) {
+
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits a query into clauses: quoted phrases (kept with their
+     * opening quote) and single words / prefixes.
+     */
+    private static List<String> parse(String query) {
+
+        List<String> clauses = new ArrayList<>();
+        if (query == null) return clauses;
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) end = query.length();
+                String phrase = query.substring(i + 1, end);
+                if (!tokenize(phrase).isEmpty()) clauses.add("\"" + phrase);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))
+                        && query.charAt(end) != '"') {
+                    end++;
+                }
+                // A word such as "follow-up" becomes a phrase of its parts
+                String word = query.substring(i, end);
+                boolean isPrefix = word.endsWith("*");
+                List<String> parts = tokenize(word);
+                if (parts.size() > 1 && !isPrefix) {
+                    clauses.add("\"" + word);
+                } else if (!parts.isEmpty()) {
+                    clauses.add(isPrefix ? parts.get(parts.size() - 1) + "*" : parts.get(0));
+                    for (int p = 0; isPrefix && p < parts.size() - 1; p++) {
+                        clauses.add(parts.get(p));
+                    }
+                }
+                i = end;
+            }
+        }
+
+        return clauses;
+    }
+}
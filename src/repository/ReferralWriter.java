@@ -3,6 +3,7 @@ package repository;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 /**
  * ReferralWriter
@@ -13,13 +14,22 @@ public class ReferralWriter {
 
     private static final String OUTPUT_FILE = "referral_notifications.txt";
 
+    /** Time to append one notification (reported by Metrics) */
+    private static final LatencyHistogram FILE_TIME = Metrics.timer("output.referralEmail");
+
     public static void writeReferralEmail(String content) throws IOException {
 
+        long start = System.nanoTime();
+        DataEvents.OutputFile event = new DataEvents.OutputFile();
+
         try (BufferedWriter writer = new BufferedWriter(
                 new FileWriter(OUTPUT_FILE, true))) {
 
             writer.write(content);
         }
+
+        FILE_TIME.recordSince(start);
+        event.finish("referralEmail", OUTPUT_FILE, content.getBytes(Charset.defaultCharset()).length);
     }
 
     
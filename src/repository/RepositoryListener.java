@@ -0,0 +1,31 @@
+package repository;
+
+/**
+ * RepositoryListener
+ * ------------------
+ * Notified when the records held by a repository change.
+ *
+ * Row numbers are positions in the repository's view() list, so a
+ * table model can repaint just the affected rows instead of copying
+ * the whole list again.
+ *
+ * NOTE:
+ *  - Called on the thread that made the change (normally the EDT)
+ *  - Swing listeners must hand work to the EDT themselves if not
+ */
+public interface RepositoryListener {
+
+    /** Kind of change */
+    enum Change {
+        /** Rows firstRow..lastRow were added */
+        INSERTED,
+        /** Rows firstRow..lastRow were replaced or edited */
+        UPDATED,
+        /** Rows firstRow..lastRow were removed (positions before removal) */
+        DELETED,
+        /** Everything may have changed (e.g. after load()); rows are -1 */
+        RELOADED
+    }
+
+    void repositoryChanged(Change change, int firstRow, int lastRow);
+}
@@ -0,0 +1,152 @@
+package repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * RowDelta
+ * --------
+ * Row-level difference between a repository's in-memory list and a
+ * freshly read copy of its CSV, matched by primary key.
+ *
+ * merge() applies only what changed:
+ *  - rows whose key is no longer in the file are deleted
+ *  - rows whose columns differ are replaced in place
+ *  - rows with a new key are appended
+ * and fires one fine-grained change event per row, so open tables
+ * update in place instead of being rebuilt.
+ *
+ * Keys are compared with IdIndex.key() (case-insensitive, trimmed).
+ * Row contents are compared by their CSV columns, so two rows that
+ * would be written identically count as unchanged.
+ *
+ * NOTE:
+ *  - Called by the owning repository while it holds its own lock
+ */
+public final class RowDelta {
+
+    /**
+     * Keeps a repository's extra indexes in step with the list.
+     */
+    interface Indexer<T> {
+        void removed(T row);
+        void added(T row);
+        void replaced(T oldRow, T newRow);
+    }
+
+    private final int inserted;
+    private final int updated;
+    private final int deleted;
+
+    private RowDelta(int inserted, int updated, int deleted) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /** True if the file matched the in-memory rows exactly. */
+    public boolean isEmpty() {
+        return inserted == 0 && updated == 0 && deleted == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "+" + inserted + " ~" + updated + " -" + deleted;
+    }
+
+    /**
+     * Brings {@code current} in line with {@code incoming}.
+     *
+     * @param current  the repository's live list (changed in place)
+     * @param incoming rows just read from disk (a later duplicate key wins)
+     * @param idOf     primary key of a row
+     * @param columns  CSV columns of a row, used to detect changes
+     * @param indexer  updates the repository's indexes
+     * @param changes  receives one event per changed row
+     */
+    static <T> RowDelta merge(List<T> current, List<T> incoming,
+                              Function<T, String> idOf,
+                              Function<T, String[]> columns,
+                              Indexer<T> indexer,
+                              ChangeSupport changes) {
+
+        Map<String, T> wanted = new LinkedHashMap<>();
+        for (T row : incoming) {
+            wanted.put(IdIndex.key(idOf.apply(row)), row);
+        }
+
+        // 1. Deletes, back to front so earlier row numbers stay valid
+        int deleted = 0;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            T row = current.get(i);
+            if (!wanted.containsKey(IdIndex.key(idOf.apply(row)))) {
+                current.remove(i);
+                indexer.removed(row);
+                changes.deleted(i);
+                deleted++;
+            }
+        }
+
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            position.put(IdIndex.key(idOf.apply(current.get(i))), i);
+        }
+
+        // 2. Updates in place, 3. inserts at the end (file order)
+        int updated = 0;
+        int inserted = 0;
+        for (Map.Entry<String, T> e : wanted.entrySet()) {
+
+            T row = e.getValue();
+            Integer i = position.get(e.getKey());
+
+            if (i == null) {
+                current.add(row);
+                indexer.added(row);
+                changes.inserted(current.size() - 1);
+                inserted++;
+
+            } else {
+                T old = current.get(i);
+                if (!Arrays.equals(columns.apply(old), columns.apply(row))) {
+                    current.set(i, row);
+                    indexer.replaced(old, row);
+                    changes.updated(i);
+                    updated++;
+                }
+            }
+        }
+
+        return new RowDelta(inserted, updated, deleted);
+    }
+
+    /** Indexer for repositories without indexes. */
+    static <T> Indexer<T> none() {
+        return new Indexer<T>() {
+            @Override
+            public void removed(T row) { }
+
+            @Override
+            public void added(T row) { }
+
+            @Override
+            public void replaced(T oldRow, T newRow) { }
+        };
+    }
+}
@@ -0,0 +1,348 @@
+package repository;
+
+import model.Appointment;
+import model.Facility;
+import model.TemporalCodec;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SlotAllocator
+ * -------------
+ * Scheduling engine: the first free slot of a given length for a
+ * clinician at a facility, and whether a booking fits the facility's
+ * opening hours. (Double bookings are rejected by AppointmentRepository.)
+ *
+ * BITMAPS:
+ *  A day is 288 five-minute slots, stored as 5 longs. For every
+ *  clinician and day with appointments there is one "booked" bitmap of
+ *  the slots covered by at least one appointment. Each facility's
+ *  opening hours are turned into one "open" bitmap per weekday
+ *  (see OpeningHours).
+ *
+ * So the free slots of a day are open & ~booked, searched a run at a
+ * time with word-wide operations.
+ *
+ * DURATION:
+ *  appointments.csv keeps each appointment's length in minutes in its
+ *  status column (15, 20, 30 ...); the add / edit forms write the
+ *  chosen length there. Any other value counts as DEFAULT_DURATION.
+ *
+ * The bitmaps are rebuilt lazily after any appointment or facility
+ * change (one pass over the appointments), like ReferralRouter.
+ *
+ * NOTE:
+ *  - Thread-safe: queries read an immutable snapshot
+ *  - Appointments without a valid date and time take no slots
+ *  - NO GUI code
+ */
+public class SlotAllocator {
+
+    /** Length of one slot */
+    public static final int SLOT_MINUTES = 5;
+
+    /** Length assumed when an appointment does not record one */
+    public static final int DEFAULT_DURATION = 15;
+
+    /** How far ahead findFirstFree() looks */
+    public static final int MAX_SEARCH_DAYS = 366;
+
+    static final int SLOTS_PER_DAY = TemporalCodec.MINUTES_PER_DAY / SLOT_MINUTES;
+    static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    /** Longest appointment length accepted from the data (a whole day) */
+    private static final int MAX_DURATION = TemporalCodec.MINUTES_PER_DAY;
+
+    private static final long[] EMPTY_DAY = new long[WORDS_PER_DAY];
+
+    private final AppointmentRepository appointmentRepository;
+    private final FacilityRepository facilityRepository;
+
+    /** Current bitmaps; null once a repository has changed */
+    private volatile Index index;
+
+    public SlotAllocator(AppointmentRepository appointmentRepository,
+                         FacilityRepository facilityRepository) {
+
+        this.appointmentRepository = appointmentRepository;
+        this.facilityRepository = facilityRepository;
+
+        RepositoryListener invalidate = (change, first, last) -> index = null;
+        appointmentRepository.addListener(invalidate);
+        facilityRepository.addListener(invalidate);
+    }
+
+    /* =====================================================
+       RESULT
+       ===================================================== */
+
+    /**
+     * A free start time.
+     */
+    public static final class Slot {
+
+        private final int day;
+        private final int minute;
+        private final int duration;
+
+        Slot(int day, int minute, int duration) {
+            this.day = day;
+            this.minute = minute;
+            this.duration = duration;
+        }
+
+        /** Epoch day */
+        public int getDay() {
+            return day;
+        }
+
+        /** Minute of day */
+        public int getMinute() {
+            return minute;
+        }
+
+        public int getDuration() {
+            return duration;
+        }
+
+        /** yyyy-MM-dd, as stored in appointments.csv */
+        public String getDate() {
+            return TemporalCodec.formatDate(day);
+        }
+
+        /** HH:mm, as stored in appointments.csv */
+        public String getTime() {
+            return TemporalCodec.formatTime(minute);
+        }
+
+        @Override
+        public String toString() {
+            return getDate() + " " + getTime() + " (" + duration + " min)";
+        }
+    }
+
+    /* =====================================================
+       QUERIES
+       ===================================================== */
+
+    /**
+     * First time a clinician is free for a whole appointment while the
+     * facility is open.
+     *
+     * @param clinicianId clinician to book
+     * @param facilityId  where (its opening hours apply; unknown = DEFAULT_HOURS)
+     * @param fromDay     first epoch day to search
+     * @param fromMinute  earliest minute on fromDay (0 = whole day)
+     * @param duration    appointment length in minutes
+     * @return the slot, or null if none within MAX_SEARCH_DAYS
+     */
+    public Slot findFirstFree(String clinicianId, String facilityId,
+                              int fromDay, int fromMinute, int duration) {
+
+        if (fromDay == TemporalCodec.NONE) {
+            throw new IllegalArgumentException("Search date is not a valid date.");
+        }
+        if (duration <= 0 || duration > MAX_DURATION) {
+            throw new IllegalArgumentException("Duration must be 1 to " + MAX_DURATION + " minutes.");
+        }
+
+        Index idx = currentIndex();
+        OpeningHours hours = idx.hoursOf(facilityId);
+        Map<Integer, Day> days = idx.days(clinicianId);
+
+        int needed = slotCount(0, duration);
+        long[] free = new long[WORDS_PER_DAY];
+
+        for (int day = fromDay; day < fromDay + MAX_SEARCH_DAYS; day++) {
+
+            if (!hours.isOpenOn(day)) continue;
+
+            long[] open = hours.openSlots(day);
+            Day booked = days.get(day);
+            long[] taken = booked == null ? EMPTY_DAY : booked.booked;
+
+            for (int w = 0; w < WORDS_PER_DAY; w++) {
+                free[w] = open[w] & ~taken[w];
+            }
+
+            int startSlot = day == fromDay
+                    ? (Math.max(0, fromMinute) + SLOT_MINUTES - 1) / SLOT_MINUTES
+                    : 0;
+
+            int slot = findRun(free, startSlot, needed);
+            if (slot >= 0) return new Slot(day, slot * SLOT_MINUTES, duration);
+        }
+        return null;
+    }
+
+    /**
+     * True if the facility's opening hours cover the whole appointment.
+     */
+    public boolean isWithinOpeningHours(String facilityId, int day, int minute, int duration) {
+
+        if (day == TemporalCodec.NONE || minute == TemporalCodec.NONE) return false;
+
+        long[] open = currentIndex().hoursOf(facilityId).openSlots(day);
+        int first = minute / SLOT_MINUTES;
+        return findRun(open, first, slotCount(minute, duration)) == first;
+    }
+
+    /**
+     * Length of an appointment in minutes, read from its status column
+     * (see DURATION above).
+     */
+    public static int durationOf(Appointment appointment) {
+
+        String value = appointment.getStatus();
+        if (value == null) return DEFAULT_DURATION;
+
+        try {
+            int minutes = Integer.parseInt(value.trim());
+            return minutes > 0 && minutes <= MAX_DURATION ? minutes : DEFAULT_DURATION;
+        } catch (NumberFormatException e) {
+            return DEFAULT_DURATION;
+        }
+    }
+
+    /* =====================================================
+       INDEX
+       ===================================================== */
+
+    private Index currentIndex() {
+        Index idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    idx = build();
+                    index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
+    private Index build() {
+
+        Index idx = new Index();
+
+        for (Facility f : facilityRepository.getAll()) {
+            idx.hoursByFacility.put(IdIndex.key(f.getFacilityId()), OpeningHours.parse(f.getOpeningHours()));
+        }
+
+        long[] slots = new long[WORDS_PER_DAY];
+
+        for (Appointment a : appointmentRepository.getAll()) {
+
+            int day = a.getAppointmentDay();
+            int minute = a.getAppointmentMinute();
+            if (day == TemporalCodec.NONE || minute == TemporalCodec.NONE) continue;
+
+            Arrays.fill(slots, 0L);
+            int first = minute / SLOT_MINUTES;
+            setRange(slots, first, first + slotCount(minute, durationOf(a)));
+
+            Day booked = idx.daysByClinician
+                    .computeIfAbsent(IdIndex.key(a.getClinicianId()), k -> new HashMap<>())
+                    .computeIfAbsent(day, d -> new Day());
+
+            for (int w = 0; w < WORDS_PER_DAY; w++) {
+                booked.booked[w] |= slots[w];
+            }
+        }
+
+        return idx;
+    }
+
+    /**
+     * Immutable (after build) bitmaps.
+     */
+    private static final class Index {
+
+        /** clinician key -> epoch day -> bitmaps */
+        final Map<String, Map<Integer, Day>> daysByClinician = new HashMap<>();
+
+        /** facility key -> opening hours */
+        final Map<String, OpeningHours> hoursByFacility = new HashMap<>();
+
+        final OpeningHours defaultHours = OpeningHours.parse(OpeningHours.DEFAULT_HOURS);
+
+        Map<Integer, Day> days(String clinicianId) {
+            Map<Integer, Day> days = daysByClinician.get(IdIndex.key(clinicianId));
+            return days != null ? days : Collections.emptyMap();
+        }
+
+        OpeningHours hoursOf(String facilityId) {
+            return hoursByFacility.getOrDefault(IdIndex.key(facilityId), defaultHours);
+        }
+    }
+
+    /** One clinician's bookings on one day */
+    private static final class Day {
+        final long[] booked = new long[WORDS_PER_DAY];
+    }
+
+    /* =====================================================
+       BITMAP HELPERS
+       ===================================================== */
+
+    /** Number of slots from a start minute to the end of the appointment (clipped to the day). */
+    private static int slotCount(int minute, int duration) {
+        int first = minute / SLOT_MINUTES;
+        int end = Math.min(SLOTS_PER_DAY,
+                (minute + duration + SLOT_MINUTES - 1) / SLOT_MINUTES);
+        return Math.max(1, end - first);
+    }
+
+    /** Sets slots [from, to). */
+    static void setRange(long[] bits, int from, int to) {
+        to = Math.min(to, SLOTS_PER_DAY);
+        for (int i = from; i < to; i++) {
+            bits[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * First slot at or after from that starts a run of length set
+     * bits, or -1. Jumps over whole runs rather than testing each start.
+     */
+    private static int findRun(long[] bits, int from, int length) {
+        int start = nextSet(bits, from);
+        while (start >= 0 && start + length <= SLOTS_PER_DAY) {
+            int end = nextClear(bits, start);
+            if (end - start >= length) return start;
+            start = nextSet(bits, end);
+        }
+        return -1;
+    }
+
+    private static int nextSet(long[] bits, int from) {
+        if (from >= SLOTS_PER_DAY) return -1;
+        int w = from >>> 6;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int slot = (w << 6) + Long.numberOfTrailingZeros(word);
+                return slot < SLOTS_PER_DAY ? slot : -1;
+            }
+            if (++w == WORDS_PER_DAY) return -1;
+            word = bits[w];
+        }
+    }
+
+    private static int nextClear(long[] bits, int from) {
+        if (from >= SLOTS_PER_DAY) return SLOTS_PER_DAY;
+        int w = from >>> 6;
+        long word = ~bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min(SLOTS_PER_DAY, (w << 6) + Long.numberOfTrailingZeros(word));
+            }
+            if (++w == WORDS_PER_DAY) return SLOTS_PER_DAY;
+            word = ~bits[w];
+        }
+    }
+}
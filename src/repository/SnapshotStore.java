@@ -0,0 +1,301 @@
+package repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * SnapshotStore
+ * -------------
+ * Compact binary copy of a repository's CSV file, used to skip text
+ * parsing on start-up.
+ *
+ * Each repository writes a snapshot beside its CSV whenever it parses or
+ * writes that CSV (patients.csv -> patients.snap). On the next load() the
+ * snapshot is used instead of the CSV, as long as it was taken from the
+ * CSV as it is now: the snapshot records the CSV's size and last-modified
+ * time, and any difference (e.g. the CSV was edited by hand) makes load()
+ * fall back to parsing the CSV.
+ *
+ * FILE FORMAT (big-endian):
+ *  int    magic "SNAP"
+ *  short  format version
+ *  long   CSV size, long CSV last-modified millis
+ *  varint column count
+ *  varint dictionary size, then each distinct string as
+ *         varint byteLength + UTF-8 bytes
+ *  varint row count, then per row one varint dictionary index per column
+ *  int    crc32 of everything above
+ *
+ * Repeated values (facility IDs, statuses, dates...) are stored once
+ * in the dictionary and decoded to one shared String.
+ *
+ * NOTE:
+ *  - A snapshot is only a cache. A missing, stale, corrupt or
+ *    different-version snapshot is ignored, never an error.
+ *  - Snapshots hold the same column values the repository writes to CSV.
+ */
+public final class SnapshotStore {
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final short VERSION = 1;
+
+    /** magic + version + csv size + csv mtime */
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8;
+
+    private SnapshotStore() {
+        // Utility class
+    }
+
+    /**
+     * Returns the snapshot file that belongs to a CSV file.
+     */
+    public static Path snapshotPath(String csvPath) {
+        Path csv = Paths.get(csvPath);
+        String name = csv.getFileName().toString();
+        String base = name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+        return csv.resolveSibling(base + ".snap");
+    }
+
+    /* =====================================================
+       READ
+       ===================================================== */
+
+    /**
+     * Loads rows from the CSV's snapshot, if it is still current.
+     *
+     * @param csvPath the CSV file the snapshot was taken from
+     * @param columns expected number of columns per row
+     * @param row     builds one item from a column accessor
+     * @return the rows in CSV order, or null if the CSV must be parsed
+     */
+    public static <T> List<T> read(String csvPath, int columns,
+                                   Function<IntFunction<String>, T> row) {
+
+        Path snap = snapshotPath(csvPath);
+        byte[] data;
+        long csvSize;
+        long csvModified;
+
+        try {
+            Path csv = Paths.get(csvPath);
+            csvSize = Files.size(csv);
+            csvModified = Files.getLastModifiedTime(csv).toMillis();
+            data = Files.readAllBytes(snap);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Ignoring snapshot " + snap + ": " + e.getMessage());
+            return null;
+        }
+
+        if (data.length < HEADER_BYTES + 4) return null;
+
+        ByteBuffer in = ByteBuffer.wrap(data, 0, data.length - 4);
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data).getInt(data.length - 4)) return null;
+
+        if (in.getInt() != MAGIC || in.getShort() != VERSION) return null;
+        if (in.getLong() != csvSize || in.getLong() != csvModified) return null;
+        if (readVarint(in) != columns) return null;
+
+        try {
+            String[] dictionary = new String[readVarint(in)];
+            for (int i = 0; i < dictionary.length; i++) {
+                int length = readVarint(in);
+                dictionary[i] = new String(data, in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            }
+
+            int rowCount = readVarint(in);
+            List<T> rows = new ArrayList<>(rowCount);
+            String[] values = new String[columns];
+            IntFunction<String> col = i -> values[i];
+
+            for (int r = 0; r < rowCount; r++) {
+                for (int c = 0; c < columns; c++) {
+                    values[c] = dictionary[readVarint(in)];
+                }
+                rows.add(row.apply(col));
+            }
+
+            return in.hasRemaining() ? null : rows;
+
+        } catch (RuntimeException e) {
+            // Truncated / inconsistent data that still passed the checksum
+            return null;
+        }
+    }
+
+    /* =====================================================
+       WRITE
+       ===================================================== */
+
+    /**
+     * Writes a snapshot of the given rows for a CSV file that has just
+     * been read or written. Failures are reported and otherwise ignored,
+     * because the CSV remains the source of truth.
+     *
+     * The snapshot is stamped with csvVersion, which the caller must
+     * take BEFORE parsing the CSV (or right after writing it). If the
+     * file changes while it is being parsed, the stamp is then already
+     * out of date and the snapshot is never used.
+     *
+     * @param csvPath    the CSV file these rows match
+     * @param csvVersion version of the CSV the rows were read from or written to
+     * @param rows       items in CSV order
+     * @param columns    number of columns per row
+     * @param toRow      column values for one item
+     */
+    static <T> void write(String csvPath, FileVersion csvVersion, List<T> rows, int columns,
+                          Function<T, String[]> toRow) {
+
+        // Nothing to compare a later load against
+        if (csvVersion.equals(FileVersion.MISSING)) return;
+
+        Path snap = snapshotPath(csvPath);
+
+        try {
+            long csvSize = csvVersion.size();
+            long csvModified = csvVersion.modifiedMillis();
+
+            // Dictionary-encode every value
+            Map<String, Integer> codes = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int[] cells = new int[rows.size() * columns];
+            int n = 0;
+
+            for (T item : rows) {
+                String[] values = toRow.apply(item);
+                for (int c = 0; c < columns; c++) {
+                    String v = c < values.length && values[c] != null ? values[c] : "";
+                    Integer code = codes.get(v);
+                    if (code == null) {
+                        code = dictionary.size();
+                        codes.put(v, code);
+                        dictionary.add(v);
+                    }
+                    cells[n++] = code;
+                }
+            }
+
+            Output out = new Output(HEADER_BYTES + cells.length * 2 + 64);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putLong(csvSize);
+            out.putLong(csvModified);
+            out.putVarint(columns);
+
+            out.putVarint(dictionary.size());
+            for (String v : dictionary) {
+                byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                out.putVarint(bytes.length);
+                out.put(bytes);
+            }
+
+            out.putVarint(rows.size());
+            for (int i = 0; i < n; i++) {
+                out.putVarint(cells[i]);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(out.bytes, 0, out.length);
+            out.putInt((int) crc.getValue());
+
+            CsvUtil.writeAtomically(snap, tmp -> {
+                try (OutputStream os = Files.newOutputStream(tmp)) {
+                    os.write(out.bytes, 0, out.length);
+                }
+            });
+
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snap + ": " + e.getMessage());
+        }
+    }
+
+    /* =====================================================
+       ENCODING HELPERS
+       ===================================================== */
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) throw new IllegalStateException("Malformed varint");
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Growable big-endian byte buffer.
+     */
+    private static final class Output {
+
+        byte[] bytes;
+        int length;
+
+        Output(int initialCapacity) {
+            bytes = new byte[Math.max(64, initialCapacity)];
+        }
+
+        void put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+        }
+
+        void putShort(short v) {
+            ensure(2);
+            bytes[length++] = (byte) (v >>> 8);
+            bytes[length++] = (byte) v;
+        }
+
+        void putInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (v >>> shift);
+            }
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (v >>> shift);
+            }
+        }
+
+        void putVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[length++] = (byte) v;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -3,8 +3,13 @@ package repository;
 import model.Staff;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
 
 /**
  * StaffRepository
@@ -23,7 +28,7 @@ import java.util.List;
  * It performs:
  *  - CSV loading
  *  - In-memory storage
- *  - CSV persistence
+ *  - CSV persistence (batched by PersistenceScheduler)
  *
  * NO GUI logic is allowed here.
  */
@@ -32,9 +37,40 @@ public class StaffRepository {
     /** In-memory storage of staff records */
     private final List<Staff> staffList = new ArrayList<>();
 
+    /** Case-insensitive staff ID index (kept in sync with the list) */
+    private final IdIndex<Staff> staffById = new IdIndex<>(Staff::getStaffId);
+
     /** Path to the CSV file used for persistence */
     private String sourceFilePath;
 
+    /** Number of CSV (and snapshot) columns */
+    private static final int COLUMNS = 12;
+
+    /** Pools for repeated column values */
+    private static final ColumnDictionary ROLES = new ColumnDictionary("staff.role");
+    private static final ColumnDictionary DEPARTMENTS = new ColumnDictionary("staff.department");
+    private static final ColumnDictionary FACILITY_IDS = new ColumnDictionary("staff.facilityId");
+    private static final ColumnDictionary EMPLOYMENT_STATUSES = new ColumnDictionary("staff.employmentStatus");
+    private static final ColumnDictionary LINE_MANAGERS = new ColumnDictionary("staff.lineManager");
+    private static final ColumnDictionary ACCESS_LEVELS = new ColumnDictionary("staff.accessLevel");
+
+    /** Timings and totals reported by Metrics */
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("staff.load");
+    private static final LatencyHistogram READ_TIME = Metrics.timer("staff.read");
+    private static final LatencyHistogram MERGE_TIME = Metrics.timer("staff.merge");
+    private static final LatencyHistogram LOOKUP_TIME = Metrics.timer("staff.lookup");
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("staff.save");
+    private static final Metrics.Counter CHANGES = Metrics.counter("staff.changes");
+
+    /** Shared background writer that coalesces CSV saves */
+    private final PersistenceScheduler scheduler = PersistenceScheduler.getInstance();
+
+    /** Table models etc. watching this repository */
+    private final ChangeSupport changes = new ChangeSupport();
+
+    /** Version of the CSV as last read or written by this repository */
+    private volatile FileVersion diskVersion = FileVersion.MISSING;
+
     /* =====================================================
        LOAD
        ===================================================== */
@@ -45,55 +81,124 @@ public class StaffRepository {
      * @param filePath path to staff.csv
      */
     public void load(String filePath) throws IOException {
-        this.sourceFilePath = filePath;
-        staffList.clear();
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+        install(filePath, read(filePath).getRows());
+        LOAD_TIME.recordSince(start);
+        event.finish("staff", "load", staffList.size(), filePath);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    /**
+     * Reads staff.csv without changing the repository, so it can
+     * run on a background thread. Pass the rows to install(), or the
+     * result to merge(), afterwards.
+     */
+    public CsvRead<Staff> read(String filePath) throws IOException {
 
-            String header = br.readLine(); // skip header
-            if (header == null) return;
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
 
-            String line;
-            while ((line = br.readLine()) != null) {
+        // Edits made after this make the rows out of date (see CsvRead)
+        long changeCount;
+        synchronized (this) {
+            changeCount = changes.count();
+        }
 
-                // Skip empty lines
-                if (line.trim().isEmpty()) continue;
+        // Write out queued changes first so a reload never discards them
+        scheduler.flushNow(this);
+
+        // Version of the CSV the rows come from, taken before parsing
+        FileVersion version = FileVersion.of(filePath);
+
+        // Prefer the binary snapshot while it still matches the CSV
+        List<Staff> cached = SnapshotStore.read(filePath, COLUMNS,
+                col -> fromColumns(i -> col.apply(i).trim()));
+        if (cached != null) {
+            READ_TIME.recordSince(start);
+            event.finish("staff", "read", cached.size(), filePath);
+            return new CsvRead<>(filePath, cached, version, changeCount);
+        }
+
+        List<Staff> rows = new ArrayList<>();
+
+        try (CsvUtil.Tokenizer t = CsvUtil.open(filePath)) {
 
-                String[] cols = line.split(",", -1);
+            if (!t.next()) { // skip header
+                READ_TIME.recordSince(start);
+                event.finish("staff", "read", rows.size(), filePath);
+                return new CsvRead<>(filePath, rows, version, changeCount);
+            }
+
+            while (t.next()) {
+
+                // Skip empty lines
+                if (t.isBlank()) continue;
 
                 // Defensive check to avoid malformed CSV rows
-                if (cols.length < 12) continue;
-
-                String staffId = cols[0].trim();
-                String firstName = cols[1].trim();
-                String lastName = cols[2].trim();
-                String role = cols[3].trim();
-                String department = cols[4].trim();
-                String facilityId = cols[5].trim();
-                String phoneNumber = cols[6].trim();
-                String email = cols[7].trim();
-                String employmentStatus = cols[8].trim();
-                String startDate = cols[9].trim();
-                String lineManager = cols[10].trim();
-                String accessLevel = cols[11].trim();
-
-                String fullName = (firstName + " " + lastName).trim();
-
-                staffList.add(new Staff(
-                        staffId,
-                        fullName,
-                        role,
-                        department,
-                        facilityId,
-                        phoneNumber,
-                        email,
-                        employmentStatus,
-                        startDate,
-                        lineManager,
-                        accessLevel
-                ));
+                if (t.fieldCount() < COLUMNS) continue;
+
+                rows.add(fromColumns(t::trimmed));
             }
         }
+
+        SnapshotStore.write(filePath, version, rows, COLUMNS, StaffRepository::toColumns);
+        READ_TIME.recordSince(start);
+        event.finish("staff", "read", rows.size(), filePath);
+        return new CsvRead<>(filePath, rows, version, changeCount);
+    }
+
+    /**
+     * Replaces the in-memory staff list with rows from read().
+     * Listeners see one RELOADED event.
+     */
+    public synchronized void install(String filePath, List<Staff> rows) {
+
+        this.sourceFilePath = filePath;
+        staffList.clear();
+        staffList.addAll(rows);
+
+        staffById.rebuild(staffList);
+        diskVersion = FileVersion.of(filePath);
+        changes.reloaded();
+    }
+
+    /**
+     * Applies rows from read() as a delta: only inserted, changed and
+     * deleted staff members are touched, each with its own change event, so
+     * open tables update in place. Used when another program rewrites
+     * the CSV while the application is running.
+     *
+     * Returns null and changes nothing if the file was written again
+     * or this repository was edited since read(); read it again.
+     */
+    public synchronized RowDelta merge(CsvRead<Staff> read) {
+
+        // Read before the latest edit or file change: merging would undo it
+        if (!read.isCurrent(changes.count())) return null;
+
+        String filePath = read.getPath();
+        List<Staff> rows = read.getRows();
+
+        long start = System.nanoTime();
+        DataEvents.Load event = new DataEvents.Load();
+
+        this.sourceFilePath = filePath;
+        diskVersion = read.getVersion();
+
+        RowDelta delta = RowDelta.merge(staffList, rows, Staff::getStaffId,
+                StaffRepository::toColumns, RowDelta.none(), changes);
+        if (!delta.isEmpty()) staffById.rebuild(staffList);
+        MERGE_TIME.recordSince(start);
+        event.finish("staff", "merge", staffList.size(), filePath);
+        return delta;
+    }
+
+    /**
+     * True if the CSV was changed by something other than this
+     * repository since it was last read or written.
+     */
+    public boolean isChangedOnDisk() {
+        return diskVersion.isStale(sourceFilePath);
     }
 
     /* =====================================================
@@ -107,17 +212,25 @@ public class StaffRepository {
         return new ArrayList<>(staffList);
     }
 
+    /**
+     * Live read-only view of the list (no copy). Row numbers in
+     * change events refer to positions in this view.
+     */
+    public List<Staff> view() {
+        return Collections.unmodifiableList(staffList);
+    }
+
     /**
      * Find a staff member by staff ID.
      * Used by View / Edit / Delete logic.
      */
     public Staff findById(String staffId) {
-        for (Staff s : staffList) {
-            if (s.getStaffId().equalsIgnoreCase(staffId)) {
-                return s;
-            }
-        }
-        return null;
+        long start = System.nanoTime();
+        DataEvents.Lookup event = new DataEvents.Lookup();
+        Staff found = staffById.get(staffId);
+        LOOKUP_TIME.recordSince(start);
+        event.finish("staff", "findById", found == null ? 0 : 1);
+        return found;
     }
 
     /* =====================================================
@@ -130,7 +243,7 @@ public class StaffRepository {
      * Validation is intentionally minimal here.
      * Detailed field validation is handled in the VIEW layer.
      */
-    public void addStaff(Staff staff) throws IOException {
+    public synchronized CompletableFuture<Void> addStaff(Staff staff) {
 
         if (staff == null || staff.getStaffId() == null || staff.getStaffId().isBlank()) {
             throw new IllegalArgumentException("Staff ID is required.");
@@ -141,7 +254,9 @@ public class StaffRepository {
         }
 
         staffList.add(staff);
-        saveToCsv();
+        staffById.add(staff);
+        changes.inserted(staffList.size() - 1);
+        return saveToCsv();
     }
 
     /* =====================================================
@@ -151,27 +266,18 @@ public class StaffRepository {
     /**
      * Update an existing staff member (matched by staff ID).
      */
-    public void updateStaff(Staff updatedStaff) throws IOException {
+    public synchronized CompletableFuture<Void> updateStaff(Staff updatedStaff) {
 
-        boolean found = false;
+        int index = staffById.positionOf(updatedStaff.getStaffId());
 
-        for (int i = 0; i < staffList.size(); i++) {
-            Staff existing = staffList.get(i);
-
-            if (existing.getStaffId()
-                    .equalsIgnoreCase(updatedStaff.getStaffId())) {
-
-                staffList.set(i, updatedStaff);
-                found = true;
-                break;
-            }
-        }
-
-        if (!found) {
+        if (index < 0) {
             throw new IllegalArgumentException("Staff member not found.");
         }
 
-        saveToCsv();
+        staffList.set(index, updatedStaff);
+        staffById.set(index, updatedStaff);
+        changes.updated(index);
+        return saveToCsv();
     }
 
     /* =====================================================
@@ -181,17 +287,30 @@ public class StaffRepository {
     /**
      * Delete staff by staff ID and persist changes.
      */
-    public void deleteStaff(String staffId) throws IOException {
+    public synchronized CompletableFuture<Void> deleteStaff(String staffId) {
 
-        boolean removed = staffList.removeIf(
-                s -> s.getStaffId().equalsIgnoreCase(staffId)
-        );
+        int index = staffById.positionOf(staffId);
 
-        if (!removed) {
+        if (index < 0) {
             throw new IllegalArgumentException("Staff not found: " + staffId);
         }
 
-        saveToCsv();
+        staffList.remove(index);
+        staffById.removeAt(index);
+        changes.deleted(index);
+        return saveToCsv();
+    }
+
+    /* =====================================================
+       CHANGE LISTENERS
+       ===================================================== */
+
+    public void addListener(RepositoryListener listener) {
+        changes.addListener(listener);
+    }
+
+    public void removeListener(RepositoryListener listener) {
+        changes.removeListener(listener);
     }
 
     /* =====================================================
@@ -200,53 +319,111 @@ public class StaffRepository {
 
     /**
      * Save current in-memory staff list back to the CSV.
+     * Marks the repository dirty; the PersistenceScheduler performs the write.
      *
      * Staff model stores full name, so it is split
      * back into first and last name for CSV storage.
      */
-    private void saveToCsv() throws IOException {
+    private CompletableFuture<Void> saveToCsv() {
 
         if (sourceFilePath == null) {
             throw new IllegalStateException("CSV file path not set. Call load() first.");
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sourceFilePath))) {
-
-            // Updated CSV header
-            writer.write("staffId,firstName,lastName,role,department,facilityId,phoneNumber,email,employmentStatus,startDate,lineManager,accessLevel");
-            writer.newLine();
-
-            for (Staff s : staffList) {
-
-                String[] nameParts = splitName(s.getName());
-
-                writer.write(String.join(",",
-                        safe(s.getStaffId()),
-                        safe(nameParts[0]),
-                        safe(nameParts[1]),
-                        safe(s.getRole()),
-                        safe(s.getDepartment()),
-                        safe(s.getFacilityId()),
-                        safe(s.getPhoneNumber()),
-                        safe(s.getEmail()),
-                        safe(s.getEmploymentStatus()),
-                        safe(s.getStartDate()),
-                        safe(s.getLineManager()),
-                        safe(s.getAccessLevel())
-                ));
+        CHANGES.increment();
+        return scheduler.markDirty(this, this::writeCsv);
+    }
+
+    /**
+     * Writes a copy of the staff list (runs on the scheduler thread).
+     */
+    private void writeCsv() throws IOException {
+
+        long start = System.nanoTime();
+        DataEvents.Save event = new DataEvents.Save();
+
+        List<Staff> snapshot;
+        String path;
+
+        synchronized (this) {
+            snapshot = new ArrayList<>(staffList);
+            path = sourceFilePath;
+        }
+
+        CsvUtil.writeAtomically(Paths.get(path), tmp -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+
+                // Updated CSV header
+                writer.write("staffId,firstName,lastName,role,department,facilityId,phoneNumber,email,employmentStatus,startDate,lineManager,accessLevel");
                 writer.newLine();
+
+                for (Staff s : snapshot) {
+                    CsvUtil.writeRow(writer, toColumns(s));
+                }
             }
-        }
+        });
+
+        FileVersion written = FileVersion.of(path);
+        diskVersion = written;
+        SnapshotStore.write(path, written, snapshot, COLUMNS, StaffRepository::toColumns);
+        SAVE_TIME.recordSince(start);
+        event.finish("staff", snapshot.size(), path);
     }
 
     /* =====================================================
        HELPERS
        ===================================================== */
 
+    /**
+     * Builds a staff member from CSV (or snapshot) columns.
+     * First and last name are combined into the model's full name.
+     */
+    private static Staff fromColumns(IntFunction<String> col) {
+
+        String fullName = (col.apply(1) + " " + col.apply(2)).trim();
+
+        return new Staff(
+                col.apply(0),   // staffId
+                fullName,
+                ROLES.canonical(col.apply(3)),               // role
+                DEPARTMENTS.canonical(col.apply(4)),         // department
+                FACILITY_IDS.canonical(col.apply(5)),        // facilityId
+                col.apply(6),                                // phoneNumber
+                col.apply(7),                                // email
+                EMPLOYMENT_STATUSES.canonical(col.apply(8)), // employmentStatus
+                col.apply(9),                                // startDate
+                LINE_MANAGERS.canonical(col.apply(10)),      // lineManager
+                ACCESS_LEVELS.canonical(col.apply(11))       // accessLevel
+        );
+    }
+
+    /**
+     * Column values for one staff member, in CSV order.
+     */
+    private static String[] toColumns(Staff s) {
+
+        String[] nameParts = splitName(s.getName());
+
+        return new String[]{
+                s.getStaffId(),
+                nameParts[0],
+                nameParts[1],
+                s.getRole(),
+                s.getDepartment(),
+                s.getFacilityId(),
+                s.getPhoneNumber(),
+                s.getEmail(),
+                s.getEmploymentStatus(),
+                s.getStartDate(),
+                s.getLineManager(),
+                s.getAccessLevel()
+        };
+    }
+
     /**
      * Split a full name into first + last name.
      */
-    private String[] splitName(String fullName) {
+    private static String[] splitName(String fullName) {
 
         if (fullName == null || fullName.isBlank()) {
             return new String[]{"", ""};
@@ -263,16 +440,8 @@ public class StaffRepository {
         };
     }
 
-    /**
-     * Prevent commas breaking CSV structure.
-     */
-    private String safe(String value) {
-        return value == null ? "" : value.replace(",", " ");
-    }
-
     public boolean existsById(String staffId) {
-    return staffList.stream()
-            .anyMatch(s -> s.getStaffId().equalsIgnoreCase(staffId));
-}
+        return staffById.contains(staffId);
+    }
 
 }
@@ -0,0 +1,253 @@
+package repository;
+
+import model.Referral;
+import model.TemporalCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * TriageQueue
+ * -----------
+ * Open referrals in the order triage staff should work them:
+ *
+ *  1. urgency    Emergency, Urgent, Routine, Non-urgent
+ *                (see Urgency; an unknown urgency counts as Routine)
+ *  2. waiting    oldest referral date first (no date = last)
+ *  3. ID         so the order never depends on load order
+ *
+ * Stored as an indexed binary min-heap: each entry remembers its heap
+ * position, so changing a referral's urgency, date or status moves just
+ * that entry (O(log n)) and the next case is always at the root.
+ *
+ * A referral is open until its status is Completed; completing one
+ * removes it from the queue.
+ *
+ * NOTE:
+ *  - Owned by ReferralRepository, which updates it on every change
+ *  - Not thread-safe on its own; guarded by the repository
+ */
+final class TriageQueue {
+
+    private static final String CLOSED_STATUS = "Completed";
+
+    /** Heap of open referrals; heap[0] is the next case */
+    private Entry[] heap = new Entry[16];
+    private int size;
+
+    /** referral key -> its heap entry */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** One queued referral and its precomputed sort key */
+    private static final class Entry {
+        Referral referral;
+        int urgencyRank;
+        int waitingSince;
+        final String key;
+        int position;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    /* =====================================================
+       MAINTENANCE
+       ===================================================== */
+
+    /**
+     * Queues a referral, or re-positions it if it is already queued.
+     * A referral that is no longer open is removed instead.
+     */
+    void add(Referral referral) {
+
+        String key = IdIndex.key(referral.getReferralId());
+
+        if (!isOpen(referral)) {
+            remove(key);
+            return;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            set(entry, referral);
+            entries.put(key, entry);
+            grow();
+            entry.position = size;
+            heap[size++] = entry;
+            siftUp(entry.position);
+            return;
+        }
+
+        set(entry, referral);
+        // Urgency or date may have moved either way
+        siftDown(siftUp(entry.position));
+    }
+
+    /**
+     * Removes a referral from the queue (no-op if it is not queued).
+     */
+    void remove(String referralId) {
+
+        Entry entry = entries.remove(IdIndex.key(referralId));
+        if (entry == null) return;
+
+        int position = entry.position;
+        Entry last = heap[--size];
+        heap[size] = null;
+
+        if (position < size) {
+            place(last, position);
+            siftDown(siftUp(position));
+        }
+    }
+
+    /**
+     * Replaces the queue with the open referrals of a collection
+     * (bottom-up heap construction, O(n)).
+     */
+    void rebuild(Collection<Referral> referrals) {
+
+        entries.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+
+        for (Referral referral : referrals) {
+            if (!isOpen(referral)) continue;
+
+            Entry entry = new Entry(IdIndex.key(referral.getReferralId()));
+            set(entry, referral);
+
+            Entry previous = entries.put(entry.key, entry);
+            if (previous != null) {
+                // Duplicate ID in the file: keep the later row, as IdIndex does
+                place(entry, previous.position);
+                continue;
+            }
+
+            grow();
+            place(entry, size++);
+        }
+
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /* =====================================================
+       QUERIES
+       ===================================================== */
+
+    /** The next referral to triage, or null if none are open. */
+    Referral peek() {
+        return size == 0 ? null : heap[0].referral;
+    }
+
+    /** Number of open referrals. */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The first referrals in triage order, without sorting the queue:
+     * walks the heap best-first, so it costs O(limit log limit).
+     */
+    List<Referral> top(int limit) {
+
+        int count = Math.min(limit, size);
+        List<Referral> result = new ArrayList<>(count);
+        if (count <= 0) return result;
+
+        // Frontier of heap positions, best entry first
+        PriorityQueue<Integer> frontier =
+                new PriorityQueue<>((a, b) -> compare(heap[a], heap[b]));
+        frontier.add(0);
+
+        while (result.size() < count) {
+            int position = frontier.poll();
+            result.add(heap[position].referral);
+
+            int child = 2 * position + 1;
+            if (child < size) frontier.add(child);
+            if (child + 1 < size) frontier.add(child + 1);
+        }
+
+        return result;
+    }
+
+    /* =====================================================
+       ORDER
+       ===================================================== */
+
+    /**
+     * Urgency rank of a referral: lower is seen first.
+     */
+    static int urgencyRank(String urgency) {
+        return Urgency.of(urgency).triageRank;
+    }
+
+    static boolean isOpen(Referral referral) {
+        String status = referral.getStatus();
+        return status == null || !status.trim().equalsIgnoreCase(CLOSED_STATUS);
+    }
+
+    /** Stores a referral and its sort key in an entry. */
+    private static void set(Entry entry, Referral referral) {
+        int day = referral.getReferralDay();
+        entry.referral = referral;
+        entry.urgencyRank = urgencyRank(referral.getUrgencyLevel());
+        entry.waitingSince = day == TemporalCodec.NONE ? Integer.MAX_VALUE : day;
+    }
+
+    private static int compare(Entry a, Entry b) {
+        if (a.urgencyRank != b.urgencyRank) return Integer.compare(a.urgencyRank, b.urgencyRank);
+        if (a.waitingSince != b.waitingSince) return Integer.compare(a.waitingSince, b.waitingSince);
+        return a.key.compareTo(b.key);
+    }
+
+    /* =====================================================
+       HEAP
+       ===================================================== */
+
+    /** Moves an entry towards the root; returns its final position. */
+    private int siftUp(int position) {
+        Entry entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (compare(entry, heap[parent]) >= 0) break;
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(entry, position);
+        return position;
+    }
+
+    /** Moves an entry towards the leaves. */
+    private void siftDown(int position) {
+        Entry entry = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) break;
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) child++;
+            if (compare(heap[child], entry) >= 0) break;
+            place(heap[child], position);
+            position = child;
+        }
+        place(entry, position);
+    }
+
+    private void place(Entry entry, int position) {
+        heap[position] = entry;
+        entry.position = position;
+    }
+
+    private void grow() {
+        if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+    }
+}
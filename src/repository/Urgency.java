@@ -0,0 +1,50 @@
+package repository;
+
+import java.util.Locale;
+
+/**
+ * Urgency
+ * -------
+ * The referral urgency levels, shared by TriageQueue (order of work)
+ * and ReferralRouter (how strongly free capacity counts), so both
+ * read Referral.urgencyLevel the same way.
+ *
+ *  level        triage rank   routing weight
+ *  Emergency    0             5
+ *  Urgent       1             3
+ *  Routine      2             1
+ *  Non-urgent   3             0.5
+ *
+ * Text is matched ignoring case and surrounding spaces; anything else
+ * (including null) counts as Routine.
+ */
+enum Urgency {
+
+    EMERGENCY("emergency", 0, 5.0),
+    URGENT("urgent", 1, 3.0),
+    ROUTINE("routine", 2, 1.0),
+    NON_URGENT("non-urgent", 3, 0.5);
+
+    private final String text;
+
+    /** Lower is seen first */
+    final int triageRank;
+
+    /** Multiplies a facility's free capacity in the routing score */
+    final double routingWeight;
+
+    Urgency(String text, int triageRank, double routingWeight) {
+        this.text = text;
+        this.triageRank = triageRank;
+        this.routingWeight = routingWeight;
+    }
+
+    static Urgency of(String urgencyLevel) {
+        if (urgencyLevel == null) return ROUTINE;
+        String value = urgencyLevel.trim().toLowerCase(Locale.ROOT);
+        for (Urgency u : values()) {
+            if (u.text.equals(value)) return u;
+        }
+        return ROUTINE;
+    }
+}
@@ -0,0 +1,410 @@
+package view;
+
+import repository.LatencyHistogram;
+import repository.Metrics;
+
+import javax.swing.AbstractButton;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EdtWatchdog
+ * -----------
+ * Detects when the Event Dispatch Thread is blocked long enough to
+ * freeze the window, and which button (and handler method) did it.
+ *
+ * HOW IT WORKS:
+ *  - A monitoring EventQueue is pushed onto the system queue. The EDT
+ *    counts as busy from the moment it takes an event until it next
+ *    asks for one, so time spent waiting inside a modal dialog is not
+ *    counted against the action that opened it.
+ *  - A daemon thread checks the EDT every few milliseconds. Once a busy
+ *    stretch passes the threshold it captures the EDT's stack, prints
+ *    it to System.err and keeps it in a short list of recent stalls
+ *    (shown on the System tab).
+ *  - Every button press (mouse or keyboard) records its own EDT time in
+ *    a Metrics timer "ui.action.<button text>", and work posted with
+ *    invokeLater in "ui.action.(invokeLater)", so the System tab shows
+ *    which buttons are slow and how slow. Only the input event that
+ *    actually fires the button's ActionEvent is timed, so focus moves
+ *    and the other half of a key press are not counted.
+ *
+ * The threshold is 200 ms, or the system property "edt.stallMs".
+ *
+ * MVC ROLE:
+ *  - VIEW support only (diagnostics); no repository access
+ */
+public final class EdtWatchdog {
+
+    /** How long the EDT may be busy before it counts as a stall */
+    private static final long THRESHOLD_MS = Long.getLong("edt.stallMs", 200L);
+
+    /** Stalls kept for display */
+    private static final int MAX_STALLS = 20;
+
+    /** Stack frames kept per stall */
+    private static final int STACK_DEPTH = 30;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /** Singleton instance (null until install() is called) */
+    private static EdtWatchdog instance;
+
+    private final long thresholdNanos = THRESHOLD_MS * 1_000_000L;
+
+    private final Metrics.Counter stallCount = Metrics.getInstance().getCounter("ui.stalls");
+
+    /** Recent stalls, newest last (guarded by itself) */
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+
+    /* ----- written by the EDT, read by the watchdog thread ----- */
+
+    private volatile Thread edt;
+
+    /** True while the EDT waits for the next event */
+    private volatile boolean idle = true;
+
+    /** nanoTime when the current busy stretch began */
+    private volatile long busySince;
+
+    /** Start and end (nanoTime) of the last busy stretch that finished */
+    private volatile long lastStretchStart;
+    private volatile long lastStretchEnd;
+
+    /** Innermost event being dispatched (null when none) */
+    private volatile AWTEvent current;
+
+    /* ----- watchdog thread only ----- */
+
+    /** busySince of the stretch already reported, and its report */
+    private long reportedStretch = Long.MIN_VALUE;
+    private Stall reported;
+
+    private EdtWatchdog() {}
+
+    /**
+     * Starts watching the EDT (once; later calls do nothing).
+     * Call before the first window is shown.
+     */
+    public static synchronized void install() {
+
+        if (instance != null) return;
+
+        instance = new EdtWatchdog();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(instance.new MonitoringQueue());
+
+        Thread t = new Thread(instance::watch, "edt-watchdog");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Most recent stalls, oldest first (empty if install() was not called).
+     */
+    public static List<Stall> recentStalls() {
+
+        EdtWatchdog w;
+        synchronized (EdtWatchdog.class) {
+            w = instance;
+        }
+        if (w == null) return new ArrayList<>();
+
+        synchronized (w.stalls) {
+            return new ArrayList<>(w.stalls);
+        }
+    }
+
+    public static long getThresholdMillis() {
+        return THRESHOLD_MS;
+    }
+
+    /* =====================================================
+       STALL REPORTS
+       ===================================================== */
+
+    /**
+     * One period in which the EDT did not process events.
+     */
+    public static final class Stall {
+
+        private final LocalTime time;
+        private final String action;
+        private final String handler;
+        private final String stack;
+        private volatile long blockedMillis;
+
+        private Stall(LocalTime time, String action, String handler, String stack, long blockedMillis) {
+            this.time = time;
+            this.action = action;
+            this.handler = handler;
+            this.stack = stack;
+            this.blockedMillis = blockedMillis;
+        }
+
+        /** When the stall was detected */
+        public LocalTime getTime() {
+            return time;
+        }
+
+        /** Button text, or the kind of event being handled */
+        public String getAction() {
+            return action;
+        }
+
+        /** Topmost view method on the stack, e.g. view.MainFrame.addPatient:431 */
+        public String getHandler() {
+            return handler;
+        }
+
+        /** EDT stack when the stall was detected */
+        public String getStack() {
+            return stack;
+        }
+
+        /** Length of the stall (so far, while it is still going on) */
+        public long getBlockedMillis() {
+            return blockedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return time.format(TIME) + "  EDT blocked " + blockedMillis + " ms by "
+                    + action + " (" + handler + ")";
+        }
+    }
+
+    /**
+     * Watchdog thread: reports each busy stretch that passes the
+     * threshold once, and records how long it lasted when it ends.
+     */
+    private void watch() {
+
+        long pollMillis = Math.max(10, THRESHOLD_MS / 4);
+
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            boolean waiting = idle;
+            long since = busySince;
+            long now = System.nanoTime();
+
+            if (reported != null) {
+                if (waiting || since != reportedStretch) {
+                    // Over: take the exact end if the EDT has not moved on since
+                    if (lastStretchStart == reportedStretch) {
+                        reported.blockedMillis = (lastStretchEnd - reportedStretch) / 1_000_000L;
+                    }
+                    reported = null;
+                } else {
+                    reported.blockedMillis = (now - reportedStretch) / 1_000_000L;
+                }
+            }
+
+            if (!waiting && since != reportedStretch && now - since >= thresholdNanos) {
+                reportedStretch = since;
+                reported = capture((now - since) / 1_000_000L);
+            }
+        }
+    }
+
+    /**
+     * Records the EDT's current stack as a stall.
+     */
+    private Stall capture(long blockedMillis) {
+
+        Thread thread = edt;
+        StackTraceElement[] frames = thread == null ? new StackTraceElement[0] : thread.getStackTrace();
+
+        String handler = "unknown";
+        for (StackTraceElement f : frames) {
+            if (f.getClassName().startsWith("view.") && !f.getClassName().startsWith(EdtWatchdog.class.getName())) {
+                handler = f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber();
+                break;
+            }
+        }
+
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < frames.length && i < STACK_DEPTH; i++) {
+            stack.append("    at ").append(frames[i]).append('\n');
+        }
+
+        Stall stall = new Stall(LocalTime.now(), describe(current), handler, stack.toString(), blockedMillis);
+
+        stallCount.increment();
+        synchronized (stalls) {
+            if (stalls.size() == MAX_STALLS) stalls.removeFirst();
+            stalls.addLast(stall);
+        }
+
+        System.err.println("EDT blocked for " + blockedMillis + " ms (threshold " + THRESHOLD_MS
+                + " ms) by " + stall.getAction() + " in " + handler + "\n" + stall.getStack());
+        return stall;
+    }
+
+    /* =====================================================
+       ACTION NAMES
+       ===================================================== */
+
+    /**
+     * Button or menu item an input event may activate, or null.
+     */
+    private static AbstractButton buttonOf(AWTEvent event) {
+
+        if (!(event.getSource() instanceof AbstractButton)) return null;
+
+        int id = event.getID();
+        boolean activates = id == MouseEvent.MOUSE_RELEASED
+                || id == KeyEvent.KEY_PRESSED || id == KeyEvent.KEY_RELEASED;
+        return activates ? (AbstractButton) event.getSource() : null;
+    }
+
+    /**
+     * Name of the action an event belongs to; null for events that
+     * are not tied to an action (mouse moves, paints ...).
+     */
+    private static String actionOf(AWTEvent event) {
+
+        if (event instanceof InvocationEvent) return "(invokeLater)";
+
+        AbstractButton button = buttonOf(event);
+        return button == null ? null : nameOf(button);
+    }
+
+    private static String nameOf(AbstractButton button) {
+
+        String text = button.getText();
+        return text == null || text.isBlank() ? button.getActionCommand() : text;
+    }
+
+    /**
+     * Readable description of any event, for stall reports.
+     */
+    private static String describe(AWTEvent event) {
+
+        if (event == null) return "(no event)";
+
+        String action = actionOf(event);
+        if (action != null) return action;
+
+        return event.getClass().getSimpleName() + " on " + event.getSource().getClass().getSimpleName();
+    }
+
+    /* =====================================================
+       MONITORING QUEUE
+       ===================================================== */
+
+    /**
+     * One event being dispatched (EDT only). excluded is time spent in
+     * nested dispatches and waiting for events (e.g. in a modal dialog).
+     */
+    private static final class Dispatch {
+        final AWTEvent event;
+        final long start;
+        long excluded;
+
+        Dispatch(AWTEvent event, long start) {
+            this.event = event;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Listener added to a button for the length of one dispatch, to
+     * tell whether that event fired the button's action.
+     */
+    private static final class FiredFlag implements ActionListener {
+        boolean fired;
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            fired = true;
+        }
+    }
+
+    private final class MonitoringQueue extends EventQueue {
+
+        /** Nested dispatches, innermost last (EDT only) */
+        private final Deque<Dispatch> dispatching = new ArrayDeque<>();
+
+        /** Timers by action name (EDT only) */
+        private final Map<String, LatencyHistogram> timers = new HashMap<>();
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+
+            long waitStart = System.nanoTime();
+            lastStretchEnd = waitStart;
+            lastStretchStart = busySince;
+            idle = true;
+
+            try {
+                return super.getNextEvent();
+            } finally {
+                long now = System.nanoTime();
+                busySince = now;
+                idle = false;
+
+                Dispatch outer = dispatching.peekLast();
+                if (outer != null) outer.excluded += now - waitStart;
+            }
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+
+            if (edt != Thread.currentThread()) edt = Thread.currentThread();
+
+            AbstractButton button = buttonOf(event);
+            FiredFlag flag = null;
+            if (button != null) {
+                flag = new FiredFlag();
+                button.addActionListener(flag);
+            }
+
+            Dispatch d = new Dispatch(event, System.nanoTime());
+            dispatching.addLast(d);
+            current = event;
+
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long elapsed = System.nanoTime() - d.start;
+                dispatching.removeLast();
+
+                Dispatch outer = dispatching.peekLast();
+                if (outer != null) outer.excluded += elapsed;
+                current = outer == null ? null : outer.event;
+
+                String action = null;
+                if (event instanceof InvocationEvent) {
+                    action = "(invokeLater)";
+                } else if (flag != null) {
+                    button.removeActionListener(flag);
+                    if (flag.fired) action = nameOf(button);
+                }
+                if (action != null) {
+                    timers.computeIfAbsent(action, a -> Metrics.getInstance().getTimer("ui.action." + a))
+                            .record(elapsed - d.excluded);
+                }
+            }
+        }
+    }
+}
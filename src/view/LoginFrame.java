@@ -4,12 +4,12 @@ import javax.swing.*;
 import java.awt.*;
 
 import model.UserSession;
-import repository.PatientRepository;
-import repository.ClinicianRepository;
-import repository.StaffRepository;
+import repository.DataContext;
 
 public class LoginFrame extends JFrame {
 
+    private static final long serialVersionUID = 1L;
+
     // ===============================
     // CLASS FIELDS (IMPORTANT)
     // ===============================
@@ -17,33 +17,15 @@ public class LoginFrame extends JFrame {
     private JComboBox<String> roleComboBox;
     private JButton loginButton;
 
-    private PatientRepository patientRepository;
-    private ClinicianRepository clinicianRepository;
-    private StaffRepository staffRepository;
+    // Application-wide repositories (shared with MainFrame, loaded once)
+    private final DataContext context;
 
     // ===============================
     // CONSTRUCTOR
     // ===============================
-    public LoginFrame() {
-
-        // Initialise repositories
-        patientRepository = new PatientRepository();
-        clinicianRepository = new ClinicianRepository();
-        staffRepository = new StaffRepository();
-
-        try {
-    patientRepository.load("data/patients.csv");
-    clinicianRepository.load("data/clinicians.csv");
-    staffRepository.load("data/staff.csv");
-} catch (Exception e) {
-    JOptionPane.showMessageDialog(
-            this,
-            "Failed to load user data files.\nLogin disabled.",
-            "System Error",
-            JOptionPane.ERROR_MESSAGE
-    );
-}
+    public LoginFrame(DataContext context) {
 
+        this.context = context;
 
         setTitle("Healthcare System Login");
         setSize(400, 200);
@@ -104,15 +86,38 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        // 2. Check ID exists in repository
+        // 2. Load the data (first login only), then check the ID exists
+        loadThen(() -> {
+            if (userExists(userId, role)) {
+                // 3. Successful login
+                UserSession.startSession(userId, role);
+                openMainWindow();
+            } else {
+                JOptionPane.showMessageDialog(
+                        this,
+                        "No " + role.toLowerCase() + " found with ID: " + userId,
+                        "Login Error",
+                        JOptionPane.ERROR_MESSAGE
+                );
+                loginButton.setEnabled(true);
+                setVisible(true);
+            }
+        });
+    }
+
+    /**
+     * Checks the ID against the shared (already loaded) repositories.
+     */
+    private boolean userExists(String userId, String role) {
+
         boolean exists = false;
 
         switch (role) {
             case "PATIENT":
-                exists = patientRepository.existsById(userId);
+                exists = context.getPatientRepository().existsById(userId);
                 break;
             case "CLINICIAN":
-            exists = clinicianRepository.existsById(userId);
+            exists = context.getClinicianRepository().existsById(userId);
             break;
 
             case "DOCTOR":
@@ -120,26 +125,69 @@ public class LoginFrame extends JFrame {
             break;
 
             case "STAFF":
-                exists = staffRepository.existsById(userId);
+                exists = context.getStaffRepository().existsById(userId);
                 break;
         }
 
-        if (!exists) {
-            JOptionPane.showMessageDialog(
-                    this,
-                    "No " + role.toLowerCase() + " found with ID: " + userId,
-                    "Login Error",
-                    JOptionPane.ERROR_MESSAGE
-            );
+        return exists;
+    }
+
+    /**
+     * Runs the next step once the shared DataContext is loaded.
+     *
+     * The first time, all data files are loaded in the background
+     * (in parallel) while a splash window shows progress. Later
+     * logins reuse the loaded repositories without reading any file.
+     */
+    private void loadThen(Runnable next) {
+
+        loginButton.setEnabled(false);
+
+        if (context.isLoaded()) {
+            next.run();
             return;
         }
 
-        // 3. Successful login
-        UserSession.startSession(userId, role);
+        setVisible(false);
+
+        StartupSplash splash = new StartupSplash();
+        splash.setVisible(true);
+
+        context.loadAll(splash).whenComplete((report, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    splash.dispose();
+
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(
+                                null,
+                                "Failed to load data files:\n" + error.getMessage(),
+                                "System Error",
+                                JOptionPane.ERROR_MESSAGE
+                        );
+                    } else {
+                        // Timings are shown in MainFrame's status bar and the System tab
+                        if (!report.getFailures().isEmpty()) {
+                            JOptionPane.showMessageDialog(
+                                    null,
+                                    "Some data files could not be loaded:\n"
+                                            + String.join(", ", report.getFailures().keySet()),
+                                    "Load Error",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        }
+                    }
+
+                    next.run();
+                }));
+    }
 
-        MainFrame mainFrame = new MainFrame();
+    /**
+     * Opens the main window on the shared, already loaded repositories.
+     */
+    private void openMainWindow() {
+        MainFrame mainFrame = new MainFrame(context);
         mainFrame.setVisible(true);
-        this.dispose();
+        dispose();
     }
 
         /**
@@ -8,6 +8,7 @@ import model.Referral;
 import model.Staff;
 import model.UserSession;
 import model.Facility;
+import model.TemporalCodec;
 
 import repository.PatientRepository;
 import repository.ClinicianRepository;
@@ -18,15 +19,29 @@ import repository.ReferralManager;
 import repository.StaffRepository;
 import repository.FacilityRepository;
 import repository.AppointmentRepository;
+import repository.AppointmentConflict;
+import repository.ColumnarAppointmentStore;
+import repository.DataContext;
+import repository.DataFileWatcher;
+import repository.ReferralRouter;
+import repository.SlotAllocator;
+import repository.Metrics;
+import repository.RowDelta;
+import repository.Bootstrap;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.awt.Dimension;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.awt.GridLayout;
-import java.io.IOException;
 import java.time.LocalDate;
 
 
@@ -54,6 +69,8 @@ import java.time.LocalDate;
  */
 public class MainFrame extends JFrame {
 
+    private static final long serialVersionUID = 1L;
+
     /* =========================================================
        REPOSITORIES / MANAGERS (MODEL LAYER ACCESS)
        ========================================================= */
@@ -66,46 +83,65 @@ public class MainFrame extends JFrame {
     private final FacilityRepository facilityRepository;
     private final AppointmentRepository appointmentRepository;
 
+    /* =========================================================
+       BACKGROUND TASKS (file I/O never runs on the EDT)
+       ========================================================= */
+
+    // Runs loads / saves / output files off the EDT and shows their progress
+    private final TaskStatusBar tasks;
+
     /* =========================================================
        PATIENT TAB - TABLE + MODEL
        ========================================================= */
 
     private JTable patientTable;
-    private DefaultTableModel patientTableModel;
+    private RepositoryTableModel<Patient> patientTableModel;
 
     /* =========================================================
        CLINICIAN TAB - TABLE + MODEL
        ========================================================= */
 
     private JTable clinicianTable;
-    private DefaultTableModel clinicianTableModel;
+    private RepositoryTableModel<Clinician> clinicianTableModel;
 
     /* =========================================================
        PRESCRIPTION TAB - TABLE + MODEL
        ========================================================= */
 
     private JTable prescriptionTable;
-    private DefaultTableModel prescriptionTableModel;
+    private RepositoryTableModel<Prescription> prescriptionTableModel;
 
     /* =========================================================
        REFERRAL TAB - TABLE + MODEL
        ========================================================= */
 
     private JTable referralTable;
-    private DefaultTableModel referralTableModel;
+    private RepositoryTableModel<Referral> referralTableModel;
+
+    // Free-text search over referral clinical text (blank = show all)
+    private JTextField referralSearchField;
+
+    // Most open referrals listed by the "Triage Order" view
+    private static final int TRIAGE_VIEW_SIZE = 100;
+
+    // Position of the System (metrics) tab
+    private static final int SYSTEM_TAB = 7;
+
+    // Appointment lengths offered by the add / edit forms (minutes)
+    private static final Integer[] APPOINTMENT_LENGTHS = {15, 20, 30, 45, 60};
 
     /* =========================================================
        STAFF TAB - TABLE + MODEL
        ========================================================= */
 
     private JTable staffTable;
-    private DefaultTableModel staffTableModel;
+    private RepositoryTableModel<Staff> staffTableModel;
 
      /* =========================================================
        FACILITY TAB - TABLE + MODEL
        ========================================================= */
     private JTable facilityTable;
-    private DefaultTableModel facilityTableModel;
+    private RepositoryTableModel<Facility> facilityTableModel;
 
     /* =========================================================
        APPOINTMENT TAB - TABLE + MODEL
@@ -114,16 +150,30 @@ public class MainFrame extends JFrame {
         private JTable appointmentTable;
 
         // Table model controlling appointment table data
-        private DefaultTableModel appointmentTableModel;    
+        private RepositoryTableModel<Appointment> appointmentTableModel;
+
+        // Shared repositories (also used by LoginFrame)
+        private final DataContext context;
+
+        // Merges CSV files changed by other programs (null if unavailable)
+        private DataFileWatcher fileWatcher;
+
+    /* =========================================================
+       SYSTEM TAB - METRICS (admin)
+       ========================================================= */
+
+    private RepositoryTableModel<Metrics.Reading> metricsTableModel;
 
 
     /**
      * Constructs the main application window.
-     * - Initialise repositories
+     * - Take the shared repositories loaded by Bootstrap
      * - Build tabs
-     * - Load data into each tab table
+     * - Fill each tab table from the in-memory data
+     *
+     * @param context repositories already loaded from CSV
      */
-    public MainFrame() {
+    public MainFrame(DataContext context) {
 
         // ---------- Window configuration ----------
         setTitle("Healthcare Referral System");
@@ -132,17 +182,27 @@ public class MainFrame extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
-        // ---------- Repository initialisation (Model layer) ----------
-        // These repositories handle CSV load/save and keep in-memory lists.
-        patientRepository = new PatientRepository();
-        clinicianRepository = new ClinicianRepository();
-        prescriptionRepository = new PrescriptionRepository();
-        referralRepository = new ReferralRepository();
-        staffRepository = new StaffRepository();
-        facilityRepository = new FacilityRepository();
-        appointmentRepository = new AppointmentRepository();
-
-          
+        // ---------- Repositories (Model layer) ----------
+        // Already loaded in parallel by Bootstrap; the tabs only read
+        // the in-memory lists, so building the UI does no file I/O.
+        patientRepository = context.getPatientRepository();
+        clinicianRepository = context.getClinicianRepository();
+        prescriptionRepository = context.getPrescriptionRepository();
+        referralRepository = context.getReferralRepository();
+        staffRepository = context.getStaffRepository();
+        facilityRepository = context.getFacilityRepository();
+        appointmentRepository = context.getAppointmentRepository();
+
+        // ---------- Status bar for background file work ----------
+        tasks = new TaskStatusBar(this);
+
+        // Summary of the startup load (finished before this window opens)
+        CompletableFuture<Bootstrap.Report> load = context.loadAll(null);
+        if (load.isDone() && !load.isCompletedExceptionally()) {
+            Bootstrap.Report report = load.join();
+            tasks.showMessage("Loaded " + report.getTimings().size() + " repositories in "
+                    + report.getTotalMillis() + " ms");
+        }
 
         // ---------- Build tabbed UI ----------
         // Each tab is created by a dedicated method for clarity.
@@ -154,11 +214,98 @@ public class MainFrame extends JFrame {
         tabs.addTab("Staff", createStaffPanel());
         tabs.addTab("Facilities", createFacilityPanel());
         tabs.addTab("Appointments", createAppointmentPanel());
+        tabs.addTab("System", createSystemPanel());
+
+        // Metrics are read when the tab is opened, not continuously
+        tabs.addChangeListener(e -> {
+            if (tabs.getSelectedIndex() == SYSTEM_TAB) metricsTableModel.refresh();
+        });
 
         // Apply-Role-Based-Access Control (RBAC)
         applyRolePermissions(tabs);
 
         add(tabs, BorderLayout.CENTER);
+        add(tasks, BorderLayout.SOUTH);
+
+        // ---------- Pick up files edited outside the application ----------
+        // The watcher merges changed rows as soon as a file is dropped into
+        // data/; the activation check catches anything it could not see.
+        this.context = context;
+        startFileWatcher();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowActivated(WindowEvent e) {
+                checkDataFiles();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                stopFileWatcher();
+            }
+        });
+    }
+
+    /**
+     * Watches data/ and merges changed CSV files into the repositories
+     * on the EDT, so the open tables update row by row.
+     */
+    private void startFileWatcher() {
+        try {
+            fileWatcher = DataFileWatcher.start(context, SwingUtilities::invokeLater, this::showMerged);
+        } catch (IOException e) {
+            System.err.println("Data folder cannot be watched: " + e.getMessage());
+        }
+    }
+
+    private void stopFileWatcher() {
+        if (fileWatcher == null) return;
+        try {
+            fileWatcher.close();
+        } catch (IOException e) {
+            System.err.println("Failed to stop data file watcher: " + e.getMessage());
+        }
+        fileWatcher = null;
+    }
+
+    /**
+     * Merges the data files that another program changed since they
+     * were loaded or saved (compared by size and last-modified time).
+     * Runs each time the window is activated; unchanged files are never
+     * read again. A file that changed again (or was edited here) while
+     * it was being read is left for the next check.
+     */
+    private void checkDataFiles() {
+
+        // Saves or another check still queued: try again next activation
+        if (tasks.isBusy()) return;
+
+        tasks.run("Checking data files",
+                progress -> context.readChanged(),
+                reloads -> {
+                    for (DataContext.Reload reload : reloads) {
+                        try {
+                            RowDelta delta = reload.merge();
+                            if (delta != null) showMerged(reload.getName(), delta);
+                        } catch (IOException ex) {
+                            JOptionPane.showMessageDialog(
+                                    this,
+                                    "Failed to reload " + reload.getName() + ":\n" + ex.getMessage(),
+                                    "Reload Error",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        }
+                    }
+                },
+                ex -> System.err.println("Data file check failed: " + ex.getMessage()));
+    }
+
+    /**
+     * Reports a merge from disk in the status bar (rows added ~changed
+     * -deleted); merges that changed nothing are not shown.
+     */
+    private void showMerged(String name, RowDelta delta) {
+        if (delta.isEmpty()) return;
+        tasks.showMessage("Merged " + name + " from disk: " + delta);
     }
 
     /* =========================================================
@@ -172,30 +319,26 @@ public class MainFrame extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Table model column order should match what you want displayed
-        patientTableModel = new DefaultTableModel(
-            new String[]{
-                "NHS Number",
-                "First Name",
-                "Last Name",
-                "Date of Birth",
-                "Phone Number",
-                "Emergency Contact",
-                "Gender",
-                "Address",
-                "Postcode",
-                "Email",
-                "Registered GP Surgery"
-         }, 0
-);
-        
-
+        // (cells are read from the repository's list; no copy is made)
+        patientTableModel = new RepositoryTableModel<>(patientRepository.view())
+                .column("NHS Number", Patient::getNhsNumber)
+                .column("First Name", Patient::getFirstName)
+                .column("Last Name", Patient::getLastName)
+                .column("Date of Birth", Patient::getDateOfBirth)
+                .column("Phone Number", Patient::getPhoneNumber)
+                .column("Emergency Contact", Patient::getEmergencyContactNumber)
+                .column("Gender", Patient::getGender)
+                .column("Address", Patient::getAddress)
+                .column("Postcode", Patient::getPostcode)
+                .column("Email", Patient::getEmail)
+                .column("Registered GP Surgery", Patient::getRegisteredGpSurgery);
+
+        // Repository changes repaint only the affected rows
+        patientRepository.addListener(patientTableModel);
 
         patientTable = new JTable(patientTableModel);
         patientTable.setPreferredScrollableViewportSize(new Dimension(1200, 450));
 
-        // Load initial data from CSV (via repository)
-        loadPatients();
-
         // Button panel
         // -------- Buttons --------
         JButton addBtn = new JButton("Add Patient");
@@ -225,39 +368,6 @@ public class MainFrame extends JFrame {
         return panel;
     }
 
-    /**
-     * Loads patients from patients.csv via repository and populates table.
-     */
-    private void loadPatients() {
-        try {
-            patientRepository.load("data/patients.csv");
-
-            // Clear UI table
-            patientTableModel.setRowCount(0);
-
-            // Populate UI from repository objects
-            for (Patient p : patientRepository.getAll()) {
-    patientTableModel.addRow(new Object[]{
-            p.getNhsNumber(),
-            p.getFirstName(),
-            p.getLastName(),
-            p.getDateOfBirth(),
-            p.getPhoneNumber(),
-            p.getEmergencyContactNumber(),
-            p.getGender(),
-            p.getAddress(),
-            p.getPostcode(),
-            p.getEmail(),
-            p.getRegisteredGpSurgery()
-    });
-}
-
-
-        } catch (Exception ex) {
-            showError(ex);
-        }
-    }
-
     /**
      * Adds a new patient.
      * - Collect input via dialogs
@@ -363,8 +473,7 @@ if (showPatientMissingFields(
                 gpField.getText().trim()
         );
 
-        patientRepository.addPatient(newPatient);
-        loadPatients();
+        tasks.awaitSave("Saving new patient", patientRepository.addPatient(newPatient));
 
         JOptionPane.showMessageDialog(this, "Patient added successfully.");
 
@@ -521,9 +630,8 @@ private void editPatient() {
                 gpField.getText().trim()
         );
 
-        // Persist changes and refresh table
-        patientRepository.updatePatient(updated);
-        loadPatients();
+        // Persist changes (the table model repaints the row)
+        tasks.awaitSave("Saving patient changes", patientRepository.updatePatient(updated));
 
         JOptionPane.showMessageDialog(this, "Patient updated successfully.");
 
@@ -604,9 +712,16 @@ private void viewPatientPrescriptions() {
 
     String patientNhs = patientTableModel.getValueAt(row, 0).toString();
 
-    try {
-        prescriptionRepository.load("data/prescriptions.csv");
+    // The shared repository is already current (see checkDataFiles)
+    showPatientPrescriptions(patientNhs);
+}
 
+/**
+ * Lists the in-memory prescriptions of one patient in a dialog.
+ */
+private void showPatientPrescriptions(String patientNhs) {
+
+    try {
         StringBuilder details = new StringBuilder();
         details.append("PRESCRIPTIONS FOR PATIENT: ").append(patientNhs).append("\n");
         details.append("====================================\n\n");
@@ -674,8 +789,7 @@ private void viewPatientPrescriptions() {
 
             if (confirm != JOptionPane.YES_OPTION) return;
 
-            patientRepository.deletePatient(nhs);
-            loadPatients();
+            tasks.awaitSave("Deleting patient", patientRepository.deletePatient(nhs));
 
             JOptionPane.showMessageDialog(this, "Patient deleted successfully.");
 
@@ -694,14 +808,17 @@ private void viewPatientPrescriptions() {
 
     JPanel panel = new JPanel(new BorderLayout());
 
-    clinicianTableModel = new DefaultTableModel(
-            new String[]{"Clinician ID", "Name", "Role", "Specialty", "Staff Code"}, 0
-    );
+    clinicianTableModel = new RepositoryTableModel<>(clinicianRepository.view())
+            .column("Clinician ID", Clinician::getClinicianId)
+            .column("Name", Clinician::getName)
+            .column("Role", Clinician::getRole)
+            .column("Specialty", Clinician::getSpecialty)
+            .column("Staff Code", Clinician::getWorkplace);
 
-    clinicianTable = new JTable(clinicianTableModel);
+    // Repository changes repaint only the affected rows
+    clinicianRepository.addListener(clinicianTableModel);
 
-    //  LOAD DATA
-    loadClinicians();
+    clinicianTable = new JTable(clinicianTableModel);
 
     // -------- Buttons --------
     JButton addBtn = new JButton("Add Clinician");
@@ -735,26 +852,6 @@ private void viewPatientPrescriptions() {
 }
 
 
-    private void loadClinicians() {
-        try {
-            clinicianRepository.load("data/clinicians.csv");
-            clinicianTableModel.setRowCount(0);
-
-            for (Clinician c : clinicianRepository.getAll()) {
-                clinicianTableModel.addRow(new Object[]{
-                        c.getClinicianId(),
-                        c.getName(),
-                        c.getRole(),
-                        c.getSpecialty(),
-                        c.getWorkplace()
-                });
-            }
-
-        } catch (Exception ex) {
-            showError(ex);
-        }
-    }
-
 private void addClinician() {
 
     // Create form fields
@@ -827,8 +924,7 @@ if (showClinicianMissingFields(
                 staffCodeField.getText().trim()
         );
 
-        clinicianRepository.add(clinician);
-        loadClinicians();
+        tasks.awaitSave("Saving new clinician", clinicianRepository.add(clinician));
 
         JOptionPane.showMessageDialog(this, "Clinician added successfully.");
 
@@ -899,6 +995,15 @@ private void viewClinicianPrescriptions() {
 
     String clinicianId = clinicianTableModel.getValueAt(row, 0).toString();
 
+    // The shared repository is already current (see checkDataFiles)
+    showClinicianPrescriptions(clinicianId);
+}
+
+/**
+ * Lists the in-memory prescriptions issued by one clinician in a dialog.
+ */
+private void showClinicianPrescriptions(String clinicianId) {
+
     StringBuilder details = new StringBuilder();
     details.append("Prescriptions issued by clinician: ")
            .append(clinicianId)
@@ -907,9 +1012,6 @@ private void viewClinicianPrescriptions() {
     boolean found = false;
 
     try {
-        // Ensure prescriptions are loaded
-        prescriptionRepository.load("data/prescriptions.csv");
-
         for (Prescription p : prescriptionRepository.getAll()) {
 
             if (p.getClinicianId().equalsIgnoreCase(clinicianId)) {
@@ -1051,9 +1153,8 @@ private void viewClinicianPrescriptions() {
                 staffCodeField.getText().trim()
         );
 
-        // Persist changes and refresh table
-        clinicianRepository.update(updated);
-        loadClinicians();
+        // Persist changes (the table model repaints the row)
+        tasks.awaitSave("Saving clinician changes", clinicianRepository.update(updated));
 
         JOptionPane.showMessageDialog(this, "Clinician updated successfully.");
 
@@ -1083,8 +1184,7 @@ private void viewClinicianPrescriptions() {
 
             if (confirm != JOptionPane.YES_OPTION) return;
 
-            clinicianRepository.delete(id);
-            loadClinicians();
+            tasks.awaitSave("Deleting clinician", clinicianRepository.delete(id));
 
             JOptionPane.showMessageDialog(this, "Clinician deleted successfully.");
 
@@ -1103,23 +1203,21 @@ private JPanel createPrescriptionPanel() {
 
     JPanel panel = new JPanel(new BorderLayout());
 
-    prescriptionTableModel = new DefaultTableModel(
-            new String[]{
-                    "Prescription ID",
-                    "Patient NHS",
-                    "Clinician ID",
-                    "Medication",
-                    "Dosage",
-                    "Pharmacy",
-                    "Collection Status"
-            }, 0
-    );
+    prescriptionTableModel = new RepositoryTableModel<>(prescriptionRepository.view())
+            .column("Prescription ID", Prescription::getPrescriptionId)
+            .column("Patient NHS", Prescription::getPatientNhsNumber)
+            .column("Clinician ID", Prescription::getClinicianId)
+            .column("Medication", Prescription::getMedication)
+            .column("Dosage", Prescription::getDosage)
+            .column("Pharmacy", Prescription::getPharmacy)
+            .column("Collection Status", Prescription::getCollectionStatus);
+
+    // Repository changes repaint only the affected rows
+    prescriptionRepository.addListener(prescriptionTableModel);
 
     prescriptionTable = new JTable(prescriptionTableModel);
     prescriptionTable.setRowHeight(22);
 
-    loadPrescriptions();
-
     // -------- Buttons --------
     JButton addBtn = new JButton("Add Prescription");
     JButton editBtn = new JButton("Edit Prescription");
@@ -1162,8 +1260,7 @@ private JPanel createPrescriptionPanel() {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            prescriptionRepository.deletePrescription(id);
-            loadPrescriptions();
+            tasks.awaitSave("Deleting prescription", prescriptionRepository.deletePrescription(id));
         }
 
     } catch (Exception ex) {
@@ -1226,28 +1323,6 @@ private void viewPrescription() {
 }
 
 
-    private void loadPrescriptions() {
-        try {
-            prescriptionRepository.load("data/prescriptions.csv");
-            prescriptionTableModel.setRowCount(0);
-
-            for (Prescription p : prescriptionRepository.getAll()) {
-                prescriptionTableModel.addRow(new Object[]{
-                        p.getPrescriptionId(),
-                        p.getPatientNhsNumber(),
-                        p.getClinicianId(),
-                        p.getMedication(),
-                        p.getDosage(),
-                        p.getPharmacy(),
-                        p.getCollectionStatus()
-                });
-            }
-
-        } catch (Exception ex) {
-            showError(ex);
-        }
-    }
-
 private void addPrescription() {
 
     JTextField txtId = new JTextField();
@@ -1335,8 +1410,7 @@ private void addPrescription() {
         );
 
         // ✅ Correct repository methods
-        prescriptionRepository.addPrescription(prescription);
-        loadPrescriptions();
+        tasks.awaitSave("Saving new prescription", prescriptionRepository.addPrescription(prescription));
 
         JOptionPane.showMessageDialog(this, "Prescription added successfully.");
 
@@ -1453,8 +1527,7 @@ private void editPrescription() {
                 statusField.getText().trim()
         );
 
-        prescriptionRepository.updatePrescription(updated);
-        loadPrescriptions();
+        tasks.awaitSave("Saving prescription changes", prescriptionRepository.updatePrescription(updated));
 
         JOptionPane.showMessageDialog(this, "Prescription updated successfully.");
 
@@ -1475,31 +1548,65 @@ private void editPrescription() {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Expanded table to reflect more CSV info
-        referralTableModel = new DefaultTableModel(
-                new String[]{
-                        "Referral ID",
-                        "Patient ID",
-                        "Referring Clinician",
-                        "Referred To Clinician",
-                        "From Facility",
-                        "To Facility",
-                        "Referral Date",
-                        "Urgency",
-                        "Reason",
-                        "Clinical Summary",
-                        "Investigations",
-                        "Status",
-                        "Appointment ID",
-                        "Notes",
-                        "Created Date",
-                        "Last Updated",
-                }, 0
-        );
+        referralTableModel = new RepositoryTableModel<>(referralRepository.view())
+                .column("Referral ID", Referral::getReferralId)
+                .column("Patient ID", Referral::getPatientId)
+                .column("Referring Clinician", Referral::getReferringClinicianId)
+                .column("Referred To Clinician", Referral::getReferredToClinicianId)
+                .column("From Facility", Referral::getReferringFacilityId)
+                .column("To Facility", Referral::getReferredToFacilityId)
+                .column("Referral Date", Referral::getReferralDate)
+                .column("Urgency", Referral::getUrgencyLevel)
+                .column("Reason", Referral::getReferralReason)
+                .column("Clinical Summary", Referral::getClinicalSummary)
+                .column("Investigations", Referral::getRequestedInvestigations)
+                .column("Status", Referral::getStatus)
+                .column("Appointment ID", Referral::getAppointmentId)
+                .column("Notes", Referral::getNotes)
+                .column("Created Date", Referral::getCreatedDate)
+                .column("Last Updated", Referral::getLastUpdated);
+
+        // Repository changes repaint only the affected rows
+        referralRepository.addListener(referralTableModel);
 
         referralTable = new JTable(referralTableModel);
         referralTable.setPreferredScrollableViewportSize(new Dimension(1200, 450));
 
-        loadReferrals();
+        // -------- Search box (reason / summary / investigations / notes) --------
+        referralSearchField = new JTextField(30);
+        referralSearchField.setToolTipText(
+                "Words, prefixes (cardio*) or \"quoted phrases\"; all must match");
+
+        JButton searchBtn = new JButton("Search");
+        JButton clearSearchBtn = new JButton("Clear");
+
+        searchBtn.addActionListener(e -> loadReferrals());
+        referralSearchField.addActionListener(e -> loadReferrals()); // Enter key
+        clearSearchBtn.addActionListener(e -> {
+            referralSearchField.setText("");
+            loadReferrals();
+        });
+
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("Search clinical text:"));
+        searchPanel.add(referralSearchField);
+        searchPanel.add(searchBtn);
+        searchPanel.add(clearSearchBtn);
+
+        // -------- Triage (open referrals, most urgent / longest waiting first) --------
+        JButton triageBtn = new JButton("Triage Order");
+        JButton nextBtn = new JButton("Next Referral");
+        JButton routeBtn = new JButton("Route Backlog");
+
+        triageBtn.setToolTipText("Open referrals by urgency, then waiting time; updates as referrals change");
+        triageBtn.addActionListener(e -> showTriageOrder());
+        nextBtn.addActionListener(e -> openNextReferral());
+        routeBtn.setToolTipText("Suggested destination for every open referral, spreading the load");
+        routeBtn.addActionListener(e -> showBacklogRouting());
+
+        searchPanel.add(triageBtn);
+        searchPanel.add(nextBtn);
+        searchPanel.add(routeBtn);
 
         JButton viewBtn = new JButton("View Referral");
         JButton createBtn = new JButton("Create Referral");
@@ -1517,44 +1624,120 @@ private void editPrescription() {
         buttons.add(editBtn);
         buttons.add(deleteBtn);
 
+        panel.add(searchPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(referralTable), BorderLayout.CENTER);
         panel.add(buttons, BorderLayout.SOUTH);
 
         return panel;
     }
 
+    /**
+     * Shows all referrals, or only the search results if the search
+     * box contains a query. The filter is re-run whenever referrals change.
+     */
     private void loadReferrals() {
         try {
-            referralRepository.load("data/referrals.csv");
-            referralTableModel.setRowCount(0);
-
-            for (Referral r : referralRepository.getAll()) {
-                referralTableModel.addRow(new Object[]{
-                    r.getReferralId(),
-                    r.getPatientId(),
-                    r.getReferringClinicianId(),
-                    r.getReferredToClinicianId(),   // NEW
-                    r.getReferringFacilityId(),
-                    r.getReferredToFacilityId(),
-                    r.getReferralDate(),
-                    r.getUrgencyLevel(),
-                    r.getReferralReason(),
-                    r.getClinicalSummary(),
-                    r.getRequestedInvestigations(),
-                    r.getStatus(),
-                    r.getAppointmentId(),           //  NEW
-                    r.getNotes(),
-                    r.getCreatedDate(),              
-                    r.getLastUpdated()               
-});
-}
-}
+            String query = referralSearchField == null ? "" : referralSearchField.getText().trim();
+
+            referralTableModel.setFilter(query.isEmpty()
+                    ? null
+                    : () -> referralRepository.search(query));
+        }
         catch (Exception ex) {
             showError(ex);
         }
     }
 
 
+/**
+ * Shows only open referrals, in triage order. The list comes from the
+ * repository's triage queue and is re-read after every change, so an
+ * edited urgency or status re-orders the table straight away.
+ */
+private void showTriageOrder() {
+    referralSearchField.setText("");
+    referralTableModel.setFilter(() -> referralRepository.getTriageOrder(TRIAGE_VIEW_SIZE));
+}
+
+/**
+ * Opens the next referral to work (most urgent, longest waiting)
+ * in the edit form and saves the changes.
+ */
+private void openNextReferral() {
+
+    Referral next = referralRepository.getNextReferral();
+
+    if (next == null) {
+        JOptionPane.showMessageDialog(
+                this,
+                "There are no open referrals.",
+                "Triage",
+                JOptionPane.INFORMATION_MESSAGE
+        );
+        return;
+    }
+
+    Referral updated = showReferralForm(next);
+    if (updated != null) saveReferralChanges(updated);
+}
+
+/**
+ * Saves an edited referral; the triage queue re-orders it straight away.
+ */
+private void saveReferralChanges(Referral updated) {
+    try {
+        tasks.awaitSave("Saving referral changes", referralRepository.updateReferral(updated));
+    } catch (RuntimeException ex) {
+        JOptionPane.showMessageDialog(
+                this,
+                "Failed to save referral:\n" + ex.getMessage(),
+                "Save Error",
+                JOptionPane.ERROR_MESSAGE
+        );
+    }
+}
+
+
+/**
+ * Suggests a facility / clinician for every open referral, in triage
+ * order. The whole backlog is routed together (ReferralRouter.routeAll),
+ * so each suggestion counts towards the load seen by the next one.
+ * Nothing is changed: the list is for triage staff to act on.
+ */
+private void showBacklogRouting() {
+
+    tasks.run("Routing open referrals",
+            progress -> {
+                List<Referral> backlog = referralRepository.getTriageOrder(Integer.MAX_VALUE);
+                Map<String, ReferralRouter.Candidate> routes =
+                        context.getReferralRouter().routeAll(backlog);
+
+                StringBuilder report = new StringBuilder();
+                report.append("Open referrals: ").append(backlog.size())
+                        .append("\nRouted: ").append(routes.size())
+                        .append(" (the rest have no known speciality)\n\n");
+
+                for (Referral r : backlog) {
+                    ReferralRouter.Candidate c = routes.get(r.getReferralId());
+                    if (c == null) continue;
+                    report.append(r.getReferralId()).append(" (").append(r.getUrgencyLevel())
+                            .append(") -> ").append(c).append("\n");
+                }
+                return report.toString();
+            },
+            report -> {
+                JTextArea textArea = new JTextArea(report, 20, 80);
+                textArea.setEditable(false);
+
+                JOptionPane.showMessageDialog(
+                        this,
+                        new JScrollPane(textArea),
+                        "Route Backlog",
+                        JOptionPane.INFORMATION_MESSAGE
+                );
+            });
+}
+
 /**
  * Creates a new referral using user input dialogs
  * and processes it via the Singleton ReferralManager.
@@ -1573,8 +1756,8 @@ private void createReferral() {
     }
 
     try {
-    referralRepository.addReferral(newReferral);
-} catch (IOException ex) {
+    tasks.awaitSave("Saving new referral", referralRepository.addReferral(newReferral));
+} catch (RuntimeException ex) {
     JOptionPane.showMessageDialog(
             this,
             "Failed to save referral:\n" + ex.getMessage(),
@@ -1589,18 +1772,19 @@ private void createReferral() {
     ReferralManager manager = ReferralManager.getInstance();
     String emailContent = manager.generateReferralEmailContent(newReferral);
 
-    try {
-        ReferralWriter.writeReferralEmail(emailContent);
-    } catch (IOException ex) {
-        JOptionPane.showMessageDialog(
-                this,
-                "Referral created, but notification file could not be generated.",
-                "Warning",
-                JOptionPane.WARNING_MESSAGE
-        );
-    }
-
-    loadReferrals();
+    // Append to the notification file in the background
+    tasks.run("Writing referral notification",
+            progress -> {
+                ReferralWriter.writeReferralEmail(emailContent);
+                return null;
+            },
+            null,
+            ex -> JOptionPane.showMessageDialog(
+                    this,
+                    "Referral created, but notification file could not be generated.",
+                    "Warning",
+                    JOptionPane.WARNING_MESSAGE
+            ));
 }
 
 
@@ -1653,7 +1837,8 @@ private void editReferral() {
     // ---------------------------------
     // OPEN COLLECTIVE FORM (EDIT MODE)
     // ---------------------------------
-    showReferralForm(existing);
+    Referral updated = showReferralForm(existing);
+    if (updated != null) saveReferralChanges(updated);
 }
 
 private Referral showReferralForm(Referral existing) {
@@ -1674,7 +1859,7 @@ private Referral showReferralForm(Referral existing) {
     JTextField txtReferralDate = new JTextField(existing != null ? existing.getReferralDate() : "");
 
     JComboBox<String> cmbUrgency = new JComboBox<>(new String[]{
-            "Routine", "Urgent", "Non-urgent"
+            "Routine", "Urgent", "Emergency", "Non-urgent"
     });
 
     JComboBox<String> cmbStatus = new JComboBox<>(new String[]{
@@ -1687,7 +1872,21 @@ private Referral showReferralForm(Referral existing) {
     JTextArea txtInvestigations = new JTextArea(2, 20);
     JTextArea txtNotes = new JTextArea(2, 20);
 
+    // Routing: pick a speciality, then "Suggest" fills the destination
+    ReferralRouter router = context.getReferralRouter();
+    JComboBox<String> cmbSpeciality = new JComboBox<>(router.getSpecialities().toArray(new String[0]));
+    JButton btnSuggest = new JButton("Suggest");
+    btnSuggest.addActionListener(e -> suggestDestination(
+            btnSuggest,
+            (String) cmbSpeciality.getSelectedItem(),
+            cmbUrgency.getSelectedItem().toString(),
+            txtToFacility,
+            txtReferredClinician
+    ));
+
     if (existing != null) {
+        String speciality = router.specialityOf(existing);
+        if (speciality != null) cmbSpeciality.setSelectedItem(speciality);
         cmbUrgency.setSelectedItem(existing.getUrgencyLevel());
         cmbStatus.setSelectedItem(existing.getStatus());
         txtClinicalSummary.setText(existing.getClinicalSummary());
@@ -1716,6 +1915,12 @@ private Referral showReferralForm(Referral existing) {
     panel.add(new JLabel("To Facility ID:"));
     panel.add(txtToFacility);
 
+    JPanel specialityRow = new JPanel(new BorderLayout(4, 0));
+    specialityRow.add(cmbSpeciality, BorderLayout.CENTER);
+    specialityRow.add(btnSuggest, BorderLayout.EAST);
+    panel.add(new JLabel("Speciality (for Suggest):"));
+    panel.add(specialityRow);
+
     panel.add(new JLabel("Referral Date (YYYY-MM-DD):"));
     panel.add(txtReferralDate);
 
@@ -1797,6 +2002,53 @@ private Referral showReferralForm(Referral existing) {
     
 return referral;}
 
+/**
+ * Shows the routing engine's best destinations for a speciality and
+ * urgency, and copies the chosen facility / clinician into the form.
+ */
+private void suggestDestination(JComponent parent, String speciality, String urgency,
+                                JTextField toFacility, JTextField toClinician) {
+
+    if (speciality == null) {
+        JOptionPane.showMessageDialog(parent, "Please choose a speciality first.");
+        return;
+    }
+
+    List<ReferralRouter.Candidate> candidates =
+            context.getReferralRouter().route(speciality, urgency, 5);
+
+    if (candidates.isEmpty()) {
+        JOptionPane.showMessageDialog(
+                parent,
+                "No facility offers " + speciality + ".",
+                "No Suggestion",
+                JOptionPane.INFORMATION_MESSAGE
+        );
+        return;
+    }
+
+    JList<ReferralRouter.Candidate> list = new JList<>(
+            candidates.toArray(new ReferralRouter.Candidate[0]));
+    list.setSelectedIndex(0);
+    list.setVisibleRowCount(candidates.size());
+
+    int result = JOptionPane.showConfirmDialog(
+            parent,
+            new JScrollPane(list),
+            "Suggested destinations (" + speciality + ", " + urgency + ")",
+            JOptionPane.OK_CANCEL_OPTION,
+            JOptionPane.PLAIN_MESSAGE
+    );
+
+    ReferralRouter.Candidate chosen = list.getSelectedValue();
+    if (result != JOptionPane.OK_OPTION || chosen == null) return;
+
+    toFacility.setText(chosen.getFacility().getFacilityId());
+    if (chosen.getClinician() != null) {
+        toClinician.setText(chosen.getClinician().getClinicianId());
+    }
+}
+
 private void deleteReferral() {
         int row = referralTable.getSelectedRow();
         if (row == -1) {
@@ -1816,8 +2068,7 @@ private void deleteReferral() {
 
             if (confirm != JOptionPane.YES_OPTION) return;
 
-            referralRepository.deleteReferral(referralId);
-            loadReferrals();
+            tasks.awaitSave("Deleting referral", referralRepository.deleteReferral(referralId));
 
             JOptionPane.showMessageDialog(this, "Referral deleted successfully.");
 
@@ -1966,11 +2217,10 @@ private void showFacilityForm() {
     );
 
     // ==============================
-    // SAVE + REFRESH
+    // SAVE (table updates from repository events)
     // ==============================
     try {
-        facilityRepository.addFacility(facility);
-        loadFacilities();
+        tasks.awaitSave("Saving new facility", facilityRepository.addFacility(facility));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -2073,10 +2323,6 @@ private void viewReferrals() {
     );
 }
 
-private void populateReferralTable() {
-    loadReferrals();
-}
-
 
 
 
@@ -2085,7 +2331,7 @@ private void populateReferralTable() {
    ---------------------------------------------------------
    - Displays all staff records in a JTable
    - Loads staff data from CSV via StaffRepository
-   - Uses refreshStaffTable() to ensure all columns are populated
+   - Table reads straight from StaffRepository (RepositoryTableModel)
    - No hardcoded or legacy staff data is used
    ========================================================= */
 
@@ -2096,35 +2342,27 @@ private JPanel createStaffPanel() {
 
     // Table model defining ALL staff columns
     // These MUST match the fields stored in the Staff model
-    staffTableModel = new DefaultTableModel(
-            new String[]{
-                    "Staff ID",
-                    "Name",
-                    "Role",
-                    "Department",
-                    "Facility ID",
-                    "Phone",
-                    "Email",
-                    "Employment Status",
-                    "Start Date",
-                    "Line Manager",
-                    "Access Level"
-            }, 0
-    );
+    staffTableModel = new RepositoryTableModel<>(staffRepository.view())
+            .column("Staff ID", Staff::getStaffId)
+            .column("Name", Staff::getName)
+            .column("Role", Staff::getRole)
+            .column("Department", Staff::getDepartment)
+            .column("Facility ID", Staff::getFacilityId)
+            .column("Phone", Staff::getPhoneNumber)
+            .column("Email", Staff::getEmail)
+            .column("Employment Status", Staff::getEmploymentStatus)
+            .column("Start Date", Staff::getStartDate)
+            .column("Line Manager", Staff::getLineManager)
+            .column("Access Level", Staff::getAccessLevel);
+
+    // Staff data is loaded ONCE at startup by Bootstrap;
+    // repository changes then repaint only the affected rows
+    staffRepository.addListener(staffTableModel);
 
     // JTable bound to the model
     staffTable = new JTable(staffTableModel);
     staffTable.setPreferredScrollableViewportSize(new Dimension(1200, 450));
 
-    // Load staff data from CSV ONCE at startup
-    // Then populate the table using repository data
-    try {
-        staffRepository.load("data/staff.csv");
-        refreshStaffTable();
-    } catch (Exception ex) {
-        showError(ex);
-    }
-
     // ================================
     // Staff action buttons
     // ================================
@@ -2311,11 +2549,8 @@ private void showEditStaffForm() {
             accessLevelBox.getSelectedItem().toString()
     );
 
-    // Persist changes via repository
-    staffRepository.updateStaff(updated);
-
-    // Refresh UI table to reflect changes
-    refreshStaffTable();
+    // Persist changes via repository (the table repaints the row)
+    tasks.awaitSave("Saving staff changes", staffRepository.updateStaff(updated));
 
     JOptionPane.showMessageDialog(
             this,
@@ -2365,36 +2600,6 @@ private boolean showMissingFieldsIfAny(String... fields) {
 
     
 
-    /* =========================================================
-   refreshStaffTable
-   ---------------------------------------------------------
-   - Clears the JTable
-   - Re-populates it using StaffRepository data
-   - Ensures ALL columns are displayed correctly
-   ========================================================= */
-private void refreshStaffTable() {
-
-    DefaultTableModel model = (DefaultTableModel) staffTable.getModel();
-    model.setRowCount(0); // Clear existing rows
-
-    // Populate table from repository (single source of truth)
-    for (Staff s : staffRepository.getAll()) {
-        model.addRow(new Object[]{
-                s.getStaffId(),
-                s.getName(),
-                s.getRole(),
-                s.getDepartment(),
-                s.getFacilityId(),
-                s.getPhoneNumber(),
-                s.getEmail(),
-                s.getEmploymentStatus(),
-                s.getStartDate(),
-                s.getLineManager(),
-                s.getAccessLevel()
-        });
-    }
-}
-
 /* =========================================================
    showStaffForm
    ---------------------------------------------------------
@@ -2522,9 +2727,8 @@ if (showStaffMissingFields(
                 accessLevelBox.getSelectedItem().toString()
         );
 
-        // Persist staff and refresh UI
-        staffRepository.addStaff(staff);
-        refreshStaffTable();
+        // Persist staff (the table shows the new row)
+        tasks.awaitSave("Saving new staff member", staffRepository.addStaff(staff));
 
         JOptionPane.showMessageDialog(this, "Staff added successfully.");
 
@@ -2678,10 +2882,7 @@ private void deleteStaff() {
 
     try {
         //  DELETE FROM REPOSITORY (CSV + memory)
-        staffRepository.deleteStaff(staffId);
-
-        //  REFRESH TABLE FROM SINGLE SOURCE OF TRUTH
-        refreshStaffTable();
+        tasks.awaitSave("Deleting staff member", staffRepository.deleteStaff(staffId));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -2708,52 +2909,29 @@ private JPanel createFacilityPanel() {
     // ==============================
     // TABLE MODEL (MUST COME FIRST)
     // ==============================
-    facilityTableModel = new DefaultTableModel(
-            new String[]{
-                    "Facility ID",
-                    "Name",
-                    "Type",
-                    "Address",
-                    "Postcode",
-                    "Phone Number",
-                    "Email",
-                    "Opening Hours",
-                    "Manager Name",
-                    "Capacity",
-                    "Specialities Offered"
-            },
-            0
-    );
-
-    facilityTable = new JTable(facilityTableModel);
-    facilityTable.setRowHeight(22);
-
-    panel.add(new JScrollPane(facilityTable), BorderLayout.CENTER);
+    facilityTableModel = new RepositoryTableModel<>(facilityRepository.view())
+            .column("Facility ID", Facility::getFacilityId)
+            .column("Name", Facility::getFacilityName)
+            .column("Type", Facility::getFacilityType)
+            .column("Address", Facility::getAddress)
+            .column("Postcode", Facility::getPostcode)
+            .column("Phone Number", Facility::getPhoneNumber)
+            .column("Email", Facility::getEmail)
+            .column("Opening Hours", Facility::getOpeningHours)
+            .column("Manager Name", Facility::getManagerName)
+            .column("Capacity", Facility::getCapacity)
+            .column("Specialities Offered", Facility::getSpecialitiesOffered);
 
     // ==============================
-    // LOAD CSV *AFTER* MODEL EXISTS
+    // ROWS COME FROM THE REPOSITORY (data loaded by Bootstrap);
+    // changes repaint only the affected rows
     // ==============================
-    try {
-
-        facilityRepository.load("data/facilities.csv");
+    facilityRepository.addListener(facilityTableModel);
 
-System.out.println("Facilities loaded count = " 
-        + facilityRepository.getAllFacilities().size());
-
-loadFacilities();
-
-        facilityRepository.load("data/facilities.csv");
-        loadFacilities(); // ← THIS POPULATES THE TABLE
-    } catch (Exception e) {
-        JOptionPane.showMessageDialog(
-                this,
-                "Failed to load facilities data:\n" + e.getMessage(),
-                "Load Error",
-                JOptionPane.ERROR_MESSAGE
-        );
+    facilityTable = new JTable(facilityTableModel);
+    facilityTable.setRowHeight(22);
 
-        
-    }
+    panel.add(new JScrollPane(facilityTable), BorderLayout.CENTER);
 
     // ==============================
     // BUTTONS
@@ -2782,42 +2960,6 @@ loadFacilities();
 
 
 
-private void loadFacilities() {
-
-    if (facilityTableModel == null) {
-        return;
-    }
-
-    facilityTableModel.setRowCount(0);
-
-    //  THIS LINE IS CRITICAL
-    List<Facility> facilities = facilityRepository.getAll();
-
-    System.out.println("Facilities found: " + facilities.size());
-
-    for (Facility f : facilities) {
-        facilityTableModel.addRow(new Object[]{
-            f.getFacilityId(),
-            f.getFacilityName(),
-            f.getFacilityType(),
-            f.getAddress(),
-            f.getPostcode(),
-            f.getPhoneNumber(),
-            f.getEmail(),
-            f.getOpeningHours(),
-            f.getManagerName(),
-            f.getCapacity(),
-            f.getSpecialitiesOffered()
-        });
-    }
-}
-
-
-
-
-
-
-
 /**
  * View Facility
  * -------------
@@ -3038,11 +3180,10 @@ private void editFacility() {
     );
 
     // ==============================
-    // SAVE + REFRESH
+    // SAVE (table updates from repository events)
     // ==============================
     try {
-        facilityRepository.updateFacility(updated);
-        loadFacilities();
+        tasks.awaitSave("Saving facility changes", facilityRepository.updateFacility(updated));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -3064,10 +3205,9 @@ private void deleteFacility() {
     if (row == -1) return;
 
     try {
-        facilityRepository.deleteFacility(
+        tasks.awaitSave("Deleting facility", facilityRepository.deleteFacility(
                 facilityTableModel.getValueAt(row, 0).toString()
-        );
-        loadFacilities();
+        ));
 
     } catch (Exception e) {
         showError(e);
@@ -3088,48 +3228,27 @@ private JPanel createAppointmentPanel() {
 
     JPanel appointmentPanel = new JPanel(new BorderLayout());
 
-    appointmentTableModel = new DefaultTableModel(
-            new String[]{
-                    "Appointment ID",
-                    "Patient ID",
-                    "Clinician ID",
-                    "Facility ID",
-                    "Appointment Date",
-                    "Appointment Time",
-                    "Status",
-                    "Notes"
-            }, 0
-    );
+    appointmentTableModel = new RepositoryTableModel<>(appointmentRepository.view())
+            .column("Appointment ID", Appointment::getAppointmentId)
+            .column("Patient ID", Appointment::getPatientId)
+            .column("Clinician ID", Appointment::getClinicianId)
+            .column("Facility ID", Appointment::getFacilityId)
+            .column("Appointment Date", Appointment::getAppointmentDate)
+            .column("Appointment Time", Appointment::getAppointmentTime)
+            .column("Length (min)", Appointment::getStatus)
+            .column("Notes", Appointment::getNotes);
+
+    // ================================
+    // SHOW LOADED APPOINTMENTS
+    // (read from the repository; changes repaint only affected rows)
+    // ================================
+    appointmentRepository.addListener(appointmentTableModel);
 
     appointmentTable = new JTable(appointmentTableModel);
     appointmentTable.setRowHeight(22);
 
     appointmentPanel.add(new JScrollPane(appointmentTable), BorderLayout.CENTER);
 
-    // ================================
-    // LOAD APPOINTMENTS FROM CSV
-    // ================================
-    try {
-        appointmentRepository.load("data/appointments.csv");
-        appointmentTableModel.setRowCount(0);
-
-        for (Appointment a : appointmentRepository.getAll()) {
-            appointmentTableModel.addRow(new Object[]{
-                    a.getAppointmentId(),
-                    a.getPatientId(),
-                    a.getClinicianId(),
-                    a.getFacilityId(),
-                    a.getAppointmentDate(),
-                    a.getAppointmentTime(),
-                    a.getStatus(),
-                    a.getNotes()
-            });
-        }
-
-    } catch (Exception e) {
-        showError(e);
-    }
-
     // ================================
     // APPOINTMENT BUTTON PANEL
     // ================================
@@ -3141,6 +3260,8 @@ private JPanel createAppointmentPanel() {
     JButton viewBtn = new JButton("View Appointment");
     JButton viewReferralBtn = new JButton("View Related Referrals");
     JButton viewFacilityBtn = new JButton("View Facility");
+    JButton conflictsBtn = new JButton("Conflict Report");
+    JButton reportBtn = new JButton("Appointment Report");
 
 
 
@@ -3150,6 +3271,8 @@ private JPanel createAppointmentPanel() {
     viewBtn.addActionListener(e -> viewAppointment());
     viewReferralBtn.addActionListener(e -> viewAppointmentReferrals());
     viewFacilityBtn.addActionListener(e -> viewAppointmentFacility());
+    conflictsBtn.addActionListener(e -> showConflictReport());
+    reportBtn.addActionListener(e -> showAppointmentReport());
 
 
 
@@ -3159,6 +3282,8 @@ private JPanel createAppointmentPanel() {
     buttons.add(viewBtn);
     buttons.add(viewReferralBtn);
     buttons.add(viewFacilityBtn);
+    buttons.add(conflictsBtn);
+    buttons.add(reportBtn);
 
 
 
@@ -3212,8 +3337,8 @@ private void viewAppointment() {
     details.append("Appointment Time: ")
            .append(appointmentTableModel.getValueAt(row, 5)).append("\n");
 
-    details.append("Status: ")
-           .append(appointmentTableModel.getValueAt(row, 6)).append("\n\n");
+    details.append("Length: ")
+           .append(appointmentTableModel.getValueAt(row, 6)).append(" minutes\n\n");
 
     details.append("Notes:\n")
            .append(appointmentTableModel.getValueAt(row, 7));
@@ -3258,13 +3383,13 @@ private void addAppointment() {
     JTextField appointmentTimeField = new JTextField(); // HH:MM
     JTextArea notesArea = new JTextArea(3, 20);
 
-    // Status dropdown improves data integrity
-    JComboBox<String> statusBox = new JComboBox<>(new String[] {
-            "New",
-            "Pending",
-            "Completed",
-            "Cancelled"
-    });
+    // Appointment length: stored in the CSV and used to search for a slot
+    // (double bookings and times outside opening hours are rejected on save)
+    JComboBox<Integer> lengthBox = new JComboBox<>(APPOINTMENT_LENGTHS);
+    JButton findSlotBtn = new JButton("Find Slot");
+    JPanel lengthPanel = new JPanel(new BorderLayout(5, 0));
+    lengthPanel.add(lengthBox, BorderLayout.CENTER);
+    lengthPanel.add(findSlotBtn, BorderLayout.EAST);
 
     // ==============================
     // FORM LAYOUT
@@ -3272,6 +3397,15 @@ private void addAppointment() {
 
     JPanel panel = new JPanel(new GridLayout(0, 2, 8, 8));
 
+    findSlotBtn.addActionListener(e -> findFreeSlot(
+            panel,
+            clinicianIdField.getText().trim(),
+            facilityIdField.getText().trim(),
+            (Integer) lengthBox.getSelectedItem(),
+            appointmentDateField,
+            appointmentTimeField
+    ));
+
     panel.add(new JLabel("Appointment ID:"));
     panel.add(appointmentIdField);
 
@@ -3290,8 +3424,8 @@ private void addAppointment() {
     panel.add(new JLabel("Appointment Time (HH:MM):"));
     panel.add(appointmentTimeField);
 
-    panel.add(new JLabel("Status:"));
-    panel.add(statusBox);
+    panel.add(new JLabel("Length (minutes):"));
+    panel.add(lengthPanel);
 
     panel.add(new JLabel("Notes:"));
     panel.add(new JScrollPane(notesArea));
@@ -3301,7 +3435,7 @@ private void addAppointment() {
     // ==============================
 
     JScrollPane scrollPane = new JScrollPane(panel);
-    scrollPane.setPreferredSize(new Dimension(450, 400));
+    scrollPane.setPreferredSize(new Dimension(450, 430));
 
     int result = JOptionPane.showConfirmDialog(
             this,
@@ -3360,24 +3494,14 @@ private void addAppointment() {
                 facilityIdField.getText().trim(),
                 appointmentDateField.getText().trim(),
                 appointmentTimeField.getText().trim(),
-                statusBox.getSelectedItem().toString(),
+                lengthBox.getSelectedItem().toString(),
                 notesArea.getText().trim()
         );
 
-        // Persist via repository
-        appointmentRepository.addAppointment(appointment);
-
-        // Refresh appointments table
-        appointmentTableModel.addRow(new Object[]{
-                appointment.getAppointmentId(),
-                appointment.getPatientId(),
-                appointment.getClinicianId(),
-                appointment.getFacilityId(),
-                appointment.getAppointmentDate(),
-                appointment.getAppointmentTime(),
-                appointment.getStatus(),
-                appointment.getNotes()
-        });
+        if (!isWithinOpeningHours(appointment)) return;
+
+        // Persist via repository (the table shows the new row)
+        tasks.awaitSave("Saving new appointment", appointmentRepository.addAppointment(appointment));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -3391,6 +3515,211 @@ private void addAppointment() {
     }
 }
 
+/**
+ * Fills the date and time fields with the clinician's first free slot
+ * at the facility, searching from the date already typed (or today).
+ */
+private void findFreeSlot(JComponent parent, String clinicianId, String facilityId, int length,
+                          JTextField dateField, JTextField timeField) {
+
+    if (clinicianId.isEmpty() || facilityId.isEmpty()) {
+        JOptionPane.showMessageDialog(
+                parent,
+                "Enter the Clinician ID and Facility ID first.",
+                "Find Slot",
+                JOptionPane.WARNING_MESSAGE
+        );
+        return;
+    }
+
+    String typed = dateField.getText().trim();
+    int fromDay = typed.isEmpty()
+            ? TemporalCodec.toEpochDay(LocalDate.now().toString())
+            : TemporalCodec.toEpochDay(typed);
+
+    if (fromDay == TemporalCodec.NONE) {
+        JOptionPane.showMessageDialog(
+                parent,
+                "Appointment Date must be YYYY-MM-DD (or empty to search from today).",
+                "Find Slot",
+                JOptionPane.WARNING_MESSAGE
+        );
+        return;
+    }
+
+    SlotAllocator.Slot slot = context.getSlotAllocator()
+            .findFirstFree(clinicianId, facilityId, fromDay, 0, length);
+
+    if (slot == null) {
+        JOptionPane.showMessageDialog(
+                parent,
+                "No free " + length + "-minute slot in the next "
+                        + SlotAllocator.MAX_SEARCH_DAYS + " days.",
+                "Find Slot",
+                JOptionPane.INFORMATION_MESSAGE
+        );
+        return;
+    }
+
+    dateField.setText(slot.getDate());
+    timeField.setText(slot.getTime());
+}
+
+/**
+ * Checks that the facility is open for the whole appointment and
+ * explains why not otherwise. A date or time that does not parse is
+ * not checked (such rows take no slots; see SlotAllocator).
+ */
+private boolean isWithinOpeningHours(Appointment appointment) {
+
+    int day = appointment.getAppointmentDay();
+    int minute = appointment.getAppointmentMinute();
+    if (day == TemporalCodec.NONE || minute == TemporalCodec.NONE) return true;
+
+    int length = SlotAllocator.durationOf(appointment);
+    if (context.getSlotAllocator().isWithinOpeningHours(
+            appointment.getFacilityId(), day, minute, length)) {
+        return true;
+    }
+
+    JOptionPane.showMessageDialog(
+            this,
+            "Facility " + appointment.getFacilityId() + " is not open for the whole "
+                    + length + "-minute appointment at " + appointment.getAppointmentTime()
+                    + " on " + appointment.getAppointmentDate() + ".\n"
+                    + "Use Find Slot to pick a time within its opening hours.",
+            "Outside Opening Hours",
+            JOptionPane.WARNING_MESSAGE
+    );
+    return false;
+}
+
+/**
+ * Lists every overlapping pair of appointments: clinician double
+ * bookings, then appointments sharing a facility at the same time.
+ * The sweep runs in the background (it covers the whole history).
+ */
+private void showConflictReport() {
+
+    tasks.run("Checking appointment conflicts",
+            progress -> appointmentRepository.findAllConflicts(),
+            conflicts -> {
+
+                StringBuilder report = new StringBuilder();
+                int doubleBookings = 0;
+
+                for (AppointmentConflict c : conflicts) {
+                    if (c.getKind() == AppointmentConflict.Kind.CLINICIAN) doubleBookings++;
+                    report.append(c).append("\n");
+                }
+
+                report.insert(0, "Clinician double bookings: " + doubleBookings
+                        + "\nFacility overlaps: " + (conflicts.size() - doubleBookings) + "\n\n");
+
+                JTextArea textArea = new JTextArea(report.toString(), 20, 70);
+                textArea.setEditable(false);
+
+                JOptionPane.showMessageDialog(
+                        this,
+                        new JScrollPane(textArea),
+                        "Appointment Conflicts",
+                        JOptionPane.INFORMATION_MESSAGE
+                );
+            });
+}
+
+/**
+ * Appointment counts for a date range: per hour of the day, per
+ * clinician, per facility and per appointment length. Blank dates
+ * mean the first / last appointment on record.
+ *
+ * The counts are scans over a column-oriented copy of the appointments
+ * (ColumnarAppointmentStore), taken and scanned in the background.
+ */
+private void showAppointmentReport() {
+
+    JTextField fromField = new JTextField();
+    JTextField toField = new JTextField();
+
+    JPanel panel = new JPanel(new GridLayout(0, 2, 8, 8));
+    panel.add(new JLabel("From (YYYY-MM-DD, blank = first):"));
+    panel.add(fromField);
+    panel.add(new JLabel("To (YYYY-MM-DD, blank = last):"));
+    panel.add(toField);
+
+    int result = JOptionPane.showConfirmDialog(
+            this,
+            panel,
+            "Appointment Report",
+            JOptionPane.OK_CANCEL_OPTION,
+            JOptionPane.PLAIN_MESSAGE
+    );
+
+    if (result != JOptionPane.OK_OPTION) return;
+
+    String fromText = fromField.getText().trim();
+    String toText = toField.getText().trim();
+
+    if ((!fromText.isEmpty() && TemporalCodec.toEpochDay(fromText) == TemporalCodec.NONE)
+            || (!toText.isEmpty() && TemporalCodec.toEpochDay(toText) == TemporalCodec.NONE)) {
+        JOptionPane.showMessageDialog(
+                this,
+                "Dates must be YYYY-MM-DD (or blank).",
+                "Appointment Report",
+                JOptionPane.WARNING_MESSAGE
+        );
+        return;
+    }
+
+    tasks.run("Building appointment report",
+            progress -> {
+                ColumnarAppointmentStore store = appointmentRepository.toColumnar();
+                String from = fromText.isEmpty() ? store.firstDate() : fromText;
+                String to = toText.isEmpty() ? store.lastDate() : toText;
+                if (from == null || to == null) return "No appointments with a valid date.";
+
+                StringBuilder report = new StringBuilder();
+                report.append("Appointments from ").append(from).append(" to ").append(to)
+                        .append(": ").append(store.countBetween(from, to)).append("\n");
+
+                report.append("\nPer hour of day:\n");
+                int[] perHour = store.countPerHour(from, to);
+                for (int hour = 0; hour < perHour.length; hour++) {
+                    if (perHour[hour] > 0) {
+                        report.append(String.format("  %02d:00  %d%n", hour, perHour[hour]));
+                    }
+                }
+
+                appendCounts(report, "Per clinician", store.countByClinician(from, to));
+                appendCounts(report, "Per facility", store.countByFacility(from, to));
+                appendCounts(report, "Per length (minutes)", store.countByStatus(from, to));
+                return report.toString();
+            },
+            report -> {
+                JTextArea textArea = new JTextArea(report, 20, 50);
+                textArea.setEditable(false);
+
+                JOptionPane.showMessageDialog(
+                        this,
+                        new JScrollPane(textArea),
+                        "Appointment Report",
+                        JOptionPane.INFORMATION_MESSAGE
+                );
+            });
+}
+
+/** Appends a "value  count" section, largest count first. */
+private static void appendCounts(StringBuilder report, String title, Map<String, Integer> counts) {
+
+    List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+    entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+
+    report.append("\n").append(title).append(":\n");
+    for (Map.Entry<String, Integer> e : entries) {
+        report.append("  ").append(e.getKey()).append("  ").append(e.getValue()).append("\n");
+    }
+}
+
 /**
  * View Facility related to the selected Appointment.
  *
@@ -3499,11 +3828,8 @@ private void deleteAppointment() {
     // DELETE + REFRESH
     // ==============================
     try {
-        // Remove from repository (CSV persistence)
-        appointmentRepository.deleteAppointment(appointmentId);
-
-        // Remove from UI table
-        appointmentTableModel.removeRow(row);
+        // Remove from repository (CSV persistence; the table drops the row)
+        tasks.awaitSave("Deleting appointment", appointmentRepository.deleteAppointment(appointmentId));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -3543,10 +3869,16 @@ private void viewAppointmentReferrals() {
     // Extract patient ID from the selected appointment row
     String patientId = appointmentTableModel.getValueAt(row, 1).toString();
 
-    try {
-        // Ensure referrals are loaded
-        referralRepository.load("data/referrals.csv");
+    // The shared repository is already current (see checkDataFiles)
+    showPatientReferrals(patientId);
+}
+
+/**
+ * Lists the in-memory referrals of one patient in a dialog.
+ */
+private void showPatientReferrals(String patientId) {
 
+    try {
         StringBuilder details = new StringBuilder();
         details.append("REFERRALS FOR PATIENT: ")
                .append(patientId)
@@ -3668,15 +4000,13 @@ private void editAppointment() {
     JTextArea notesArea =
             new JTextArea(appointmentTableModel.getValueAt(row, 7).toString(), 3, 20);
 
-    JComboBox<String> statusBox = new JComboBox<>(new String[]{
-            "New",
-            "Pending",
-            "Completed",
-            "Cancelled"
-    });
-    statusBox.setSelectedItem(
-            appointmentTableModel.getValueAt(row, 6).toString()
-    );
+    // Current length, added to the choices if the data holds another value
+    int currentLength = SlotAllocator.durationOf(appointmentTableModel.getRow(row));
+    JComboBox<Integer> lengthBox = new JComboBox<>(APPOINTMENT_LENGTHS);
+    if (!Arrays.asList(APPOINTMENT_LENGTHS).contains(currentLength)) {
+        lengthBox.addItem(currentLength);
+    }
+    lengthBox.setSelectedItem(currentLength);
 
     // ==============================
     // FORM LAYOUT
@@ -3702,8 +4032,8 @@ private void editAppointment() {
     panel.add(new JLabel("Appointment Time (HH:MM):"));
     panel.add(appointmentTimeField);
 
-    panel.add(new JLabel("Status:"));
-    panel.add(statusBox);
+    panel.add(new JLabel("Length (minutes):"));
+    panel.add(lengthBox);
 
     panel.add(new JLabel("Notes:"));
     panel.add(new JScrollPane(notesArea));
@@ -3769,21 +4099,14 @@ private void editAppointment() {
                 facilityIdField.getText().trim(),
                 appointmentDateField.getText().trim(),
                 appointmentTimeField.getText().trim(),
-                statusBox.getSelectedItem().toString(),
+                lengthBox.getSelectedItem().toString(),
                 notesArea.getText().trim()
         );
 
-        // Persist update via repository
-        appointmentRepository.updateAppointment(updated);
+        if (!isWithinOpeningHours(updated)) return;
 
-        // Refresh table row
-        appointmentTableModel.setValueAt(updated.getPatientId(), row, 1);
-        appointmentTableModel.setValueAt(updated.getClinicianId(), row, 2);
-        appointmentTableModel.setValueAt(updated.getFacilityId(), row, 3);
-        appointmentTableModel.setValueAt(updated.getAppointmentDate(), row, 4);
-        appointmentTableModel.setValueAt(updated.getAppointmentTime(), row, 5);
-        appointmentTableModel.setValueAt(updated.getStatus(), row, 6);
-        appointmentTableModel.setValueAt(updated.getNotes(), row, 7);
+        // Persist update via repository (the table repaints the row)
+        tasks.awaitSave("Saving appointment changes", appointmentRepository.updateAppointment(updated));
 
         JOptionPane.showMessageDialog(
                 this,
@@ -4063,6 +4386,108 @@ private boolean showMissingFieldsPopup(String title, String... fields) {
     return false; // validation PASSED
 }
 
+/* =========================================================
+   SYSTEM TAB (admin)
+   Timings and counters recorded by the data layer (see Metrics):
+   load / read / merge / save times per CSV, lookups, output files
+   and the size of every column dictionary.
+   ========================================================= */
+
+private JPanel createSystemPanel() {
+
+    JPanel panel = new JPanel(new BorderLayout());
+
+    // Rows come from a fresh snapshot each time the model is refreshed
+    metricsTableModel = new RepositoryTableModel<>(Collections.<Metrics.Reading>emptyList())
+            .column("Metric", Metrics.Reading::getName)
+            .column("Type", Metrics.Reading::getType)
+            .column("Value / Calls", Metrics.Reading::getValue)
+            .column("Mean (ms)", r -> timerCell(r, r.getMeanMillis()))
+            .column("p50 (ms)", r -> timerCell(r, r.getP50Millis()))
+            .column("p90 (ms)", r -> timerCell(r, r.getP90Millis()))
+            .column("p99 (ms)", r -> timerCell(r, r.getP99Millis()))
+            .column("Max (ms)", r -> timerCell(r, r.getMaxMillis()));
+    metricsTableModel.setFilter(() -> Metrics.getInstance().snapshot());
+
+    JTable metricsTable = new JTable(metricsTableModel);
+    panel.add(new JScrollPane(metricsTable), BorderLayout.CENTER);
+
+    JPanel buttons = new JPanel();
+
+    JButton refreshBtn = new JButton("Refresh");
+    JButton resetBtn = new JButton("Reset Timings");
+    JButton exportBtn = new JButton("Export Metrics");
+    JButton stallsBtn = new JButton("UI Stalls");
+
+    buttons.add(refreshBtn);
+    buttons.add(resetBtn);
+    buttons.add(exportBtn);
+    buttons.add(stallsBtn);
+
+    refreshBtn.addActionListener(e -> metricsTableModel.refresh());
+
+    resetBtn.addActionListener(e -> {
+        Metrics.getInstance().resetTimers();
+        metricsTableModel.refresh();
+    });
+
+    exportBtn.addActionListener(e -> tasks.run("Exporting metrics",
+            progress -> Metrics.getInstance().exportCsv(),
+            file -> JOptionPane.showMessageDialog(
+                    this,
+                    "Metrics written to:\n" + file.toAbsolutePath(),
+                    "Export Metrics",
+                    JOptionPane.INFORMATION_MESSAGE
+            )));
+
+    stallsBtn.addActionListener(e -> showUiStalls());
+
+    panel.add(buttons, BorderLayout.SOUTH);
+
+    return panel;
+}
+
+/**
+ * Lists the recent times the window froze (see EdtWatchdog), newest
+ * first, with the stack of the action that was running.
+ */
+private void showUiStalls() {
+
+    List<EdtWatchdog.Stall> stalls = EdtWatchdog.recentStalls();
+
+    StringBuilder report = new StringBuilder();
+    report.append("Actions that blocked the UI for more than ")
+          .append(EdtWatchdog.getThresholdMillis()).append(" ms\n")
+          .append("(per-button times: ui.action.* in the metrics table)\n\n");
+
+    if (stalls.isEmpty()) {
+        report.append("No stalls recorded.");
+    }
+
+    for (int i = stalls.size() - 1; i >= 0; i--) {
+        EdtWatchdog.Stall stall = stalls.get(i);
+        report.append(stall).append("\n").append(stall.getStack()).append("\n");
+    }
+
+    JTextArea textArea = new JTextArea(report.toString(), 25, 90);
+    textArea.setEditable(false);
+    textArea.setCaretPosition(0);
+
+    JOptionPane.showMessageDialog(
+            this,
+            new JScrollPane(textArea),
+            "UI Stalls",
+            JOptionPane.INFORMATION_MESSAGE
+    );
+}
+
+/**
+ * Timer columns are left blank for counters and gauges.
+ */
+private static String timerCell(Metrics.Reading reading, double millis) {
+    return reading.getType().equals("timer") ? String.format("%.3f", millis) : "";
+}
+
 /**
  * Enables / disables tabs based on the logged-in user role.
  * Updated to include Appointments tab (Part B).
@@ -4078,12 +4503,14 @@ switch (UserSession.getRole()) {
         tabs.setEnabledAt(3, false);
         tabs.setEnabledAt(4, false);
         tabs.setEnabledAt(5, false);
+        tabs.setEnabledAt(SYSTEM_TAB, false);
         break;
 
     case "CLINICIAN":
         // Clinicians: no staff / facility admin
         tabs.setEnabledAt(4, false);
         tabs.setEnabledAt(5, false);
+        tabs.setEnabledAt(SYSTEM_TAB, false);
         break;
 
     case "DOCTOR":
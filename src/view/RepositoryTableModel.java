@@ -0,0 +1,158 @@
+package view;
+
+import repository.RepositoryListener;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * RepositoryTableModel
+ * --------------------
+ * JTable model that reads rows straight from a repository's live list
+ * instead of copying every record into a DefaultTableModel.
+ *
+ * Cells are computed only when the table paints them, and the
+ * repository's change events are turned into row events, so adding or
+ * editing one record repaints one row rather than rebuilding the table.
+ *
+ * Usage:
+ *   model = new RepositoryTableModel<>(repo.view())
+ *           .column("ID", Staff::getStaffId)
+ *           .column("Name", Staff::getName);
+ *   repo.addListener(model);
+ *
+ * MVC ROLE:
+ *  - VIEW adapter only: no copies of the data, no persistence
+ *
+ * NOTE:
+ *  - Read-only; edits go through the repository
+ *  - With a filter set, the filter is re-run after every change
+ */
+public class RepositoryTableModel<T> extends AbstractTableModel implements RepositoryListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Live, read-only list owned by the repository */
+    private final List<T> source;
+
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Function<T, ?>> columnValues = new ArrayList<>();
+
+    /** Optional subset of rows to show (null = all rows) */
+    private Supplier<List<T>> filter;
+
+    /** Rows produced by the filter when one is set */
+    private List<T> filtered;
+
+    public RepositoryTableModel(List<T> source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds a column whose cells are read from each record by the given function.
+     */
+    public RepositoryTableModel<T> column(String name, Function<T, ?> value) {
+        columnNames.add(name);
+        columnValues.add(value);
+        return this;
+    }
+
+    /* =====================================================
+       ROWS
+       ===================================================== */
+
+    private List<T> rows() {
+        return filtered != null ? filtered : source;
+    }
+
+    /**
+     * Record shown at a (model) row.
+     */
+    public T getRow(int row) {
+        return rows().get(row);
+    }
+
+    /**
+     * Shows only the rows returned by the supplier (e.g. a search),
+     * or every row again when null.
+     */
+    public void setFilter(Supplier<List<T>> filter) {
+        this.filter = filter;
+        refresh();
+    }
+
+    /**
+     * Re-reads everything (re-running the filter if one is set).
+     */
+    public void refresh() {
+        filtered = filter == null ? null : filter.get();
+        fireTableDataChanged();
+    }
+
+    /* =====================================================
+       TABLE MODEL
+       ===================================================== */
+
+    @Override
+    public int getRowCount() {
+        return rows().size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columnValues.get(column).apply(rows().get(row));
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    /* =====================================================
+       REPOSITORY EVENTS
+       ===================================================== */
+
+    @Override
+    public void repositoryChanged(Change change, int firstRow, int lastRow) {
+
+        // Changes made off the EDT (e.g. a background reload): repaint later
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::refresh);
+            return;
+        }
+
+        // Row numbers refer to the full list, not the filtered subset
+        if (filter != null || change == Change.RELOADED) {
+            refresh();
+            return;
+        }
+
+        switch (change) {
+            case INSERTED:
+                fireTableRowsInserted(firstRow, lastRow);
+                break;
+            case UPDATED:
+                fireTableRowsUpdated(firstRow, lastRow);
+                break;
+            case DELETED:
+                fireTableRowsDeleted(firstRow, lastRow);
+                break;
+            default:
+                refresh();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package view;
+
+import repository.Bootstrap;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Font;
+
+/**
+ * StartupSplash
+ * -------------
+ * Small progress window shown while Bootstrap loads the data files.
+ *
+ * Shows an overall progress bar plus one line per repository with its
+ * load time (or the error if it failed).
+ *
+ * MVC ROLE:
+ *  - VIEW only: receives progress from Bootstrap (Listener) and
+ *    updates its components on the Event Dispatch Thread
+ */
+public class StartupSplash extends JWindow implements Bootstrap.Listener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JLabel statusLabel = new JLabel("Loading data files...");
+    private final DefaultListModel<String> timingModel = new DefaultListModel<>();
+
+    public StartupSplash() {
+
+        JPanel panel = new JPanel(new BorderLayout(8, 8));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createEtchedBorder(),
+                BorderFactory.createEmptyBorder(12, 12, 12, 12)
+        ));
+
+        JLabel title = new JLabel("Healthcare Referral System");
+        title.setFont(title.getFont().deriveFont(Font.BOLD, 16f));
+
+        JList<String> timings = new JList<>(timingModel);
+        timings.setVisibleRowCount(7);
+        timings.setFocusable(false);
+        timings.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        progressBar.setStringPainted(true);
+
+        JPanel bottom = new JPanel(new BorderLayout(4, 4));
+        bottom.add(statusLabel, BorderLayout.NORTH);
+        bottom.add(progressBar, BorderLayout.SOUTH);
+
+        panel.add(title, BorderLayout.NORTH);
+        panel.add(new JScrollPane(timings), BorderLayout.CENTER);
+        panel.add(bottom, BorderLayout.SOUTH);
+
+        setContentPane(panel);
+        setSize(380, 260);
+        setLocationRelativeTo(null);
+    }
+
+    /**
+     * Called on a loader thread; forwards the update to the EDT.
+     */
+    @Override
+    public void loaded(String name, long elapsedMillis, Exception error, int completed, int total) {
+
+        String line = error == null
+                ? String.format("%-14s %6d ms", name, elapsedMillis)
+                : String.format("%-14s FAILED: %s", name, error.getMessage());
+
+        SwingUtilities.invokeLater(() -> {
+            timingModel.addElement(line);
+            progressBar.setMaximum(total);
+            progressBar.setValue(completed);
+            statusLabel.setText("Loaded " + completed + " of " + total + " data files");
+        });
+    }
+}
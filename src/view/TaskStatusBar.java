@@ -0,0 +1,287 @@
+package view;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * TaskStatusBar
+ * -------------
+ * Status bar that runs the GUI's file work in the background.
+ *
+ * Reading CSV files, waiting for saves and writing output files all
+ * happen on one background thread, one task at a time (in the order
+ * they were started), so the Event Dispatch Thread never waits for
+ * the disk. Results are handed back on the EDT, where they may touch
+ * table models and show dialogs.
+ *
+ * The bar shows the running task, a progress bar (indeterminate until
+ * the task reports a percentage), how many tasks are queued, and a
+ * Cancel button for tasks that can be cancelled.
+ *
+ * MVC ROLE:
+ *  - VIEW helper: runs repository calls, never does I/O itself
+ *
+ * NOTE:
+ *  - All public methods must be called on the EDT
+ *  - Saves cannot be cancelled (the data is already changed in memory)
+ */
+public class TaskStatusBar extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work to run off the EDT.
+     */
+    public interface Task<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Lets a running task report progress and notice cancellation.
+     */
+    public interface Progress {
+
+        /** Updates the bar; percent is 0..100 */
+        void update(int percent, String message);
+
+        /** True once the user pressed Cancel */
+        boolean isCancelled();
+    }
+
+    /** One worker thread: tasks run in start order */
+    private final ExecutorService pipeline = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gui-tasks");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final JLabel statusLabel = new JLabel("Ready");
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton cancelButton = new JButton("Cancel");
+
+    /** Parent for error dialogs */
+    private final Component owner;
+
+    /** Task currently running (null when idle) */
+    private Worker<?> current;
+
+    /** Tasks started but not finished (including the running one) */
+    private int pending;
+
+    public TaskStatusBar(Component owner) {
+
+        super(new BorderLayout(8, 0));
+        this.owner = owner;
+
+        setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+
+        progressBar.setPreferredSize(new Dimension(160, progressBar.getPreferredSize().height));
+        progressBar.setVisible(false);
+
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (current != null) current.cancel(true);
+        });
+
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 6, 0));
+        right.add(progressBar);
+        right.add(cancelButton);
+
+        add(statusLabel, BorderLayout.CENTER);
+        add(right, BorderLayout.EAST);
+    }
+
+    /* =====================================================
+       STARTING TASKS
+       ===================================================== */
+
+    /**
+     * Runs a cancellable task; errors are shown in an error dialog.
+     *
+     * @param onSuccess called on the EDT with the result (may be null)
+     */
+    public <T> void run(String description, Task<T> task, Consumer<T> onSuccess) {
+        run(description, task, onSuccess, this::showError);
+    }
+
+    /**
+     * Runs a cancellable task.
+     *
+     * @param onSuccess called on the EDT with the result (may be null)
+     * @param onFailure called on the EDT if the task throws
+     */
+    public <T> void run(String description, Task<T> task,
+                        Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        submit(new Worker<>(description, true, task, onSuccess, onFailure));
+    }
+
+    /**
+     * Shows a save in the status bar until it has reached the disk,
+     * and reports it if it fails.
+     *
+     * @param save future returned by a repository add/update/delete
+     */
+    public void awaitSave(String description, CompletableFuture<?> save) {
+
+        Task<Void> wait = progress -> {
+            try {
+                save.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            return null;
+        };
+
+        submit(new Worker<>(description, false, wait, null, this::showError));
+    }
+
+    /**
+     * Shows a notice in the status text, e.g. a change made outside a
+     * task. The next task update replaces it.
+     */
+    public void showMessage(String message) {
+        statusLabel.setText(message);
+    }
+
+    /** True while any task is queued or running. */
+    public boolean isBusy() {
+        return pending > 0;
+    }
+
+    private void submit(Worker<?> worker) {
+        pending++;
+        showQueue();
+        pipeline.execute(worker);
+    }
+
+    /* =====================================================
+       DISPLAY
+       ===================================================== */
+
+    private void started(Worker<?> worker) {
+        if (worker.isDone()) return; // cancelled while starting
+        current = worker;
+        statusLabel.setText(worker.description + "...");
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(false);
+        progressBar.setVisible(true);
+        cancelButton.setEnabled(worker.cancellable);
+        showQueue();
+    }
+
+    private void progressed(Worker<?> worker, int percent, String message) {
+        if (worker != current) return;
+        progressBar.setIndeterminate(false);
+        progressBar.setStringPainted(true);
+        progressBar.setValue(percent);
+        if (message != null) statusLabel.setText(worker.description + ": " + message);
+    }
+
+    private void finished(Worker<?> worker, String outcome) {
+        pending--;
+        if (worker == current) current = null;
+
+        if (pending == 0) {
+            progressBar.setVisible(false);
+            cancelButton.setEnabled(false);
+        }
+        statusLabel.setText(worker.description + " - " + outcome);
+        showQueue();
+    }
+
+    private void showQueue() {
+        int queued = pending - (current == null ? 0 : 1);
+        setToolTipText(queued > 0 ? queued + " more task(s) waiting" : null);
+    }
+
+    private void showError(Exception e) {
+        JOptionPane.showMessageDialog(
+                owner,
+                e.getMessage() == null ? e.toString() : e.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE
+        );
+    }
+
+    /* =====================================================
+       WORKER
+       ===================================================== */
+
+    /**
+     * SwingWorker for one task. doInBackground runs on the pipeline
+     * thread; process/done run on the EDT.
+     */
+    private final class Worker<T> extends SwingWorker<T, Object[]> implements Progress {
+
+        private final String description;
+        private final boolean cancellable;
+        private final Task<T> task;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onFailure;
+
+        Worker(String description, boolean cancellable, Task<T> task,
+               Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+            this.description = description;
+            this.cancellable = cancellable;
+            this.task = task;
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            SwingUtilities.invokeLater(() -> started(this));
+            return task.run(this);
+        }
+
+        @Override
+        public void update(int percent, String message) {
+            publish(new Object[]{Math.max(0, Math.min(100, percent)), message});
+        }
+
+        @Override
+        protected void process(List<Object[]> updates) {
+            Object[] last = updates.get(updates.size() - 1);
+            progressed(this, (Integer) last[0], (String) last[1]);
+        }
+
+        @Override
+        protected void done() {
+
+            // Cancelled before it started: it never ran, but still counts as finished
+            if (isCancelled()) {
+                finished(this, "cancelled");
+                return;
+            }
+
+            try {
+                T result = get();
+                finished(this, "done");
+                if (onSuccess != null) onSuccess.accept(result);
+
+            } catch (CancellationException e) {
+                finished(this, "cancelled");
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished(this, "interrupted");
+
+            } catch (ExecutionException e) {
+                finished(this, "failed");
+                Throwable cause = e.getCause();
+                Exception error = cause instanceof Exception ? (Exception) cause : e;
+                if (onFailure != null) onFailure.accept(error);
+            }
+        }
+    }
+}
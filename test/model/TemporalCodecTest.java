@@ -0,0 +1,73 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * TemporalCodecTest
+ * -----------------
+ * The hand-written calendar code must agree with java.time, and text
+ * it cannot reproduce must be kept as it was read.
+ */
+class TemporalCodecTest {
+
+    @Test
+    void everySupportedDateRoundTripsLikeLocalDate() {
+        LocalDate last = LocalDate.of(9999, 12, 31);
+
+        for (LocalDate date = LocalDate.of(0, 1, 1); !date.isAfter(last); date = date.plusDays(1)) {
+            String text = date.toString();
+            int epochDay = TemporalCodec.toEpochDay(text);
+
+            assertEquals(date.toEpochDay(), epochDay, text);
+            assertEquals(text, TemporalCodec.formatDate(epochDay));
+        }
+    }
+
+    @Test
+    void leapYearEdges() {
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toEpochDay("1900-02-29"));
+        assertEquals(LocalDate.of(1900, 3, 1).toEpochDay(), TemporalCodec.toEpochDay("1900-03-01"));
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), TemporalCodec.toEpochDay("2000-02-29"));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), TemporalCodec.toEpochDay("2024-02-29"));
+        assertEquals("2024-02-29", TemporalCodec.formatDate(TemporalCodec.toEpochDay("2024-02-29")));
+    }
+
+    @Test
+    void invalidDatesAndTimesAreRejected() {
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toEpochDay("2025-02-30"));
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toEpochDay("2025-13-01"));
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toEpochDay("2025/01/01"));
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toMinuteOfDay("24:00"));
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toMinuteOfDay("12:60"));
+        assertEquals(TemporalCodec.NONE, TemporalCodec.toMinuteOfDay(""));
+    }
+
+    @Test
+    void everyMinuteOfTheDayRoundTrips() {
+        for (int minute = 0; minute < TemporalCodec.MINUTES_PER_DAY; minute++) {
+            String text = TemporalCodec.formatTime(minute);
+            assertEquals(minute, TemporalCodec.toMinuteOfDay(text), text);
+        }
+    }
+
+    @Test
+    void irregularTextIsWrittenBackUnchanged() {
+        int nine = TemporalCodec.toMinuteOfDay("9:00");
+        assertEquals(9 * 60, nine);
+
+        String kept = TemporalCodec.timeTextIfIrregular("9:00", nine);
+        assertEquals("9:00", TemporalCodec.timeText(nine, kept));
+
+        int invalid = TemporalCodec.toEpochDay("2025-02-30");
+        String keptDate = TemporalCodec.dateTextIfIrregular("2025-02-30", invalid);
+        assertEquals("2025-02-30", TemporalCodec.dateText(invalid, keptDate));
+
+        // Regular text needs no copy
+        assertNull(TemporalCodec.timeTextIfIrregular("09:00", nine));
+    }
+}
@@ -0,0 +1,140 @@
+package repository;
+
+import model.Appointment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AppointmentConflictTest
+ * -----------------------
+ * Overlap detection in AppointmentRepository. Appointment lengths are
+ * read from the duration column (see SlotAllocator.durationOf).
+ */
+class AppointmentConflictTest {
+
+    @TempDir
+    Path folder;
+
+    private AppointmentRepository repository;
+
+    private static Appointment appointment(String id, String clinician, String facility,
+                                           String time, int minutes) {
+        return new Appointment(id, "P001", clinician, facility, "2025-06-02", time,
+                String.valueOf(minutes), "");
+    }
+
+    @BeforeEach
+    void load() {
+        repository = new AppointmentRepository();
+        repository.install(folder.resolve("appointments.csv").toString(), new ArrayList<>(List.of(
+                appointment("A1", "C001", "F001", "09:00", 30),
+                appointment("A2", "C002", "F001", "09:15", 15),
+                appointment("A3", "C001", "F002", "10:00", 20))));
+    }
+
+    @Test
+    void overlapWithSameClinicianOrFacilityIsReported() {
+        List<AppointmentConflict> conflicts =
+                repository.findConflicts(appointment("N1", "C001", "F001", "09:20", 15));
+
+        // A1 shares the clinician and the facility, A2 only the facility
+        assertEquals(3, conflicts.size());
+        assertTrue(conflicts.stream().anyMatch(c ->
+                c.getKind() == AppointmentConflict.Kind.CLINICIAN
+                        && c.getSecond().getAppointmentId().equals("A1")));
+        assertTrue(conflicts.stream().anyMatch(c ->
+                c.getKind() == AppointmentConflict.Kind.FACILITY
+                        && c.getSecond().getAppointmentId().equals("A2")));
+    }
+
+    @Test
+    void backToBackAppointmentsDoNotOverlap() {
+        // A1 runs 09:00-09:30 and A3 starts at 10:00: both boundaries touch
+        assertTrue(repository.findConflicts(appointment("N1", "C001", "F003", "09:30", 30)).isEmpty());
+        assertTrue(repository.findConflicts(appointment("N2", "C001", "F003", "08:30", 30)).isEmpty());
+    }
+
+    @Test
+    void clinicianIdsMatchIgnoringCase() {
+        assertEquals(1, repository.findConflicts(appointment("N1", " c001", "F003", "10:10", 5)).size());
+    }
+
+    @Test
+    void doubleBookingIsRejectedOnAdd() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> repository.addAppointment(appointment("N1", "c001", "F003", "09:10", 15)));
+        assertTrue(e.getMessage().contains("A1"));
+    }
+
+    @Test
+    void editKeepsExistingClashesButRejectsNewOnes() {
+        // A clash that is already in the data can still be edited
+        repository.install(folder.resolve("appointments.csv").toString(), new ArrayList<>(List.of(
+                appointment("A1", "C001", "F001", "09:00", 30),
+                appointment("A2", "C001", "F002", "09:15", 15),
+                appointment("A3", "C001", "F002", "11:00", 15))));
+
+        repository.updateAppointment(appointment("A2", "C001", "F002", "09:20", 10)).join();
+        assertEquals("09:20", repository.getById("a2").getAppointmentTime());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.updateAppointment(appointment("A2", "C001", "F002", "11:05", 10)));
+    }
+
+    @Test
+    void schedulesFollowUpdatesAndDeletes() {
+        repository.updateAppointment(appointment("A1", "C001", "F001", "12:00", 30)).join();
+        assertTrue(repository.findConflicts(appointment("N1", "C001", "F003", "09:00", 30)).isEmpty());
+
+        repository.deleteAppointment("A3").join();
+        assertTrue(repository.findConflicts(appointment("N2", "C001", "F003", "10:00", 20)).isEmpty());
+        // Updates keep the row in place
+        assertEquals(List.of("A1", "A2"), ids(repository.view()));
+    }
+
+    @Test
+    void findAllConflictsListsEveryOverlappingPair() {
+        repository.install(folder.resolve("appointments.csv").toString(), new ArrayList<>(List.of(
+                appointment("A1", "C001", "F001", "09:00", 60),
+                appointment("A2", "C001", "F002", "09:15", 15),
+                appointment("A3", "c001", "F003", "09:45", 30),
+                appointment("A4", "C002", "F004", "09:00", 60))));
+
+        List<AppointmentConflict> all = repository.findAllConflicts();
+
+        // A1-A2 and A1-A3 for clinician C001; A2 ends before A3 starts
+        assertEquals(2, all.size());
+        for (AppointmentConflict c : all) {
+            assertEquals(AppointmentConflict.Kind.CLINICIAN, c.getKind());
+            assertEquals("A1", c.getFirst().getAppointmentId());
+        }
+    }
+
+    @Test
+    void foreignKeyLookupsIgnoreCase() {
+        repository.addAppointment(appointment("A4", " c002", "f003", "12:00", 15)).join();
+
+        assertEquals(List.of("A1", "A3"), ids(repository.getByClinician("c001")));
+        assertEquals(List.of("A2", "A4"), ids(repository.getByClinician("C002 ")));
+        assertEquals(List.of("A4"), ids(repository.getByFacility("F003")));
+        assertEquals(4, repository.getByPatient("p001").size());
+
+        repository.deleteAppointment("a4").join();
+        assertTrue(repository.getByFacility("F003").isEmpty());
+    }
+
+    private static List<String> ids(List<Appointment> appointments) {
+        List<String> ids = new ArrayList<>();
+        for (Appointment a : appointments) ids.add(a.getAppointmentId());
+        return ids;
+    }
+}
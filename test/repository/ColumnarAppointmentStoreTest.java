@@ -0,0 +1,82 @@
+package repository;
+
+import model.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ColumnarAppointmentStoreTest
+ * ----------------------------
+ * Range scans and the lossless round trip of irregular values.
+ */
+class ColumnarAppointmentStoreTest {
+
+    private static Appointment appointment(String id, String clinician, String date, String time) {
+        return new Appointment(id, "P001", clinician, "S001", date, time, "15", "note " + id);
+    }
+
+    private final ColumnarAppointmentStore store = ColumnarAppointmentStore.of(List.of(
+            appointment("A1", "C001", "2025-06-02", "09:00"),
+            appointment("A2", "C001", "2025-06-03", "09:30"),
+            appointment("A3", "C002", "2025-06-03", "14:15"),
+            appointment("A4", "C002", "June 5th", "10:00"),
+            appointment("A5", "C003", "2025-06-10", "later")));
+
+    @Test
+    void countsWithinTheRangeOnly() {
+        assertEquals(3, store.countBetween("2025-06-02", "2025-06-03"));
+        assertEquals(Map.of("C001", 2, "C002", 1), store.countByClinician("2025-06-01", "2025-06-05"));
+        assertEquals(1, store.countForClinician("C002", "2025-06-01", "2025-06-30"));
+        assertArrayEquals(new int[]{1, 2}, store.countPerDay("2025-06-02", "2025-06-03"));
+
+        int[] perHour = store.countPerHour("2025-06-01", "2025-06-30");
+        assertEquals(2, perHour[9]);
+        assertEquals(1, perHour[14]);
+        assertEquals(3, Arrays.stream(perHour).sum()); // A5 has no valid time
+    }
+
+    @Test
+    void invalidBoundGivesEmptyResults() {
+        // Rows with an unparseable date must not match an unparseable bound
+        assertEquals(0, store.countBetween("not a date", "2025-06-30"));
+        assertEquals(0, store.countBetween("2025-06-01", null));
+        assertEquals(0, Arrays.stream(store.countPerHour(null, "2025-06-30")).sum());
+        assertTrue(store.countByStatus("bad", "bad").isEmpty());
+        assertEquals(0, store.countForClinician("C002", "bad", "2025-06-30"));
+        assertEquals(0, store.countPerDay("bad", "2025-06-30").length);
+    }
+
+    @Test
+    void dateRangeIgnoresIrregularDates() {
+        assertEquals("2025-06-02", store.firstDate());
+        assertEquals("2025-06-10", store.lastDate());
+        assertNull(ColumnarAppointmentStore.of(List.of()).firstDate());
+    }
+
+    @Test
+    void rowsRoundTripIncludingIrregularText() {
+        Appointment a4 = store.getById("A4");
+        assertEquals("June 5th", a4.getAppointmentDate());
+        assertEquals("note A4", a4.getNotes());
+        assertEquals("later", store.getById("A5").getAppointmentTime());
+    }
+
+    @Test
+    void updateAndDeleteKeepColumnsConsistent() {
+        store.updateAppointment(appointment("A1", "C003", "2025-06-04", "11:00"));
+        store.deleteAppointment("A2");
+
+        assertEquals(4, store.size());
+        assertEquals(Map.of("C002", 1, "C003", 1), store.countByClinician("2025-06-01", "2025-06-05"));
+        assertEquals("note A1", store.getById("A1").getNotes());
+        assertNull(store.getById("A2"));
+    }
+}
@@ -0,0 +1,148 @@
+package repository;
+
+import model.Appointment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CsvUtilTest
+ * -----------
+ * Rows written with writeRow() read back unchanged through the
+ * Tokenizer, plus the lenient edge cases of the parser.
+ */
+class CsvUtilTest {
+
+    @TempDir
+    Path folder;
+
+    private static final String[][] ROWS = {
+            {"plain", "", "with, comma", "say \"hi\"", ""},
+            {"line\nbreak", "crlf\r\nbreak", "cr\ronly", "\"", "\"\""},
+            {"", "", "", "", ""},
+            {" padded ", "trailing,", ",leading", "unicode é ✓", "x"},
+    };
+
+    private static String write(String[][] rows) throws IOException {
+        StringWriter out = new StringWriter();
+        for (String[] row : rows) CsvUtil.writeRow(out, row);
+        return out.toString();
+    }
+
+    private static List<String[]> readAll(CsvUtil.Tokenizer t) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        while (t.next()) {
+            String[] row = new String[t.fieldCount()];
+            for (int i = 0; i < row.length; i++) row[i] = t.field(i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Hands out one character per read, so every token crosses a buffer refill */
+    private static Reader trickle(String text) {
+        return new StringReader(text) {
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    @Test
+    void writtenRowsReadBackUnchanged() throws IOException {
+        String csv = write(ROWS);
+
+        char[] chars = csv.toCharArray();
+        List<String[]> fromArray = readAll(new CsvUtil.Tokenizer(chars, 0, chars.length));
+        List<String[]> fromReader = readAll(new CsvUtil.Tokenizer(trickle(csv)));
+
+        assertEquals(ROWS.length, fromArray.size());
+        for (int i = 0; i < ROWS.length; i++) {
+            assertArrayEquals(ROWS[i], fromArray.get(i), "row " + i);
+            assertArrayEquals(ROWS[i], fromReader.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    void onlyValuesThatNeedItAreQuoted() {
+        assertEquals("plain text", CsvUtil.quote("plain text"));
+        assertEquals("", CsvUtil.quote(null));
+        assertEquals("\"a,b\"", CsvUtil.quote("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvUtil.quote("say \"hi\""));
+    }
+
+    @Test
+    void lineEndingsAndMissingFields() throws IOException {
+        CsvUtil.Tokenizer t = new CsvUtil.Tokenizer(trickle("a,b\r\nc\rd,,\n\n  \nlast"));
+
+        assertTrue(t.next());
+        assertEquals(2, t.fieldCount());
+        assertTrue(t.next());
+        assertEquals("c", t.field(0));
+        assertTrue(t.next());
+        assertEquals(3, t.fieldCount());
+        assertEquals("", t.field(2));
+        assertEquals("", t.field(7)); // missing, not an exception
+        assertTrue(t.next());
+        assertTrue(t.isBlank());
+        assertTrue(t.next());
+        assertTrue(t.isBlank());
+        assertTrue(t.next());
+        assertEquals("last", t.field(0)); // no final line break
+        assertFalse(t.next());
+    }
+
+    @Test
+    void splitKeepsEmptyFieldsAndToleratesStrayQuotes() {
+        assertArrayEquals(new String[]{"", "a", ""}, CsvUtil.splitCsvLine(",a,"));
+        assertArrayEquals(new String[]{""}, CsvUtil.splitCsvLine(""));
+        // A stray quote toggles quoting, so the comma after it is kept
+        assertArrayEquals(new String[]{"ab,c", "d"}, CsvUtil.splitCsvLine("a\"b,\"c,d"));
+    }
+
+    @Test
+    void trimmedAndIntFields() throws IOException {
+        char[] chars = " 42 , -7,+3,12x,,99999999999, text ".toCharArray();
+        CsvUtil.Tokenizer t = new CsvUtil.Tokenizer(chars, 0, chars.length);
+        assertTrue(t.next());
+
+        assertEquals(42, t.intField(0, -1));
+        assertEquals(-7, t.intField(1, -1));
+        assertEquals(3, t.intField(2, -1));
+        assertEquals(-1, t.intField(3, -1));
+        assertEquals(-1, t.intField(4, -1));
+        assertEquals(-1, t.intField(5, -1)); // overflows int
+        assertEquals("text", t.trimmed(6));
+        assertEquals(" text ", t.field(6));
+    }
+
+    @Test
+    void appointmentNotesSurviveSaveAndLoad() throws IOException {
+        String path = folder.resolve("appointments.csv").toString();
+        List<Appointment> saved = List.of(
+                new Appointment("A1", "P001", "C001", "S001", "2025-06-02", "09:00", "15",
+                        "Bring \"old\" results, and\nthe referral letter"),
+                new Appointment("A2", "P002", "C002", "S001", "2025-06-03", "10:00", "30", ""));
+
+        CsvUtil.writeAppointments(path, saved);
+        List<Appointment> loaded = CsvUtil.readAppointments(path);
+
+        assertEquals(2, loaded.size());
+        assertEquals(saved.get(0).getNotes(), loaded.get(0).getNotes());
+        assertEquals("", loaded.get(1).getNotes());
+        assertEquals("30", loaded.get(1).getStatus());
+    }
+}
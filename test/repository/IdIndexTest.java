@@ -0,0 +1,70 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IdIndexTest
+ * -----------
+ * The index must give the same positions as the list it mirrors.
+ */
+class IdIndexTest {
+
+    /** Records are plain IDs here */
+    private final IdIndex<String> index = new IdIndex<>(id -> id);
+
+    @Test
+    void lookupIgnoresCaseAndSpaces() {
+        index.rebuild(List.of("C001", "C002"));
+
+        assertEquals("C002", index.get(" c002 "));
+        assertEquals(1, index.positionOf("c002"));
+        assertTrue(index.contains("c001"));
+        assertFalse(index.contains(null));
+        assertEquals(-1, index.positionOf("C999"));
+    }
+
+    @Test
+    void removeAtRenumbersLaterRows() {
+        List<String> list = new ArrayList<>(List.of("A", "B", "C", "D"));
+        index.rebuild(list);
+
+        list.remove(1);
+        index.removeAt(1);
+
+        assertNull(index.get("B"));
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(i, index.positionOf(list.get(i)));
+        }
+    }
+
+    @Test
+    void addAndSetFollowTheList() {
+        index.rebuild(List.of("A", "B"));
+
+        index.add("C");
+        assertEquals(2, index.positionOf("C"));
+
+        // Replacing a row under a new ID moves the key with it
+        index.set(0, "Z");
+        assertFalse(index.contains("A"));
+        assertEquals(0, index.positionOf("Z"));
+    }
+
+    @Test
+    void duplicateIdFindsTheLaterRow() {
+        index.rebuild(List.of("A", "dup", "DUP"));
+        assertEquals(2, index.positionOf("Dup"));
+
+        // Deleting the earlier duplicate leaves the key on the later row
+        index.removeAt(1);
+        assertEquals(1, index.positionOf("dup"));
+    }
+}
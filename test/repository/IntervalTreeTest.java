@@ -0,0 +1,91 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IntervalTreeTest
+ * ----------------
+ * Overlap queries are compared with a brute-force scan.
+ */
+class IntervalTreeTest {
+
+    @Test
+    void intervalsAreHalfOpen() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.insert(10, 20, "A", "A");
+
+        assertTrue(overlaps(tree, 0, 10).isEmpty());
+        assertTrue(overlaps(tree, 20, 30).isEmpty());
+        assertEquals(Set.of("A"), overlaps(tree, 19, 21));
+    }
+
+    @Test
+    void removeNeedsTheStartTheIntervalWasInsertedWith() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.insert(10, 20, "A", "A");
+        tree.insert(10, 15, "B", "B");
+
+        assertFalse(tree.remove(11, "A"));
+        assertTrue(tree.remove(10, "A"));
+        assertEquals(1, tree.size());
+        assertEquals(Set.of("B"), overlaps(tree, 0, 100));
+    }
+
+    @Test
+    void matchesBruteForceThroughInsertsAndRemovals() {
+        Random random = new Random(42);
+        IntervalTree<String> tree = new IntervalTree<>();
+        Map<String, long[]> live = new HashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            String key = "K" + i;
+            long start = random.nextInt(10_000);
+            long[] interval = {start, start + 1 + random.nextInt(120)};
+            tree.insert(interval[0], interval[1], key, key);
+            live.put(key, interval);
+
+            // Remove about a third again
+            if (random.nextInt(3) == 0) {
+                String victim = "K" + random.nextInt(i + 1);
+                long[] gone = live.remove(victim);
+                if (gone != null) assertTrue(tree.remove(gone[0], victim));
+            }
+        }
+        assertEquals(live.size(), tree.size());
+
+        for (int q = 0; q < 500; q++) {
+            long start = random.nextInt(10_200) - 100;
+            long end = start + 1 + random.nextInt(200);
+
+            Set<String> expected = new TreeSet<>();
+            for (Map.Entry<String, long[]> e : live.entrySet()) {
+                if (e.getValue()[0] < end && start < e.getValue()[1]) expected.add(e.getKey());
+            }
+            assertEquals(expected, overlaps(tree, start, end));
+        }
+
+        List<Long> starts = new ArrayList<>();
+        tree.forEachInOrder((start, end, value) -> starts.add(start));
+        for (int i = 1; i < starts.size(); i++) {
+            assertTrue(starts.get(i - 1) <= starts.get(i));
+        }
+    }
+
+    private static Set<String> overlaps(IntervalTree<String> tree, long start, long end) {
+        Set<String> found = new TreeSet<>();
+        tree.forEachOverlap(start, end, found::add);
+        return found;
+    }
+}
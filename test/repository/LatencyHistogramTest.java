@@ -0,0 +1,70 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LatencyHistogramTest
+ * --------------------
+ * Bucket boundaries, percentile reads and reset.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndWithinThreePercent() {
+        int last = LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE);
+        for (int b = 0; b < last; b++) {
+            long highest = LatencyHistogram.highestValueIn(b);
+            assertEquals(b, LatencyHistogram.bucketOf(highest));
+            assertEquals(b + 1, LatencyHistogram.bucketOf(highest + 1));
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueIn(last));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong(LatencyHistogram.MAX_VALUE + 1);
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32, value + " -> " + highest);
+        }
+    }
+
+    @Test
+    void percentilesReadTheBucketOfTheRank() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long v = 1; v <= 100; v++) histogram.record(v * 1_000);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50_500, snapshot.getMean(), 0.001);
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(100_000, snapshot.percentile(100));
+        assertEquals(LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(1_000)),
+                snapshot.percentile(0));
+
+        long p50 = snapshot.percentile(50);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 + 50_000 / 32, "p50 " + p50);
+    }
+
+    @Test
+    void outOfRangeValuesAreClampedAndResetClears() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.percentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+
+        histogram.reset();
+        snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.percentile(99));
+    }
+}
@@ -0,0 +1,65 @@
+package repository;
+
+import model.Appointment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * MappedAppointmentLoaderTest
+ * ---------------------------
+ * The parallel loader must give exactly what the streaming
+ * CsvUtil.readAppointments gives, wherever the chunks are cut.
+ */
+class MappedAppointmentLoaderTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void quotedLineBreaksAcrossChunkBoundariesMatchTheStreamingReader() throws IOException {
+        String path = folder.resolve("appointments.csv").toString();
+
+        List<Appointment> saved = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            saved.add(new Appointment("A" + i, "P00" + i % 7, "C00" + i % 3, "S001",
+                    "2025-06-" + (10 + i % 20), i % 2 == 0 ? "09:00" : "9:30", "Booked",
+                    i % 3 == 0 ? "" : "Line one,\nline \"two\"\r\nand three é"));
+        }
+        CsvUtil.writeAppointments(path, saved);
+
+        List<String> expected = rows(CsvUtil.readAppointments(path));
+        assertEquals(saved.size(), expected.size());
+
+        // Every chunk size up to a few rows moves a boundary into each quoted note
+        for (int chunkBytes = 1; chunkBytes <= 400; chunkBytes++) {
+            assertEquals(expected, rows(MappedAppointmentLoader.load(path, chunkBytes)),
+                    "chunkBytes=" + chunkBytes);
+        }
+        assertEquals(expected, rows(MappedAppointmentLoader.load(path)));
+    }
+
+    @Test
+    void chunkSizeMustBePositive() {
+        String path = folder.resolve("appointments.csv").toString();
+        assertThrows(IllegalArgumentException.class, () -> MappedAppointmentLoader.load(path, 0));
+    }
+
+    /** One comparable string per appointment, all fields included */
+    private static List<String> rows(List<Appointment> appointments) {
+        List<String> rows = new ArrayList<>();
+        for (Appointment a : appointments) {
+            rows.add(String.join("|", a.getAppointmentId(), a.getPatientId(), a.getClinicianId(),
+                    a.getFacilityId(), a.getAppointmentDate(), a.getAppointmentTime(),
+                    a.getStatus(), a.getNotes()));
+        }
+        return rows;
+    }
+}
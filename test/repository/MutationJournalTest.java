@@ -0,0 +1,131 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MutationJournalTest
+ * -------------------
+ * Replay after a clean close, a torn write and an unfinished compaction.
+ */
+class MutationJournalTest {
+
+    @TempDir
+    Path folder;
+
+    private String csv() {
+        return folder.resolve("rows.csv").toString();
+    }
+
+    private Path journalFile() {
+        return folder.resolve("rows.csv.journal");
+    }
+
+    /** Opens a journal on rows.csv and returns the records it replayed as "op:f1|f2" */
+    private List<String> replay(MutationJournal journal) throws IOException {
+        List<String> seen = new ArrayList<>();
+        journal.replay((op, fields) -> seen.add(op + ":" + String.join("|", fields)));
+        return seen;
+    }
+
+    @Test
+    void recordsReplayInOrderWithTheirFields() throws IOException {
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of(), replay(journal));
+            journal.append('A', "1", "", null);
+            journal.append('U', "1", "comma, quote \" and é", "x".repeat(300));
+            journal.append('D', "1");
+        }
+
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of(
+                    "A:1||",
+                    "U:1|comma, quote \" and é|" + "x".repeat(300),
+                    "D:1"), replay(journal));
+        }
+    }
+
+    @Test
+    void tornTailIsDroppedAndOverwritten() throws IOException {
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            replay(journal);
+            journal.append('A', "1");
+            journal.append('A', "2");
+        }
+
+        // Crash half-way through the second record
+        try (FileChannel ch = FileChannel.open(journalFile(), StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 2);
+        }
+
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of("A:1"), replay(journal));
+            journal.append('A', "3");
+        }
+
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of("A:1", "A:3"), replay(journal));
+        }
+    }
+
+    @Test
+    void corruptRecordEndsTheReplay() throws IOException {
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            replay(journal);
+            journal.append('A', "1");
+            journal.append('A', "2");
+            journal.append('A', "3");
+        }
+
+        // Flip the last payload byte of the second record ("2" -> "3")
+        byte[] bytes = Files.readAllBytes(journalFile());
+        int recordLength = bytes.length / 3;
+        bytes[2 * recordLength - 1] ^= 1;
+        Files.write(journalFile(), bytes);
+
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of("A:1"), replay(journal));
+        }
+        assertEquals(recordLength, Files.size(journalFile()));
+    }
+
+    @Test
+    void failedCompactionKeepsItsRecordsForTheNextReplay() throws IOException {
+        try (MutationJournal journal = new MutationJournal(csv(), 2)) {
+            replay(journal);
+            journal.append('A', "1");
+            assertFalse(journal.needsCompaction());
+            journal.append('A', "2");
+            assertTrue(journal.needsCompaction());
+
+            journal.compactAsync(() -> {
+                throw new IOException("disk full");
+            });
+            journal.append('A', "3");
+        }
+        assertTrue(Files.exists(folder.resolve("rows.csv.journal.old")));
+
+        // Rolled records first, then the live journal
+        List<String> written = new ArrayList<>();
+        try (MutationJournal journal = new MutationJournal(csv())) {
+            assertEquals(List.of("A:1", "A:2", "A:3"), replay(journal));
+            journal.compactAsync(() -> written.add("csv"));
+        }
+        // close() waits for the compaction
+        assertEquals(List.of("csv"), written);
+        assertFalse(Files.exists(folder.resolve("rows.csv.journal.old")));
+        assertEquals(0, Files.size(journalFile()));
+    }
+}
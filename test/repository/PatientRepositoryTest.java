@@ -0,0 +1,136 @@
+package repository;
+
+import model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PatientRepositoryTest
+ * ---------------------
+ * Changes reach the journal, not the CSV, and are replayed by the next
+ * load() even if the previous run never closed or compacted it.
+ */
+class PatientRepositoryTest {
+
+    @TempDir
+    Path folder;
+
+    private String csv;
+
+    private static Patient patient(String nhs, String first, String phone) {
+        return new Patient(nhs, first, "Smith", "1980-01-01", phone, "", "Female",
+                "1 High Street, Birmingham", "B1 1ZZ", first + "@example.com", "Surgery");
+    }
+
+    @BeforeEach
+    void writeCsv() throws IOException {
+        csv = folder.resolve("patients.csv").toString();
+        Files.writeString(Path.of(csv),
+                "nhsNumber,firstName,lastName,dateOfBirth,phoneNumber,emergencyContactNumber,"
+                        + "gender,address,postcode,email,registeredGpSurgery\n"
+                        + "111,Ann,Smith,1980-01-01,0121 1,,Female,\"1 High Street, Birmingham\","
+                        + "B1 1ZZ,ann@example.com,Surgery\n"
+                        + "222,Bea,Smith,1980-01-01,0121 2,,Female,\"1 High Street, Birmingham\","
+                        + "B1 1ZZ,bea@example.com,Surgery\n");
+    }
+
+    /**
+     * A load() that replays records folds them into the CSV in the
+     * background; waits until the rolled journal has been removed.
+     */
+    private void awaitCompaction() throws InterruptedException {
+        Path rolled = Path.of(csv + ".journal.old");
+        for (int i = 0; i < 500 && Files.exists(rolled); i++) Thread.sleep(10);
+        assertFalse(Files.exists(rolled), "compaction did not finish");
+    }
+
+    private static List<String> names(PatientRepository repository) {
+        List<String> names = new ArrayList<>();
+        for (Patient p : repository.view()) names.add(p.getNhsNumber() + " " + p.getFirstName());
+        return names;
+    }
+
+    @Test
+    void changesSurviveACrashBeforeCompaction() throws Exception {
+        PatientRepository first = new PatientRepository();
+        first.load(csv);
+        String original = Files.readString(Path.of(csv));
+
+        first.addPatient(patient("333", "Cat", "0121 3")).join();
+        first.updatePatient(patient("111", "Anne", "0121 1")).join();
+        first.updatePatientPhone("333", "0121 9").join();
+        first.deletePatient("222").join();
+        first.flush();
+
+        // Nothing was written to the CSV itself
+        assertEquals(original, Files.readString(Path.of(csv)));
+
+        // Start again without closing the first repository
+        PatientRepository second = new PatientRepository();
+        second.load(csv);
+
+        assertEquals(List.of("111 Anne", "333 Cat"), names(second));
+        assertEquals("0121 9", second.findByNhs("333").getPhoneNumber());
+        assertEquals("1 High Street, Birmingham", second.findByNhs("111").getAddress());
+        assertNull(second.findByNhs("222"));
+
+        // The replayed changes are now in the CSV
+        awaitCompaction();
+        assertTrue(Files.readString(Path.of(csv)).contains("333,Cat"));
+        assertFalse(Files.readString(Path.of(csv)).contains("222,Bea"));
+    }
+
+    @Test
+    void reloadWaitsForQueuedJournalAppends() throws Exception {
+        PatientRepository repository = new PatientRepository();
+        repository.load(csv);
+        List<Patient> rows = repository.read(csv).getRows();
+
+        // Queued after read(): install must not close the journal under it
+        CompletableFuture<Void> added = repository.addPatient(patient("333", "Cat", "0121 3"));
+        repository.install(csv, rows);
+
+        added.join();
+        assertEquals(List.of("111 Ann", "222 Bea", "333 Cat"), names(repository));
+        awaitCompaction();
+    }
+
+    @Test
+    void tornJournalWriteIsIgnored() throws Exception {
+        PatientRepository first = new PatientRepository();
+        first.load(csv);
+        first.deletePatient("111").join();
+        first.flush();
+
+        // A record whose body never made it to disk
+        Files.write(Path.of(csv + ".journal"), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 'U'},
+                StandardOpenOption.APPEND);
+
+        PatientRepository second = new PatientRepository();
+        second.load(csv);
+        assertEquals(List.of("222 Bea"), names(second));
+        awaitCompaction();
+
+        second.addPatient(patient("444", "Dee", "0121 4")).join();
+        second.flush();
+
+        PatientRepository third = new PatientRepository();
+        third.load(csv);
+        assertEquals(List.of("222 Bea", "444 Dee"), names(third));
+        awaitCompaction();
+    }
+}
@@ -0,0 +1,74 @@
+package repository;
+
+import model.Referral;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ReferralSearchIndexTest
+ * -----------------------
+ * Phrase, prefix and word queries over the free-text fields, and an
+ * index that follows updates and deletes.
+ */
+class ReferralSearchIndexTest {
+
+    private final ReferralSearchIndex index = new ReferralSearchIndex();
+
+    private static Referral referral(String id, String reason, String summary, String notes) {
+        return new Referral(id, "P001", "C001", "C002", "F001", "F002", "2025-06-01", "Routine",
+                reason, summary, "", "Pending", "", notes, "2025-06-01", "2025-06-01");
+    }
+
+    private List<String> search(String query) {
+        List<String> ids = new ArrayList<>();
+        for (Referral r : index.search(query)) ids.add(r.getReferralId());
+        return ids;
+    }
+
+    @Test
+    void phraseDoesNotMatchAcrossTwoFields() {
+        // "chest" ends the reason, "pain" starts the summary
+        index.add(referral("R1", "Review of chest", "Pain on exertion", ""));
+        index.add(referral("R2", "Chest pain", "Stable", ""));
+
+        assertEquals(List.of("R2"), search("\"chest pain\""));
+        assertEquals(List.of("R1", "R2"), search("chest pain"));
+    }
+
+    @Test
+    void prefixMatchesEveryTermStartingWithIt() {
+        index.add(referral("R1", "Cardiology opinion", "", ""));
+        index.add(referral("R2", "Cardiac murmur", "", ""));
+        index.add(referral("R3", "Card payment query", "", ""));
+        index.add(referral("R4", "Dermatology", "", "carpal tunnel"));
+
+        assertEquals(List.of("R1", "R2", "R3"), search("card*"));
+        assertEquals(List.of("R1", "R2"), search("cardi*"));
+        assertEquals(List.of("R4"), search("CARP*"));
+    }
+
+    @Test
+    void updateAndDeleteForgetOldTerms() {
+        index.add(referral("R1", "Knee pain", "", "awaiting xray"));
+        index.add(referral("R2", "Knee swelling", "", ""));
+
+        // Same ID again replaces the earlier version
+        index.add(referral("R1", "Shoulder pain", "", ""));
+
+        assertEquals(List.of("R2"), search("knee"));
+        assertTrue(search("xray").isEmpty());
+        assertTrue(search("awaiting*").isEmpty());
+        assertEquals(List.of("R1"), search("shoulder"));
+
+        index.remove("r1");
+
+        assertTrue(search("shoulder").isEmpty());
+        assertTrue(search("pain").isEmpty());
+        assertEquals(List.of("R2"), search("knee"));
+    }
+}
@@ -0,0 +1,83 @@
+package repository;
+
+import model.Clinician;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ReloadMergeTest
+ * ---------------
+ * A merge from disk is dropped if the file or the repository changed
+ * between read() and merge(), so neither change is lost.
+ */
+class ReloadMergeTest {
+
+    private static final String HEADER = "clinicianId,name,role,specialty,workplace\n";
+
+    @TempDir
+    Path folder;
+
+    private Path csv;
+    private ClinicianRepository repository;
+
+    @BeforeEach
+    void load() throws IOException {
+        csv = folder.resolve("clinicians.csv");
+        Files.writeString(csv, HEADER + "C001,Dr A,GP,General Practice,S001\n");
+        repository = new ClinicianRepository();
+        repository.load(csv.toString());
+    }
+
+    @Test
+    void currentReadIsMerged() throws IOException {
+        Files.writeString(csv, HEADER + "C001,Dr A,GP,General Practice,S001\nC002,Dr B,GP,Cardiology,S002\n");
+        assertTrue(repository.isChangedOnDisk());
+
+        RowDelta delta = repository.merge(repository.read(csv.toString()));
+
+        assertEquals("+1 ~0 -0", delta.toString());
+        assertFalse(repository.isChangedOnDisk());
+    }
+
+    @Test
+    void fileWrittenAgainAfterTheReadIsNotMarkedAsSeen() throws IOException {
+        Files.writeString(csv, HEADER + "C001,Dr A,GP,General Practice,S001\nC002,Dr B,GP,Cardiology,S002\n");
+        CsvRead<Clinician> read = repository.read(csv.toString());
+
+        Files.writeString(csv, HEADER + "C003,Dr C,Nurse,Dermatology,S003\n");
+
+        assertNull(repository.merge(read));
+        assertEquals(1, repository.view().size());
+        assertTrue(repository.isChangedOnDisk());
+
+        repository.merge(repository.read(csv.toString()));
+        assertEquals("C003", repository.view().get(0).getClinicianId());
+        assertEquals(1, repository.view().size());
+    }
+
+    @Test
+    void editAfterTheReadIsNotReverted() throws IOException {
+        Files.writeString(csv, HEADER + "C001,Dr A,GP,General Practice,S001\nC002,Dr B,GP,Cardiology,S002\n");
+        CsvRead<Clinician> read = repository.read(csv.toString());
+
+        repository.update(new Clinician("C001", "Dr A Jones", "GP", "General Practice", "S001"));
+
+        assertNull(repository.merge(read));
+        assertEquals("Dr A Jones", repository.findById("C001").getName());
+
+        // The next read saves the edit first (over the outside change),
+        // so it is never reverted
+        assertTrue(repository.merge(repository.read(csv.toString())).isEmpty());
+        assertEquals("Dr A Jones", repository.findById("C001").getName());
+    }
+}
@@ -0,0 +1,109 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RowDeltaTest
+ * ------------
+ * Rows are String[] with the key in column 0. The change events must
+ * be enough for a listener to keep its own copy of the list in step.
+ */
+class RowDeltaTest {
+
+    private final List<String[]> current = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private final List<String> indexed = new ArrayList<>();
+    private final ChangeSupport changes = new ChangeSupport();
+
+    private static String[] row(String... columns) {
+        return columns;
+    }
+
+    private static List<String> keys(List<String[]> rows) {
+        List<String> keys = new ArrayList<>();
+        for (String[] r : rows) keys.add(String.join("/", r));
+        return keys;
+    }
+
+    private final RowDelta.Indexer<String[]> indexer = new RowDelta.Indexer<>() {
+        @Override
+        public void removed(String[] row) {
+            indexed.add("-" + row[0]);
+        }
+
+        @Override
+        public void added(String[] row) {
+            indexed.add("+" + row[0]);
+        }
+
+        @Override
+        public void replaced(String[] oldRow, String[] newRow) {
+            indexed.add("~" + oldRow[0] + ">" + newRow[0]);
+        }
+    };
+
+    private RowDelta merge(List<String[]> incoming) {
+        return RowDelta.merge(current, incoming, r -> r[0], r -> r, indexer, changes);
+    }
+
+    @Test
+    void appliesDeletesUpdatesAndInsertsWithOneEventEach() {
+        current.addAll(List.of(row("A", "1"), row("B", "1"), row("C", "1"), row("D", "1")));
+        changes.addListener((change, first, last) -> events.add(change + " " + first));
+
+        RowDelta delta = merge(List.of(
+                row("c", "2"),      // same key, new values
+                row("A", "1"),      // unchanged
+                row("E", "1"),
+                row("E", "2")));    // a later duplicate wins
+
+        assertEquals("+1 ~1 -2", delta.toString());
+        assertEquals(List.of("A/1", "c/2", "E/2"), keys(current));
+        assertEquals(List.of("DELETED 3", "DELETED 1", "UPDATED 1", "INSERTED 2"), events);
+        assertEquals(List.of("-D", "-B", "~C>c", "+E"), indexed);
+    }
+
+    @Test
+    void identicalFileChangesNothing() {
+        current.addAll(List.of(row("A", "1"), row("B", "1")));
+        changes.addListener((change, first, last) -> events.add(change.toString()));
+
+        RowDelta delta = merge(List.of(row("B", "1"), row("A", "1")));
+
+        assertTrue(delta.isEmpty());
+        assertTrue(events.isEmpty());
+        assertEquals(List.of("A/1", "B/1"), keys(current));
+    }
+
+    @Test
+    void eventsLetAListenerMirrorTheList() {
+        Random random = new Random(11);
+        List<String[]> mirror = new ArrayList<>();
+        changes.addListener((change, first, last) -> {
+            switch (change) {
+                case DELETED -> mirror.remove(first);
+                case UPDATED -> mirror.set(first, current.get(first));
+                case INSERTED -> mirror.add(first, current.get(first));
+                default -> throw new AssertionError(change);
+            }
+        });
+
+        for (int round = 0; round < 50; round++) {
+            List<String[]> incoming = new ArrayList<>();
+            for (int k = 0; k < 40; k++) {
+                if (random.nextInt(3) > 0) {
+                    incoming.add(row("K" + random.nextInt(60), String.valueOf(random.nextInt(3))));
+                }
+            }
+            merge(incoming);
+            assertEquals(keys(current), keys(mirror), "round " + round);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package repository;
+
+import model.Appointment;
+import model.Facility;
+import model.TemporalCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SlotAllocatorTest
+ * -----------------
+ * Free-slot search and opening-hours checks on the slot bitmaps.
+ * 2025-06-02 is a Monday.
+ */
+class SlotAllocatorTest {
+
+    private static final int MONDAY = TemporalCodec.toEpochDay("2025-06-02");
+    private static final int SATURDAY = MONDAY + 5;
+
+    @TempDir
+    Path folder;
+
+    private AppointmentRepository appointments;
+    private FacilityRepository facilities;
+    private SlotAllocator allocator;
+
+    private static Appointment appointment(String id, String date, String time, String length) {
+        return new Appointment(id, "P001", "C001", "S001", date, time, length, "");
+    }
+
+    private static int minute(String time) {
+        return TemporalCodec.toMinuteOfDay(time);
+    }
+
+    @BeforeEach
+    void load() {
+        appointments = new AppointmentRepository();
+        facilities = new FacilityRepository();
+        allocator = new SlotAllocator(appointments, facilities);
+
+        facilities.install(folder.resolve("facilities.csv").toString(), new ArrayList<>(List.of(
+                new Facility("S001", "Surgery", "GP Surgery", "1 High Street", "B1 1ZZ", "0121",
+                        "a@b.nhs.uk", "Mon-Fri: 8:00-18:00  Sat: 8:00-12:00", "Dr. X", 100, ""))));
+
+        appointments.install(folder.resolve("appointments.csv").toString(), new ArrayList<>(List.of(
+                appointment("A1", "2025-06-02", "08:00", "30"),
+                appointment("A2", "2025-06-02", "08:45", "20"))));
+    }
+
+    @Test
+    void findsFirstGapLongEnough() {
+        // 08:30-08:45 is too short for 20 minutes; A2 ends at 09:05
+        SlotAllocator.Slot slot = allocator.findFirstFree("C001", "S001", MONDAY, 0, 20);
+        assertEquals(MONDAY, slot.getDay());
+        assertEquals("09:05", slot.getTime());
+
+        assertEquals("08:30", allocator.findFirstFree("c001", "s001", MONDAY, 0, 15).getTime());
+    }
+
+    @Test
+    void searchStartsAtTheGivenMinuteAndSkipsClosedDays() {
+        assertEquals("10:05", allocator.findFirstFree("C001", "S001", MONDAY, minute("10:01"), 15)
+                .getTime());
+
+        // Sunday is closed: the search moves on to Monday 08:00
+        SlotAllocator.Slot slot = allocator.findFirstFree("C001", "S001", SATURDAY + 1, 0, 15);
+        assertEquals(MONDAY + 7, slot.getDay());
+        assertEquals("08:00", slot.getTime());
+    }
+
+    @Test
+    void appointmentMustNotRunPastClosing() {
+        assertEquals("17:30", allocator.findFirstFree("C001", "S001", MONDAY, minute("17:30"), 30)
+                .getTime());
+        assertEquals(MONDAY + 1, allocator.findFirstFree("C001", "S001", MONDAY, minute("17:35"), 30)
+                .getDay());
+    }
+
+    @Test
+    void bitmapsFollowRepositoryChanges() {
+        appointments.addAppointment(appointment("A3", "2025-06-02", "08:30", "15")).join();
+        assertEquals("09:05", allocator.findFirstFree("C001", "S001", MONDAY, 0, 15).getTime());
+
+        appointments.deleteAppointment("A1").join();
+        assertEquals("08:00", allocator.findFirstFree("C001", "S001", MONDAY, 0, 15).getTime());
+    }
+
+    @Test
+    void openingHoursCoverTheWholeAppointment() {
+        assertTrue(allocator.isWithinOpeningHours("S001", MONDAY, minute("08:00"), 60));
+        assertTrue(allocator.isWithinOpeningHours("S001", MONDAY, minute("17:30"), 30));
+        assertFalse(allocator.isWithinOpeningHours("S001", MONDAY, minute("17:45"), 30));
+        assertFalse(allocator.isWithinOpeningHours("S001", MONDAY, minute("07:55"), 15));
+        assertTrue(allocator.isWithinOpeningHours("S001", SATURDAY, minute("11:30"), 30));
+        assertFalse(allocator.isWithinOpeningHours("S001", SATURDAY, minute("12:00"), 15));
+        assertFalse(allocator.isWithinOpeningHours("S001", SATURDAY + 1, minute("10:00"), 15));
+
+        // Unknown facility: DEFAULT_HOURS (Mon-Fri 9:00-17:00)
+        assertFalse(allocator.isWithinOpeningHours("S999", MONDAY, minute("08:30"), 15));
+        assertTrue(allocator.isWithinOpeningHours("S999", MONDAY, minute("09:00"), 15));
+    }
+
+    @Test
+    void durationIsReadFromTheLengthColumn() {
+        assertEquals(45, SlotAllocator.durationOf(appointment("X", "2025-06-02", "09:00", " 45 ")));
+        assertEquals(SlotAllocator.DEFAULT_DURATION,
+                SlotAllocator.durationOf(appointment("X", "2025-06-02", "09:00", "Pending")));
+        assertEquals(SlotAllocator.DEFAULT_DURATION,
+                SlotAllocator.durationOf(appointment("X", "2025-06-02", "09:00", "0")));
+    }
+
+    @Test
+    void fullyBookedHorizonFindsNothing() {
+        assertNull(allocator.findFirstFree("C001", "S001", MONDAY, 0, 11 * 60));
+    }
+}
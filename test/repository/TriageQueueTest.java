@@ -0,0 +1,94 @@
+package repository;
+
+import model.Referral;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * TriageQueueTest
+ * ---------------
+ * Order: urgency, then oldest referral date, then ID.
+ */
+class TriageQueueTest {
+
+    private final TriageQueue queue = new TriageQueue();
+
+    private static Referral referral(String id, String date, String urgency, String status) {
+        return new Referral(id, "P001", "C001", "C002", "F001", "F002", date, urgency,
+                "reason", "summary", "", status, "", "", date, date);
+    }
+
+    private static List<String> ids(List<Referral> referrals) {
+        List<String> ids = new ArrayList<>();
+        for (Referral r : referrals) ids.add(r.getReferralId());
+        return ids;
+    }
+
+    @Test
+    void ordersByUrgencyThenWaitingTimeThenId() {
+        queue.rebuild(List.of(
+                referral("R1", "2025-03-01", "Routine", "New"),
+                referral("R2", "2025-01-01", "Routine", "New"),
+                referral("R3", "2025-05-01", "Emergency", "New"),
+                referral("R4", "2025-02-01", "Urgent", "New"),
+                referral("R5", "2025-01-01", "Routine", "New"),
+                referral("R6", "2025-01-01", "Non-urgent", "New")));
+
+        assertEquals(List.of("R3", "R4", "R2", "R5", "R1", "R6"), ids(queue.top(10)));
+        assertEquals("R3", queue.peek().getReferralId());
+    }
+
+    @Test
+    void updateRepositionsAndCompletionRemoves() {
+        queue.rebuild(List.of(
+                referral("R1", "2025-01-01", "Routine", "New"),
+                referral("R2", "2025-02-01", "Routine", "New")));
+
+        queue.add(referral("R2", "2025-02-01", "Urgent", "New"));
+        assertEquals("R2", queue.peek().getReferralId());
+
+        queue.add(referral("r2", "2025-02-01", "Urgent", "Completed"));
+        assertEquals(1, queue.size());
+        assertEquals("R1", queue.peek().getReferralId());
+
+        queue.remove("R1");
+        assertNull(queue.peek());
+    }
+
+    @Test
+    void staysOrderedThroughManyChanges() {
+        List<Referral> all = new ArrayList<>();
+        String[] urgencies = {"Routine", "Urgent", "Emergency", "Non-urgent"};
+        for (int i = 0; i < 200; i++) {
+            all.add(referral(String.format("R%03d", i),
+                    String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28),
+                    urgencies[(i * 7) % 4], "New"));
+        }
+        queue.rebuild(all);
+
+        // Change every third referral's urgency and drop every fifth
+        for (int i = 0; i < all.size(); i += 3) {
+            Referral r = all.get(i);
+            all.set(i, referral(r.getReferralId(), "2024-12-31", urgencies[i % 4], "New"));
+            queue.add(all.get(i));
+        }
+        for (int i = all.size() - 1; i >= 0; i -= 5) {
+            queue.remove(all.remove(i).getReferralId());
+        }
+
+        List<Referral> expected = new ArrayList<>(all);
+        expected.sort((a, b) -> {
+            int u = Integer.compare(TriageQueue.urgencyRank(a.getUrgencyLevel()),
+                    TriageQueue.urgencyRank(b.getUrgencyLevel()));
+            if (u != 0) return u;
+            int d = Integer.compare(a.getReferralDay(), b.getReferralDay());
+            return d != 0 ? d : a.getReferralId().compareTo(b.getReferralId());
+        });
+        assertEquals(ids(expected), ids(queue.top(all.size())));
+    }
+}
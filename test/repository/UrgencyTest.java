@@ -0,0 +1,36 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UrgencyTest
+ * -----------
+ * Triage order and routing weight must agree on every level.
+ */
+class UrgencyTest {
+
+    @Test
+    void textIsMatchedLeniently() {
+        assertEquals(Urgency.EMERGENCY, Urgency.of(" EMERGENCY "));
+        assertEquals(Urgency.NON_URGENT, Urgency.of("Non-urgent"));
+        assertEquals(Urgency.ROUTINE, Urgency.of(null));
+        assertEquals(Urgency.ROUTINE, Urgency.of("Soon"));
+    }
+
+    @Test
+    void moreUrgentIsSeenFirstAndWeightsCapacityMore() {
+        Urgency[] levels = Urgency.values();
+        for (int i = 1; i < levels.length; i++) {
+            Urgency higher = levels[i - 1];
+            Urgency lower = levels[i];
+            assertTrue(higher.triageRank < lower.triageRank, higher + " before " + lower);
+            assertTrue(higher.routingWeight > lower.routingWeight, higher + " outweighs " + lower);
+        }
+
+        assertTrue(ReferralRouter.urgencyWeight("Emergency") > ReferralRouter.urgencyWeight("Urgent"));
+        assertEquals(0, TriageQueue.urgencyRank("emergency"));
+    }
+}